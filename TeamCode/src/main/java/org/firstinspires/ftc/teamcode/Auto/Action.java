@@ -0,0 +1,27 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+/**
+ * A command that runs over several control cycles without owning the thread.
+ * An ActionScheduler calls {@link #start()} once, then {@link #update()} once per cycle
+ * until it returns true, or {@link #cancel()} if the action is abandoned.
+ * Actions are reusable: start() may be called again after the action finished.
+ */
+public interface Action {
+
+    /**
+     * Issues the initial hardware commands. Must not block.
+     */
+    void start();
+
+    /**
+     * Runs one control cycle. Must not block.
+     *
+     * @return true once the action has finished
+     */
+    boolean update();
+
+    /**
+     * Stops the action early and leaves its hardware in a safe state.
+     */
+    void cancel();
+}
@@ -0,0 +1,15 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+/**
+ * Creates the Action for a compiled instruction that runs over several control cycles.
+ * Called once per instruction when a script is prepared, so nothing is allocated while it runs.
+ */
+public interface ActionHandler {
+
+    /**
+     * @param interpreter Interpreter that will run the action
+     * @param pc Index of the instruction
+     * @return a reusable action for that instruction
+     */
+    Action create(ScriptInterpreter interpreter, int pc);
+}
@@ -0,0 +1,65 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+/**
+ * Ticks a set of running Actions once per control cycle.
+ * The active set is a fixed-size array so scheduling does not allocate.
+ */
+public class ActionScheduler {
+
+    public static final int CAPACITY = 16;
+
+    private final Action[] active = new Action[CAPACITY];
+    private int count;
+
+    /**
+     * Starts an action and adds it to the active set.
+     *
+     * @param action Action to run
+     */
+    public void start(Action action) {
+        if (count == CAPACITY) {
+            throw new IllegalStateException("More than " + CAPACITY + " actions running at once");
+        }
+        action.start();
+        active[count++] = action;
+    }
+
+    /**
+     * Updates every active action once and drops the ones that finished.
+     *
+     * @return number of actions that finished during this tick
+     */
+    public int tick() {
+        int finished = 0;
+        int i = 0;
+        while (i < count) {
+            if (active[i].update()) {
+                // Swap-remove keeps the array dense
+                active[i] = active[--count];
+                active[count] = null;
+                finished++;
+            } else {
+                i++;
+            }
+        }
+        return finished;
+    }
+
+    /**
+     * Cancels every active action.
+     */
+    public void cancelAll() {
+        for (int i = 0; i < count; i++) {
+            active[i].cancel();
+            active[i] = null;
+        }
+        count = 0;
+    }
+
+    /**
+     * @return true when no action is running
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+}
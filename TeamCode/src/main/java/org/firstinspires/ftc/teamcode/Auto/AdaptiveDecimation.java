@@ -0,0 +1,279 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+import java.util.List;
+
+/**
+ * Picks the AprilTagProcessor's decimation every frame, trading detection range for frame rate.
+ *
+ * The SDK samples measure a 2 in tag detected from 10 ft at decimation 1 (10 FPS), 6 ft at 2
+ * (22 FPS) and 4 ft at 3 (30 FPS), and range grows with tag size. So after each processed frame:
+ * <ul>
+ * <li>a tag further than {@link #FAR_FRACTION} of the current level's range moves to a finer
+ *     level straight away, before it is lost;</li>
+ * <li>tags that would all be within {@link #CLOSE_FRACTION} of a coarser level's range for
+ *     {@link #CLOSE_FRAMES} frames in a row move one level coarser, for the frame rate;</li>
+ * <li>{@link #MISS_FRAMES} frames in a row without a tag try one level finer, to look further,
+ *     unless that level has been measured processing slower than {@link #MIN_FPS};</li>
+ * <li>a level measured slower than MIN_FPS moves coarser, unless the tags in view need it.</li>
+ * </ul>
+ * The gap between FAR_FRACTION and CLOSE_FRACTION, and the frame counts, keep a tag near a
+ * boundary from switching the level every frame.
+ *
+ * Resolution is not adapted: the VisionPortal only sets it when the camera is opened.
+ */
+public class AdaptiveDecimation {
+
+    /** Decimation of each level, finest (longest range, slowest) first. */
+    public static final float[] DECIMATIONS = {1, 2, 3};
+
+    /** Range at which each level still detects a tag, per inch of tag size. */
+    public static final double[] RANGE_PER_TAG_INCH = {60, 36, 24};
+
+    /** A tag past this fraction of the current level's range moves to a finer level. */
+    public static final double FAR_FRACTION = 0.85;
+
+    /** Tags within this fraction of a coarser level's range move to it. */
+    public static final double CLOSE_FRACTION = 0.7;
+
+    /** Frames in a row the tags must be close before moving coarser. */
+    public static final int CLOSE_FRAMES = 5;
+
+    /** Frames in a row without a tag before looking further. */
+    public static final int MISS_FRAMES = 10;
+
+    /** Processing rate below which a level counts as too slow; decimation 1 normally runs at 10. */
+    public static final double MIN_FPS = 8;
+
+    /** Frames after a switch before the portal's FPS is taken as the new level's. */
+    public static final int FPS_SETTLE_FRAMES = 10;
+
+    /** Tag size assumed for detections without library metadata, in inches. */
+    public static final double DEFAULT_TAG_SIZE_INCHES = 4.0;
+
+    /** Reasons for the last decision, see {@link #getReason()}. */
+    public static final int REASON_START = 0;
+    public static final int REASON_HOLD = 1;
+    public static final int REASON_FAR = 2;
+    public static final int REASON_CLOSE = 3;
+    public static final int REASON_MISSES = 4;
+    public static final int REASON_SLOW = 5;
+
+    private static final String[] REASON_NAMES = {"start", "hold", "tag far", "tags close", "no tags", "slow"};
+
+    private final AprilTagProcessor processor;
+    private final VisionPortal portal;
+
+    private int level;
+    private int reason = REASON_START;
+    private int closeFrames;
+    private int missFrames;
+    private int framesSinceSwitch;
+    private final double[] levelFps = new double[DECIMATIONS.length]; // 0 until measured
+    private final long[] levelFrames = new long[DECIMATIONS.length];
+    private long switches;
+    private double lastRange = Double.NaN;
+    private double fps;
+
+    private TelemetryPublisher telemetry;
+    private int decimationSlot;
+    private int rangeSlot;
+    private int fpsSlot;
+
+    /**
+     * Starts at the coarsest level and applies it to the processor.
+     *
+     * @param processor Processor to adjust
+     * @param portal Portal running it, for the measured frame rate
+     */
+    public AdaptiveDecimation(AprilTagProcessor processor, VisionPortal portal) {
+        this.processor = processor;
+        this.portal = portal;
+        level = DECIMATIONS.length - 1;
+        if (processor != null) processor.setDecimation(DECIMATIONS[level]);
+    }
+
+    /**
+     * Shows the decimation, the range that drove it, the frame rate and the reason of the last
+     * change. Call during init.
+     *
+     * @param telemetry Publisher to add the lines to
+     */
+    public void addTelemetry(TelemetryPublisher telemetry) {
+        this.telemetry = telemetry;
+        decimationSlot = telemetry.addNumber("AprilTag decimation", "%.0f");
+        rangeSlot = telemetry.addNumber("AprilTag range", "%.1f in");
+        fpsSlot = telemetry.addNumber("Vision FPS", "%.1f");
+        telemetry.addData("AprilTag decision", () -> REASON_NAMES[reason]);
+    }
+
+    /**
+     * Takes the detections of the newest frame, if there is one, and adjusts the decimation.
+     * Call once per loop.
+     *
+     * @return the newest frame's detections, or null if no frame was processed since the last call
+     */
+    public List<AprilTagDetection> update() {
+        List<AprilTagDetection> detections = processor.getFreshDetections();
+        if (detections == null) return null;
+        // The furthest tag decides, so that every tag in view stays detectable
+        double worstRatio = Double.NaN;
+        double worstRange = Double.NaN;
+        for (int i = 0; i < detections.size(); i++) {
+            AprilTagDetection detection = detections.get(i);
+            if (detection.ftcPose == null) continue;
+            double size = detection.metadata != null
+                    ? detection.metadata.distanceUnit.toInches(detection.metadata.tagsize) : DEFAULT_TAG_SIZE_INCHES;
+            double ratio = detection.ftcPose.range / size;
+            if (Double.isNaN(worstRatio) || ratio > worstRatio) {
+                worstRatio = ratio;
+                worstRange = detection.ftcPose.range;
+            }
+        }
+        if (update(worstRange, worstRange / worstRatio, portal.getFps())) {
+            processor.setDecimation(DECIMATIONS[level]);
+        }
+        return detections;
+    }
+
+    /**
+     * Makes the decision for one processed frame, without touching the processor.
+     *
+     * @param rangeInches Range of the furthest tag detected in the frame, or NaN if there was none
+     * @param tagSizeInches Size of that tag
+     * @param fps Measured processing frame rate
+     * @return true if the level changed
+     */
+    public boolean update(double rangeInches, double tagSizeInches, double fps) {
+        this.fps = fps;
+        levelFrames[level]++;
+        framesSinceSwitch++;
+        if (framesSinceSwitch >= FPS_SETTLE_FRAMES) levelFps[level] = fps;
+        int next = level;
+        int why = REASON_HOLD;
+
+        boolean seen = !Double.isNaN(rangeInches);
+        if (seen) {
+            lastRange = rangeInches;
+            missFrames = 0;
+            double ratio = rangeInches / tagSizeInches;
+            if (level > 0 && ratio > FAR_FRACTION * RANGE_PER_TAG_INCH[level]) {
+                closeFrames = 0;
+                next = finestNeeded(ratio);
+                why = REASON_FAR;
+            } else if (level < DECIMATIONS.length - 1 && ratio < CLOSE_FRACTION * RANGE_PER_TAG_INCH[level + 1]) {
+                if (++closeFrames >= CLOSE_FRAMES) {
+                    next = level + 1;
+                    why = REASON_CLOSE;
+                }
+            } else {
+                closeFrames = 0;
+            }
+        } else {
+            closeFrames = 0;
+            if (++missFrames >= MISS_FRAMES && level > 0 && !isSlow(level - 1)) {
+                next = level - 1;
+                why = REASON_MISSES;
+            }
+        }
+
+        if (next == level && why == REASON_HOLD && isSlow(level) && level < DECIMATIONS.length - 1) {
+            // Only give up range the tags in view do not need
+            boolean needed = seen && rangeInches / tagSizeInches > FAR_FRACTION * RANGE_PER_TAG_INCH[level + 1];
+            if (!needed) {
+                next = level + 1;
+                why = REASON_SLOW;
+            }
+        }
+
+        boolean changed = next != level;
+        if (changed) {
+            level = next;
+            reason = why;
+            switches++;
+            closeFrames = 0;
+            missFrames = 0;
+            framesSinceSwitch = 0;
+        }
+        if (telemetry != null) {
+            telemetry.set(decimationSlot, DECIMATIONS[level]);
+            telemetry.set(rangeSlot, lastRange);
+            telemetry.set(fpsSlot, fps);
+        }
+        return changed;
+    }
+
+    private boolean isSlow(int level) {
+        return levelFps[level] > 0 && levelFps[level] < MIN_FPS;
+    }
+
+    private static int finestNeeded(double ratio) {
+        // Coarsest level that keeps the tag inside FAR_FRACTION of its range
+        for (int level = DECIMATIONS.length - 1; level > 0; level--) {
+            if (ratio <= FAR_FRACTION * RANGE_PER_TAG_INCH[level]) return level;
+        }
+        return 0;
+    }
+
+    /**
+     * @return decimation currently applied
+     */
+    public float getDecimation() {
+        return DECIMATIONS[level];
+    }
+
+    /**
+     * @return index into DECIMATIONS of the current level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return REASON_START, or the REASON of the last change of level
+     */
+    public int getReason() {
+        return reason;
+    }
+
+    /**
+     * @param reason A reason from {@link #getReason()}
+     * @return readable name, e.g. "tag far"
+     */
+    public static String reasonName(int reason) {
+        return REASON_NAMES[reason];
+    }
+
+    /**
+     * @return number of level changes so far
+     */
+    public long getSwitchCount() {
+        return switches;
+    }
+
+    /**
+     * @param level Index into DECIMATIONS
+     * @return frames processed at that level so far
+     */
+    public long getFrameCount(int level) {
+        return levelFrames[level];
+    }
+
+    /**
+     * @param level Index into DECIMATIONS
+     * @return processing rate last measured at that level, or 0 if it has not run long enough
+     */
+    public double getLevelFps(int level) {
+        return levelFps[level];
+    }
+
+    /**
+     * @return range of the furthest tag in the last frame that had one, in inches, or NaN
+     */
+    public double getLastRange() {
+        return lastRange;
+    }
+}
@@ -0,0 +1,95 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.Position;
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+import java.util.List;
+
+/**
+ * Feeds the robot poses one camera's AprilTagProcessor measures into a PoseEstimator.
+ *
+ * Build the processor with the camera's position on the robot (setCameraPose, as in the SDK's
+ * ConceptAprilTagLocalization) so that detections of tags in the tag library carry a field
+ * robotPose. Each one is handed to the estimator with the frame's capture time, and weighted by
+ * the camera's weight, reduced for far tags, whose poses are less precise. With several cameras
+ * (see ConceptAprilTagMultiPortal) make one localizer per camera, each with its own weight, e.g.
+ * more for a camera with a better lens or a clearer view of the tags.
+ *
+ * The decimation is adapted to the tags in view by an AdaptiveDecimation.
+ */
+public class AprilTagLocalizer {
+
+    /** Tag range at which a fix counts half as much as one from a close tag. */
+    public static final double HALF_WEIGHT_RANGE_INCHES = 48.0;
+
+    private final String name;
+    private final PoseEstimator estimator;
+    private final AdaptiveDecimation decimation;
+    private final double weight;
+    private long fixes;
+
+    /**
+     * @param name Camera name, for telemetry
+     * @param processor The camera's AprilTag processor, built with the camera pose
+     * @param portal The camera's portal
+     * @param weight Weight of a fix from a close tag, from 0 to 1
+     * @param estimator Estimator to correct
+     */
+    public AprilTagLocalizer(String name, AprilTagProcessor processor, VisionPortal portal, double weight,
+                             PoseEstimator estimator) {
+        this.name = name;
+        this.estimator = estimator;
+        this.weight = weight;
+        decimation = new AdaptiveDecimation(processor, portal);
+    }
+
+    /**
+     * Reads the newest frame, if there is one, and queues a fix for every located tag in it.
+     * Call once per loop.
+     *
+     * @return number of fixes queued
+     */
+    public int update() {
+        List<AprilTagDetection> detections = decimation.update();
+        if (detections == null) return 0;
+        int queued = 0;
+        for (int i = 0; i < detections.size(); i++) {
+            AprilTagDetection detection = detections.get(i);
+            // Tags outside the library have no field position, so no robot pose
+            if (detection.metadata == null || detection.robotPose == null) continue;
+            Position position = detection.robotPose.getPosition().toUnit(DistanceUnit.INCH);
+            double heading = detection.robotPose.getOrientation().getYaw(AngleUnit.RADIANS);
+            double range = detection.ftcPose.range / HALF_WEIGHT_RANGE_INCHES;
+            estimator.addVisionPose(new Pose(position.x, position.y, heading, 0, 0, 0,
+                    detection.frameAcquisitionNanoTime), weight / (1 + range * range));
+            queued++;
+        }
+        fixes += queued;
+        return queued;
+    }
+
+    /**
+     * @return the camera's decimation controller, e.g. to add its telemetry
+     */
+    public AdaptiveDecimation getDecimation() {
+        return decimation;
+    }
+
+    /**
+     * @return camera name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of fixes queued so far
+     */
+    public long getFixCount() {
+        return fixes;
+    }
+}
@@ -3,126 +3,399 @@ package org.firstinspires.ftc.teamcode.Auto;
 import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.hardware.ColorSensor;
+import com.qualcomm.robotcore.util.RobotLog;
 
+import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.Position;
+import org.firstinspires.ftc.robotcore.external.navigation.YawPitchRollAngles;
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Autonomous(name = "AutoScriptor")
 public class AutoScriptor extends LinearOpMode {
 
-    private Map<String, String> scripts = new HashMap<>();
+    /** How often the selector looks for new or edited script files. */
+    private static final long SCRIPT_SCAN_INTERVAL_MS = 1000;
+
+    /** Webcam whose AprilTag poses correct the odometry, if the robot configuration has one. */
+    public static final String CAMERA_NAME = "Webcam 1";
+
+    /** Where the camera sits on the robot, as in ConceptAprilTagLocalization. */
+    public static final Position CAMERA_POSITION = new Position(DistanceUnit.INCH, 0, 0, 0, 0);
+    public static final YawPitchRollAngles CAMERA_ORIENTATION = new YawPitchRollAngles(AngleUnit.DEGREES, 0, -90, 0, 0);
+
+    /** Weight of a fix from a close tag, see AprilTagLocalizer. */
+    public static final double CAMERA_WEIGHT = 0.5;
+
+    private final ScriptLibrary library = new ScriptLibrary();
+    private Map<String, CompiledScript> scripts = new HashMap<>();
     private String selectedScriptName = "";
     private DriveBase driveBase;
+    private PoseEstimator poseEstimator;
+    private VisionPortal visionPortal;
+    private AprilTagLocalizer localizer;
+    private OpModeHost host;
+    private HardwareRegistry registry;
+    private final ScriptInterpreter interpreter = new ScriptInterpreter();
+
+    /** Rescans, estimates and prepares scripts off the OpMode thread while the selector is showing. */
+    private ScheduledExecutorService background;
+    private Future<RuntimeEstimator> estimating;
+    private CompiledScript estimatedScript;
+
+    /** Resolves the selected script's devices and binds the interpreter to it; the result is the error, or null. */
+    private Future<String> preparing;
+    private CompiledScript preparingScript;
 
     @Override
     public void runOpMode() throws InterruptedException {
         telemetry.addLine("Loading Auto Scripts...");
         telemetry.update();
+        // The devices were reset for this OpMode, so cached writes from the last one are stale
+        HardwareCache.reset(hardwareMap);
+        LoopTimer.resetAll();
 
         driveBase = new DriveBase(hardwareMap);
+        poseEstimator = new PoseEstimator(PoseEstimator.findSource(hardwareMap, driveBase));
+        host = new OpModeHost(this);
+        startCamera();
+        registry = new HardwareRegistry(hardwareMap);
+        Commands.register(interpreter, driveBase, host, registry, poseEstimator);
 
-        // Add your scripts here
-        scripts.put("Square", AutoScript.SQUARE);
-        scripts.put("SlideUp", AutoScript.SLIDE_UP);
+        // Add your scripts here. Scripts in ScriptLibrary.SCRIPT_DIR are loaded as well.
+        library.addBuiltIn("Square", AutoScript.SQUARE);
+        library.addBuiltIn("SlideUp", AutoScript.SLIDE_UP);
+        library.refresh();
+        scripts = library.getScripts();
 
         List<String> availableScripts = new ArrayList<>(scripts.keySet());
         if (availableScripts.isEmpty()) {
             telemetry.addLine("No Auto Scripts found!");
             telemetry.update();
             waitForStart();
+            if (visionPortal != null) visionPortal.close();
             return;
         }
 
-        int index = 0;
-        selectedScriptName = availableScripts.get(index);
+        background = Executors.newSingleThreadScheduledExecutor();
+        try {
+            // Rescans run on the same thread as the estimates, so the two never overlap
+            background.scheduleWithFixedDelay(library::refresh,
+                    SCRIPT_SCAN_INTERVAL_MS, SCRIPT_SCAN_INTERVAL_MS, TimeUnit.MILLISECONDS);
 
-        // Selector loop
-        while (!isStarted() && !isStopRequested()) {
-            boolean updated = false;
+            int index = 0;
+            selectedScriptName = availableScripts.get(index);
 
-            if (gamepad1.dpad_up) {
-                index = (index - 1 + availableScripts.size()) % availableScripts.size();
-                selectedScriptName = availableScripts.get(index);
-                updated = true;
-                sleep(300);
-            }
+            // Selector loop. D-pad presses are edge-triggered, so there is no debounce sleep.
+            boolean updated = true;
+            boolean estimateShown = false;
+            boolean prepareShown = false;
+            while (!isStarted() && !isStopRequested()) {
+                Map<String, CompiledScript> latest = library.getScripts();
+                if (latest != scripts) {
+                    scripts = latest;
+                    // Built-in scripts are always present, so the list is never empty here
+                    availableScripts = new ArrayList<>(scripts.keySet());
+                    index = Math.max(0, availableScripts.indexOf(selectedScriptName));
+                    selectedScriptName = availableScripts.get(index);
+                    updated = true;
+                }
+
+                if (gamepad1.dpadUpWasPressed()) {
+                    index = (index - 1 + availableScripts.size()) % availableScripts.size();
+                    selectedScriptName = availableScripts.get(index);
+                    updated = true;
+                }
+
+                if (gamepad1.dpadDownWasPressed()) {
+                    index = (index + 1) % availableScripts.size();
+                    selectedScriptName = availableScripts.get(index);
+                    updated = true;
+                }
+
+                CompiledScript selected = scripts.get(selectedScriptName);
+                if (selected != estimatedScript) {
+                    estimateInBackground(selected);
+                    estimateShown = false;
+                }
+                if (selected != preparingScript) {
+                    prepareInBackground(selected);
+                    prepareShown = false;
+                }
+                if (!estimateShown && estimating != null && estimating.isDone()) {
+                    updated = true;
+                }
+                if (!prepareShown && preparing != null && preparing.isDone()) {
+                    updated = true;
+                }
+
+                if (updated) {
+                    telemetry.clear();
+                    telemetry.addLine("=== SELECT AUTO SCRIPT ===");
+                    telemetry.addData("Selected:", selectedScriptName);
+                    telemetry.addLine("Use D-Pad UP/DOWN to change");
+                    addErrors(selected);
+                    prepareShown = addPrepareError();
+                    for (String error : library.getLoadErrors()) telemetry.addLine("!! " + error);
+                    estimateShown = addEstimate();
+                    telemetry.update();
+                    updated = false;
+                }
 
-            if (gamepad1.dpad_down) {
-                index = (index + 1) % availableScripts.size();
-                selectedScriptName = availableScripts.get(index);
-                updated = true;
-                sleep(300);
+                idle();
             }
 
-            if (updated) {
+            waitForStart();
+
+            CompiledScript program = scripts.get(selectedScriptName);
+            // Submitted during INIT, but PLAY right after a selection change can come before it finished
+            if (program != preparingScript) prepareInBackground(program);
+            String prepareError = awaitPrepared();
+            if (program != null && program.hasErrors()) {
                 telemetry.clear();
-                telemetry.addLine("=== SELECT AUTO SCRIPT ===");
-                telemetry.addData("Selected:", selectedScriptName);
-                telemetry.addLine("Use D-Pad UP/DOWN to change");
+                telemetry.addLine("Not running " + selectedScriptName + ", it has errors:");
+                addErrors(program);
                 telemetry.update();
-            }
+            } else if (program != null && prepareError != null) {
+                telemetry.clear();
+                telemetry.addLine("Not running " + selectedScriptName + ", it could not be prepared:");
+                telemetry.addLine(prepareError);
+                telemetry.update();
+            } else if (program != null) {
+                telemetry.clear();
+                telemetry.addLine("Running Auto Script: " + selectedScriptName);
+                host.getTelemetry().addData("Pose", poseEstimator::getPose);
+                if (localizer != null) localizer.getDecimation().addTelemetry(host.getTelemetry());
+                host.getTelemetry().flush();
 
-            idle();
+                FlightRecorder recorder = startRecorder(selectedScriptName);
+                poseEstimator.start();
+                // Encoder odometry has no thread; it steps on the encoders this cycle read
+                boolean stepOdometry = !poseEstimator.isRunning();
+                host.setOnCycle(() -> {
+                    // Fixes queued before the update are merged by it
+                    if (localizer != null) localizer.update();
+                    if (stepOdometry) poseEstimator.update();
+                    registry.updateHolds();
+                    if (recorder != null) recorder.record(host.nanoTime(), driveBase, interpreter);
+                });
+                try {
+                    interpreter.run(program, host);
+                } finally {
+                    host.setOnCycle(null);
+                    if (recorder != null) recorder.close();
+                }
+                host.getTelemetry().flush();
+                // A chained move may still be commanded if the run ended between two commands
+                driveBase.stop();
+                registry.stopAll();
+                if (interpreter.getError() != null) {
+                    telemetry.addLine("Script error: " + interpreter.getError());
+                }
+                telemetry.addData("Odometry", poseEstimator.getPose());
+                telemetry.addData("Hub writes", "%d sent, %d saved by caching",
+                        HardwareCache.getSentWrites(hardwareMap), HardwareCache.getSavedWrites(hardwareMap));
+                addLoopTimes();
+                if (recorder != null) {
+                    telemetry.addData("Recorded", "%d cycles to %s (%d dropped)",
+                            recorder.getWrittenCount(), recorder.getFile().getName(), recorder.getDroppedCount());
+                }
+                if (localizer != null) {
+                    telemetry.addData("Vision fixes", "%d merged, %d too old",
+                            poseEstimator.getVisionFixCount(), poseEstimator.getDroppedVisionFixCount());
+                }
+                if (poseEstimator.getLastError() != null) {
+                    telemetry.addLine("!! Odometry failed: " + poseEstimator.getLastError());
+                }
+            } else {
+                telemetry.addLine("No Auto Script selected!");
+                telemetry.update();
+            }
+        } finally {
+            background.shutdownNow();
+            poseEstimator.stop();
+            if (visionPortal != null) visionPortal.close();
         }
 
-        waitForStart();
+        telemetry.addLine("Auto Complete");
+        telemetry.update();
+    }
 
-        if (selectedScriptName != null && !selectedScriptName.isEmpty()) {
-            telemetry.clear();
-            telemetry.addLine("Running Auto Script: " + selectedScriptName);
-            telemetry.update();
+    /**
+     * Opens the AprilTag camera, if the robot has one named {@link #CAMERA_NAME}, so that the tags
+     * it sees while a script runs correct the PoseEstimator. The pose then converges on field
+     * coordinates from wherever the robot started.
+     */
+    private void startCamera() {
+        WebcamName webcam = hardwareMap.tryGet(WebcamName.class, CAMERA_NAME);
+        if (webcam == null) return;
+        AprilTagProcessor aprilTag = new AprilTagProcessor.Builder()
+                .setCameraPose(CAMERA_POSITION, CAMERA_ORIENTATION)
+                .build();
+        visionPortal = new VisionPortal.Builder()
+                .setCamera(webcam)
+                .addProcessor(aprilTag)
+                .build();
+        localizer = new AprilTagLocalizer(CAMERA_NAME, aprilTag, visionPortal, CAMERA_WEIGHT, poseEstimator);
+    }
 
-            String script = scripts.get(selectedScriptName);
-            String[] lines = script.split("\n");
+    /**
+     * Estimates the script's run time on the background thread. The estimate only reads the
+     * script and the mechanism calibration, never the hardware.
+     * A pending estimate of a previous selection is cancelled.
+     */
+    private void estimateInBackground(CompiledScript script) {
+        if (estimating != null) estimating.cancel(false);
+        estimatedScript = script;
+        if (script == null || script.hasErrors()) {
+            estimating = null;
+            return;
+        }
+        estimating = background.submit(() -> new RuntimeEstimator(script));
+    }
 
-            for (String line : lines) {
-                if (!opModeIsActive()) break;
-                String trimmed = line.trim();
-                if (trimmed.isEmpty() || trimmed.startsWith("//")) continue;
-                path(trimmed.split(" "));
+    /**
+     * Resolves the script's devices and binds it to the interpreter on the background thread, so
+     * that scrolling never stalls the selector and PLAY starts the first command on the first
+     * control cycle. Looking up a motor resets its encoder, which is why PLAY waits for this in
+     * {@link #awaitPrepared} instead of running the script alongside it.
+     * A pending preparation of a previous selection is cancelled.
+     */
+    private void prepareInBackground(CompiledScript script) {
+        if (preparing != null) preparing.cancel(false);
+        preparingScript = script;
+        if (script == null || script.hasErrors()) {
+            preparing = null;
+            return;
+        }
+        preparing = background.submit(() -> {
+            try {
+                // A device missing from the robot configuration fails here, before PLAY
+                registry.resolve(script);
+                interpreter.prepare(script);
+                return null;
+            } catch (RuntimeException e) {
+                return e.getMessage() != null ? e.getMessage() : e.toString();
             }
-        } else {
-            telemetry.addLine("No Auto Script selected!");
-            telemetry.update();
+        });
+    }
+
+    /**
+     * Waits for the selected script's preparation. Getting its result also makes the devices and
+     * actions it set up visible to the OpMode thread.
+     *
+     * @return why the script could not be prepared, or null if it is ready or has nothing to prepare
+     * @throws InterruptedException if STOP is pressed while waiting
+     */
+    private String awaitPrepared() throws InterruptedException {
+        if (preparing == null) return null;
+        try {
+            return preparing.get();
+        } catch (ExecutionException e) {
+            return String.valueOf(e.getCause());
         }
+    }
 
-        telemetry.addLine("Auto Complete");
-        telemetry.update();
+    /**
+     * Shows why the selected script could not be prepared, once its preparation is done.
+     *
+     * @return true if the preparation is done or there is none, false while it is still running
+     */
+    private boolean addPrepareError() {
+        if (preparing == null) return true;
+        if (!preparing.isDone()) return false;
+        try {
+            String error = preparing.get();
+            if (error != null) telemetry.addLine("!! " + error);
+        } catch (ExecutionException e) {
+            telemetry.addLine("!! " + e.getCause());
+        } catch (CancellationException e) {
+            // Replaced by the preparation of a newer selection
+            return false;
+        } catch (InterruptedException e) {
+            // Cannot happen once the preparation is done
+            Thread.currentThread().interrupt();
+        }
+        return true;
     }
 
-    public void path(String[] command) throws InterruptedException {
-        switch (command[0].toLowerCase()) {
-            case "move":
-                Commands.move(command[1], command[2], driveBase, this, telemetry);
-                break;
-            case "turn":
-                Commands.turn(command[1], command[2], driveBase, this, telemetry);
-                break;
-            case "strafe":
-                Commands.strafe(command[1], command[2], driveBase, this, telemetry);
-                break;
-            case "diagonal":
-                Commands.diagonal(command[1], command[2], driveBase, this, telemetry);
-                break;
-            case "servo":
-                Commands.servo(command[1], command[2], this, telemetry);
-                break;
-            case "wait":
-                Commands.waitMillis(command[1], this);
-                break;
-            case "log":
-                StringBuilder sb = new StringBuilder();
-                for (int i = 1; i < command.length; i++) sb.append(command[i]).append(" ");
-                Commands.log(sb.toString(), telemetry);
-                break;
-            case "motor":
-                Commands.motorMove(command[1], command[2], command[3], this, telemetry);
-                break;
-            case "stop":
-                requestOpModeStop();
-                break;
-            default:
-                telemetry.addLine("Unknown command: " + command[0]);
+    /**
+     * Shows the predicted run time of the selected script and its slowest commands.
+     *
+     * @return true if the estimate was available, false while it is still being computed
+     */
+    private boolean addEstimate() {
+        if (estimating == null) return true;
+        if (!estimating.isDone()) {
+            telemetry.addLine("Estimating...");
+            return false;
         }
-        telemetry.update();
+        RuntimeEstimator estimate;
+        try {
+            estimate = estimating.get();
+        } catch (ExecutionException e) {
+            telemetry.addLine("!! Estimate failed: " + e.getCause());
+            return true;
+        } catch (CancellationException e) {
+            // Replaced by the estimate of a newer selection
+            return false;
+        } catch (InterruptedException e) {
+            // Cannot happen once the estimate is done
+            Thread.currentThread().interrupt();
+            return true;
+        }
+        telemetry.addData("Estimated time", "%.1f s of %.0f s",
+                estimate.getTotalSeconds(), RuntimeEstimator.AUTONOMOUS_SECONDS);
+        if (!estimate.fitsAutonomous()) telemetry.addLine("!! Script does not fit in autonomous");
+        if (estimate.getWarning() != null) telemetry.addLine("!! Estimate " + estimate.getWarning());
+        for (int pc : estimate.getSlowest(5)) telemetry.addLine("  " + estimate.describe(pc));
+        return true;
+    }
+
+    /**
+     * Starts a recorder for the run's control cycles, writing to a file in
+     * FlightRecorder.RECORDING_DIR. A recorder that cannot be created is reported and the run goes
+     * ahead without one.
+     *
+     * @return the running recorder, or null
+     */
+    private FlightRecorder startRecorder(String name) {
+        try {
+            FlightRecorder recorder = FlightRecorder.create(name);
+            recorder.start();
+            return recorder;
+        } catch (IOException e) {
+            telemetry.addLine("!! Not recording: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Shows the control loop timing of the run, and writes it to the robot log for later.
+     */
+    private void addLoopTimes() {
+        for (LoopTimer timer : LoopTimer.getAll()) {
+            for (String line : timer.report()) {
+                telemetry.addLine(line);
+                RobotLog.ii("AutoScriptor", line);
+            }
+        }
+    }
+
+    private void addErrors(CompiledScript program) {
+        if (program == null || !program.hasErrors()) return;
+        telemetry.addLine("!! " + program.getErrors().size() + " error(s):");
+        for (String error : program.getErrors()) telemetry.addLine(error);
     }
 }
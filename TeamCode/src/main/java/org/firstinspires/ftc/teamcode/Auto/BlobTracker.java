@@ -0,0 +1,436 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import android.graphics.Canvas;
+
+import org.firstinspires.ftc.robotcore.internal.camera.calibration.CameraCalibration;
+import org.firstinspires.ftc.vision.VisionProcessor;
+import org.firstinspires.ftc.vision.opencv.ColorBlobLocatorProcessor;
+import org.firstinspires.ftc.vision.opencv.ImageRegion;
+import org.opencv.core.Mat;
+import org.opencv.core.RotatedRect;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Follows color blobs from frame to frame and only searches the part of the image they can be in.
+ *
+ * A ColorBlobLocatorProcessor's cost grows with its region of interest, which the SDK fixes when
+ * the processor is built. So the tracker builds one processor per search window when it is
+ * created: the whole frame, half-size windows every quarter of the frame, and three-quarter-size
+ * ones. Add the tracker to the VisionPortal instead of a processor; each frame it runs only one of
+ * them:
+ * <ul>
+ * <li>each followed blob's position is predicted from its previous frames by an alpha-beta
+ *     filter, and the smallest window that holds every predicted box, with a margin for the
+ *     prediction error, is searched;</li>
+ * <li>the blobs found there are matched to the nearest prediction, which they correct;</li>
+ * <li>a blob missed for more than {@link #MAX_MISSES} frames in a row is dropped, and the whole
+ *     frame is searched for the next {@link #REACQUIRE_FRAMES} frames, or until the track is
+ *     taken again;</li>
+ * <li>with no blob followed, the whole frame is searched.</li>
+ * </ul>
+ * Otherwise new blobs are only picked up where the current window looks, while fewer than the
+ * targets asked for are followed.
+ *
+ * Blob boxes are in full-frame pixels whatever the window. Tracks are published for the OpMode
+ * thread after every frame, so {@link #getTargets()} never blocks.
+ */
+public class BlobTracker implements VisionProcessor {
+
+    /** Sizes of the search windows, as fractions of the frame width and height. */
+    public static final double[] WINDOW_SCALES = {0.5, 0.75};
+
+    /** Spacing of the windows of each size, as a fraction of the frame. */
+    public static final double WINDOW_STEP = 0.25;
+
+    /** Share of the position error taken into the position each frame. */
+    public static final double ALPHA = 0.5;
+
+    /** Share of the position error, per frame interval, taken into the velocity. */
+    public static final double BETA = 0.2;
+
+    /** Share of the size error taken into the size each frame. */
+    public static final double SIZE_ALPHA = 0.3;
+
+    /** Frames in a row a blob may be missed before its track is dropped. */
+    public static final int MAX_MISSES = 3;
+
+    /** Frames of whole-frame search after a track is dropped, to find the blob again. */
+    public static final int REACQUIRE_FRAMES = 15;
+
+    /** Extra margin around a predicted box, in pixels, on top of half its size and a frame's motion. */
+    public static final double MARGIN_PIXELS = 8;
+
+    /** Distance beyond the box size within which a blob matches a prediction, in pixels. */
+    public static final double GATE_PIXELS = 20;
+
+    private final ColorBlobLocatorProcessor[] processors; // [0] is the whole frame
+    private final double[] windowLeft;                     // window edges as fractions of the frame
+    private final double[] windowTop;
+    private final double[] windowRight;
+    private final double[] windowBottom;
+    private final Object[] contexts;                       // last processFrame result of each window
+    private final int maxTargets;
+    private int minArea = 50;
+    private int maxArea = 20000;
+    private int width;
+    private int height;
+
+    // Tracks, vision thread only
+    private final boolean[] live;
+    private final int[] ids;
+    private final double[] trackX;
+    private final double[] trackY;
+    private final double[] trackWidth;
+    private final double[] trackHeight;
+    private final double[] trackXVelocity;
+    private final double[] trackYVelocity;
+    private final int[] trackArea;
+    private final int[] misses;
+    private boolean[] claimed = new boolean[16];
+    private int nextId;
+    private int reacquireFrames;
+    private long lastNanos;
+    private double frameSeconds;
+
+    private final AtomicReference<List<TrackedBlob>> targets =
+            new AtomicReference<>(Collections.<TrackedBlob>emptyList());
+    private volatile boolean resetRequested;
+    private volatile int window;
+    private volatile long frames;
+    private volatile long fullFrames;
+    private volatile double areaSum;
+
+    /**
+     * Builds a processor for every search window. The factory is called with each window's
+     * region; build the processor as in ConceptVisionColorLocator, with that region as the ROI:
+     * <pre>
+     * new BlobTracker(roi -> new ColorBlobLocatorProcessor.Builder()
+     *         .setTargetColorRange(ColorRange.BLUE)
+     *         .setRoi(roi)
+     *         .build(), 1);
+     * </pre>
+     *
+     * @param factory Builds a processor searching a region
+     * @param maxTargets Number of blobs to follow at once
+     */
+    public BlobTracker(Function<ImageRegion, ColorBlobLocatorProcessor> factory, int maxTargets) {
+        this.maxTargets = maxTargets;
+        int count = 1;
+        for (double scale : WINDOW_SCALES) {
+            int positions = (int) Math.round((1 - scale) / WINDOW_STEP) + 1;
+            count += positions * positions;
+        }
+        processors = new ColorBlobLocatorProcessor[count];
+        windowLeft = new double[count];
+        windowTop = new double[count];
+        windowRight = new double[count];
+        windowBottom = new double[count];
+        contexts = new Object[count];
+        processors[0] = factory.apply(ImageRegion.entireFrame());
+        windowRight[0] = 1;
+        windowBottom[0] = 1;
+        int index = 1;
+        for (double scale : WINDOW_SCALES) {
+            int positions = (int) Math.round((1 - scale) / WINDOW_STEP) + 1;
+            for (int row = 0; row < positions; row++) {
+                for (int column = 0; column < positions; column++) {
+                    double left = column * WINDOW_STEP;
+                    double top = row * WINDOW_STEP;
+                    windowLeft[index] = left;
+                    windowTop[index] = top;
+                    windowRight[index] = left + scale;
+                    windowBottom[index] = top + scale;
+                    // Unity coordinates run from -1 to 1, left to right and bottom to top
+                    processors[index] = factory.apply(ImageRegion.asUnityCenterCoordinates(
+                            2 * left - 1, 1 - 2 * top, 2 * (left + scale) - 1, 1 - 2 * (top + scale)));
+                    index++;
+                }
+            }
+        }
+
+        live = new boolean[maxTargets];
+        ids = new int[maxTargets];
+        trackX = new double[maxTargets];
+        trackY = new double[maxTargets];
+        trackWidth = new double[maxTargets];
+        trackHeight = new double[maxTargets];
+        trackXVelocity = new double[maxTargets];
+        trackYVelocity = new double[maxTargets];
+        trackArea = new int[maxTargets];
+        misses = new int[maxTargets];
+    }
+
+    /**
+     * Sets which blobs count as targets, like filterByCriteria with BY_CONTOUR_AREA.
+     *
+     * @param minArea Smallest contour area in pixels
+     * @param maxArea Largest contour area in pixels
+     * @return this tracker
+     */
+    public BlobTracker setAreaRange(int minArea, int maxArea) {
+        this.minArea = minArea;
+        this.maxArea = maxArea;
+        return this;
+    }
+
+    /**
+     * Shows the number of blobs followed and the share of the frame searched. Call during init.
+     *
+     * @param telemetry Publisher to add the lines to
+     */
+    public void addTelemetry(TelemetryPublisher telemetry) {
+        telemetry.addData("Blob tracks", () -> targets.get().size());
+        telemetry.addData("Blob ROI", () -> String.format(Locale.US, "%.0f%% of frame", 100 * windowArea(window)));
+    }
+
+    @Override
+    public void init(int width, int height, CameraCalibration calibration) {
+        this.width = width;
+        this.height = height;
+        for (ColorBlobLocatorProcessor processor : processors) processor.init(width, height, calibration);
+    }
+
+    @Override
+    public Object processFrame(Mat frame, long captureTimeNanos) {
+        if (resetRequested) {
+            resetRequested = false;
+            for (int i = 0; i < maxTargets; i++) live[i] = false;
+        }
+        double seconds = lastNanos != 0 ? (captureTimeNanos - lastNanos) / 1e9 : 0;
+        lastNanos = captureTimeNanos;
+        if (seconds > 0) frameSeconds = seconds;
+
+        // Predict, and pick the smallest window holding every predicted box
+        double left = Double.MAX_VALUE;
+        double top = Double.MAX_VALUE;
+        double right = -Double.MAX_VALUE;
+        double bottom = -Double.MAX_VALUE;
+        boolean tracking = false;
+        for (int i = 0; i < maxTargets; i++) {
+            if (!live[i]) continue;
+            trackX[i] += trackXVelocity[i] * seconds;
+            trackY[i] += trackYVelocity[i] * seconds;
+            double speed = Math.hypot(trackXVelocity[i], trackYVelocity[i]);
+            // The margin grows with every frame the blob is missed
+            double margin = (MARGIN_PIXELS + 0.5 * Math.max(trackWidth[i], trackHeight[i]) + speed * frameSeconds)
+                    * (1 + misses[i]);
+            left = Math.min(left, trackX[i] - trackWidth[i] / 2 - margin);
+            top = Math.min(top, trackY[i] - trackHeight[i] / 2 - margin);
+            right = Math.max(right, trackX[i] + trackWidth[i] / 2 + margin);
+            bottom = Math.max(bottom, trackY[i] + trackHeight[i] / 2 + margin);
+            tracking = true;
+        }
+        boolean searching = reacquireFrames > 0;
+        if (searching) reacquireFrames--;
+        int selected = tracking && !searching ? selectWindow(left / width, top / height, right / width, bottom / height) : 0;
+
+        ColorBlobLocatorProcessor processor = processors[selected];
+        contexts[selected] = processor.processFrame(frame, captureTimeNanos);
+        window = selected;
+        frames++;
+        if (selected == 0) fullFrames++;
+        areaSum += windowArea(selected);
+
+        match(processor.getBlobs(), seconds);
+        publish(captureTimeNanos);
+        // Small Integers are cached, so this does not allocate
+        return selected;
+    }
+
+    @Override
+    public void onDrawFrame(Canvas canvas, int onscreenWidth, int onscreenHeight, float scaleBmpPxToCanvasPx,
+                            float scaleCanvasDensity, Object userContext) {
+        int drawn = (Integer) userContext;
+        processors[drawn].onDrawFrame(canvas, onscreenWidth, onscreenHeight, scaleBmpPxToCanvasPx,
+                scaleCanvasDensity, contexts[drawn]);
+    }
+
+    private int selectWindow(double left, double top, double right, double bottom) {
+        left = Math.max(left, 0);
+        top = Math.max(top, 0);
+        right = Math.min(right, 1);
+        bottom = Math.min(bottom, 1);
+        double centerX = (left + right) / 2;
+        double centerY = (top + bottom) / 2;
+        int best = 0;
+        double bestArea = windowArea(0);
+        double bestDistance = Double.MAX_VALUE;
+        for (int i = 1; i < processors.length; i++) {
+            if (windowLeft[i] > left || windowTop[i] > top || windowRight[i] < right || windowBottom[i] < bottom) {
+                continue;
+            }
+            // Of the windows of the same size, the one centered closest leaves the most room
+            double area = windowArea(i);
+            double dx = (windowLeft[i] + windowRight[i]) / 2 - centerX;
+            double dy = (windowTop[i] + windowBottom[i]) / 2 - centerY;
+            double distance = dx * dx + dy * dy;
+            if (area < bestArea - 1e-9 || (area < bestArea + 1e-9 && distance < bestDistance)) {
+                best = i;
+                bestArea = area;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private void match(List<ColorBlobLocatorProcessor.Blob> blobs, double seconds) {
+        int count = blobs.size();
+        if (claimed.length < count) claimed = new boolean[Math.max(count, 2 * claimed.length)];
+        for (int j = 0; j < count; j++) {
+            int area = blobs.get(j).getContourArea();
+            claimed[j] = area < minArea || area > maxArea;
+        }
+
+        // Each followed blob takes the nearest unclaimed blob within its gate
+        for (int i = 0; i < maxTargets; i++) {
+            if (!live[i]) continue;
+            double gate = (Math.max(trackWidth[i], trackHeight[i]) + GATE_PIXELS) * (1 + misses[i]);
+            int nearest = -1;
+            double nearestDistance = gate * gate;
+            for (int j = 0; j < count; j++) {
+                if (claimed[j]) continue;
+                RotatedRect box = blobs.get(j).getBoxFit();
+                double dx = box.center.x - trackX[i];
+                double dy = box.center.y - trackY[i];
+                double distance = dx * dx + dy * dy;
+                if (distance < nearestDistance) {
+                    nearest = j;
+                    nearestDistance = distance;
+                }
+            }
+            if (nearest < 0) {
+                if (++misses[i] > MAX_MISSES) {
+                    live[i] = false;
+                    reacquireFrames = REACQUIRE_FRAMES;
+                }
+                continue;
+            }
+            claimed[nearest] = true;
+            ColorBlobLocatorProcessor.Blob blob = blobs.get(nearest);
+            RotatedRect box = blob.getBoxFit();
+            double errorX = box.center.x - trackX[i];
+            double errorY = box.center.y - trackY[i];
+            trackX[i] += ALPHA * errorX;
+            trackY[i] += ALPHA * errorY;
+            if (seconds > 0) {
+                trackXVelocity[i] += BETA * errorX / seconds;
+                trackYVelocity[i] += BETA * errorY / seconds;
+            }
+            trackWidth[i] += SIZE_ALPHA * (boxWidth(box) - trackWidth[i]);
+            trackHeight[i] += SIZE_ALPHA * (boxHeight(box) - trackHeight[i]);
+            trackArea[i] = blob.getContourArea();
+            misses[i] = 0;
+        }
+
+        // Free slots follow the largest blobs left over
+        for (int i = 0; i < maxTargets; i++) {
+            if (live[i]) continue;
+            int largest = -1;
+            for (int j = 0; j < count; j++) {
+                if (!claimed[j] && (largest < 0 || blobs.get(j).getContourArea() > blobs.get(largest).getContourArea())) {
+                    largest = j;
+                }
+            }
+            if (largest < 0) break;
+            claimed[largest] = true;
+            reacquireFrames = 0;
+            ColorBlobLocatorProcessor.Blob blob = blobs.get(largest);
+            RotatedRect box = blob.getBoxFit();
+            live[i] = true;
+            ids[i] = nextId++;
+            trackX[i] = box.center.x;
+            trackY[i] = box.center.y;
+            trackWidth[i] = boxWidth(box);
+            trackHeight[i] = boxHeight(box);
+            trackXVelocity[i] = 0;
+            trackYVelocity[i] = 0;
+            trackArea[i] = blob.getContourArea();
+            misses[i] = 0;
+        }
+    }
+
+    private void publish(long nanos) {
+        List<TrackedBlob> list = new ArrayList<>(maxTargets);
+        for (int i = 0; i < maxTargets; i++) {
+            if (!live[i]) continue;
+            TrackedBlob blob = new TrackedBlob(ids[i], trackX[i], trackY[i], trackWidth[i], trackHeight[i],
+                    trackXVelocity[i], trackYVelocity[i], trackArea[i], misses[i], nanos);
+            // Largest first, as ColorBlobLocatorProcessor sorts by default
+            int at = 0;
+            while (at < list.size() && list.get(at).area >= blob.area) at++;
+            list.add(at, blob);
+        }
+        targets.set(Collections.unmodifiableList(list));
+    }
+
+    private static double boxWidth(RotatedRect box) {
+        double angle = Math.toRadians(box.angle);
+        return Math.abs(Math.cos(angle)) * box.size.width + Math.abs(Math.sin(angle)) * box.size.height;
+    }
+
+    private static double boxHeight(RotatedRect box) {
+        double angle = Math.toRadians(box.angle);
+        return Math.abs(Math.sin(angle)) * box.size.width + Math.abs(Math.cos(angle)) * box.size.height;
+    }
+
+    private double windowArea(int index) {
+        return (windowRight[index] - windowLeft[index]) * (windowBottom[index] - windowTop[index]);
+    }
+
+    /**
+     * Drops every track before the next frame, so it searches the whole frame, e.g. when the
+     * robot is about to look for a different target.
+     */
+    public void reset() {
+        resetRequested = true;
+    }
+
+    /**
+     * @return blobs followed as of the latest frame, largest first; safe to call from any thread
+     */
+    public List<TrackedBlob> getTargets() {
+        return targets.get();
+    }
+
+    /**
+     * @return the largest blob followed, or null if there is none
+     */
+    public TrackedBlob getTarget() {
+        List<TrackedBlob> list = targets.get();
+        return list.isEmpty() ? null : list.get(0);
+    }
+
+    /**
+     * @return number of search windows, including the whole frame
+     */
+    public int getWindowCount() {
+        return processors.length;
+    }
+
+    /**
+     * @return frames processed so far
+     */
+    public long getFrameCount() {
+        return frames;
+    }
+
+    /**
+     * @return frames in which the whole frame was searched
+     */
+    public long getFullFrameCount() {
+        return fullFrames;
+    }
+
+    /**
+     * @return average share of the frame searched, from 0 to 1
+     */
+    public double getAverageSearchedArea() {
+        return frames > 0 ? areaSum / frames : 1;
+    }
+}
@@ -0,0 +1,41 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import java.util.List;
+
+/**
+ * Puts every Lynx hub in MANUAL bulk caching mode and clears the caches once per control cycle.
+ *
+ * In MANUAL mode the first encoder or busy read after {@link #clear()} fetches all of a hub's
+ * inputs in one transaction, and every other read in that cycle is served from the cache.
+ * Whatever owns the control loop must call clear() once per cycle, otherwise reads stay stale.
+ * See ConceptMotorBulkRead in the samples.
+ */
+public class BulkCache {
+
+    private final List<LynxModule> hubs;
+
+    /**
+     * Switches all hubs in the hardware map to MANUAL bulk caching and clears their caches.
+     *
+     * @param hardwareMap HardwareMap holding the hubs
+     */
+    public BulkCache(HardwareMap hardwareMap) {
+        hubs = hardwareMap.getAll(LynxModule.class);
+        for (LynxModule hub : hubs) {
+            hub.setBulkCachingMode(LynxModule.BulkCachingMode.MANUAL);
+        }
+        clear();
+    }
+
+    /**
+     * Starts a new control cycle: the next read from each hub does a fresh bulk read.
+     */
+    public void clear() {
+        for (int i = 0; i < hubs.size(); i++) {
+            hubs.get(i).clearBulkCache();
+        }
+    }
+}
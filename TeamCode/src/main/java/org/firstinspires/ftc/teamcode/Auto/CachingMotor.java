@@ -0,0 +1,358 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import com.qualcomm.robotcore.hardware.DcMotorController;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.PIDCoefficients;
+import com.qualcomm.robotcore.hardware.PIDFCoefficients;
+import com.qualcomm.robotcore.hardware.configuration.typecontainers.MotorConfigurationType;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.CurrentUnit;
+
+/**
+ * DcMotorEx that only passes a write on to the hub when it changes something.
+ *
+ * Every setPower, setVelocity, setMode and setTargetPosition is a transaction on the hub's bus,
+ * and the control loops repeat the same values cycle after cycle. This proxy remembers the last
+ * value written and drops a repeat, or a power or velocity within the tolerance of the last one.
+ * Writes that always have an effect, such as STOP_AND_RESET_ENCODER, are always sent, and a
+ * change to exactly zero power is never dropped so stop() always stops.
+ * Reads of the cached values (getPower, getMode, getTargetPosition) are answered from the cache.
+ *
+ * Get instances from {@link HardwareCache} so that every user of a motor shares one cache.
+ */
+public class CachingMotor implements DcMotorEx {
+
+    private final DcMotorEx motor;
+    private double powerTolerance = HardwareCache.POWER_TOLERANCE;
+    private double velocityTolerance = HardwareCache.VELOCITY_TOLERANCE;
+
+    // Last values sent; NaN or null until the first write
+    private double power = Double.NaN;
+    private double velocity = Double.NaN;
+    private RunMode mode;
+    private int targetPosition;
+    private boolean targetKnown;
+
+    private long sent;
+    private long saved;
+
+    /**
+     * @param motor Motor to write to
+     */
+    public CachingMotor(DcMotorEx motor) {
+        this.motor = motor;
+    }
+
+    /**
+     * @return the motor this proxy writes to
+     */
+    public DcMotorEx getDelegate() {
+        return motor;
+    }
+
+    /**
+     * @param tolerance Smallest power change that is sent
+     */
+    public void setPowerTolerance(double tolerance) {
+        powerTolerance = tolerance;
+    }
+
+    /**
+     * @param tolerance Smallest velocity change that is sent, in ticks/s
+     */
+    public void setVelocityTolerance(double tolerance) {
+        velocityTolerance = tolerance;
+    }
+
+    /**
+     * @return number of writes passed on to the motor
+     */
+    public long getSentWrites() {
+        return sent;
+    }
+
+    /**
+     * @return number of writes dropped because they would not have changed anything
+     */
+    public long getSavedWrites() {
+        return saved;
+    }
+
+    /**
+     * Forgets the cached values, so the next write of each is sent. Use after anything outside
+     * this proxy may have changed the motor, e.g. a new OpMode resetting the hardware.
+     */
+    public void invalidate() {
+        power = Double.NaN;
+        velocity = Double.NaN;
+        mode = null;
+        targetKnown = false;
+    }
+
+    private static boolean same(double last, double next, double tolerance) {
+        // NaN never matches, and a change to exactly zero always goes out
+        return Math.abs(next - last) <= tolerance && (next != 0 || last == 0);
+    }
+
+    @Override
+    public void setPower(double power) {
+        if (same(this.power, power, powerTolerance)) {
+            saved++;
+            return;
+        }
+        sent++;
+        motor.setPower(power);
+        this.power = power;
+        velocity = Double.NaN;
+    }
+
+    @Override
+    public double getPower() {
+        return Double.isNaN(power) ? motor.getPower() : power;
+    }
+
+    @Override
+    public void setVelocity(double angularRate) {
+        if (same(velocity, angularRate, velocityTolerance)) {
+            saved++;
+            return;
+        }
+        sent++;
+        motor.setVelocity(angularRate);
+        velocity = angularRate;
+        power = Double.NaN;
+    }
+
+    @Override
+    public void setVelocity(double angularRate, AngleUnit unit) {
+        // Rare enough not to cache; clear the cache since it replaces the last command
+        sent++;
+        motor.setVelocity(angularRate, unit);
+        velocity = Double.NaN;
+        power = Double.NaN;
+    }
+
+    @Override
+    public double getVelocity() {
+        return motor.getVelocity();
+    }
+
+    @Override
+    public double getVelocity(AngleUnit unit) {
+        return motor.getVelocity(unit);
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        return motor.getCurrentPosition();
+    }
+
+    @Override
+    public void setTargetPosition(int position) {
+        if (targetKnown && targetPosition == position) {
+            saved++;
+            return;
+        }
+        sent++;
+        motor.setTargetPosition(position);
+        targetPosition = position;
+        targetKnown = true;
+    }
+
+    @Override
+    public int getTargetPosition() {
+        return targetKnown ? targetPosition : motor.getTargetPosition();
+    }
+
+    @Override
+    public boolean isBusy() {
+        return motor.isBusy();
+    }
+
+    @Override
+    public void setMode(RunMode mode) {
+        if (mode == this.mode && mode != RunMode.STOP_AND_RESET_ENCODER) {
+            saved++;
+            return;
+        }
+        sent++;
+        motor.setMode(mode);
+        this.mode = mode;
+        // The hub may change power when the mode changes, e.g. zero it on a reset
+        power = Double.NaN;
+        velocity = Double.NaN;
+        // A reset also moves the hub's target, so the next target must be sent even if it repeats
+        if (mode == RunMode.STOP_AND_RESET_ENCODER) targetKnown = false;
+    }
+
+    @Override
+    public RunMode getMode() {
+        return mode == null ? motor.getMode() : mode;
+    }
+
+    @Override
+    public void setDirection(Direction direction) {
+        motor.setDirection(direction);
+        power = Double.NaN;
+        velocity = Double.NaN;
+    }
+
+    @Override
+    public Direction getDirection() {
+        return motor.getDirection();
+    }
+
+    @Override
+    public void setZeroPowerBehavior(ZeroPowerBehavior zeroPowerBehavior) {
+        motor.setZeroPowerBehavior(zeroPowerBehavior);
+    }
+
+    @Override
+    public ZeroPowerBehavior getZeroPowerBehavior() {
+        return motor.getZeroPowerBehavior();
+    }
+
+    @Override
+    @Deprecated
+    public void setPowerFloat() {
+        motor.setPowerFloat();
+        power = Double.NaN;
+        velocity = Double.NaN;
+    }
+
+    @Override
+    public boolean getPowerFloat() {
+        return motor.getPowerFloat();
+    }
+
+    @Override
+    public void setTargetPositionTolerance(int tolerance) {
+        motor.setTargetPositionTolerance(tolerance);
+    }
+
+    @Override
+    public int getTargetPositionTolerance() {
+        return motor.getTargetPositionTolerance();
+    }
+
+    @Override
+    public void setMotorEnable() {
+        motor.setMotorEnable();
+        invalidate();
+    }
+
+    @Override
+    public void setMotorDisable() {
+        motor.setMotorDisable();
+        invalidate();
+    }
+
+    @Override
+    public boolean isMotorEnabled() {
+        return motor.isMotorEnabled();
+    }
+
+    @Override
+    @Deprecated
+    public void setPIDCoefficients(RunMode mode, PIDCoefficients pidCoefficients) {
+        motor.setPIDCoefficients(mode, pidCoefficients);
+    }
+
+    @Override
+    public void setPIDFCoefficients(RunMode mode, PIDFCoefficients pidfCoefficients) {
+        motor.setPIDFCoefficients(mode, pidfCoefficients);
+    }
+
+    @Override
+    public void setVelocityPIDFCoefficients(double p, double i, double d, double f) {
+        motor.setVelocityPIDFCoefficients(p, i, d, f);
+    }
+
+    @Override
+    public void setPositionPIDFCoefficients(double p) {
+        motor.setPositionPIDFCoefficients(p);
+    }
+
+    @Override
+    @Deprecated
+    public PIDCoefficients getPIDCoefficients(RunMode mode) {
+        return motor.getPIDCoefficients(mode);
+    }
+
+    @Override
+    public PIDFCoefficients getPIDFCoefficients(RunMode mode) {
+        return motor.getPIDFCoefficients(mode);
+    }
+
+    @Override
+    public double getCurrent(CurrentUnit unit) {
+        return motor.getCurrent(unit);
+    }
+
+    @Override
+    public double getCurrentAlert(CurrentUnit unit) {
+        return motor.getCurrentAlert(unit);
+    }
+
+    @Override
+    public void setCurrentAlert(double current, CurrentUnit unit) {
+        motor.setCurrentAlert(current, unit);
+    }
+
+    @Override
+    public boolean isOverCurrent() {
+        return motor.isOverCurrent();
+    }
+
+    @Override
+    public MotorConfigurationType getMotorType() {
+        return motor.getMotorType();
+    }
+
+    @Override
+    public void setMotorType(MotorConfigurationType motorType) {
+        motor.setMotorType(motorType);
+    }
+
+    @Override
+    public DcMotorController getController() {
+        return motor.getController();
+    }
+
+    @Override
+    public int getPortNumber() {
+        return motor.getPortNumber();
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return motor.getManufacturer();
+    }
+
+    @Override
+    public String getDeviceName() {
+        return motor.getDeviceName();
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return motor.getConnectionInfo();
+    }
+
+    @Override
+    public int getVersion() {
+        return motor.getVersion();
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {
+        motor.resetDeviceConfigurationForOpMode();
+        invalidate();
+    }
+
+    @Override
+    public void close() {
+        motor.close();
+    }
+}
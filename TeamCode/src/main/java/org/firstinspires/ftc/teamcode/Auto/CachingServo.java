@@ -0,0 +1,133 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import com.qualcomm.robotcore.hardware.Servo;
+import com.qualcomm.robotcore.hardware.ServoController;
+
+/**
+ * Servo that drops setPosition writes within a tolerance of the last position written.
+ * Get instances from {@link HardwareCache} so that every user of a servo shares one cache.
+ */
+public class CachingServo implements Servo {
+
+    private final Servo servo;
+    private double tolerance = HardwareCache.SERVO_TOLERANCE;
+    private double position = Double.NaN;
+    private long sent;
+    private long saved;
+
+    /**
+     * @param servo Servo to write to
+     */
+    public CachingServo(Servo servo) {
+        this.servo = servo;
+    }
+
+    /**
+     * @return the servo this proxy writes to
+     */
+    public Servo getDelegate() {
+        return servo;
+    }
+
+    /**
+     * @param tolerance Smallest position change that is sent
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * @return number of writes passed on to the servo
+     */
+    public long getSentWrites() {
+        return sent;
+    }
+
+    /**
+     * @return number of writes dropped because they would not have moved the servo
+     */
+    public long getSavedWrites() {
+        return saved;
+    }
+
+    /**
+     * Forgets the cached position, so the next write is sent.
+     */
+    public void invalidate() {
+        position = Double.NaN;
+    }
+
+    @Override
+    public void setPosition(double position) {
+        if (Math.abs(position - this.position) <= tolerance) {
+            saved++;
+            return;
+        }
+        sent++;
+        servo.setPosition(position);
+        this.position = position;
+    }
+
+    @Override
+    public double getPosition() {
+        return Double.isNaN(position) ? servo.getPosition() : position;
+    }
+
+    @Override
+    public void scaleRange(double min, double max) {
+        servo.scaleRange(min, max);
+        invalidate();
+    }
+
+    @Override
+    public void setDirection(Direction direction) {
+        servo.setDirection(direction);
+        invalidate();
+    }
+
+    @Override
+    public Direction getDirection() {
+        return servo.getDirection();
+    }
+
+    @Override
+    public ServoController getController() {
+        return servo.getController();
+    }
+
+    @Override
+    public int getPortNumber() {
+        return servo.getPortNumber();
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return servo.getManufacturer();
+    }
+
+    @Override
+    public String getDeviceName() {
+        return servo.getDeviceName();
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return servo.getConnectionInfo();
+    }
+
+    @Override
+    public int getVersion() {
+        return servo.getVersion();
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {
+        servo.resetDeviceConfigurationForOpMode();
+        invalidate();
+    }
+
+    @Override
+    public void close() {
+        servo.close();
+    }
+}
@@ -0,0 +1,107 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Runs the DriveCharacterization tests on the robot and logs them to a CSV file in
+ * {@link #OUTPUT_DIR}, for the Sim FeedforwardFitter to fit.
+ *
+ * Each axis gets a quasistatic and a step test, each one way and then back, so the robot ends
+ * up roughly where it started. Before every test the driver presses A to run it or B to skip it,
+ * which leaves time to move the robot back to open floor.
+ */
+@Autonomous(name = "Characterize Drive", group = "Tuning")
+public class CharacterizeDrive extends LinearOpMode {
+
+    public static final File OUTPUT_DIR = new File(AppUtil.FIRST_FOLDER, "characterization");
+
+    private static final int[] AXES = {MovePlan.AXIS_DRIVE, MovePlan.AXIS_STRAFE, MovePlan.AXIS_TURN};
+    private static final int[] TESTS = {DriveCharacterization.TEST_QUASISTATIC, DriveCharacterization.TEST_STEP};
+    private static final int[] DIRECTIONS = {1, -1};
+
+    @Override
+    public void runOpMode() throws InterruptedException {
+        HardwareCache.reset(hardwareMap);
+        DriveBase driveBase = new DriveBase(hardwareMap);
+        OpModeHost host = new OpModeHost(this);
+        DriveCharacterization characterization = new DriveCharacterization(driveBase, host);
+
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        File file = new File(OUTPUT_DIR, "drive-" + stamp + ".csv");
+        telemetry.addLine("Characterizes the drivetrain. Needs about 2 m of clear floor in every direction.");
+        telemetry.addData("Log", file.getPath());
+        telemetry.update();
+        waitForStart();
+
+        if (!OUTPUT_DIR.isDirectory() && !OUTPUT_DIR.mkdirs()) {
+            telemetry.addLine("!! Cannot create " + OUTPUT_DIR);
+            telemetry.update();
+            return;
+        }
+        try (PrintStream out = new PrintStream(new FileOutputStream(file), false, "UTF-8")) {
+            out.println(DriveCharacterization.CSV_HEADER);
+            String last = "";
+            for (int axis : AXES) {
+                for (int test : TESTS) {
+                    for (int direction : DIRECTIONS) {
+                        String name = DriveCharacterization.AXIS_NAMES[axis] + " "
+                                + DriveCharacterization.TEST_NAMES[test] + (direction > 0 ? " (+)" : " (-)");
+                        if (!confirm(name, last)) {
+                            if (!opModeIsActive()) return;
+                            continue;
+                        }
+                        telemetry.clear();
+                        telemetry.addLine("Running " + name + "...");
+                        telemetry.update();
+                        int samples = characterization.run(axis, test, direction);
+                        characterization.writeCsv(out);
+                        out.flush();
+                        last = String.format(Locale.US, "%s: %d samples, top speed %.1f in/s",
+                                name, samples, characterization.getMaxVelocity());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            telemetry.addLine("!! Cannot write the log: " + e.getMessage());
+            telemetry.update();
+            return;
+        }
+
+        telemetry.clear();
+        telemetry.addLine("Done. Copy the log off the robot and run Sim/FeedforwardFitter on it:");
+        telemetry.addLine(file.getPath());
+        telemetry.update();
+        while (opModeIsActive()) idle();
+    }
+
+    /**
+     * Waits for the driver to press A to run the next test or B to skip it.
+     *
+     * @return true to run it, false to skip it or if the OpMode was stopped
+     */
+    private boolean confirm(String name, String last) {
+        // OpModeHost's TelemetryPublisher turns auto-clear off
+        telemetry.clear();
+        telemetry.addData("Last", last);
+        telemetry.addData("Next", name);
+        telemetry.addLine("A to run, B to skip");
+        telemetry.update();
+        while (opModeIsActive()) {
+            if (gamepad1.aWasPressed()) return true;
+            if (gamepad1.bWasPressed()) return false;
+            idle();
+        }
+        return false;
+    }
+}
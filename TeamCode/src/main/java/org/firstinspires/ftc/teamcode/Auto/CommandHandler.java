@@ -0,0 +1,16 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+/**
+ * Executes one kind of compiled instruction.
+ * Handlers are registered in a ScriptInterpreter's table, indexed by opcode.
+ */
+public interface CommandHandler {
+
+    /**
+     * Executes the instruction at pc.
+     *
+     * @param interpreter Interpreter running the script, used to read operands and change flow
+     * @param pc Index of the instruction
+     */
+    void execute(ScriptInterpreter interpreter, int pc) throws InterruptedException;
+}
@@ -11,93 +11,130 @@ import org.firstinspires.ftc.robotcore.external.Telemetry;
  */
 public class Commands {
 
+    public static final double DRIVE_SPEED = 0.6;
+    public static final double TURN_SPEED = 0.5;
+    public static final double DIAGONAL_SPEED = 0.5;
+    public static final double MOTOR_SPEED = 0.5;
+
+    /**
+     * Installs a handler for every robot command in an interpreter's dispatch table.
+     * Commands that take time are registered as actions so they can run in parallel blocks.
+     * Control flow opcodes, including stop, are handled by the interpreter itself.
+     *
+     * @param interpreter Interpreter to register with
+     * @param driveBase Drivetrain for the drive commands
+     * @param host Host providing the hardware map and log output
+     */
+    public static void register(ScriptInterpreter interpreter, DriveBase driveBase, ScriptHost host) {
+        register(interpreter, driveBase, host, new HardwareRegistry(host.getHardwareMap()));
+    }
+
+    /**
+     * Installs the robot commands, taking mechanism motors and servos from a registry shared with
+     * the OpMode, which resolves each script's devices during init.
+     *
+     * @param interpreter Interpreter to register with
+     * @param driveBase Drivetrain for the drive commands
+     * @param host Host providing the log output
+     * @param registry Mechanism motors and servos
+     */
+    public static void register(ScriptInterpreter interpreter, DriveBase driveBase, ScriptHost host,
+                                HardwareRegistry registry) {
+        register(interpreter, driveBase, host, registry, null);
+    }
+
+    /**
+     * Installs the robot commands, with path commands following the pose from a PoseEstimator.
+     * Without one, a script that uses a path fails when it reaches it.
+     *
+     * @param interpreter Interpreter to register with
+     * @param driveBase Drivetrain for the drive commands
+     * @param host Host providing the log output
+     * @param registry Mechanism motors and servos
+     * @param poseEstimator Pose the path commands follow, updated every cycle, or null
+     */
+    public static void register(ScriptInterpreter interpreter, DriveBase driveBase, ScriptHost host,
+                                HardwareRegistry registry, PoseEstimator poseEstimator) {
+        // Profiled moves are timed on the host's clock, which is simulated time in the simulator
+        driveBase.setClock(host::nanoTime);
+        registry.setClock(host::nanoTime);
+
+        ActionHandler drive = (in, pc) -> new DriveAction(driveBase, in, in.opcode(pc), pc);
+        interpreter.registerAction(Opcode.DRIVE, drive);
+        interpreter.registerAction(Opcode.TURN, drive);
+        interpreter.registerAction(Opcode.STRAFE, drive);
+        interpreter.registerAction(Opcode.DIAGONAL_RIGHT, drive);
+        interpreter.registerAction(Opcode.DIAGONAL_LEFT, drive);
+        interpreter.registerAction(Opcode.WAIT, WaitAction::new);
+        if (poseEstimator != null) {
+            PathFollower follower = new PathFollower(driveBase, poseEstimator);
+            follower.setClock(host::nanoTime);
+            ActionHandler path = (in, pc) -> new PathAction(follower, in.path(pc));
+            interpreter.registerAction(Opcode.PATH_LINE, path);
+            interpreter.registerAction(Opcode.PATH_SPLINE, path);
+        }
+        interpreter.registerAction(Opcode.MOTOR_MOVE, (in, pc) -> new MotorMoveAction(registry.motor(in.text(pc)), in, pc));
+
+        interpreter.register(Opcode.SERVO, (in, pc) -> servo(in.text(pc), in.value(pc), registry));
+        // Line was formatted by the compiler
+        interpreter.register(Opcode.LOG, (in, pc) -> host.log(in.text(pc)));
+        interpreter.register(Opcode.MOTOR_POWER,
+                (in, pc) -> motorMove(in.text(pc), Opcode.MOTOR_POWER, in.value(pc), registry));
+        interpreter.register(Opcode.MOTOR_STOP,
+                (in, pc) -> motorMove(in.text(pc), Opcode.MOTOR_STOP, 0, registry));
+    }
+
     /**
      * Moves the robot forward or backward a specified distance in inches.
      *
-     * @param direction "forward" or "backward"
-     * @param distance String representing inches to move
+     * @param inches Distance to move (positive forward, negative backward)
      * @param driveBase DriveBase object controlling motors
-     * @param autoScriptor OpMode instance for timing
-     * @param telemetry Telemetry for logging
      */
-    public static void move(String direction, String distance, DriveBase driveBase, AutoScriptor autoScriptor, Telemetry telemetry) {
-        double inches = Double.parseDouble(distance);
-        if (direction.equalsIgnoreCase("forward")) {
-            driveBase.driveInches(inches, 0.6);
-        } else if (direction.equalsIgnoreCase("backward")) {
-            driveBase.driveInches(-inches, 0.6);
-        }
+    public static void move(double inches, DriveBase driveBase) {
+        driveBase.driveInches(inches, DRIVE_SPEED);
     }
 
     /**
      * Turns the robot left or right by a specified angle in degrees.
      *
-     * @param direction "left" or "right"
-     * @param angle String degrees to turn
+     * @param degrees Angle to turn (positive right, negative left)
      * @param driveBase DriveBase object controlling motors
-     * @param autoScriptor OpMode instance for timing
-     * @param telemetry Telemetry for logging
      */
-    public static void turn(String direction, String angle, DriveBase driveBase, AutoScriptor autoScriptor, Telemetry telemetry) {
-        double degrees = Double.parseDouble(angle);
-        if (direction.equalsIgnoreCase("right")) {
-            driveBase.turnDegrees(degrees, 0.5);
-        } else if (direction.equalsIgnoreCase("left")) {
-            driveBase.turnDegrees(-degrees, 0.5);
-        }
+    public static void turn(double degrees, DriveBase driveBase) {
+        driveBase.turnDegrees(degrees, TURN_SPEED);
     }
 
     /**
      * Strafes the robot left or right a specified distance in inches.
      *
-     * @param direction "left" or "right"
-     * @param distance String inches to strafe
+     * @param inches Distance to strafe (positive right, negative left)
      * @param driveBase DriveBase object
-     * @param autoScriptor OpMode instance
-     * @param telemetry Telemetry
      */
-    public static void strafe(String direction, String distance, DriveBase driveBase, AutoScriptor autoScriptor, Telemetry telemetry) {
-        double inches = Double.parseDouble(distance);
-        if (direction.equalsIgnoreCase("right")) {
-            driveBase.strafeInches(inches, 0.6);
-        } else if (direction.equalsIgnoreCase("left")) {
-            driveBase.strafeInches(-inches, 0.6);
-        }
+    public static void strafe(double inches, DriveBase driveBase) {
+        driveBase.strafeInches(inches, DRIVE_SPEED);
     }
 
     /**
-     * Moves the robot diagonally in a specified direction a certain distance.
+     * Moves the robot diagonally along one of the two 45 degree axes.
      *
-     * @param direction One of "right_forward", "left_forward", "right_backward", "left_backward"
-     * @param distance String inches to move diagonally
+     * @param inches Distance to move diagonally (positive forward, negative backward)
+     * @param rightForward true for the right_forward/left_backward axis, false for left_forward/right_backward
      * @param driveBase DriveBase object
-     * @param autoScriptor OpMode instance
-     * @param telemetry Telemetry
      */
-    public static void diagonal(String direction, String distance, DriveBase driveBase, AutoScriptor autoScriptor, Telemetry telemetry) {
-        double inches = Double.parseDouble(distance);
-        if (direction.equalsIgnoreCase("right_forward")) {
-            driveBase.diagonalInches(inches, "right_forward", 0.5);
-        } else if (direction.equalsIgnoreCase("left_forward")) {
-            driveBase.diagonalInches(inches, "left_forward", 0.5);
-        } else if (direction.equalsIgnoreCase("right_backward")) {
-            driveBase.diagonalInches(-inches, "right_forward", 0.5);
-        } else if (direction.equalsIgnoreCase("left_backward")) {
-            driveBase.diagonalInches(-inches, "left_forward", 0.5);
-        }
+    public static void diagonal(double inches, boolean rightForward, DriveBase driveBase) {
+        driveBase.diagonalInches(inches, rightForward, DIAGONAL_SPEED);
     }
 
     /**
      * Sets the position of a servo.
      *
      * @param name Servo hardware name
-     * @param position Servo position as a string parseable to double [0.0 - 1.0]
-     * @param opMode OpMode for hardwareMap
-     * @param telemetry Telemetry for logging
+     * @param position Servo position [0.0 - 1.0]
+     * @param registry Registry holding the servo
      */
-    public static void servo(String name, String position, LinearOpMode opMode, Telemetry telemetry) {
-        Servo servo = opMode.hardwareMap.get(Servo.class, name);
-        servo.setPosition(Double.parseDouble(position));
+    public static void servo(String name, double position, HardwareRegistry registry) {
+        Servo servo = registry.servo(name);
+        servo.setPosition(position);
     }
 
     /**
@@ -119,21 +156,18 @@ public class Commands {
     }
 
     /**
-     * Controls a motor with specific commands: move by inches, set power, or stop.
+     * Sets a motor's power or stops it. Moves are MotorMoveActions instead.
      *
      * @param name Motor hardware name
-     * @param action "move", "power", or "stop"
-     * @param value Value related to action (distance for move, power level for power)
-     * @param opMode OpMode for hardwareMap
-     * @param telemetry Telemetry for logging
+     * @param opcode {@link Opcode#MOTOR_POWER} or {@link Opcode#MOTOR_STOP}
+     * @param value Power level for power
+     * @param registry Registry holding the motor
      */
-    public static void motorMove(String name, String action, String value, LinearOpMode opMode, Telemetry telemetry) {
-        MotorController motor = new MotorController(opMode.hardwareMap, name, 100); // Example ticks per inch
-        if (action.equalsIgnoreCase("move")) {
-            motor.moveInches(Double.parseDouble(value), 0.5);
-        } else if (action.equalsIgnoreCase("power")) {
-            motor.setPower(Double.parseDouble(value));
-        } else if (action.equalsIgnoreCase("stop")) {
+    public static void motorMove(String name, int opcode, double value, HardwareRegistry registry) {
+        MotorController motor = registry.motor(name);
+        if (opcode == Opcode.MOTOR_POWER) {
+            motor.setPower(value);
+        } else if (opcode == Opcode.MOTOR_STOP) {
             motor.stop();
         }
     }
@@ -141,21 +175,32 @@ public class Commands {
     /**
      * Waits (sleeps) for the specified number of milliseconds.
      *
-     * @param ms String milliseconds to wait
+     * @param ms Milliseconds to wait
      * @param opMode OpMode instance to call sleep()
      */
-    public static void waitMillis(String ms, LinearOpMode opMode) {
-        opMode.sleep(Long.parseLong(ms));
+    public static void waitMillis(long ms, LinearOpMode opMode) {
+        opMode.sleep(ms);
     }
 
     /**
-     * Logs a message to telemetry.
+     * Logs a message to the telemetry log. It is sent with the next telemetry update rather than
+     * forcing one; scripts log through the host's TelemetryPublisher instead.
      *
      * @param message The message to log
      * @param telemetry Telemetry instance
      */
     public static void log(String message, Telemetry telemetry) {
-        telemetry.addLine("[LOG] " + message);
-        telemetry.update();
+        telemetry.log().add(formatLog(message));
+    }
+
+    /**
+     * Formats a log message as it appears on telemetry.
+     * The ScriptCompiler calls this during init so logging at run time does not build strings.
+     *
+     * @param message The message to log
+     * @return the telemetry line
+     */
+    public static String formatLog(String message) {
+        return "[LOG] " + message;
     }
 }
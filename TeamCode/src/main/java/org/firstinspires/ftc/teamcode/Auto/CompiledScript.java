@@ -0,0 +1,104 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A pre-validated AutoScript held as parallel primitive arrays.
+ * Instruction i is described by ops[i], args[i], argVars[i], targets[i], texts[i], paths[i] and lines[i].
+ */
+public class CompiledScript {
+
+    public final String name;
+
+    /** Opcode of each instruction, see {@link Opcode}. */
+    public final int[] ops;
+
+    /**
+     * Signed numeric operand (inches, degrees, milliseconds, position or power).
+     * When the operand is a variable this holds the sign to apply to it instead.
+     */
+    public final double[] args;
+
+    /** Variable slot read by the operand, or -1 when the operand is a literal. */
+    public final int[] argVars;
+
+    /** Jump/call target for control flow, or the variable slot written by set/add. */
+    public final int[] targets;
+
+    /** Hardware name or preformatted log line, null when the instruction has none. */
+    public final String[] texts;
+
+    /** Path of each path instruction, sampled by the compiler; null for other instructions. */
+    public final Path[] paths;
+
+    /** Source line of each instruction, 1-based. */
+    public final int[] lines;
+
+    /** Variable names indexed by slot. */
+    public final String[] variableNames;
+
+    private final List<String> errors;
+
+    /**
+     * Creates a compiled script. Called by the ScriptCompiler.
+     *
+     * @param name Script name
+     * @param ops Opcodes
+     * @param args Numeric operands
+     * @param argVars Variable slots for operands
+     * @param targets Jump targets or written variable slots
+     * @param texts Text operands
+     * @param paths Paths of the path instructions
+     * @param lines Source line numbers
+     * @param variableNames Variable names by slot
+     * @param errors Compile errors, empty if the script is valid
+     */
+    public CompiledScript(String name, int[] ops, double[] args, int[] argVars, int[] targets, String[] texts,
+                          Path[] paths, int[] lines, String[] variableNames, List<String> errors) {
+        this.name = name;
+        this.ops = ops;
+        this.args = args;
+        this.argVars = argVars;
+        this.targets = targets;
+        this.texts = texts;
+        this.paths = paths;
+        this.lines = lines;
+        this.variableNames = variableNames;
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Creates an empty script that only carries an error, for a script that cannot be compiled
+     * at all, e.g. one whose name is defined twice.
+     *
+     * @param name Script name
+     * @param error Error to show
+     * @return script with no instructions and one error
+     */
+    public static CompiledScript failed(String name, String error) {
+        return new CompiledScript(name, new int[0], new double[0], new int[0], new int[0], new String[0],
+                new Path[0], new int[0], new String[0], Collections.singletonList(error));
+    }
+
+    /**
+     * @return number of instructions
+     */
+    public int size() {
+        return ops.length;
+    }
+
+    /**
+     * @return true if the script failed to compile and must not be run
+     */
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    /**
+     * @return compile errors, each prefixed with its line number
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,96 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+/**
+ * Non-blocking drivetrain command for one compiled instruction (drive, turn, strafe or diagonal).
+ * The move is planned when the action is created, during init. Instructions whose operand is a
+ * variable are re-planned into the same MovePlan when they start, so starting never allocates.
+ *
+ * When the next instruction is another drive command, the action finishes as soon as DriveBase
+ * can chain that command onto this move, so the robot does not stop in between. Moves inside a
+ * parallel or race block always run to the end, since the next command waits for the block.
+ */
+public class DriveAction implements Action {
+
+    private final DriveBase driveBase;
+    private final ScriptInterpreter interpreter;
+    private final int opcode;
+    private final int pc;
+    private final MovePlan plan = new MovePlan();
+    private final boolean planned;
+    private DriveAction next;
+
+    /**
+     * @param driveBase Drivetrain to move
+     * @param interpreter Interpreter that resolves the instruction operand
+     * @param opcode One of the drivetrain opcodes
+     * @param pc Index of the instruction
+     */
+    public DriveAction(DriveBase driveBase, ScriptInterpreter interpreter, int opcode, int pc) {
+        this.driveBase = driveBase;
+        this.interpreter = interpreter;
+        this.opcode = opcode;
+        this.pc = pc;
+        this.planned = interpreter.isLiteral(pc);
+        if (planned) plan(interpreter.value(pc));
+    }
+
+    private void plan(double value) {
+        plan(plan, opcode, value);
+    }
+
+    /**
+     * Fills a MovePlan for a drivetrain instruction, with the speeds from Commands.
+     *
+     * @param plan Plan to fill
+     * @param opcode One of the drivetrain opcodes
+     * @param value Operand: inches, or degrees for a turn
+     * @return the plan
+     */
+    public static MovePlan plan(MovePlan plan, int opcode, double value) {
+        switch (opcode) {
+            case Opcode.DRIVE:
+                plan.setDrive(value, Commands.DRIVE_SPEED);
+                break;
+            case Opcode.TURN:
+                plan.setTurn(value, Commands.TURN_SPEED);
+                break;
+            case Opcode.STRAFE:
+                plan.setStrafe(value, Commands.DRIVE_SPEED);
+                break;
+            case Opcode.DIAGONAL_RIGHT:
+                plan.setDiagonal(value, true, Commands.DIAGONAL_SPEED);
+                break;
+            case Opcode.DIAGONAL_LEFT:
+                plan.setDiagonal(value, false, Commands.DIAGONAL_SPEED);
+                break;
+        }
+        return plan;
+    }
+
+    /**
+     * @return this instruction's move, re-planned first if its operand is a variable
+     */
+    MovePlan getPlan() {
+        if (!planned) plan(interpreter.value(pc));
+        return plan;
+    }
+
+    @Override
+    public void start() {
+        driveBase.start(getPlan());
+        Action following = interpreter.getAction(pc + 1);
+        next = following instanceof DriveAction && !interpreter.isInBlock(pc) ? (DriveAction) following : null;
+    }
+
+    @Override
+    public boolean update() {
+        if (!driveBase.updateMove()) return true;
+        // Hand over early; the next command is started in this same cycle and keeps the wheels moving
+        return next != null && driveBase.canChain(next.getPlan());
+    }
+
+    @Override
+    public void cancel() {
+        driveBase.stop();
+    }
+}
@@ -1,18 +1,52 @@
 package org.firstinspires.ftc.teamcode.Auto;
 
+import com.qualcomm.hardware.rev.RevHubOrientationOnRobot;
 import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.hardware.IMU;
+import com.qualcomm.robotcore.hardware.VoltageSensor;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+
+import java.util.List;
+import java.util.function.LongSupplier;
 
 /**
  * Controls a mecanum drivetrain with four motors.
  * Supports driving forward/backward, strafing, turning, and diagonal movement in inches.
+ *
+ * Each control cycle reads the four encoders once into a snapshot (see {@link #readEncoders()})
+ * and every calculation in that cycle uses the snapshot. The hubs run in MANUAL bulk caching
+ * mode, so the snapshot costs one transaction per hub. Target positions are remembered when
+ * they are written and never read back.
+ *
+ * Moves follow a time-parameterized {@link MotionProfile} (jerk-limited S-curve, or trapezoid
+ * when {@link #MAX_JERK} is 0) that every wheel tracks in proportion to its share of the move.
+ * Each wheel is commanded the profile velocity plus a correction for its position error. Until
+ * an axis's {@link Feedforward} has been measured the command goes to the hub's velocity loop
+ * through {@link DcMotorEx#setVelocity(double)}; once it has, the wheel is driven open loop with
+ * the kS/kV/kA voltage, compensated for battery voltage.
+ *
+ * A move started while the previous one is decelerating is chained onto it: its profile starts
+ * at once and the two are added together, so the robot's velocity carries across the boundary
+ * instead of dropping to zero. This is only done when no wheel has to reverse, because a wheel
+ * that reverses has to pass through zero anyway (see {@link #canChain(MovePlan, MovePlan)}).
+ *
+ * If the hub IMU is configured as "imu", heading is closed on it. Mecanum rollers scrub in a
+ * turn, so the wheels travel further than {@link #turnDegreesToInches(double)} predicts. Each IMU
+ * read compares the rotation the encoders report since the robot last started from rest with the
+ * rotation the IMU measured, and shifts the wheels' setpoints by the difference. Turns therefore
+ * end on the IMU heading, and drives and strafes hold the heading the script last turned to.
+ * The IMU is read every {@link #IMU_PERIOD_SECONDS} rather than every cycle, because an I2C read
+ * takes several times as long as the bulk read of the encoders.
  */
 public class DriveBase {
 
-    public DcMotor frontLeft;
-    public DcMotor frontRight;
-    public DcMotor backLeft;
-    public DcMotor backRight;
+    public DcMotorEx frontLeft;
+    public DcMotorEx frontRight;
+    public DcMotorEx backLeft;
+    public DcMotorEx backRight;
 
     public static final double WHEEL_DIAMETER_INCHES = 4.0;
     public static final int TICKS_PER_REV = 560;
@@ -20,21 +54,139 @@ public class DriveBase {
     public static final double TICKS_PER_INCH = (TICKS_PER_REV * GEAR_REDUCTION) / (Math.PI * WHEEL_DIAMETER_INCHES);
     public static final double ROBOT_TRACK_WIDTH = 15.0;
 
+    /** Free speed of the drive motors at full power, used to estimate move durations. */
+    public static final double MAX_MOTOR_RPM = 300.0;
+    public static final double MAX_INCHES_PER_SECOND = (MAX_MOTOR_RPM / 60.0) / GEAR_REDUCTION * Math.PI * WHEEL_DIAMETER_INCHES;
+
+    /** Profile limits in inches of wheel travel. Acceleration is kept below where the wheels slip. */
+    public static final double MAX_ACCELERATION = 80.0;
+    public static final double MAX_JERK = 800.0;
+
+    /** Velocity correction per inch of position error, in 1/s. */
+    public static final double POSITION_GAIN = 10.0;
+
+    /** Time a move may take past the end of its profile to settle within tolerance before it is cut off. */
+    public static final double SETTLE_TIMEOUT_SECONDS = 0.5;
+
+    /** Battery voltage assumed when no voltage sensor is found. */
+    public static final double NOMINAL_VOLTAGE = 12.0;
+
+    /** Measured feedforward for each axis, see Feedforward. Uncharacterized axes use the hub's velocity loop. */
+    public static final Feedforward DRIVE_FEEDFORWARD = new Feedforward(0, 0, 0);
+    public static final Feedforward STRAFE_FEEDFORWARD = new Feedforward(0, 0, 0);
+    public static final Feedforward TURN_FEEDFORWARD = new Feedforward(0, 0, 0);
+
+    /** Encoder error at which a wheel counts as arrived, the same as the hub's RUN_TO_POSITION default. */
+    public static final int TARGET_TOLERANCE_TICKS = 5;
+
+    /** Wheel indexes, in the order of MovePlan's fields. */
+    public static final int FRONT_LEFT = 0;
+    public static final int FRONT_RIGHT = 1;
+    public static final int BACK_LEFT = 2;
+    public static final int BACK_RIGHT = 3;
+
+    /** How the Control Hub is mounted, as in the SensorIMUOrthogonal sample. */
+    public static final RevHubOrientationOnRobot.LogoFacingDirection IMU_LOGO_DIRECTION =
+            RevHubOrientationOnRobot.LogoFacingDirection.UP;
+    public static final RevHubOrientationOnRobot.UsbFacingDirection IMU_USB_DIRECTION =
+            RevHubOrientationOnRobot.UsbFacingDirection.FORWARD;
+
+    /** Minimum time between IMU reads. */
+    public static final double IMU_PERIOD_SECONDS = 0.02;
+
+    /** Fraction of the measured heading error moved into the setpoints on each IMU read. */
+    public static final double HEADING_GAIN = 0.5;
+
+    /** Heading error at which a move counts as arrived, when an IMU is fitted. */
+    public static final double HEADING_TOLERANCE_DEGREES = 1.0;
+
+    /** Sign of each wheel's travel in a right turn, indexed like the wheel constants. */
+    private static final int[] TURN_SIGNS = {1, -1, 1, -1};
+
+    /** Phases of {@link #updateMove()} timed by the "drive" LoopTimer. */
+    public static final int PHASE_READ = 0;
+    public static final int PHASE_COMPUTE = 1;
+    public static final int PHASE_WRITE = 2;
+    private static final LoopTimer TIMER = LoopTimer.get("drive", "read", "compute", "write");
+
+    /** Encoder ticks per second at free speed, to express velocity commands as power. */
+    private static final double FREE_SPEED_TICKS = MAX_INCHES_PER_SECOND * TICKS_PER_INCH;
+
+    /** Most moves that can overlap while chaining. */
+    private static final int MAX_SEGMENTS = 3;
+
+    private final DcMotorEx[] wheels;
+    private final BulkCache bulkCache;
+    private final List<VoltageSensor> voltageSensors;
+    private final IMU imu;
+    private LongSupplier clock = System::nanoTime;
+    private double moveVoltage = NOMINAL_VOLTAGE;
+
+    // Heading, in IMU degrees (counter-clockwise) without wrapping
+    private double yaw;               // from the last IMU read
+    private double rawYaw;            // last IMU reading, wrapped, to unwrap the next one
+    private long lastImuNanos;
+    private double targetHeading;     // where the robot faces when every active move is done
+    private double moveHeading;       // targetHeading when the robot last started from rest
+    private double originRotation;    // encoder rotation, in ticks, at that time
+    private double headingTrim;       // ticks added to each wheel's setpoint, times TURN_SIGNS
+
+    /** One profiled move. While chaining, several are active and their outputs add up. */
+    private static class Segment {
+        final MotionProfile profile = new MotionProfile();
+        final int[] deltas = new int[4];
+        final double[] scales = new double[4]; // wheel travel per unit of profile travel
+        Feedforward feedforward;
+        long startNanos;
+    }
+
+    // Active segments, oldest first
+    private final Segment[] segments = new Segment[MAX_SEGMENTS];
+    private int segmentCount;
+
+    // Per wheel, indexed by FRONT_LEFT etc.
+    private final int[] positions = new int[4]; // encoder snapshot from the last readEncoders()
+    private final double[] velocities = new double[4]; // ticks/s, from the same snapshot
+    private final int[] targets = new int[4];   // where the wheels end up when every active move is done
+    private final int[] bases = new int[4];     // where the oldest active move started
+    private final double[] commands = new double[4]; // this cycle's power or velocity, before writing
+    private final double[] powers = new double[4];   // last command written, as a fraction of full power
+
     /**
      * Constructs the drivetrain and initializes motors.
      *
      * @param hardwareMap HardwareMap for motors
      */
     public DriveBase(HardwareMap hardwareMap) {
-        frontLeft = hardwareMap.get(DcMotor.class, "frontLeft");
-        frontRight = hardwareMap.get(DcMotor.class, "frontRight");
-        backLeft = hardwareMap.get(DcMotor.class, "backLeft");
-        backRight = hardwareMap.get(DcMotor.class, "backRight");
+        // Caching proxies, so the per-cycle writes only reach the hub when they change
+        frontLeft = HardwareCache.motor(hardwareMap, "frontLeft");
+        frontRight = HardwareCache.motor(hardwareMap, "frontRight");
+        backLeft = HardwareCache.motor(hardwareMap, "backLeft");
+        backRight = HardwareCache.motor(hardwareMap, "backRight");
 
         frontLeft.setDirection(DcMotor.Direction.REVERSE);
         backLeft.setDirection(DcMotor.Direction.REVERSE);
-
+        wheels = new DcMotorEx[] {frontLeft, frontRight, backLeft, backRight};
+        for (int i = 0; i < MAX_SEGMENTS; i++) segments[i] = new Segment();
+
+        bulkCache = new BulkCache(hardwareMap);
+        voltageSensors = hardwareMap.getAll(VoltageSensor.class);
+        imu = hardwareMap.tryGet(IMU.class, "imu");
+        if (imu != null) {
+            imu.initialize(new IMU.Parameters(new RevHubOrientationOnRobot(IMU_LOGO_DIRECTION, IMU_USB_DIRECTION)));
+        }
         resetEncoders();
+        resetHeading();
+    }
+
+    /**
+     * Sets the clock that times profiled moves. The simulator passes its simulated clock.
+     *
+     * @param clock Time source in nanoseconds
+     */
+    public void setClock(LongSupplier clock) {
+        this.clock = clock;
+        lastImuNanos = clock.getAsLong() - imuPeriodNanos();
     }
 
     /**
@@ -50,90 +202,199 @@ public class DriveBase {
         frontRight.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
         backLeft.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
         backRight.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+
+        for (int i = 0; i < wheels.length; i++) {
+            positions[i] = 0;
+            velocities[i] = 0;
+            targets[i] = 0;
+            bases[i] = 0;
+        }
+        segmentCount = 0;
+        bulkCache.clear();
+    }
+
+    /**
+     * Takes this cycle's encoder snapshot. The hubs' bulk caches must have been cleared since the
+     * previous cycle, which the OpModeHost does in idle() and the blocking moves do themselves.
+     * Velocities come from the same bulk read, so they cost no extra hub transaction.
+     */
+    public void readEncoders() {
+        for (int i = 0; i < wheels.length; i++) {
+            positions[i] = wheels[i].getCurrentPosition();
+            velocities[i] = wheels[i].getVelocity();
+        }
+    }
+
+    /**
+     * @param wheel FRONT_LEFT, FRONT_RIGHT, BACK_LEFT or BACK_RIGHT
+     * @return encoder position from the last snapshot, in ticks
+     */
+    public int getPosition(int wheel) {
+        return positions[wheel];
+    }
+
+    /**
+     * @param wheel FRONT_LEFT, FRONT_RIGHT, BACK_LEFT or BACK_RIGHT
+     * @return encoder velocity from the last snapshot, in ticks/s
+     */
+    public double getVelocity(int wheel) {
+        return velocities[wheel];
+    }
+
+    /**
+     * @param wheel FRONT_LEFT, FRONT_RIGHT, BACK_LEFT or BACK_RIGHT
+     * @return last power written to the wheel; velocity commands are given as a fraction of free speed
+     */
+    public double getPower(int wheel) {
+        return powers[wheel];
+    }
+
+    /**
+     * Makes the current heading the zero heading that later turns are measured from.
+     */
+    public void resetHeading() {
+        if (imu != null) imu.resetYaw();
+        yaw = 0;
+        rawYaw = 0;
+        lastImuNanos = clock.getAsLong() - imuPeriodNanos();
+        targetHeading = 0;
+        moveHeading = 0;
+        headingTrim = 0;
+    }
+
+    /**
+     * @return true if heading is closed on the IMU
+     */
+    public boolean hasImu() {
+        return imu != null;
+    }
+
+    /**
+     * @return heading from the last IMU read in degrees, positive clockwise like "turn right", not wrapped
+     */
+    public double getHeading() {
+        return -yaw;
+    }
+
+    /**
+     * @return heading error in degrees, positive if the robot must still turn right
+     */
+    public double getHeadingError() {
+        return yaw - targetHeading;
+    }
+
+    /**
+     * Reads the IMU if {@link #IMU_PERIOD_SECONDS} have passed since the last read, and moves
+     * the heading trim toward the difference between the encoder and IMU rotation.
+     */
+    private void readHeading(long now) {
+        if (imu == null || now - lastImuNanos < imuPeriodNanos()) return;
+        lastImuNanos = now;
+        double raw = imu.getRobotYawPitchRollAngles().getYaw(AngleUnit.DEGREES);
+        yaw += wrapDegrees(raw - rawYaw);
+        rawYaw = raw;
+
+        double encoderRotation = rotation(positions) - originRotation;
+        double imuRotation = turnDegreesToInches(moveHeading - yaw) * TICKS_PER_INCH;
+        headingTrim += HEADING_GAIN * (encoderRotation - imuRotation - headingTrim);
+    }
+
+    private static long imuPeriodNanos() {
+        return (long) (IMU_PERIOD_SECONDS * 1e9);
+    }
+
+    /** Rotation part of a set of wheel positions, in ticks of wheel travel, positive clockwise. */
+    private static double rotation(int[] wheelTicks) {
+        double total = 0;
+        for (int i = 0; i < wheelTicks.length; i++) total += TURN_SIGNS[i] * wheelTicks[i];
+        return total / 4;
+    }
+
+    private static double wrapDegrees(double degrees) {
+        double wrapped = (degrees + 180) % 360;
+        if (wrapped < 0) wrapped += 360;
+        return wrapped - 180;
     }
 
-    private void setRunToPosition() {
-        frontLeft.setMode(DcMotor.RunMode.RUN_TO_POSITION);
-        frontRight.setMode(DcMotor.RunMode.RUN_TO_POSITION);
-        backLeft.setMode(DcMotor.RunMode.RUN_TO_POSITION);
-        backRight.setMode(DcMotor.RunMode.RUN_TO_POSITION);
+    private void setModes(DcMotor.RunMode mode) {
+        for (int i = 0; i < wheels.length; i++) wheels[i].setMode(mode);
+    }
+
+    /**
+     * Converts a turn angle into the distance each wheel travels.
+     *
+     * @param degrees Angle to turn
+     * @return wheel travel in inches, same sign as degrees
+     */
+    public static double turnDegreesToInches(double degrees) {
+        double turnCircumference = Math.PI * ROBOT_TRACK_WIDTH;
+        return (degrees / 360.0) * turnCircumference;
     }
 
     /**
-     * Drives forward/backward specified inches with speed ramping.
+     * Drives forward/backward specified inches along a motion profile.
+     * This method blocks until the move is complete, see {@link #waitForMove()}.
      *
      * @param inches Distance to drive (positive forward, negative backward)
      * @param maxSpeed Maximum motor power (0.0 to 1.0)
      */
     public void driveInches(double inches, double maxSpeed) {
-        int ticks = (int)(inches * TICKS_PER_INCH);
-
-        frontLeft.setTargetPosition(frontLeft.getCurrentPosition() + ticks);
-        frontRight.setTargetPosition(frontRight.getCurrentPosition() + ticks);
-        backLeft.setTargetPosition(backLeft.getCurrentPosition() + ticks);
-        backRight.setTargetPosition(backRight.getCurrentPosition() + ticks);
-
-        setRunToPosition();
-
-        while (isBusy()) {
-            double remaining = getRemainingInches();
-            double speed = getSpeedBasedOnDistance(remaining, maxSpeed);
-            setMotorPowers(speed);
-        }
+        startDrive(inches, maxSpeed);
+        waitForMove();
+    }
 
-        stop();
+    /**
+     * Starts a forward/backward move without waiting for it. Call {@link #updateMove()} every cycle.
+     *
+     * @param inches Distance to drive (positive forward, negative backward)
+     * @param maxSpeed Maximum motor power (0.0 to 1.0)
+     */
+    public void startDrive(double inches, double maxSpeed) {
+        start(new MovePlan().setDrive(inches, maxSpeed));
     }
 
     /**
      * Strafes left or right specified inches.
+     * This method blocks until the move is complete, see {@link #waitForMove()}.
      *
      * @param inches Distance to strafe (positive right, negative left)
      * @param maxSpeed Max motor power
      */
     public void strafeInches(double inches, double maxSpeed) {
-        int ticks = (int)(inches * TICKS_PER_INCH);
-
-        frontLeft.setTargetPosition(frontLeft.getCurrentPosition() + ticks);
-        frontRight.setTargetPosition(frontRight.getCurrentPosition() - ticks);
-        backLeft.setTargetPosition(backLeft.getCurrentPosition() - ticks);
-        backRight.setTargetPosition(backRight.getCurrentPosition() + ticks);
-
-        setRunToPosition();
-
-        while (isBusy()) {
-            double remaining = getRemainingInches();
-            double speed = getSpeedBasedOnDistance(remaining, maxSpeed);
-            setMotorPowers(speed);
-        }
+        startStrafe(inches, maxSpeed);
+        waitForMove();
+    }
 
-        stop();
+    /**
+     * Starts a strafe without waiting for it. Call {@link #updateMove()} every cycle.
+     *
+     * @param inches Distance to strafe (positive right, negative left)
+     * @param maxSpeed Max motor power
+     */
+    public void startStrafe(double inches, double maxSpeed) {
+        start(new MovePlan().setStrafe(inches, maxSpeed));
     }
 
     /**
      * Turns robot by degrees. Positive degrees turn right; negative left.
+     * This method blocks until the turn is complete, see {@link #waitForMove()}.
      *
      * @param degrees Angle to turn
      * @param maxSpeed Max motor power
      */
     public void turnDegrees(double degrees, double maxSpeed) {
-        double turnCircumference = Math.PI * ROBOT_TRACK_WIDTH;
-        double inches = (degrees / 360.0) * turnCircumference;
-        int ticks = (int)(inches * TICKS_PER_INCH);
-
-        frontLeft.setTargetPosition(frontLeft.getCurrentPosition() + ticks);
-        backLeft.setTargetPosition(backLeft.getCurrentPosition() + ticks);
-        frontRight.setTargetPosition(frontRight.getCurrentPosition() - ticks);
-        backRight.setTargetPosition(backRight.getCurrentPosition() - ticks);
-
-        setRunToPosition();
-
-        while (isBusy()) {
-            double remaining = getRemainingInches();
-            double speed = getSpeedBasedOnDistance(remaining, maxSpeed);
-            setMotorPowers(speed);
-        }
+        startTurn(degrees, maxSpeed);
+        waitForMove();
+    }
 
-        stop();
+    /**
+     * Starts a turn without waiting for it. Call {@link #updateMove()} every cycle.
+     *
+     * @param degrees Angle to turn (positive right, negative left)
+     * @param maxSpeed Max motor power
+     */
+    public void startTurn(double degrees, double maxSpeed) {
+        start(new MovePlan().setTurn(degrees, maxSpeed));
     }
 
     /**
@@ -144,89 +405,392 @@ public class DriveBase {
      * @param maxSpeed Max motor power
      */
     public void diagonalInches(double inches, String direction, double maxSpeed) {
-        int ticks = (int)(inches * TICKS_PER_INCH);
-
         if (direction.equalsIgnoreCase("right_forward")) {
-            frontLeft.setTargetPosition(frontLeft.getCurrentPosition() + ticks);
-            backRight.setTargetPosition(backRight.getCurrentPosition() + ticks);
+            diagonalInches(inches, true, maxSpeed);
         } else if (direction.equalsIgnoreCase("left_forward")) {
-            frontRight.setTargetPosition(frontRight.getCurrentPosition() + ticks);
-            backLeft.setTargetPosition(backLeft.getCurrentPosition() + ticks);
-        } else {
-            return; // Invalid direction
+            diagonalInches(inches, false, maxSpeed);
         }
+        // Invalid direction: do nothing
+    }
 
-        setRunToPosition();
+    /**
+     * Moves robot diagonally by inches along one of the two 45 degree axes.
+     * This method blocks until the move is complete, see {@link #waitForMove()}.
+     *
+     * @param inches Distance to move diagonally (positive forward, negative backward)
+     * @param rightForward true for the right_forward axis, false for left_forward
+     * @param maxSpeed Max motor power
+     */
+    public void diagonalInches(double inches, boolean rightForward, double maxSpeed) {
+        startDiagonal(inches, rightForward, maxSpeed);
+        waitForMove();
+    }
+
+    /**
+     * Starts a diagonal move without waiting for it. Call {@link #updateMove()} every cycle.
+     *
+     * @param inches Distance to move diagonally (positive forward, negative backward)
+     * @param rightForward true for the right_forward axis, false for left_forward
+     * @param maxSpeed Max motor power
+     */
+    public void startDiagonal(double inches, boolean rightForward, double maxSpeed) {
+        start(new MovePlan().setDiagonal(inches, rightForward, maxSpeed));
+    }
 
-        while (isBusy()) {
-            double remaining = getRemainingInches();
-            double speed = getSpeedBasedOnDistance(remaining, maxSpeed);
-            setMotorPowers(speed);
+    /**
+     * Runs the current move to completion, one control cycle per iteration. The SDK interrupts
+     * a LinearOpMode's thread when STOP is pressed, so the wait stops the wheels and returns then
+     * instead of finishing the move. Scripts and code with a ScriptHost step moves from their own
+     * loop instead, which also runs the cycle hooks.
+     */
+    private void waitForMove() {
+        while (updateMove()) {
+            if (Thread.currentThread().isInterrupted()) {
+                stop();
+                return;
+            }
+            Thread.yield();
+            bulkCache.clear();
+        }
+    }
+
+    /**
+     * Starts a planned move without waiting for it. Call {@link #updateMove()} every cycle.
+     * Targets are relative to where each wheel is now; wheels the plan does not move hold position.
+     * If the current move is decelerating and {@link #canChain(MovePlan)} allows it, the new move
+     * is chained onto it and targets are relative to where the current move ends instead.
+     * The battery voltage is read when a move starts from rest, rather than every cycle.
+     *
+     * @param plan Precomputed move
+     */
+    public void start(MovePlan plan) {
+        long now = clock.getAsLong();
+        if (!canChain(plan, now)) {
+            readEncoders();
+            for (int i = 0; i < wheels.length; i++) {
+                bases[i] = positions[i];
+                targets[i] = positions[i];
+            }
+            segmentCount = 0;
+            moveVoltage = readBatteryVoltage();
+            moveHeading = targetHeading;
+            originRotation = rotation(positions);
+            headingTrim = 0;
+            Feedforward feedforward = getFeedforward(plan.axis);
+            setModes(feedforward.isCharacterized() ? DcMotor.RunMode.RUN_WITHOUT_ENCODER : DcMotor.RunMode.RUN_USING_ENCODER);
         }
 
-        stop();
+        Segment segment = segments[segmentCount++];
+        int longest = 0;
+        for (int i = 0; i < wheels.length; i++) {
+            segment.deltas[i] = plan.delta(i);
+            longest = Math.max(longest, Math.abs(segment.deltas[i]));
+        }
+        for (int i = 0; i < wheels.length; i++) {
+            segment.scales[i] = longest == 0 ? 0 : (double) segment.deltas[i] / longest;
+            targets[i] += segment.deltas[i];
+        }
+        targetHeading -= rotation(segment.deltas) / TICKS_PER_INCH / (Math.PI * ROBOT_TRACK_WIDTH) * 360;
+        segment.profile.set(longest / TICKS_PER_INCH, plan.maxSpeed * MAX_INCHES_PER_SECOND, MAX_ACCELERATION, MAX_JERK);
+        segment.feedforward = getFeedforward(plan.axis);
+        segment.startNanos = now;
     }
 
     /**
-     * Returns average encoder error ticks across all four motors.
+     * Checks whether a move started now would be chained onto the current one.
+     * DriveAction uses this to hand over to the next command without stopping.
      *
-     * @return average error in ticks
+     * @param plan Next move
+     * @return true if a move is decelerating and the plan can continue from it
      */
-    public double getAverageErrorTicks() {
-        int flError = Math.abs(frontLeft.getTargetPosition() - frontLeft.getCurrentPosition());
-        int frError = Math.abs(frontRight.getTargetPosition() - frontRight.getCurrentPosition());
-        int blError = Math.abs(backLeft.getTargetPosition() - backLeft.getCurrentPosition());
-        int brError = Math.abs(backRight.getTargetPosition() - backRight.getCurrentPosition());
-        return (flError + frError + blError + brError) / 4.0;
+    public boolean canChain(MovePlan plan) {
+        return canChain(plan, clock.getAsLong());
+    }
+
+    private boolean canChain(MovePlan plan, long now) {
+        if (segmentCount == 0 || segmentCount == MAX_SEGMENTS) return false;
+        Segment last = segments[segmentCount - 1];
+        if (seconds(last, now) < last.profile.getDecelerationStart()) return false;
+        if (last.feedforward.isCharacterized() != getFeedforward(plan.axis).isCharacterized()) return false;
+        for (int i = 0; i < wheels.length; i++) {
+            if (reverses(last.deltas[i], plan.delta(i))) return false;
+        }
+        return true;
     }
 
     /**
-     * Returns average remaining distance in inches to target position.
+     * Checks whether one move can run straight on into another: no wheel reverses, and both are
+     * driven the same way (hub velocity loop or feedforward). Used by the RuntimeEstimator.
      *
-     * @return remaining distance in inches
+     * @param from Earlier move
+     * @param to Following move
+     * @return true if DriveBase would chain the two
      */
-    public double getRemainingInches() {
-        return getAverageErrorTicks() / TICKS_PER_INCH;
+    public static boolean canChain(MovePlan from, MovePlan to) {
+        if (getFeedforward(from.axis).isCharacterized() != getFeedforward(to.axis).isCharacterized()) return false;
+        for (int i = 0; i < 4; i++) {
+            if (reverses(from.delta(i), to.delta(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean reverses(int delta, int next) {
+        return (delta > 0 && next < 0) || (delta < 0 && next > 0);
     }
 
     /**
-     * Calculates motor speed based on distance remaining for smooth deceleration.
+     * @param axis One of the MovePlan AXIS constants
+     * @return feedforward used for moves along that axis
+     */
+    public static Feedforward getFeedforward(int axis) {
+        switch (axis) {
+            case MovePlan.AXIS_STRAFE:
+                return STRAFE_FEEDFORWARD;
+            case MovePlan.AXIS_TURN:
+                return TURN_FEEDFORWARD;
+            default:
+                return DRIVE_FEEDFORWARD;
+        }
+    }
+
+    /**
+     * Runs one control cycle of the current move: takes the encoder snapshot, samples the
+     * profiles, and commands every wheel. Stops the motors once the last profile has ended and
+     * every wheel has arrived, or the settle timeout has passed.
      *
-     * @param remainingInches Distance left to move
-     * @param maxSpeed Maximum speed allowed
-     * @return speed value clamped between minSpeed and maxSpeed
+     * @return true while the move is still in progress
      */
-    public double getSpeedBasedOnDistance(double remainingInches, double maxSpeed) {
-        double minSpeed = 0.2;
-        double rampDownStart = 12.0;
+    public boolean updateMove() {
+        TIMER.startCycle();
+        readEncoders();
+        if (segmentCount == 0) {
+            stop();
+            TIMER.pause();
+            return false;
+        }
+        long now = clock.getAsLong();
+        readHeading(now);
+        TIMER.lap(PHASE_READ);
+
+        // Fold chained moves that have finished into the base positions
+        while (segmentCount > 1 && seconds(segments[0], now) >= segments[0].profile.getDuration()) {
+            Segment done = segments[0];
+            for (int i = 0; i < wheels.length; i++) bases[i] += done.deltas[i];
+            System.arraycopy(segments, 1, segments, 0, segmentCount - 1);
+            segments[--segmentCount] = done;
+        }
 
-        if (remainingInches > rampDownStart) {
-            return maxSpeed;
+        Segment last = segments[segmentCount - 1];
+        double time = seconds(last, now);
+        double end = last.profile.getDuration();
+        boolean arrived = !isBusy() && (imu == null || Math.abs(getHeadingError()) <= HEADING_TOLERANCE_DEGREES);
+        if (segmentCount == 1 && time >= end && (arrived || time > end + SETTLE_TIMEOUT_SECONDS)) {
+            stop();
+            segmentCount = 0;
+            TIMER.pause();
+            return false;
+        }
+
+        for (int i = 0; i < wheels.length; i++) {
+            double setpoint = bases[i] + TURN_SIGNS[i] * headingTrim;
+            double velocity = 0;
+            double acceleration = 0;
+            for (int k = 0; k < segmentCount; k++) {
+                Segment segment = segments[k];
+                double t = seconds(segment, now);
+                double scale = segment.scales[i];
+                setpoint += scale * segment.profile.getPosition(t) * TICKS_PER_INCH;
+                velocity += scale * segment.profile.getVelocity(t);
+                acceleration += scale * segment.profile.getAcceleration(t);
+            }
+            commands[i] = wheelCommand(setpoint, positions[i], velocity, acceleration, last.feedforward);
+        }
+        TIMER.lap(PHASE_COMPUTE);
+
+        boolean openLoop = last.feedforward.isCharacterized();
+        for (int i = 0; i < wheels.length; i++) {
+            if (openLoop) {
+                wheels[i].setPower(commands[i]);
+                powers[i] = commands[i];
+            } else {
+                wheels[i].setVelocity(commands[i]);
+                powers[i] = commands[i] / FREE_SPEED_TICKS;
+            }
+        }
+        TIMER.lap(PHASE_WRITE);
+        return true;
+    }
+
+    private static double seconds(Segment segment, long now) {
+        return (now - segment.startNanos) / 1e9;
+    }
+
+    /**
+     * Works out the command that moves one wheel toward its setpoint.
+     *
+     * @param setpoint Position the wheel should be at now, in ticks
+     * @param current Encoder position from this cycle's snapshot
+     * @param velocity Profile velocity in inches per second
+     * @param acceleration Profile acceleration in inches per second squared
+     * @param feedforward Feedforward of the newest move
+     * @return power if the feedforward is characterized, otherwise velocity in ticks/s
+     */
+    private double wheelCommand(double setpoint, int current, double velocity, double acceleration,
+                                Feedforward feedforward) {
+        double errorTicks = setpoint - current;
+        double correction = Math.abs(errorTicks) > TARGET_TOLERANCE_TICKS ? POSITION_GAIN * errorTicks / TICKS_PER_INCH : 0;
+        double wheelVelocity = velocity + correction;
+        if (feedforward.isCharacterized()) {
+            double volts = feedforward.volts(wheelVelocity, acceleration);
+            return Math.max(-1, Math.min(1, volts / moveVoltage));
+        }
+        return wheelVelocity * TICKS_PER_INCH;
+    }
+
+    /**
+     * @return battery voltage from the first hub that reports one, or NOMINAL_VOLTAGE if none does
+     */
+    public double readBatteryVoltage() {
+        for (int i = 0; i < voltageSensors.size(); i++) {
+            double volts = voltageSensors.get(i).getVoltage();
+            if (volts > 0) return volts;
+        }
+        return NOMINAL_VOLTAGE;
+    }
+
+    /**
+     * Prepares the wheels for {@link #setRobotVelocity(double, double, double)}, which the
+     * PathFollower calls every cycle. Any profiled move is dropped, and the wheels are switched to
+     * the hub's velocity loop, or to feedforward if {@link #DRIVE_FEEDFORWARD} has been measured.
+     */
+    public void startVelocityControl() {
+        segmentCount = 0;
+        moveVoltage = readBatteryVoltage();
+        setModes(DRIVE_FEEDFORWARD.isCharacterized() ? DcMotor.RunMode.RUN_WITHOUT_ENCODER : DcMotor.RunMode.RUN_USING_ENCODER);
+    }
+
+    /**
+     * Drives at a velocity relative to the robot. If a wheel would have to exceed free speed the
+     * whole command is scaled down, so the direction of travel is kept.
+     *
+     * @param forward Forward speed in inches/s
+     * @param left Sideways speed in inches/s, positive to the left
+     * @param turn Turn rate in radians/s, positive counter-clockwise
+     */
+    public void setRobotVelocity(double forward, double left, double turn) {
+        double spin = -turn * ROBOT_TRACK_WIDTH / 2; // wheel travel of a right turn
+        double fl = forward - left + spin;
+        double fr = forward + left - spin;
+        double bl = forward + left + spin;
+        double br = forward - left - spin;
+        double fastest = Math.max(Math.max(Math.abs(fl), Math.abs(fr)), Math.max(Math.abs(bl), Math.abs(br)));
+        double scale = fastest > MAX_INCHES_PER_SECOND ? MAX_INCHES_PER_SECOND / fastest : 1;
+        setWheelVelocity(FRONT_LEFT, fl * scale);
+        setWheelVelocity(FRONT_RIGHT, fr * scale);
+        setWheelVelocity(BACK_LEFT, bl * scale);
+        setWheelVelocity(BACK_RIGHT, br * scale);
+    }
+
+    private void setWheelVelocity(int wheel, double inchesPerSecond) {
+        if (DRIVE_FEEDFORWARD.isCharacterized()) {
+            powers[wheel] = Math.max(-1, Math.min(1, DRIVE_FEEDFORWARD.volts(inchesPerSecond, 0) / moveVoltage));
+            wheels[wheel].setPower(powers[wheel]);
         } else {
-            double speed = minSpeed + (remainingInches / rampDownStart) * (maxSpeed - minSpeed);
-            return Math.max(minSpeed, Math.min(speed, maxSpeed));
+            wheels[wheel].setVelocity(inchesPerSecond * TICKS_PER_INCH);
+            powers[wheel] = inchesPerSecond * TICKS_PER_INCH / FREE_SPEED_TICKS;
         }
     }
 
     /**
-     * Sets power to all motors with sign matching their target direction.
+     * Prepares the wheels for {@link #setWheelPowers}, e.g. for characterization. Any profiled
+     * move is dropped and the hub's velocity loop is turned off, so power maps straight to voltage.
+     */
+    public void startOpenLoop() {
+        segmentCount = 0;
+        setModes(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+    }
+
+    /**
+     * Sets each wheel's power directly.
+     *
+     * @param fl Front left power (-1.0 to 1.0), positive drives the robot forward
+     * @param fr Front right power
+     * @param bl Back left power
+     * @param br Back right power
+     */
+    public void setWheelPowers(double fl, double fr, double bl, double br) {
+        powers[FRONT_LEFT] = fl;
+        powers[FRONT_RIGHT] = fr;
+        powers[BACK_LEFT] = bl;
+        powers[BACK_RIGHT] = br;
+        for (int i = 0; i < wheels.length; i++) wheels[i].setPower(powers[i]);
+    }
+
+    /**
+     * Makes the heading the robot faces now the one later moves hold, e.g. after following a path.
+     * Does nothing without an IMU.
+     */
+    public void holdCurrentHeading() {
+        long now = clock.getAsLong();
+        lastImuNanos = now - imuPeriodNanos();
+        readHeading(now);
+        targetHeading = yaw;
+    }
+
+    /**
+     * @return profile of the newest move
+     */
+    public MotionProfile getProfile() {
+        return segments[Math.max(0, segmentCount - 1)].profile;
+    }
+
+    /**
+     * Returns average encoder error ticks across all four motors, from the encoder snapshot.
+     *
+     * @return average error in ticks
+     */
+    public double getAverageErrorTicks() {
+        double total = 0;
+        for (int i = 0; i < wheels.length; i++) total += Math.abs(getError(i));
+        return total / 4.0;
+    }
+
+    /**
+     * Returns average remaining distance in inches to target position.
+     *
+     * @return remaining distance in inches
+     */
+    public double getRemainingInches() {
+        return getAverageErrorTicks() / TICKS_PER_INCH;
+    }
+
+    /**
+     * Sets power to all motors with sign matching their target direction in the encoder snapshot.
      *
      * @param speed Desired motor speed (magnitude)
      */
     public void setMotorPowers(double speed) {
-        frontLeft.setPower(speed * Math.signum(frontLeft.getTargetPosition() - frontLeft.getCurrentPosition()));
-        frontRight.setPower(speed * Math.signum(frontRight.getTargetPosition() - frontRight.getCurrentPosition()));
-        backLeft.setPower(speed * Math.signum(backLeft.getTargetPosition() - backLeft.getCurrentPosition()));
-        backRight.setPower(speed * Math.signum(backRight.getTargetPosition() - backRight.getCurrentPosition()));
+        for (int i = 0; i < wheels.length; i++) {
+            powers[i] = speed * Math.signum(getError(i));
+            wheels[i].setPower(powers[i]);
+        }
     }
 
     /**
-     * Checks if any motor is still busy moving to target.
+     * Checks if any motor is still busy moving to target, from the encoder snapshot.
      *
-     * @return true if any motor is busy
+     * @return true if any wheel is further than {@link #TARGET_TOLERANCE_TICKS} from its target
      */
     public boolean isBusy() {
-        return frontLeft.isBusy() || frontRight.isBusy() || backLeft.isBusy() || backRight.isBusy();
+        for (int i = 0; i < wheels.length; i++) {
+            if (Math.abs(getError(i)) > TARGET_TOLERANCE_TICKS) return true;
+        }
+        return false;
+    }
+
+    /** Ticks a wheel is short of its target, including the heading trim. */
+    private double getError(int wheel) {
+        return targets[wheel] + TURN_SIGNS[wheel] * headingTrim - positions[wheel];
     }
 
     /**
@@ -237,5 +801,6 @@ public class DriveBase {
         frontRight.setPower(0);
         backLeft.setPower(0);
         backRight.setPower(0);
+        for (int i = 0; i < wheels.length; i++) powers[i] = 0;
     }
 }
@@ -0,0 +1,154 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Measures how the drivetrain responds to voltage, so the Feedforward gains in DriveBase can be
+ * fitted instead of guessed.
+ *
+ * Two tests are run per axis. The quasistatic test ramps the voltage up slowly, so acceleration
+ * stays near zero and velocity against voltage gives kS and kV. The step test applies a fixed
+ * voltage at once, so the robot accelerates hard and the voltage left over after kS and kV gives
+ * kA. Each test ends after its time, or sooner once the wheels have travelled
+ * {@link #MAX_TRAVEL_INCHES}, so it fits on the field.
+ *
+ * Samples are kept in preallocated arrays and written out as CSV after each test with
+ * {@link #writeCsv}; the Sim FeedforwardFitter turns the CSV into kS, kV and kA per axis.
+ * Positions and velocities are in inches of wheel travel, the same units DriveBase's feedforward
+ * uses, with each wheel's sign for the axis taken out.
+ */
+public class DriveCharacterization {
+
+    public static final int TEST_QUASISTATIC = 0;
+    public static final int TEST_STEP = 1;
+
+    public static final String[] AXIS_NAMES = {"forward", "strafe", "turn"};
+    public static final String[] TEST_NAMES = {"quasistatic", "step"};
+
+    /** Wheel signs that move the robot along each MovePlan axis: forward, strafe right, turn right. */
+    private static final int[][] AXIS_SIGNS = {
+            {1, 1, 1, 1},
+            {1, -1, -1, 1},
+            {1, -1, 1, -1},
+    };
+
+    public static final double RAMP_VOLTS_PER_SECOND = 1.0;
+    public static final double RAMP_SECONDS = 7.0;
+    public static final double STEP_VOLTS = 6.0;
+    public static final double STEP_SECONDS = 2.0;
+
+    /** Wheel travel after which a test stops early. */
+    public static final double MAX_TRAVEL_INCHES = 60.0;
+
+    /** Samples kept per test; the tests stop when it is reached. */
+    public static final int MAX_SAMPLES = 4096;
+
+    public static final String CSV_HEADER = "axis,test,seconds,volts,position,velocity,acceleration";
+
+    private final DriveBase driveBase;
+    private final ScriptHost host;
+
+    // Samples of the last test
+    private final double[] seconds = new double[MAX_SAMPLES];
+    private final double[] volts = new double[MAX_SAMPLES];
+    private final double[] positions = new double[MAX_SAMPLES];
+    private final double[] velocities = new double[MAX_SAMPLES];
+    private int count;
+    private int axis;
+    private int test;
+
+    /**
+     * @param driveBase Drivetrain to test
+     * @param host Clock and control cycle; its idle() must clear the bulk caches, like OpModeHost's
+     */
+    public DriveCharacterization(DriveBase driveBase, ScriptHost host) {
+        this.driveBase = driveBase;
+        this.host = host;
+    }
+
+    /**
+     * Runs one test and stops the wheels. Blocks until it ends or the host stops being active.
+     *
+     * @param axis MovePlan.AXIS_DRIVE, AXIS_STRAFE or AXIS_TURN
+     * @param test TEST_QUASISTATIC or TEST_STEP
+     * @param direction 1 to move forward, right or clockwise, -1 for the other way
+     * @return number of samples taken
+     */
+    public int run(int axis, int test, int direction) {
+        this.axis = axis;
+        this.test = test;
+        int[] signs = AXIS_SIGNS[axis];
+        double duration = test == TEST_STEP ? STEP_SECONDS : RAMP_SECONDS;
+
+        driveBase.startOpenLoop();
+        driveBase.readEncoders();
+        double origin = axisPosition(signs);
+        long start = host.nanoTime();
+        count = 0;
+        while (host.isActive() && count < MAX_SAMPLES) {
+            double t = (host.nanoTime() - start) / 1e9;
+            driveBase.readEncoders();
+            double position = axisPosition(signs) - origin;
+            if (t > duration || Math.abs(position) > MAX_TRAVEL_INCHES) break;
+
+            double applied = direction * (test == TEST_STEP ? STEP_VOLTS : RAMP_VOLTS_PER_SECOND * t);
+            double power = Math.max(-1, Math.min(1, applied / driveBase.readBatteryVoltage()));
+            driveBase.setWheelPowers(signs[0] * power, signs[1] * power, signs[2] * power, signs[3] * power);
+
+            seconds[count] = t;
+            volts[count] = applied;
+            positions[count] = position;
+            velocities[count] = axisVelocity(signs);
+            count++;
+            host.idle();
+        }
+        driveBase.stop();
+        return count;
+    }
+
+    private double axisPosition(int[] signs) {
+        double total = 0;
+        for (int i = 0; i < 4; i++) total += signs[i] * driveBase.getPosition(i);
+        return total / 4 / DriveBase.TICKS_PER_INCH;
+    }
+
+    private double axisVelocity(int[] signs) {
+        double total = 0;
+        for (int i = 0; i < 4; i++) total += signs[i] * driveBase.getVelocity(i);
+        return total / 4 / DriveBase.TICKS_PER_INCH;
+    }
+
+    /**
+     * @return number of samples taken by the last test
+     */
+    public int getSampleCount() {
+        return count;
+    }
+
+    /**
+     * @return highest speed reached in the last test, in inches per second
+     */
+    public double getMaxVelocity() {
+        double max = 0;
+        for (int i = 0; i < count; i++) max = Math.max(max, Math.abs(velocities[i]));
+        return max;
+    }
+
+    /**
+     * Writes the samples of the last test as CSV rows without a header, see {@link #CSV_HEADER}.
+     * Acceleration is the central difference of the measured velocity.
+     *
+     * @param out Where the rows go
+     */
+    public void writeCsv(PrintStream out) {
+        for (int i = 0; i < count; i++) {
+            int before = Math.max(0, i - 1);
+            int after = Math.min(count - 1, i + 1);
+            double dt = seconds[after] - seconds[before];
+            double acceleration = dt > 0 ? (velocities[after] - velocities[before]) / dt : 0;
+            out.printf(Locale.US, "%s,%s,%.4f,%.3f,%.3f,%.3f,%.2f%n", AXIS_NAMES[axis], TEST_NAMES[test],
+                    seconds[i], volts[i], positions[i], velocities[i], acceleration);
+        }
+    }
+}
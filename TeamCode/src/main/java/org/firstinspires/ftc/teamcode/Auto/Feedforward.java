@@ -0,0 +1,43 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+/**
+ * Motor feedforward model: volts = kS * sign(v) + kV * v + kA * a.
+ *
+ * kS overcomes static friction, kV holds a velocity and kA accelerates. For the drivetrain the
+ * units are volts, inches of wheel travel per second and inches per second squared. The gains
+ * are public so they can be replaced with measured values; a model with kV = 0 counts as not
+ * characterized.
+ */
+public class Feedforward {
+
+    public double kS;
+    public double kV;
+    public double kA;
+
+    /**
+     * @param kS Static friction voltage
+     * @param kV Volts per unit of velocity
+     * @param kA Volts per unit of acceleration
+     */
+    public Feedforward(double kS, double kV, double kA) {
+        this.kS = kS;
+        this.kV = kV;
+        this.kA = kA;
+    }
+
+    /**
+     * @return true once kV has been measured, so the model can drive a motor by itself
+     */
+    public boolean isCharacterized() {
+        return kV > 0;
+    }
+
+    /**
+     * @param velocity Desired velocity
+     * @param acceleration Desired acceleration
+     * @return voltage to apply
+     */
+    public double volts(double velocity, double acceleration) {
+        return kS * Math.signum(velocity) + kV * velocity + kA * acceleration;
+    }
+}
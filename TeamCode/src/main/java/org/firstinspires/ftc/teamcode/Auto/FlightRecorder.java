@@ -0,0 +1,269 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Records the drivetrain and script state of every control cycle to a binary file, so a run
+ * that went wrong can be looked at afterwards with the desktop FlightLog tool.
+ *
+ * {@link #record} copies values the cycle has already read into a preallocated ring buffer and
+ * returns; it never touches the hardware, the file or the heap. A background thread moves the
+ * samples from the ring into a memory-mapped file. If the writer falls behind and the ring fills,
+ * or the file is full, samples are dropped and counted instead of stalling the loop.
+ *
+ * File layout, little-endian:
+ * <pre>
+ * header (HEADER_BYTES): int MAGIC, short VERSION, short SAMPLE_BYTES, int sample count,
+ *                        int dropped samples, long wall clock millis at creation,
+ *                        short name length, name in UTF-8, zero padded
+ * sample (SAMPLE_BYTES): long nanos, int pc, short line, short opcode, float heading degrees,
+ *                        int position[4], float velocity[4] ticks/s, float power[4]
+ * </pre>
+ * Wheels are in DriveBase order (FRONT_LEFT, FRONT_RIGHT, BACK_LEFT, BACK_RIGHT). pc, line and
+ * opcode are -1 outside a script. The sample count is updated after every write, so the file is
+ * readable even if the app dies before {@link #close()}.
+ */
+public class FlightRecorder {
+
+    /** Where {@link #create(String)} puts recordings. */
+    public static final File RECORDING_DIR = new File(AppUtil.FIRST_FOLDER, "autorecordings");
+
+    /** Recordings kept in RECORDING_DIR; older ones are deleted when a new one is created. */
+    public static final int MAX_RECORDINGS = 20;
+
+    public static final int MAGIC = 0x43524C46; // "FLRC" when read as little-endian bytes
+    public static final short VERSION = 1;
+    public static final int HEADER_BYTES = 64;
+    public static final int SAMPLE_BYTES = 68;
+    public static final int COUNT_OFFSET = 8;
+    public static final int DROPPED_OFFSET = 12;
+    public static final int NAME_OFFSET = 24;
+    public static final int MAX_NAME_BYTES = HEADER_BYTES - NAME_OFFSET - 2;
+
+    /** Samples the file has room for; enough for an autonomous at a 1 ms loop. */
+    public static final int DEFAULT_MAX_SAMPLES = 32768;
+
+    /** Samples the ring holds between writes; the writer empties it every WRITE_PERIOD_MILLIS. */
+    public static final int RING_SAMPLES = 1024;
+    public static final long WRITE_PERIOD_MILLIS = 100;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+
+    private final ByteBuffer ring = ByteBuffer.allocate(RING_SAMPLES * SAMPLE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer ringReader = ring.duplicate(); // writer thread's view, for bulk copies
+    private final AtomicLong head = new AtomicLong(); // samples recorded, written by the control thread only
+    private final AtomicLong tail = new AtomicLong(); // samples moved to the file, written by the writer only
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicReference<Throwable> lastError = new AtomicReference<>();
+    private int written;
+    private boolean closed;
+    private ScheduledExecutorService executor;
+
+    /**
+     * Creates the file and maps it. Nothing is recorded until {@link #record} is called.
+     *
+     * @param file File to write, replaced if it exists
+     * @param name Name stored in the header, e.g. the script name; cut to MAX_NAME_BYTES
+     * @param maxSamples Samples the file has room for
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public FlightRecorder(File file, String name, int maxSamples) throws IOException {
+        this.file = file;
+        raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            channel = raf.getChannel();
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) maxSamples * SAMPLE_BYTES);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        nameBytes = Arrays.copyOf(nameBytes, Math.min(nameBytes.length, MAX_NAME_BYTES));
+        mapped.putInt(MAGIC).putShort(VERSION).putShort((short) SAMPLE_BYTES)
+                .putInt(0).putInt(0).putLong(System.currentTimeMillis())
+                .putShort((short) nameBytes.length).put(nameBytes);
+        mapped.position(HEADER_BYTES);
+    }
+
+    /**
+     * Creates a recorder writing a new file in {@link #RECORDING_DIR}, named after the time and
+     * the script, and deletes the oldest recordings beyond {@link #MAX_RECORDINGS}.
+     *
+     * @param name Script name
+     * @return the recorder
+     * @throws IOException if the file cannot be created
+     */
+    public static FlightRecorder create(String name) throws IOException {
+        if (!RECORDING_DIR.isDirectory() && !RECORDING_DIR.mkdirs()) {
+            throw new IOException("cannot create " + RECORDING_DIR);
+        }
+        // Timestamped names sort oldest first
+        File[] old = RECORDING_DIR.listFiles((dir, fileName) -> fileName.endsWith(".bin"));
+        if (old != null && old.length >= MAX_RECORDINGS) {
+            Arrays.sort(old);
+            for (int i = 0; i <= old.length - MAX_RECORDINGS; i++) old[i].delete();
+        }
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        String safeName = name.replaceAll("[^A-Za-z0-9_-]", "_");
+        return new FlightRecorder(new File(RECORDING_DIR, stamp + "-" + safeName + ".bin"), name, DEFAULT_MAX_SAMPLES);
+    }
+
+    /**
+     * Starts moving samples to the file on a background thread.
+     */
+    public synchronized void start() {
+        if (executor != null || closed) return;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "FlightRecorder");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                lastError.set(e);
+            }
+        }, WRITE_PERIOD_MILLIS, WRITE_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records one control cycle. Call it from the control thread once the cycle's encoder
+     * snapshot has been taken; it does not allocate or block.
+     *
+     * @param nanos Time of the cycle
+     * @param driveBase Drivetrain whose snapshot, heading and last commands are recorded
+     * @param interpreter Interpreter whose current instruction is recorded
+     */
+    public void record(long nanos, DriveBase driveBase, ScriptInterpreter interpreter) {
+        long index = head.get();
+        if (index - tail.get() >= RING_SAMPLES) {
+            dropped.incrementAndGet();
+            return;
+        }
+        int pc = interpreter.getCurrentPc();
+        int at = (int) (index % RING_SAMPLES) * SAMPLE_BYTES;
+        ring.putLong(at, nanos);
+        ring.putInt(at + 8, pc);
+        ring.putShort(at + 12, (short) (pc < 0 ? -1 : interpreter.line(pc)));
+        ring.putShort(at + 14, (short) (pc < 0 ? -1 : interpreter.opcode(pc)));
+        ring.putFloat(at + 16, (float) driveBase.getHeading());
+        for (int i = 0; i < 4; i++) {
+            ring.putInt(at + 20 + 4 * i, driveBase.getPosition(i));
+            ring.putFloat(at + 36 + 4 * i, (float) driveBase.getVelocity(i));
+            ring.putFloat(at + 52 + 4 * i, (float) driveBase.getPower(i));
+        }
+        // Publishes the sample to the writer; ordered after the puts above
+        head.lazySet(index + 1);
+    }
+
+    /**
+     * Moves every recorded sample from the ring into the file. Called by the background thread;
+     * call it directly instead of {@link #start()} to step the recorder from a simulator.
+     */
+    public synchronized void flush() {
+        if (closed) return;
+        long from = tail.get();
+        long to = head.get();
+        long fit = mapped.remaining() / SAMPLE_BYTES;
+        if (to - from > fit) {
+            dropped.addAndGet(to - from - fit);
+        }
+        long copyTo = from + Math.min(to - from, fit);
+        for (long index = from; index < copyTo; ) {
+            int start = (int) (index % RING_SAMPLES);
+            int count = (int) Math.min(copyTo - index, RING_SAMPLES - start);
+            ringReader.limit((start + count) * SAMPLE_BYTES).position(start * SAMPLE_BYTES);
+            mapped.put(ringReader);
+            index += count;
+        }
+        written += (int) (copyTo - from);
+        tail.lazySet(to);
+        mapped.putInt(COUNT_OFFSET, written);
+        mapped.putInt(DROPPED_OFFSET, (int) dropped.get());
+    }
+
+    /**
+     * Stops the writer, writes the remaining samples and cuts the file to its recorded length.
+     * The recorder cannot be used afterwards.
+     */
+    public void close() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = executor;
+            executor = null;
+        }
+        if (running != null) {
+            running.shutdown();
+            try {
+                running.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (closed) return;
+            flush();
+            closed = true;
+            mapped.force();
+            try {
+                channel.truncate(HEADER_BYTES + (long) written * SAMPLE_BYTES);
+                raf.close();
+            } catch (IOException e) {
+                lastError.set(e);
+            }
+        }
+    }
+
+    /**
+     * @return the recording
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return samples written to the file so far
+     */
+    public synchronized int getWrittenCount() {
+        return written;
+    }
+
+    /**
+     * @return samples lost because the ring or the file was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the last exception thrown while writing, or null
+     */
+    public Throwable getLastError() {
+        return lastError.get();
+    }
+}
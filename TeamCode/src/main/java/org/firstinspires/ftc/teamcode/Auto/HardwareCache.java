@@ -0,0 +1,124 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.hardware.Servo;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Hands out write-caching proxies (CachingMotor, CachingServo) for devices in a HardwareMap.
+ *
+ * The same proxy is returned for the same device name every time, so DriveBase,
+ * MotorController and the script commands all share one cache per device even though
+ * MotorController is created per command. Proxies are kept per HardwareMap and dropped with it.
+ * The SDK may reuse the HardwareMap for the next OpMode and resets the devices in between, so
+ * call {@link #reset(HardwareMap)} at the start of every OpMode that uses these proxies.
+ */
+public final class HardwareCache {
+
+    /** Default smallest motor power change that is sent. */
+    public static final double POWER_TOLERANCE = 0.001;
+
+    /** Default smallest velocity change that is sent, in ticks/s. The hub works in whole ticks/s. */
+    public static final double VELOCITY_TOLERANCE = 0.5;
+
+    /** Default smallest servo position change that is sent, about 1 us of pulse width. */
+    public static final double SERVO_TOLERANCE = 0.0005;
+
+    private static final Map<HardwareMap, Map<String, CachingMotor>> MOTORS = new WeakHashMap<>();
+    private static final Map<HardwareMap, Map<String, CachingServo>> SERVOS = new WeakHashMap<>();
+
+    private HardwareCache() {
+    }
+
+    /**
+     * @param hardwareMap Robot configuration
+     * @param name Motor hardware name
+     * @return the shared caching proxy for the motor
+     */
+    public static synchronized CachingMotor motor(HardwareMap hardwareMap, String name) {
+        Map<String, CachingMotor> motors = MOTORS.get(hardwareMap);
+        if (motors == null) {
+            motors = new HashMap<>();
+            MOTORS.put(hardwareMap, motors);
+        }
+        CachingMotor motor = motors.get(name);
+        if (motor == null) {
+            motor = new CachingMotor(hardwareMap.get(DcMotorEx.class, name));
+            motors.put(name, motor);
+        }
+        return motor;
+    }
+
+    /**
+     * @param hardwareMap Robot configuration
+     * @param name Servo hardware name
+     * @return the shared caching proxy for the servo
+     */
+    public static synchronized CachingServo servo(HardwareMap hardwareMap, String name) {
+        Map<String, CachingServo> servos = SERVOS.get(hardwareMap);
+        if (servos == null) {
+            servos = new HashMap<>();
+            SERVOS.put(hardwareMap, servos);
+        }
+        CachingServo servo = servos.get(name);
+        if (servo == null) {
+            servo = new CachingServo(hardwareMap.get(Servo.class, name));
+            servos.put(name, servo);
+        }
+        return servo;
+    }
+
+    /**
+     * Forgets every cached value for a HardwareMap, so the next write to each device is sent.
+     *
+     * @param hardwareMap Robot configuration
+     */
+    public static synchronized void reset(HardwareMap hardwareMap) {
+        Map<String, CachingMotor> motors = MOTORS.get(hardwareMap);
+        if (motors != null) {
+            for (CachingMotor motor : motors.values()) motor.invalidate();
+        }
+        Map<String, CachingServo> servos = SERVOS.get(hardwareMap);
+        if (servos != null) {
+            for (CachingServo servo : servos.values()) servo.invalidate();
+        }
+    }
+
+    /**
+     * @param hardwareMap Robot configuration
+     * @return writes dropped by every proxy for the HardwareMap
+     */
+    public static synchronized long getSavedWrites(HardwareMap hardwareMap) {
+        long total = 0;
+        Map<String, CachingMotor> motors = MOTORS.get(hardwareMap);
+        if (motors != null) {
+            for (CachingMotor motor : motors.values()) total += motor.getSavedWrites();
+        }
+        Map<String, CachingServo> servos = SERVOS.get(hardwareMap);
+        if (servos != null) {
+            for (CachingServo servo : servos.values()) total += servo.getSavedWrites();
+        }
+        return total;
+    }
+
+    /**
+     * @param hardwareMap Robot configuration
+     * @return writes passed on by every proxy for the HardwareMap
+     */
+    public static synchronized long getSentWrites(HardwareMap hardwareMap) {
+        long total = 0;
+        Map<String, CachingMotor> motors = MOTORS.get(hardwareMap);
+        if (motors != null) {
+            for (CachingMotor motor : motors.values()) total += motor.getSentWrites();
+        }
+        Map<String, CachingServo> servos = SERVOS.get(hardwareMap);
+        if (servos != null) {
+            for (CachingServo servo : servos.values()) total += servo.getSentWrites();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,108 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.hardware.Servo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Resolves and configures the mechanism motors and servos used by scripts, once per OpMode.
+ *
+ * Every device is looked up in the HardwareMap and set up the first time it is asked for, and
+ * the same handle is returned from then on. A MotorController resets its encoder only when it is
+ * created, so every "motor" command on the same motor shares one encoder reference and no mode
+ * changes are paid per command. Ticks per inch come from {@link MechanismConfig}.
+ *
+ * Call {@link #resolve(CompiledScript)} during init so that missing devices are reported before
+ * PLAY and nothing is looked up while the script runs.
+ */
+public class HardwareRegistry {
+
+    private final HardwareMap hardwareMap;
+    private final Map<String, MotorController> motors = new HashMap<>();
+    private final List<MotorController> motorList = new ArrayList<>(); // iterated every cycle without an iterator
+    private final Map<String, Servo> servos = new HashMap<>();
+    private LongSupplier clock = System::nanoTime;
+
+    /**
+     * @param hardwareMap Robot configuration
+     */
+    public HardwareRegistry(HardwareMap hardwareMap) {
+        this.hardwareMap = hardwareMap;
+    }
+
+    /**
+     * Sets the clock closed-loop mechanism moves run on, for the motors already resolved and the
+     * ones to come. The simulator passes its simulated clock.
+     *
+     * @param clock Time source in nanoseconds
+     */
+    public synchronized void setClock(LongSupplier clock) {
+        this.clock = clock;
+        for (MotorController motor : motors.values()) motor.setClock(clock);
+    }
+
+    /**
+     * @param name Motor hardware name
+     * @return the motor's controller, created and its encoder reset on first use
+     */
+    public synchronized MotorController motor(String name) {
+        MotorController motor = motors.get(name);
+        if (motor == null) {
+            motor = new MotorController(hardwareMap, name, MechanismConfig.forMotor(name));
+            motor.setClock(clock);
+            motors.put(name, motor);
+            motorList.add(motor);
+        }
+        return motor;
+    }
+
+    /**
+     * @param name Servo hardware name
+     * @return the servo's shared write-caching proxy
+     */
+    public synchronized Servo servo(String name) {
+        Servo servo = servos.get(name);
+        if (servo == null) {
+            servo = HardwareCache.servo(hardwareMap, name);
+            servos.put(name, servo);
+        }
+        return servo;
+    }
+
+    /**
+     * Resolves every motor and servo a script refers to.
+     *
+     * @param script Compiled script
+     * @throws IllegalArgumentException if a device is not in the robot configuration
+     */
+    public void resolve(CompiledScript script) {
+        for (int pc = 0; pc < script.size(); pc++) {
+            int op = script.ops[pc];
+            if (op == Opcode.SERVO) {
+                servo(script.texts[pc]);
+            } else if (op == Opcode.MOTOR_MOVE || op == Opcode.MOTOR_POWER || op == Opcode.MOTOR_STOP) {
+                motor(script.texts[pc]);
+            }
+        }
+    }
+
+    /**
+     * Keeps every closed-loop mechanism that has arrived at its target holding it. Call once per
+     * control cycle while the mechanisms are in use.
+     */
+    public synchronized void updateHolds() {
+        for (int i = 0; i < motorList.size(); i++) motorList.get(i).updateHold();
+    }
+
+    /**
+     * Stops every mechanism motor, e.g. at the end of a run.
+     */
+    public synchronized void stopAll() {
+        for (MotorController motor : motors.values()) motor.stop();
+    }
+}
@@ -0,0 +1,101 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size histogram of durations in nanoseconds, for percentiles of control loop timing.
+ *
+ * Buckets are log-linear like HdrHistogram's: exact below 64 ns, then 32 buckets per power of
+ * two up to about 17 seconds, so any recorded value is known to within about 3%. Recording is a
+ * few integer operations on a preallocated array and never allocates.
+ * Not thread-safe; record from one thread.
+ */
+public class LoopHistogram {
+
+    private static final int LINEAR = 64;
+    private static final int SUB_BUCKETS = 32;
+    private static final int SUB_BITS = 5;
+    private static final int MAX_EXPONENT = 34;
+    private static final int BUCKETS = LINEAR + (MAX_EXPONENT - 5) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long total;
+    private long max;
+
+    /**
+     * Adds one duration.
+     *
+     * @param nanos Duration in nanoseconds; negative values count as 0
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts[bucket(nanos)]++;
+        count++;
+        total += nanos;
+        if (nanos > max) max = nanos;
+    }
+
+    private static int bucket(long nanos) {
+        if (nanos < LINEAR) return (int) nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+        int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exponent - 6) * SUB_BUCKETS + sub;
+    }
+
+    /** Middle of the range of values that fall in a bucket. */
+    private static long value(int bucket) {
+        if (bucket < LINEAR) return bucket;
+        int exponent = (bucket - LINEAR) / SUB_BUCKETS + 6;
+        int sub = (bucket - LINEAR) % SUB_BUCKETS;
+        long low = (long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+        return low + (1L << (exponent - SUB_BITS)) / 2;
+    }
+
+    /**
+     * @param fraction Quantile between 0 and 1, e.g. 0.99
+     * @return duration in nanoseconds that this fraction of the values are at or below, 0 if empty
+     */
+    public long getPercentile(double fraction) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(value(i), max);
+        }
+        return max;
+    }
+
+    /**
+     * @return number of recorded values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return largest recorded value in nanoseconds, exact
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return mean of the recorded values in nanoseconds, exact
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * Empties the histogram.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+}
@@ -0,0 +1,150 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Times a control loop: the period between cycles and how each cycle splits into phases such as
+ * hardware read, compute and write. Every measurement goes into a LoopHistogram, so a whole
+ * match can be timed without allocating.
+ *
+ * A loop calls {@link #startCycle()} at the top of every cycle and {@link #lap(int)} at the end
+ * of each phase. {@link #pause()} marks the end of a run of cycles, e.g. when a move finishes,
+ * so the gap until the next move is not counted as a cycle period.
+ *
+ * Timers are registered by name with {@link #get(String, String...)} so the OpMode can report all
+ * of them at the end of a run. Time is always the real System.nanoTime(), also in the simulator,
+ * so phase times there are the desktop's compute cost.
+ */
+public class LoopTimer {
+
+    private static final Map<String, LoopTimer> TIMERS = new LinkedHashMap<>();
+
+    private final String name;
+    private final String[] phaseNames;
+    private final LoopHistogram period = new LoopHistogram();
+    private final LoopHistogram[] phases;
+    private long cycleStart;
+    private long lastMark;
+    private boolean running;
+
+    private LoopTimer(String name, String[] phaseNames) {
+        this.name = name;
+        this.phaseNames = phaseNames;
+        this.phases = new LoopHistogram[phaseNames.length];
+        for (int i = 0; i < phases.length; i++) phases[i] = new LoopHistogram();
+    }
+
+    /**
+     * Returns the timer with a name, creating it on first use. Call during init.
+     *
+     * @param name Loop name shown in reports
+     * @param phaseNames Names of the phases, in the order {@link #lap(int)} indexes them
+     * @return the shared timer
+     */
+    public static synchronized LoopTimer get(String name, String... phaseNames) {
+        LoopTimer timer = TIMERS.get(name);
+        if (timer == null) {
+            timer = new LoopTimer(name, phaseNames);
+            TIMERS.put(name, timer);
+        }
+        return timer;
+    }
+
+    /**
+     * @return every registered timer, in registration order
+     */
+    public static synchronized List<LoopTimer> getAll() {
+        return new ArrayList<>(TIMERS.values());
+    }
+
+    /**
+     * Empties every registered timer, e.g. at the start of an OpMode.
+     */
+    public static synchronized void resetAll() {
+        for (LoopTimer timer : TIMERS.values()) timer.reset();
+    }
+
+    /**
+     * Marks the start of a cycle and records the period since the previous one.
+     */
+    public void startCycle() {
+        long now = System.nanoTime();
+        if (running) period.record(now - cycleStart);
+        cycleStart = now;
+        lastMark = now;
+        running = true;
+    }
+
+    /**
+     * Records the time since the start of the cycle or the previous lap as one phase.
+     *
+     * @param phase Index into the phase names
+     */
+    public void lap(int phase) {
+        long now = System.nanoTime();
+        phases[phase].record(now - lastMark);
+        lastMark = now;
+    }
+
+    /**
+     * Ends a run of cycles; the next {@link #startCycle()} does not record a period.
+     */
+    public void pause() {
+        running = false;
+    }
+
+    /**
+     * Empties the histograms.
+     */
+    public void reset() {
+        period.reset();
+        for (LoopHistogram phase : phases) phase.reset();
+        running = false;
+    }
+
+    /**
+     * @return name given at registration
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return histogram of cycle periods
+     */
+    public LoopHistogram getPeriod() {
+        return period;
+    }
+
+    /**
+     * @param phase Index into the phase names
+     * @return histogram of that phase's durations
+     */
+    public LoopHistogram getPhase(int phase) {
+        return phases[phase];
+    }
+
+    /**
+     * Formats the period and every phase as p50/p99/max lines, for telemetry and the log.
+     * Histograms with no values are left out.
+     *
+     * @return one line per histogram
+     */
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        addLine(lines, "period", period);
+        for (int i = 0; i < phases.length; i++) addLine(lines, phaseNames[i], phases[i]);
+        return lines;
+    }
+
+    private void addLine(List<String> lines, String label, LoopHistogram histogram) {
+        if (histogram.getCount() == 0) return;
+        lines.add(String.format(Locale.US, "%s %s: p50 %.3f p99 %.3f max %.3f ms (n=%d)", name, label,
+                histogram.getPercentile(0.5) / 1e6, histogram.getPercentile(0.99) / 1e6,
+                histogram.getMax() / 1e6, histogram.getCount()));
+    }
+}
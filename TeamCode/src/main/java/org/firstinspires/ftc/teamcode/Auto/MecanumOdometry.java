@@ -0,0 +1,103 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+/**
+ * Dead reckoning from the four mecanum drive encoders, using the geometry in DriveBase.
+ *
+ * Wheel travel since the last update is turned into a robot-frame move with the mecanum
+ * kinematics that MovePlan uses in reverse, then rotated into the field frame at the midpoint
+ * heading. Heading comes from the wheels too, so it drifts with wheel slip; a Pinpoint or OTOS is
+ * more accurate where fitted.
+ *
+ * The encoder positions are the DriveBase's snapshot, which the control loop takes once per cycle
+ * while the robot drives. The hubs are in MANUAL bulk caching mode, so reading the motors more
+ * often would not see anything newer, and reading them from another thread would race the
+ * control loop. So this source has no sensor of its own: the control loop updates it, once per
+ * cycle after the drive has run. Travel while no move reads the encoders, e.g. settling after a
+ * move, is picked up by the next snapshot.
+ */
+public class MecanumOdometry implements PoseSource {
+
+    private final DriveBase driveBase;
+
+    private int lastFrontLeft;
+    private int lastFrontRight;
+    private int lastBackLeft;
+    private int lastBackRight;
+
+    private double x;
+    private double y;
+    private double heading;
+
+    /**
+     * @param driveBase Drivetrain whose encoder snapshot to follow
+     */
+    public MecanumOdometry(DriveBase driveBase) {
+        this.driveBase = driveBase;
+        rebase();
+    }
+
+    /** Measures travel from the current snapshot, e.g. after the encoders were reset. */
+    private void rebase() {
+        lastFrontLeft = driveBase.getPosition(DriveBase.FRONT_LEFT);
+        lastFrontRight = driveBase.getPosition(DriveBase.FRONT_RIGHT);
+        lastBackLeft = driveBase.getPosition(DriveBase.BACK_LEFT);
+        lastBackRight = driveBase.getPosition(DriveBase.BACK_RIGHT);
+    }
+
+    @Override
+    public boolean hasOwnSensor() {
+        return false;
+    }
+
+    @Override
+    public void update() {
+        int fl = driveBase.getPosition(DriveBase.FRONT_LEFT);
+        int fr = driveBase.getPosition(DriveBase.FRONT_RIGHT);
+        int bl = driveBase.getPosition(DriveBase.BACK_LEFT);
+        int br = driveBase.getPosition(DriveBase.BACK_RIGHT);
+        double dfl = (fl - lastFrontLeft) / DriveBase.TICKS_PER_INCH;
+        double dfr = (fr - lastFrontRight) / DriveBase.TICKS_PER_INCH;
+        double dbl = (bl - lastBackLeft) / DriveBase.TICKS_PER_INCH;
+        double dbr = (br - lastBackRight) / DriveBase.TICKS_PER_INCH;
+        lastFrontLeft = fl;
+        lastFrontRight = fr;
+        lastBackLeft = bl;
+        lastBackRight = br;
+
+        double forward = (dfl + dfr + dbl + dbr) / 4;
+        double left = -(dfl - dfr - dbl + dbr) / 4;
+        // A right turn moves the left wheels forward; same turning circle as DriveBase.turnDegreesToInches
+        double turn = -(dfl - dfr + dbl - dbr) / 4 / (DriveBase.ROBOT_TRACK_WIDTH / 2);
+
+        double mid = heading + turn / 2;
+        x += forward * Math.cos(mid) - left * Math.sin(mid);
+        y += forward * Math.sin(mid) + left * Math.cos(mid);
+        heading = Pose.normalize(heading + turn);
+    }
+
+    @Override
+    public double getX() {
+        return x;
+    }
+
+    @Override
+    public double getY() {
+        return y;
+    }
+
+    @Override
+    public double getHeading() {
+        return heading;
+    }
+
+    /**
+     * Also restarts the travel measurement, so call it after DriveBase.resetEncoders().
+     */
+    @Override
+    public void setPose(double x, double y, double heading) {
+        rebase();
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+    }
+}
@@ -0,0 +1,213 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+/**
+ * Calibration of a mechanism motor driven by the "motor" commands, e.g. a lift or an arm.
+ *
+ * Add a line to {@link #MECHANISMS} for every mechanism on the robot. A configured mechanism can
+ * also be moved by name in scripts, e.g. "slide up 20". Motors that are not listed are still
+ * usable with "motor [name] move", using {@link #DEFAULT_TICKS_PER_INCH}.
+ *
+ * A mechanism with a motion profile and gains is moved by a {@link MechanismController}, which
+ * runs its own profiled PID and feedforward loop; one without them uses the hub's
+ * RUN_TO_POSITION. Gains are in volts per unit of mechanism travel: inches for a slide, or
+ * degrees for an arm whose ticksPerInch is given per degree. Like {@link Feedforward}, the gains
+ * are public so they can be replaced with measured values.
+ */
+public class MechanismConfig {
+
+    /** Ticks per inch for motors that are not in MECHANISMS. */
+    public static final double DEFAULT_TICKS_PER_INCH = 100;
+
+    /** Gravity models for {@link #setGravity}: nothing pulls the mechanism, e.g. a horizontal slide. */
+    public static final int GRAVITY_NONE = 0;
+    /** Gravity pulls with the same force everywhere, e.g. a vertical slide or lift. */
+    public static final int GRAVITY_ELEVATOR = 1;
+    /** Gravity pulls in proportion to the cosine of the angle from horizontal, e.g. an arm. */
+    public static final int GRAVITY_ARM = 2;
+
+    /** The robot's mechanisms. Names are the motor names in the robot configuration. */
+    public static final MechanismConfig[] MECHANISMS = {
+            // Example entry: calibrate before relying on its distances. DEFAULT_TICKS_PER_INCH keeps
+            // "motor slide move" where it was; replace it with the measured encoder ticks over a
+            // measured travel, e.g. 28 * 19.2 / (Math.PI * 1.5) for a bare motor through a 19.2:1
+            // gearbox onto a 1.5 in spool.
+            //
+            // It has no profile or gains, so it moves with RUN_TO_POSITION until they are measured,
+            // as the drive does with DriveBase's uncharacterized Feedforward(0, 0, 0). To tune it:
+            // 1. kG: raise the voltage on the empty slide until it just holds still, then
+            //    .setGravity(GRAVITY_ELEVATOR, kG, 0).
+            // 2. kV: 12 V over the free speed in inches/s, MAX_TICKS_PER_SECOND / ticksPerInch at
+            //    12 V; kA is about kV times the motor's time constant. .setFeedforward(...)
+            // 3. .setProfile(...) with a velocity and acceleration that leave a few volts for kG
+            //    and the PID.
+            // 4. .setPid(...): raise kP until a "slide up" arrives without lagging the profile,
+            //    add kD if it overshoots, and kI only if it stops short under load.
+            new MechanismConfig("slide", DEFAULT_TICKS_PER_INCH),
+    };
+
+    /** Motor hardware name. */
+    public final String name;
+
+    /** Encoder ticks per inch of mechanism travel. */
+    public final double ticksPerInch;
+
+    /** Fastest profile velocity, in inches/s; 0 leaves the mechanism on RUN_TO_POSITION. */
+    public double maxVelocity;
+    /** Profile acceleration limit, in inches/s^2. */
+    public double maxAcceleration;
+    /** Profile jerk limit, in inches/s^3, or 0 for a trapezoidal profile. */
+    public double maxJerk;
+
+    /** Volts per inch of position error. */
+    public double kP;
+    /** Volts per inch-second of accumulated position error. */
+    public double kI;
+    /** Volts per inch/s of velocity error. */
+    public double kD;
+
+    /** kS/kV/kA feedforward on the profile velocity and acceleration. */
+    public Feedforward feedforward = new Feedforward(0, 0, 0);
+
+    /** GRAVITY_NONE, GRAVITY_ELEVATOR or GRAVITY_ARM. */
+    public int gravity = GRAVITY_NONE;
+    /** Volts that hold the mechanism against gravity; for an arm, when it is horizontal. */
+    public double kG;
+    /** For an arm, the position in degrees at which it is horizontal. */
+    public double horizontalPosition;
+
+    /** Distance from the target within which a move counts as arrived, in inches. */
+    public double positionTolerance = 0.25;
+    /** Speed below which a move counts as settled, in inches/s. */
+    public double velocityTolerance = 1.0;
+
+    /**
+     * @param name Motor hardware name
+     * @param ticksPerInch Encoder ticks per inch of mechanism travel
+     */
+    public MechanismConfig(String name, double ticksPerInch) {
+        this.name = name;
+        this.ticksPerInch = ticksPerInch;
+    }
+
+    /**
+     * @param maxVelocity Fastest profile velocity, in inches/s
+     * @param maxAcceleration Profile acceleration limit, in inches/s^2
+     * @param maxJerk Profile jerk limit, in inches/s^3, or 0 for a trapezoid
+     * @return this configuration
+     */
+    public MechanismConfig setProfile(double maxVelocity, double maxAcceleration, double maxJerk) {
+        this.maxVelocity = maxVelocity;
+        this.maxAcceleration = maxAcceleration;
+        this.maxJerk = maxJerk;
+        return this;
+    }
+
+    /**
+     * @param kP Volts per inch of position error
+     * @param kI Volts per inch-second of accumulated error
+     * @param kD Volts per inch/s of velocity error
+     * @return this configuration
+     */
+    public MechanismConfig setPid(double kP, double kI, double kD) {
+        this.kP = kP;
+        this.kI = kI;
+        this.kD = kD;
+        return this;
+    }
+
+    /**
+     * @param feedforward kS/kV/kA feedforward, in volts per inch/s and inch/s^2
+     * @return this configuration
+     */
+    public MechanismConfig setFeedforward(Feedforward feedforward) {
+        this.feedforward = feedforward;
+        return this;
+    }
+
+    /**
+     * @param gravity GRAVITY_NONE, GRAVITY_ELEVATOR or GRAVITY_ARM
+     * @param kG Volts that hold the mechanism still; for an arm, when it is horizontal
+     * @param horizontalPosition For an arm, the position in degrees at which it is horizontal
+     * @return this configuration
+     */
+    public MechanismConfig setGravity(int gravity, double kG, double horizontalPosition) {
+        this.gravity = gravity;
+        this.kG = kG;
+        this.horizontalPosition = horizontalPosition;
+        return this;
+    }
+
+    /**
+     * @param position Distance from the target within which a move counts as arrived, in inches
+     * @param velocity Speed below which a move counts as settled, in inches/s
+     * @return this configuration
+     */
+    public MechanismConfig setTolerance(double position, double velocity) {
+        this.positionTolerance = position;
+        this.velocityTolerance = velocity;
+        return this;
+    }
+
+    /**
+     * @return true if the mechanism has a profile and gains, so a MechanismController moves it
+     */
+    public boolean isControlled() {
+        return maxVelocity > 0 && maxAcceleration > 0 && (kP > 0 || feedforward.isCharacterized());
+    }
+
+    /**
+     * A move at a power runs at that fraction of the motor's free speed, as it would with
+     * RUN_TO_POSITION, but no faster than maxVelocity.
+     *
+     * @param power Motor power (0.0 to 1.0)
+     * @return profile velocity in inches/s
+     */
+    public double profileVelocity(double power) {
+        double freeSpeed = MotorController.MAX_TICKS_PER_SECOND / ticksPerInch;
+        return Math.min(maxVelocity, Math.max(Math.abs(power), 0.01) * freeSpeed);
+    }
+
+    /**
+     * Predicts how long a move takes, without the settling at the end.
+     *
+     * @param inches Distance to move
+     * @param power Motor power (0.0 to 1.0)
+     * @param profile Profile to plan controlled moves with, so the caller decides what is allocated
+     * @return seconds
+     */
+    public double moveSeconds(double inches, double power, MotionProfile profile) {
+        if (!isControlled()) {
+            return Math.abs(inches) * ticksPerInch / (MotorController.MAX_TICKS_PER_SECOND * Math.max(Math.abs(power), 0.01));
+        }
+        return profile.set(inches, profileVelocity(power), maxAcceleration, maxJerk).getDuration();
+    }
+
+    /**
+     * @param name Motor hardware name, case-insensitive
+     * @return the mechanism's configuration, or null if it is not in MECHANISMS
+     */
+    public static MechanismConfig find(String name) {
+        for (MechanismConfig mechanism : MECHANISMS) {
+            if (mechanism.name.equalsIgnoreCase(name)) return mechanism;
+        }
+        return null;
+    }
+
+    /**
+     * @param name Motor hardware name
+     * @return the configured mechanism, or an uncontrolled one with DEFAULT_TICKS_PER_INCH
+     */
+    public static MechanismConfig forMotor(String name) {
+        MechanismConfig mechanism = find(name);
+        return mechanism != null ? mechanism : new MechanismConfig(name, DEFAULT_TICKS_PER_INCH);
+    }
+
+    /**
+     * @param name Motor hardware name
+     * @return ticks per inch of the configured mechanism, or DEFAULT_TICKS_PER_INCH
+     */
+    public static double ticksPerInch(String name) {
+        MechanismConfig mechanism = find(name);
+        return mechanism != null ? mechanism.ticksPerInch : DEFAULT_TICKS_PER_INCH;
+    }
+}
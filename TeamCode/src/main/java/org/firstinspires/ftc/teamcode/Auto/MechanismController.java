@@ -0,0 +1,195 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.hardware.VoltageSensor;
+
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Position control of a slide or arm motor, for mechanisms with gains in their MechanismConfig.
+ *
+ * A move follows a MotionProfile from the last target to the new one. Every
+ * {@link #PERIOD_SECONDS} the motor is given
+ * <pre>
+ *   kS * sign(v) + kV * v + kA * a        feedforward on the profile
+ * + kG, or kG * cos(angle) for an arm     gravity
+ * + kP * e + kI * sum(e * dt) + kD * de   PID on the encoder position
+ * </pre>
+ * volts, where e is the profile position minus the encoder position and de is the profile
+ * velocity minus the measured velocity (so a new profile does not kick the derivative). The
+ * volts are divided by the battery voltage read when the move starts. Calls in between periods
+ * do nothing, so the gains behave the same whatever the loop rate.
+ *
+ * The feedforward does most of the work, so the PID only has to correct what the model misses,
+ * and the mechanism tracks the profile without the overshoot and hunting of RUN_TO_POSITION at
+ * a fixed power. A move is done when its profile has ended and the mechanism is within the
+ * position and velocity tolerances. {@link #hold()} then keeps the loop running on the target,
+ * with the profile ended, so gravity is still fed forward and the PID corrects any sag; the hub's
+ * RUN_TO_POSITION would instead push back with a fixed power and no gravity term.
+ */
+public class MechanismController {
+
+    /** Control period. 100 Hz is well within what a bulk read per cycle allows. */
+    public static final double PERIOD_SECONDS = 0.01;
+
+    /** Longest gap treated as one control step, so a stalled loop does not wind up the integral. */
+    private static final double MAX_STEP_SECONDS = 0.05;
+
+    /** Most voltage the integral term may contribute. */
+    public static final double MAX_INTEGRAL_VOLTS = 2.0;
+
+    private static final long PERIOD_NANOS = (long) (PERIOD_SECONDS * 1e9);
+
+    private final DcMotorEx motor;
+    private final MechanismConfig config;
+    private final List<VoltageSensor> voltageSensors;
+    private final MotionProfile profile = new MotionProfile();
+    private final MotionProfile estimate = new MotionProfile();
+    private LongSupplier clock = System::nanoTime;
+
+    private double start;   // inches, where the profile starts
+    private double target;  // inches
+    private long startNanos;
+    private long lastNanos;
+    private double integral;
+    private double batteryVolts = DriveBase.NOMINAL_VOLTAGE;
+    private boolean busy;
+    private boolean holding;
+
+    /**
+     * @param hardwareMap Robot configuration, for the battery voltage
+     * @param motor Mechanism motor; it is switched to RUN_WITHOUT_ENCODER when a move starts
+     * @param config Profile, gains and tolerances of the mechanism
+     */
+    public MechanismController(HardwareMap hardwareMap, DcMotorEx motor, MechanismConfig config) {
+        this.motor = motor;
+        this.config = config;
+        voltageSensors = hardwareMap.getAll(VoltageSensor.class);
+    }
+
+    /**
+     * Sets the clock the profile and control period run on. The simulator passes its simulated clock.
+     *
+     * @param clock Time source in nanoseconds
+     */
+    public void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Starts a profiled move. Call {@link #update()} every cycle until it returns false.
+     *
+     * @param from Position the profile starts at, in inches; the previous target after an arrival
+     * @param to Target position in inches
+     * @param power Motor power (0.0 to 1.0), see {@link MechanismConfig#profileVelocity}
+     */
+    public void start(double from, double to, double power) {
+        start = from;
+        target = to;
+        profile.set(to - from, config.profileVelocity(power), config.maxAcceleration, config.maxJerk);
+        startNanos = clock.getAsLong();
+        lastNanos = startNanos - PERIOD_NANOS;
+        integral = 0;
+        busy = true;
+        holding = false;
+        batteryVolts = readBatteryVoltage();
+        if (motor.getMode() != DcMotor.RunMode.RUN_WITHOUT_ENCODER) motor.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+    }
+
+    /**
+     * Runs one control step if a period has passed since the last one.
+     *
+     * @return true until the profile has ended and the mechanism has settled within tolerance
+     */
+    public boolean update() {
+        long now = clock.getAsLong();
+        if (now - lastNanos < PERIOD_NANOS) return busy;
+        double dt = Math.min((now - lastNanos) * 1e-9, MAX_STEP_SECONDS);
+        lastNanos = now;
+        double time = (now - startNanos) * 1e-9;
+
+        double position = motor.getCurrentPosition() / config.ticksPerInch;
+        double velocity = motor.getVelocity() / config.ticksPerInch;
+        double setpoint = start + profile.getPosition(time);
+        double setpointVelocity = profile.getVelocity(time);
+        double error = setpoint - position;
+        double volts = config.feedforward.volts(setpointVelocity, profile.getAcceleration(time))
+                + gravityVolts(setpoint)
+                + config.kP * error + config.kI * integral + config.kD * (setpointVelocity - velocity);
+        double power = volts / batteryVolts;
+        // No integrating while the motor is saturated in the direction of the error, or the
+        // integral winds up and overshoots once the mechanism catches up
+        if (config.kI > 0 && (Math.abs(power) < 1 || power * error < 0)) {
+            double limit = MAX_INTEGRAL_VOLTS / config.kI;
+            integral = Math.max(-limit, Math.min(limit, integral + error * dt));
+        }
+        motor.setPower(Math.max(-1, Math.min(1, power)));
+
+        busy = time < profile.getDuration()
+                || Math.abs(target - position) > config.positionTolerance
+                || Math.abs(velocity) > config.velocityTolerance;
+        return busy;
+    }
+
+    /**
+     * Holds the mechanism at the target of the move that just arrived. {@link #update()} has to
+     * go on being called every cycle, and keeps running feedforward, gravity and PID on the target
+     * until the next {@link #start} or {@link #release()}.
+     */
+    public void hold() {
+        busy = false;
+        holding = true;
+    }
+
+    /**
+     * Stops holding the target, e.g. before the motor is given a power directly.
+     */
+    public void release() {
+        holding = false;
+    }
+
+    /**
+     * @return true between the arrival of a move and the next start or release
+     */
+    public boolean isHolding() {
+        return holding;
+    }
+
+    private double gravityVolts(double position) {
+        switch (config.gravity) {
+            case MechanismConfig.GRAVITY_ELEVATOR:
+                return config.kG;
+            case MechanismConfig.GRAVITY_ARM:
+                return config.kG * Math.cos(Math.toRadians(position - config.horizontalPosition));
+            default:
+                return 0;
+        }
+    }
+
+    private double readBatteryVoltage() {
+        for (int i = 0; i < voltageSensors.size(); i++) {
+            double volts = voltageSensors.get(i).getVoltage();
+            if (volts > 0) return volts;
+        }
+        return DriveBase.NOMINAL_VOLTAGE;
+    }
+
+    /**
+     * @return the target of the current or last move, in inches
+     */
+    public double getTarget() {
+        return target;
+    }
+
+    /**
+     * @param inches Distance to move
+     * @param power Motor power (0.0 to 1.0)
+     * @return seconds the move's profile takes
+     */
+    public double moveSeconds(double inches, double power) {
+        return config.moveSeconds(inches, power, estimate);
+    }
+}
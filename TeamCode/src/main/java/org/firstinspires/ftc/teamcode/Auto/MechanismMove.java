@@ -0,0 +1,140 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import java.util.function.LongSupplier;
+
+/**
+ * One move of a mechanism motor, and the handle to check on it while it runs.
+ *
+ * A move is an Action, so it runs without owning the thread: it is started once and updated once
+ * per control cycle, by a MechanismScheduler, an ActionScheduler or a MotorMoveAction. It ends
+ * when the motor arrives, when its timeout passes, or when it is cancelled, and
+ * {@link #getStatus()} says which. The motor is stopped in every case.
+ *
+ * Moves are reusable, so code that moves the same mechanism over and over can keep one and call
+ * {@link #set} before each start instead of allocating.
+ */
+public class MechanismMove implements Action {
+
+    public static final int IDLE = 0;
+    public static final int RUNNING = 1;
+    public static final int ARRIVED = 2;
+    public static final int TIMED_OUT = 3;
+    public static final int CANCELLED = 4;
+
+    private static final String[] STATUS_NAMES = {"idle", "running", "arrived", "timed out", "cancelled"};
+
+    /** Added to the expected duration of a move to give its default timeout. */
+    public static final double TIMEOUT_MARGIN_SECONDS = 1.0;
+
+    private final MotorController motor;
+    private final LongSupplier clock;
+    private double inches;
+    private double power;
+    private double timeoutSeconds;
+    private long deadline;
+    private volatile int status = IDLE;
+
+    /**
+     * @param motor Mechanism to move
+     * @param clock Time source in nanoseconds for the timeout, e.g. a ScriptHost's clock
+     */
+    public MechanismMove(MotorController motor, LongSupplier clock) {
+        this.motor = motor;
+        this.clock = clock;
+    }
+
+    /**
+     * Sets what the next {@link #start()} does.
+     *
+     * @param inches Distance to move (positive or negative)
+     * @param power Motor power (0.0 to 1.0)
+     * @param timeoutSeconds Time after which the move gives up, or 0 for
+     *                       {@link #expectedSeconds} plus {@link #TIMEOUT_MARGIN_SECONDS}
+     * @return this move
+     */
+    public MechanismMove set(double inches, double power, double timeoutSeconds) {
+        this.inches = inches;
+        this.power = power;
+        this.timeoutSeconds = timeoutSeconds;
+        return this;
+    }
+
+    /**
+     * Predicts how long a move takes at full speed for its power, without the settling at the end.
+     *
+     * @param motor Mechanism to move
+     * @param inches Distance to move
+     * @param power Motor power (0.0 to 1.0)
+     * @return seconds
+     */
+    public static double expectedSeconds(MotorController motor, double inches, double power) {
+        return motor.moveSeconds(inches, power);
+    }
+
+    @Override
+    public void start() {
+        double timeout = timeoutSeconds > 0 ? timeoutSeconds
+                : expectedSeconds(motor, inches, power) + TIMEOUT_MARGIN_SECONDS;
+        deadline = clock.getAsLong() + (long) (timeout * 1e9);
+        status = RUNNING;
+        motor.startMove(inches, power);
+    }
+
+    @Override
+    public boolean update() {
+        if (status != RUNNING) return true;
+        if (!motor.updateMove()) {
+            status = ARRIVED;
+            return true;
+        }
+        if (clock.getAsLong() - deadline >= 0) {
+            motor.stop();
+            status = TIMED_OUT;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void cancel() {
+        if (status != RUNNING) return;
+        motor.stop();
+        status = CANCELLED;
+    }
+
+    /**
+     * @return the mechanism this move drives
+     */
+    public MotorController getMotor() {
+        return motor;
+    }
+
+    /**
+     * @return IDLE, RUNNING, ARRIVED, TIMED_OUT or CANCELLED
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return true once the move has ended, for any reason
+     */
+    public boolean isDone() {
+        return status > RUNNING;
+    }
+
+    /**
+     * @return true if the move ended on its target
+     */
+    public boolean isArrived() {
+        return status == ARRIVED;
+    }
+
+    /**
+     * @param status A status from {@link #getStatus()}
+     * @return readable name, e.g. "timed out"
+     */
+    public static String statusName(int status) {
+        return STATUS_NAMES[status];
+    }
+}
@@ -0,0 +1,180 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+/**
+ * Runs mechanism moves side by side from one control tick, so a slide, an arm and an intake can
+ * all be moving while the OpMode keeps driving.
+ *
+ * {@link #move} starts a move and returns its MechanismMove right away; the caller checks the
+ * handle whenever it likes, or waits for it with {@link #await}. Call {@link #tick()} once per
+ * control cycle, after the bulk caches have been cleared, to progress every running move.
+ * Starting a move on a motor that is already moving cancels the older move. The active set is a
+ * fixed-size array, so ticking does not allocate.
+ *
+ * <pre>
+ * MechanismScheduler mechanisms = new MechanismScheduler(host);
+ * MechanismMove lift = mechanisms.move(registry.motor("slide"), 20, 1.0);
+ * MechanismMove tilt = mechanisms.move(registry.motor("arm"), -4, 0.5);
+ * while (!lift.isDone() &amp;&amp; host.isActive()) {
+ *     mechanisms.tick();
+ *     registry.updateHolds();
+ *     // drive, read sensors ...
+ *     host.idle();
+ * }
+ * </pre>
+ */
+public class MechanismScheduler {
+
+    public static final int CAPACITY = 8;
+
+    private final ScriptHost host;
+    private final MechanismMove[] active = new MechanismMove[CAPACITY];
+    private int count;
+
+    /**
+     * @param host Clock for the move timeouts, and the cycle {@link #await} waits on
+     */
+    public MechanismScheduler(ScriptHost host) {
+        this.host = host;
+    }
+
+    /**
+     * Starts moving a mechanism with the default timeout. Allocates the handle; use
+     * {@link #start(MechanismMove)} with a kept move in code that runs every cycle.
+     *
+     * @param motor Mechanism to move
+     * @param inches Distance to move (positive or negative)
+     * @param power Motor power (0.0 to 1.0)
+     * @return handle of the running move
+     */
+    public MechanismMove move(MotorController motor, double inches, double power) {
+        return move(motor, inches, power, 0);
+    }
+
+    /**
+     * Starts moving a mechanism.
+     *
+     * @param motor Mechanism to move
+     * @param inches Distance to move (positive or negative)
+     * @param power Motor power (0.0 to 1.0)
+     * @param timeoutSeconds Time after which the move gives up, or 0 for the default
+     * @return handle of the running move
+     */
+    public MechanismMove move(MotorController motor, double inches, double power, double timeoutSeconds) {
+        MechanismMove move = new MechanismMove(motor, host::nanoTime).set(inches, power, timeoutSeconds);
+        start(move);
+        return move;
+    }
+
+    /**
+     * Starts a move that was set up with {@link MechanismMove#set}, cancelling any move of the
+     * same motor that is still running.
+     *
+     * @param move Move to start
+     */
+    public void start(MechanismMove move) {
+        for (int i = 0; i < count; i++) {
+            if (active[i].getMotor() == move.getMotor()) {
+                active[i].cancel();
+                remove(i);
+                break;
+            }
+        }
+        if (count == CAPACITY) {
+            throw new IllegalStateException("More than " + CAPACITY + " mechanism moves running at once");
+        }
+        move.start();
+        active[count++] = move;
+    }
+
+    /**
+     * Updates every running move once and drops the ones that ended.
+     *
+     * @return number of moves that ended during this tick
+     */
+    public int tick() {
+        int finished = 0;
+        int i = 0;
+        while (i < count) {
+            if (active[i].update()) {
+                remove(i);
+                finished++;
+            } else {
+                i++;
+            }
+        }
+        return finished;
+    }
+
+    private void remove(int index) {
+        // Swap-remove keeps the array dense
+        active[index] = active[--count];
+        active[count] = null;
+    }
+
+    /**
+     * Cancels the running move of one motor, if it has one.
+     *
+     * @param motor Mechanism to stop
+     */
+    public void cancel(MotorController motor) {
+        for (int i = 0; i < count; i++) {
+            if (active[i].getMotor() == motor) {
+                active[i].cancel();
+                remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Cancels every running move.
+     */
+    public void cancelAll() {
+        for (int i = 0; i < count; i++) {
+            active[i].cancel();
+            active[i] = null;
+        }
+        count = 0;
+    }
+
+    /**
+     * @return true when no move is running
+     */
+    public boolean isIdle() {
+        return count == 0;
+    }
+
+    /**
+     * Ticks every running move, one control cycle at a time, until one move has ended. Other moves
+     * keep progressing meanwhile. If the host stops being active, every move is cancelled.
+     *
+     * @param move Move started by this scheduler
+     * @return the move's final status, or IDLE if it was never started
+     */
+    public int await(MechanismMove move) {
+        if (move.getStatus() == MechanismMove.IDLE) return MechanismMove.IDLE;
+        while (!move.isDone()) {
+            if (!host.isActive()) {
+                cancelAll();
+                break;
+            }
+            tick();
+            if (!move.isDone()) host.idle();
+        }
+        return move.getStatus();
+    }
+
+    /**
+     * Like {@link #await}, for every running move.
+     */
+    public void awaitAll() {
+        while (!isIdle()) {
+            if (!host.isActive()) {
+                cancelAll();
+                return;
+            }
+            tick();
+            if (!isIdle()) host.idle();
+        }
+    }
+}
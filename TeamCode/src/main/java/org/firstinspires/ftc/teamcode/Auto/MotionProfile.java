@@ -0,0 +1,212 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+/**
+ * Time-parameterized motion profile from rest to rest over a distance.
+ *
+ * With a jerk limit the profile is a jerk-limited S-curve of up to seven constant-jerk segments;
+ * without one it is a trapezoid of up to three constant-acceleration segments. Either way the
+ * move reaches the highest velocity the limits and the distance allow, so it finishes in the
+ * minimum time for those limits.
+ *
+ * Profiles are mutable so one instance can be re-planned for every move without allocating.
+ * Units are up to the caller; DriveBase uses inches of wheel travel and seconds.
+ */
+public class MotionProfile {
+
+    private static final int MAX_SEGMENTS = 7;
+    private static final int SEARCH_ITERATIONS = 60;
+
+    // Segment i starts at startTimes[i] with the given state and holds jerks[i] for durations[i]
+    private final double[] startTimes = new double[MAX_SEGMENTS];
+    private final double[] durations = new double[MAX_SEGMENTS];
+    private final double[] jerks = new double[MAX_SEGMENTS];
+    private final double[] startPositions = new double[MAX_SEGMENTS];
+    private final double[] startVelocities = new double[MAX_SEGMENTS];
+    private final double[] startAccelerations = new double[MAX_SEGMENTS];
+    private int segments;
+
+    private double sign = 1;
+    private double distance;
+    private double duration;
+    private double cruiseVelocity;
+    private double rampTime;
+
+    /**
+     * Plans a profile. The limits must be positive; a jerk limit of 0 or infinity gives a trapezoid.
+     *
+     * @param distance Signed distance to travel
+     * @param maxVelocity Velocity limit
+     * @param maxAcceleration Acceleration limit, also used for deceleration
+     * @param maxJerk Jerk limit, or 0 for a trapezoidal profile
+     * @return this profile
+     */
+    public MotionProfile set(double distance, double maxVelocity, double maxAcceleration, double maxJerk) {
+        this.sign = distance < 0 ? -1 : 1;
+        this.distance = Math.abs(distance);
+        segments = 0;
+        duration = 0;
+        cruiseVelocity = 0;
+        rampTime = 0;
+        if (this.distance == 0 || maxVelocity <= 0 || maxAcceleration <= 0) return this;
+
+        boolean jerkLimited = maxJerk > 0 && !Double.isInfinite(maxJerk);
+        double velocity = maxVelocity;
+        if (2 * rampDistance(velocity, maxAcceleration, maxJerk, jerkLimited) > this.distance) {
+            // Too short to reach the velocity limit: find the peak velocity that uses the whole distance
+            if (!jerkLimited) {
+                velocity = Math.sqrt(this.distance * maxAcceleration);
+            } else {
+                double low = 0;
+                double high = maxVelocity;
+                for (int i = 0; i < SEARCH_ITERATIONS; i++) {
+                    double mid = (low + high) / 2;
+                    if (2 * rampDistance(mid, maxAcceleration, maxJerk, true) > this.distance) high = mid;
+                    else low = mid;
+                }
+                velocity = low;
+            }
+        }
+        cruiseVelocity = velocity;
+        double cruiseTime = (this.distance - 2 * rampDistance(velocity, maxAcceleration, maxJerk, jerkLimited)) / velocity;
+
+        if (!jerkLimited) {
+            rampTime = velocity / maxAcceleration;
+            addSegment(rampTime, 0, maxAcceleration);
+            addSegment(cruiseTime, 0, 0);
+            addSegment(rampTime, 0, -maxAcceleration);
+        } else {
+            double jerkTime;
+            double constantTime;
+            if (velocity >= maxAcceleration * maxAcceleration / maxJerk) {
+                jerkTime = maxAcceleration / maxJerk;
+                constantTime = velocity / maxAcceleration - jerkTime;
+            } else {
+                jerkTime = Math.sqrt(velocity / maxJerk);
+                constantTime = 0;
+            }
+            rampTime = 2 * jerkTime + constantTime;
+            double peak = maxJerk * jerkTime;
+            addSegment(jerkTime, maxJerk, 0);
+            addSegment(constantTime, 0, peak);
+            addSegment(jerkTime, -maxJerk, peak);
+            addSegment(cruiseTime, 0, 0);
+            addSegment(jerkTime, -maxJerk, 0);
+            addSegment(constantTime, 0, -peak);
+            addSegment(jerkTime, maxJerk, -peak);
+        }
+        return this;
+    }
+
+    /**
+     * Distance covered accelerating from rest to a velocity. The ramp is symmetric in time,
+     * so it covers half of velocity times ramp time.
+     */
+    private static double rampDistance(double velocity, double maxAcceleration, double maxJerk, boolean jerkLimited) {
+        double time;
+        if (!jerkLimited) {
+            time = velocity / maxAcceleration;
+        } else if (velocity >= maxAcceleration * maxAcceleration / maxJerk) {
+            time = velocity / maxAcceleration + maxAcceleration / maxJerk;
+        } else {
+            time = 2 * Math.sqrt(velocity / maxJerk);
+        }
+        return velocity * time / 2;
+    }
+
+    /**
+     * Appends a segment, continuing from the position and velocity at the end of the previous one.
+     *
+     * @param time Segment duration
+     * @param jerk Jerk held through the segment
+     * @param acceleration Acceleration at the start of the segment
+     */
+    private void addSegment(double time, double jerk, double acceleration) {
+        if (time <= 0) return;
+        double position = 0;
+        double velocity = 0;
+        if (segments > 0) {
+            int last = segments - 1;
+            position = positionAt(last, durations[last]);
+            velocity = velocityAt(last, durations[last]);
+        }
+        startTimes[segments] = duration;
+        durations[segments] = time;
+        jerks[segments] = jerk;
+        startPositions[segments] = position;
+        startVelocities[segments] = velocity;
+        startAccelerations[segments] = acceleration;
+        segments++;
+        duration += time;
+    }
+
+    private double positionAt(int segment, double dt) {
+        return startPositions[segment] + startVelocities[segment] * dt
+                + startAccelerations[segment] * dt * dt / 2 + jerks[segment] * dt * dt * dt / 6;
+    }
+
+    private double velocityAt(int segment, double dt) {
+        return startVelocities[segment] + startAccelerations[segment] * dt + jerks[segment] * dt * dt / 2;
+    }
+
+    private double accelerationAt(int segment, double dt) {
+        return startAccelerations[segment] + jerks[segment] * dt;
+    }
+
+    private int segmentAt(double time) {
+        int segment = 0;
+        while (segment < segments - 1 && time >= startTimes[segment + 1]) segment++;
+        return segment;
+    }
+
+    /**
+     * @return time the profile takes, in seconds
+     */
+    public double getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return time at which the profile starts slowing down for the end, in seconds
+     */
+    public double getDecelerationStart() {
+        return duration - rampTime;
+    }
+
+    /**
+     * @return highest velocity the profile reaches, always positive
+     */
+    public double getCruiseVelocity() {
+        return cruiseVelocity;
+    }
+
+    /**
+     * @param time Seconds since the start of the move
+     * @return signed position, clamped to the end of the move after the profile finishes
+     */
+    public double getPosition(double time) {
+        if (segments == 0 || time >= duration) return sign * distance;
+        if (time <= 0) return 0;
+        int segment = segmentAt(time);
+        return sign * Math.min(distance, positionAt(segment, time - startTimes[segment]));
+    }
+
+    /**
+     * @param time Seconds since the start of the move
+     * @return signed velocity, 0 before the start and after the end
+     */
+    public double getVelocity(double time) {
+        if (segments == 0 || time <= 0 || time >= duration) return 0;
+        int segment = segmentAt(time);
+        return sign * Math.max(0, velocityAt(segment, time - startTimes[segment]));
+    }
+
+    /**
+     * @param time Seconds since the start of the move
+     * @return signed acceleration, 0 before the start and after the end
+     */
+    public double getAcceleration(double time) {
+        if (segments == 0 || time <= 0 || time >= duration) return 0;
+        int segment = segmentAt(time);
+        return sign * accelerationAt(segment, time - startTimes[segment]);
+    }
+}
@@ -3,14 +3,32 @@ package org.firstinspires.ftc.teamcode.Auto;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 
+import java.util.function.LongSupplier;
+
 /**
  * Encapsulates control of a single DC motor with encoder support.
  * Supports moving by inches (encoder ticks), setting power, and stopping.
+ * The encoder is reset once, when the controller is created; get controllers from a
+ * HardwareRegistry so that every command on a motor shares one.
+ * Moves of a mechanism whose MechanismConfig has gains are run by a MechanismController; other
+ * motors use the hub's RUN_TO_POSITION.
  */
 public class MotorController {
 
+    /** Encoder speed at full power, used to estimate move durations. 6000 RPM bare motor with 28 ticks/rev. */
+    public static final double MAX_TICKS_PER_SECOND = 2800.0;
+
+    /** Phases of {@link #updateMove()} timed by the "motor [name]" LoopTimer. */
+    public static final int PHASE_READ = 0;
+    public static final int PHASE_WRITE = 1;
+
     public DcMotor motor;
     private final double TICKS_PER_INCH;
+    private final MechanismConfig config;
+    private final MechanismController controller; // null when the mechanism has no gains
+    private final LoopTimer timer;
+    private int target;            // encoder target of the last move
+    private boolean holdingTarget; // the last move arrived, so the next one is measured from its target
 
     /**
      * Creates a MotorController for a specific motor.
@@ -20,39 +38,151 @@ public class MotorController {
      * @param ticksPerInch Encoder ticks per inch of movement (calibration constant)
      */
     public MotorController(HardwareMap hardwareMap, String name, double ticksPerInch) {
-        motor = hardwareMap.get(DcMotor.class, name);
+        this(hardwareMap, name, new MechanismConfig(name, ticksPerInch));
+    }
+
+    /**
+     * Creates a MotorController for a mechanism, with closed-loop moves if it has gains.
+     *
+     * @param hardwareMap HardwareMap for hardware access
+     * @param name Motor hardware name
+     * @param config Calibration and control gains of the mechanism
+     */
+    public MotorController(HardwareMap hardwareMap, String name, MechanismConfig config) {
+        CachingMotor cachingMotor = HardwareCache.motor(hardwareMap, name);
+        motor = cachingMotor;
         motor.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
         motor.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
-        TICKS_PER_INCH = ticksPerInch;
+        TICKS_PER_INCH = config.ticksPerInch;
+        this.config = config;
+        controller = config.isControlled() ? new MechanismController(hardwareMap, cachingMotor, config) : null;
+        timer = LoopTimer.get("motor " + name, "read", "write");
     }
 
     /**
-     * Moves the motor a specific distance in inches at a given power.
-     * This method blocks until the motor reaches the target position.
+     * Moves the motor a specific distance in inches at a given power, and waits for it one
+     * control cycle at a time. The move gives up after its default timeout, and stops if the
+     * host stops being active. To move several mechanisms at once use a MechanismScheduler.
      *
      * @param inches Distance to move (positive or negative)
      * @param power Motor power (0.0 to 1.0)
+     * @param host Clock and control cycle; its idle() clears the bulk caches
+     * @return MechanismMove status: ARRIVED, TIMED_OUT or CANCELLED
      */
-    public void moveInches(double inches, double power) {
+    public int moveInches(double inches, double power, ScriptHost host) {
+        MechanismMove move = new MechanismMove(this, host::nanoTime).set(inches, power, 0);
+        move.start();
+        while (!move.update()) {
+            if (!host.isActive()) {
+                move.cancel();
+                break;
+            }
+            host.idle();
+        }
+        return move.getStatus();
+    }
+
+    /**
+     * Sets the clock closed-loop moves run on. The simulator passes its simulated clock.
+     *
+     * @param clock Time source in nanoseconds
+     */
+    public void setClock(LongSupplier clock) {
+        if (controller != null) controller.setClock(clock);
+    }
+
+    /**
+     * @param inches Distance to move
+     * @param power Motor power (0.0 to 1.0)
+     * @return seconds the move takes at full speed for its power, without the settling at the end
+     */
+    public double moveSeconds(double inches, double power) {
+        return controller != null ? controller.moveSeconds(inches, power) : config.moveSeconds(inches, power, null);
+    }
+
+    /**
+     * @return the mechanism's calibration and gains
+     */
+    public MechanismConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * @return encoder ticks per inch of mechanism travel
+     */
+    public double getTicksPerInch() {
+        return TICKS_PER_INCH;
+    }
+
+    /**
+     * Starts moving the motor a specific distance without waiting for it.
+     * Call {@link #updateMove()} every cycle until it returns false.
+     *
+     * @param inches Distance to move (positive or negative)
+     * @param power Motor power (0.0 to 1.0)
+     */
+    public void startMove(double inches, double power) {
         int ticks = (int)(inches * TICKS_PER_INCH);
-        motor.setTargetPosition(motor.getCurrentPosition() + ticks);
+        // Consecutive moves add up exactly instead of carrying each one's stopping error
+        int from = holdingTarget ? target : motor.getCurrentPosition();
+        target = from + ticks;
+        holdingTarget = false;
+        if (controller != null) {
+            controller.start(from / TICKS_PER_INCH, target / TICKS_PER_INCH, power);
+            return;
+        }
+        motor.setTargetPosition(target);
         motor.setMode(DcMotor.RunMode.RUN_TO_POSITION);
         motor.setPower(Math.abs(power));
+    }
 
-        while (motor.isBusy()) {
-            // Optional: add idle() or telemetry update here if used in a loop
+    /**
+     * Checks a move started with {@link #startMove(double, double)}, or runs a control step of a
+     * closed-loop one, and stops the motor once it arrives. A closed-loop mechanism is left
+     * holding its target instead, see {@link #updateHold()}.
+     *
+     * @return true while the move is still in progress
+     */
+    public boolean updateMove() {
+        timer.startCycle();
+        if (controller != null) {
+            // Reads the encoder and writes the power in one step
+            boolean busy = controller.update();
+            timer.lap(PHASE_WRITE);
+            if (busy) return true;
+            controller.hold();
+            holdingTarget = true;
+            timer.pause();
+            return false;
         }
+        boolean busy = motor.isBusy();
+        timer.lap(PHASE_READ);
+        if (busy) return true;
+        motor.setPower(0);
+        holdingTarget = true;
+        timer.lap(PHASE_WRITE);
+        timer.pause();
+        return false;
+    }
 
-        stop();
+    /**
+     * Runs a control step holding the target the last closed-loop move arrived at, against gravity
+     * and knocks. Call it every cycle, e.g. through {@link HardwareRegistry#updateHolds()}; it does
+     * nothing while a move runs, and for motors the hub holds with RUN_TO_POSITION.
+     */
+    public void updateHold() {
+        if (controller != null && controller.isHolding()) controller.update();
     }
 
     /**
-     * Sets the motor power directly (no encoder).
+     * Sets the motor power directly (no encoder). The mode is only written when it changes.
      *
      * @param power Power level (-1.0 to 1.0)
      */
     public void setPower(double power) {
-        motor.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+        holdingTarget = false;
+        if (controller != null) controller.release();
+        if (motor.getMode() != DcMotor.RunMode.RUN_WITHOUT_ENCODER) motor.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
         motor.setPower(power);
     }
 
@@ -60,6 +190,8 @@ public class MotorController {
      * Stops the motor by setting power to zero.
      */
     public void stop() {
+        holdingTarget = false;
+        if (controller != null) controller.release();
         motor.setPower(0);
     }
 }
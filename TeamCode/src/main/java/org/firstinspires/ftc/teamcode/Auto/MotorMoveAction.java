@@ -0,0 +1,46 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+/**
+ * Non-blocking "motor [name] move [inches]" command.
+ * The MotorController comes from the HardwareRegistry when the action is bound, during init.
+ * The move gives up after MechanismMove's default timeout, e.g. when a slide is jammed, and the
+ * script carries on after logging it.
+ */
+public class MotorMoveAction implements Action {
+
+    private final MechanismMove move;
+    private final ScriptInterpreter interpreter;
+    private final int pc;
+    private final String timeoutMessage;
+
+    /**
+     * @param motor Controller of the motor named by the instruction
+     * @param interpreter Interpreter that resolves the instruction operand
+     * @param pc Index of the instruction
+     */
+    public MotorMoveAction(MotorController motor, ScriptInterpreter interpreter, int pc) {
+        this.move = new MechanismMove(motor, () -> interpreter.getHost().nanoTime());
+        this.interpreter = interpreter;
+        this.pc = pc;
+        // Built during init so that a timeout does not allocate
+        this.timeoutMessage = Commands.formatLog("line " + interpreter.line(pc) + ": motor "
+                + interpreter.text(pc) + " move timed out");
+    }
+
+    @Override
+    public void start() {
+        move.set(interpreter.value(pc), Commands.MOTOR_SPEED, 0).start();
+    }
+
+    @Override
+    public boolean update() {
+        if (!move.update()) return false;
+        if (move.getStatus() == MechanismMove.TIMED_OUT) interpreter.getHost().log(timeoutMessage);
+        return true;
+    }
+
+    @Override
+    public void cancel() {
+        move.cancel();
+    }
+}
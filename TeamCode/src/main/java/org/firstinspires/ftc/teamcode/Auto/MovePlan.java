@@ -0,0 +1,117 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+/**
+ * Precomputed encoder targets for one drivetrain move.
+ * Plans are mutable so a DriveAction can fill its plan once during init and start it at
+ * run time without any conversion work or allocation.
+ */
+public class MovePlan {
+
+    /** Encoder tick deltas for each wheel. */
+    public int frontLeft;
+    public int frontRight;
+    public int backLeft;
+    public int backRight;
+
+    /** False for wheels whose target is left unchanged, used by diagonal moves. */
+    public boolean moveFrontLeft;
+    public boolean moveFrontRight;
+    public boolean moveBackLeft;
+    public boolean moveBackRight;
+
+    /** Velocity cap as a fraction of the drive motors' free speed (0.0 to 1.0). */
+    public double maxSpeed;
+
+    /** Which feedforward the move uses, one of the AXIS constants. */
+    public int axis;
+
+    public static final int AXIS_DRIVE = 0;
+    public static final int AXIS_STRAFE = 1;
+    public static final int AXIS_TURN = 2;
+
+    /**
+     * Plans a forward/backward move.
+     *
+     * @param inches Distance to drive (positive forward, negative backward)
+     * @param maxSpeed Maximum motor power (0.0 to 1.0)
+     * @return this plan
+     */
+    public MovePlan setDrive(double inches, double maxSpeed) {
+        int ticks = (int)(inches * DriveBase.TICKS_PER_INCH);
+        return set(ticks, ticks, ticks, ticks, maxSpeed, AXIS_DRIVE);
+    }
+
+    /**
+     * Plans a strafe.
+     *
+     * @param inches Distance to strafe (positive right, negative left)
+     * @param maxSpeed Max motor power
+     * @return this plan
+     */
+    public MovePlan setStrafe(double inches, double maxSpeed) {
+        int ticks = (int)(inches * DriveBase.TICKS_PER_INCH);
+        return set(ticks, -ticks, -ticks, ticks, maxSpeed, AXIS_STRAFE);
+    }
+
+    /**
+     * Plans a turn in place.
+     *
+     * @param degrees Angle to turn (positive right, negative left)
+     * @param maxSpeed Max motor power
+     * @return this plan
+     */
+    public MovePlan setTurn(double degrees, double maxSpeed) {
+        int ticks = (int)(DriveBase.turnDegreesToInches(degrees) * DriveBase.TICKS_PER_INCH);
+        return set(ticks, -ticks, ticks, -ticks, maxSpeed, AXIS_TURN);
+    }
+
+    /**
+     * Plans a diagonal move. Only the two wheels on the chosen axis move; the other two hold.
+     * The moving wheels roll like a forward drive, so it uses the drive feedforward.
+     *
+     * @param inches Distance to move diagonally (positive forward, negative backward)
+     * @param rightForward true for the right_forward axis, false for left_forward
+     * @param maxSpeed Max motor power
+     * @return this plan
+     */
+    public MovePlan setDiagonal(double inches, boolean rightForward, double maxSpeed) {
+        int ticks = (int)(inches * DriveBase.TICKS_PER_INCH);
+        set(ticks, ticks, ticks, ticks, maxSpeed, AXIS_DRIVE);
+        moveFrontLeft = rightForward;
+        moveBackRight = rightForward;
+        moveFrontRight = !rightForward;
+        moveBackLeft = !rightForward;
+        return this;
+    }
+
+    /**
+     * @param wheel DriveBase.FRONT_LEFT, FRONT_RIGHT, BACK_LEFT or BACK_RIGHT
+     * @return encoder tick delta for that wheel, 0 if the plan leaves it where it is
+     */
+    public int delta(int wheel) {
+        switch (wheel) {
+            case DriveBase.FRONT_LEFT:
+                return moveFrontLeft ? frontLeft : 0;
+            case DriveBase.FRONT_RIGHT:
+                return moveFrontRight ? frontRight : 0;
+            case DriveBase.BACK_LEFT:
+                return moveBackLeft ? backLeft : 0;
+            default:
+                return moveBackRight ? backRight : 0;
+        }
+    }
+
+    private MovePlan set(int fl, int fr, int bl, int br, double maxSpeed, int axis) {
+        frontLeft = fl;
+        frontRight = fr;
+        backLeft = bl;
+        backRight = br;
+        moveFrontLeft = true;
+        moveFrontRight = true;
+        moveBackLeft = true;
+        moveBackRight = true;
+        this.maxSpeed = maxSpeed;
+        this.axis = axis;
+        return this;
+    }
+}
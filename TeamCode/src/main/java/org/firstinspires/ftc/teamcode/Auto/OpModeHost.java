@@ -0,0 +1,73 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+/**
+ * ScriptHost backed by a LinearOpMode and its telemetry.
+ * Every idle() ends a control cycle, so it also clears the hubs' bulk caches for the next one
+ * and gives the TelemetryPublisher its chance to send. Log lines are queued, not sent at once.
+ */
+public class OpModeHost implements ScriptHost {
+
+    private final LinearOpMode opMode;
+    private final BulkCache bulkCache;
+    private final TelemetryPublisher telemetry;
+    private Runnable onCycle;
+
+    /**
+     * Create this in runOpMode, once the hardware map is available.
+     *
+     * @param opMode OpMode running the script
+     */
+    public OpModeHost(LinearOpMode opMode) {
+        this.opMode = opMode;
+        this.bulkCache = new BulkCache(opMode.hardwareMap);
+        this.telemetry = new TelemetryPublisher(opMode.telemetry);
+    }
+
+    /**
+     * @return publisher that sends this host's log lines, for adding live data items
+     */
+    public TelemetryPublisher getTelemetry() {
+        return telemetry;
+    }
+
+    @Override
+    public boolean isActive() {
+        return opMode.opModeIsActive();
+    }
+
+    /**
+     * Sets work to run at the end of every control cycle, before the bulk caches are cleared,
+     * e.g. recording the cycle.
+     *
+     * @param onCycle Called from idle(), or null for none
+     */
+    public void setOnCycle(Runnable onCycle) {
+        this.onCycle = onCycle;
+    }
+
+    @Override
+    public void idle() {
+        if (onCycle != null) onCycle.run();
+        opMode.idle();
+        bulkCache.clear();
+        telemetry.publish();
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public HardwareMap getHardwareMap() {
+        return opMode.hardwareMap;
+    }
+
+    @Override
+    public void log(String line) {
+        telemetry.log(line);
+    }
+}
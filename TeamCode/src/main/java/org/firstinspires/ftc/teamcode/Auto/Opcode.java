@@ -0,0 +1,72 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+/**
+ * Instruction codes produced by the ScriptCompiler.
+ * Directions are folded into the sign of the numeric operand at compile time,
+ * so e.g. "move backward 10" becomes DRIVE with an operand of -10.
+ */
+public final class Opcode {
+
+    public static final int DRIVE = 0;
+    public static final int TURN = 1;
+    public static final int STRAFE = 2;
+    public static final int DIAGONAL_RIGHT = 3;
+    public static final int DIAGONAL_LEFT = 4;
+    public static final int SERVO = 5;
+    public static final int WAIT = 6;
+    public static final int LOG = 7;
+    public static final int MOTOR_MOVE = 8;
+    public static final int MOTOR_POWER = 9;
+    public static final int MOTOR_STOP = 10;
+    public static final int STOP = 11;
+    public static final int SET = 12;
+    public static final int ADD = 13;
+    public static final int JUMP = 14;
+    public static final int CALL = 15;
+    public static final int RETURN = 16;
+    public static final int REPEAT = 17;
+    public static final int REPEAT_END = 18;
+    public static final int PARALLEL = 19;
+    public static final int RACE = 20;
+    public static final int PATH_LINE = 21;
+    public static final int PATH_SPLINE = 22;
+
+    /** Number of opcodes, used to size handler tables. */
+    public static final int COUNT = 23;
+
+    private static final String[] NAMES = {
+            "drive", "turn", "strafe", "diagonal_right", "diagonal_left", "servo",
+            "wait", "log", "motor_move", "motor_power", "motor_stop", "stop",
+            "set", "add", "jump", "call", "return", "repeat", "repeat_end", "parallel", "race",
+            "path_line", "path_spline"
+    };
+
+    private Opcode() {
+    }
+
+    /**
+     * @param opcode Instruction code
+     * @return true for commands that move the drivetrain
+     */
+    public static boolean isDrive(int opcode) {
+        return opcode >= DRIVE && opcode <= DIAGONAL_LEFT;
+    }
+
+    /**
+     * @param opcode Instruction code
+     * @return true for commands that follow a Path
+     */
+    public static boolean isPath(int opcode) {
+        return opcode == PATH_LINE || opcode == PATH_SPLINE;
+    }
+
+    /**
+     * Returns a readable name for an opcode, used for telemetry and error messages.
+     *
+     * @param opcode Instruction code
+     * @return Name of the opcode
+     */
+    public static String name(int opcode) {
+        return opcode >= 0 && opcode < NAMES.length ? NAMES[opcode] : "op" + opcode;
+    }
+}
@@ -0,0 +1,63 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import com.qualcomm.hardware.sparkfun.SparkFunOTOS;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+
+/**
+ * Pose from a SparkFun Optical Tracking Odometry Sensor. Configure the offset and scalars as in
+ * the SensorSparkFunOTOS sample; this switches the sensor to inches and radians.
+ */
+public class OtosOdometry implements PoseSource {
+
+    private final SparkFunOTOS otos;
+    private double x;
+    private double y;
+    private double heading;
+
+    /**
+     * @param otos Configured OTOS
+     */
+    public OtosOdometry(SparkFunOTOS otos) {
+        this.otos = otos;
+        otos.setLinearUnit(DistanceUnit.INCH);
+        otos.setAngularUnit(AngleUnit.RADIANS);
+    }
+
+    @Override
+    public boolean hasOwnSensor() {
+        return true;
+    }
+
+    @Override
+    public void update() {
+        SparkFunOTOS.Pose2D position = otos.getPosition();
+        x = position.x;
+        y = position.y;
+        heading = position.h;
+    }
+
+    @Override
+    public double getX() {
+        return x;
+    }
+
+    @Override
+    public double getY() {
+        return y;
+    }
+
+    @Override
+    public double getHeading() {
+        return heading;
+    }
+
+    @Override
+    public void setPose(double x, double y, double heading) {
+        otos.setPosition(new SparkFunOTOS.Pose2D(x, y, heading));
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+    }
+}
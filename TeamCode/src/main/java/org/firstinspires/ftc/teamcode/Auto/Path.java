@@ -0,0 +1,245 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+/**
+ * A path in field coordinates, sampled at init into primitive arrays for the PathFollower.
+ *
+ * Coordinates are the PoseEstimator's: inches, x forward from the start pose, y to the left,
+ * headings in radians counter-clockwise. A path is built once from waypoints, either joined by
+ * straight lines or by a Catmull-Rom spline through every waypoint, and resampled every
+ * {@link #SPACING_INCHES} along its length. For each sample it stores the position, the
+ * direction of travel, the curvature and the fastest speed that still allows stopping at the
+ * end and keeps the sideways acceleration in curves below {@link #MAX_CENTRIPETAL_ACCELERATION}.
+ * Following it then needs no further allocation or geometry beyond a nearest-sample search.
+ */
+public class Path {
+
+    /** Distance between samples. */
+    public static final double SPACING_INCHES = 0.5;
+
+    /** Sideways acceleration allowed in curves, in inches/s^2. Kept below where the wheels slide. */
+    public static final double MAX_CENTRIPETAL_ACCELERATION = 60.0;
+
+    /** Spline evaluations per waypoint interval, used to measure length before resampling. */
+    private static final int SUBDIVISIONS = 64;
+
+    /** Follow the direction of travel instead of a fixed end heading. */
+    public static final double TANGENT_HEADING = Double.NaN;
+
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] tangents;    // direction of travel, radians, unwrapped along the path
+    private final double[] curvatures;  // 1/inches, positive turning left
+    private final double[] distances;   // from the start, inches
+    private final double[] speeds;      // inches/s
+    private final double endHeading;
+    private final double maxSpeed;
+    private final double duration;
+
+    /**
+     * Builds a path of straight lines between waypoints. The robot slows down for each corner
+     * and rounds it off by about {@link PathFollower#LOOKAHEAD_INCHES}.
+     *
+     * @param xy Waypoints as x0, y0, x1, y1, ... in inches, at least two
+     * @param endHeading Heading to end at in radians, turned to gradually along the path, or
+     *                   {@link #TANGENT_HEADING} to face the direction of travel
+     * @param maxSpeed Fraction of free speed
+     * @return the sampled path
+     */
+    public static Path line(double[] xy, double endHeading, double maxSpeed) {
+        return new Path(xy, false, endHeading, maxSpeed);
+    }
+
+    /**
+     * Builds a smooth path through every waypoint.
+     *
+     * @param xy Waypoints as x0, y0, x1, y1, ... in inches, at least two
+     * @param endHeading Heading to end at in radians, turned to gradually along the path, or
+     *                   {@link #TANGENT_HEADING} to face the direction of travel
+     * @param maxSpeed Fraction of free speed
+     * @return the sampled path
+     */
+    public static Path spline(double[] xy, double endHeading, double maxSpeed) {
+        return new Path(xy, true, endHeading, maxSpeed);
+    }
+
+    private Path(double[] xy, boolean spline, double endHeading, double maxSpeed) {
+        if (xy.length < 4 || xy.length % 2 != 0) {
+            throw new IllegalArgumentException("a path needs at least two x, y waypoints");
+        }
+        this.endHeading = endHeading;
+        this.maxSpeed = maxSpeed;
+
+        // Dense polyline along the curve, to measure arc length
+        int points = xy.length / 2;
+        int dense = (points - 1) * SUBDIVISIONS + 1;
+        double[] denseX = new double[dense];
+        double[] denseY = new double[dense];
+        double[] denseS = new double[dense];
+        for (int k = 0; k < dense; k++) {
+            int segment = Math.min(k / SUBDIVISIONS, points - 2);
+            double t = (k - segment * SUBDIVISIONS) / (double) SUBDIVISIONS;
+            denseX[k] = spline ? catmullRom(xy, points, segment, t, 0) : lerp(xy[2 * segment], xy[2 * segment + 2], t);
+            denseY[k] = spline ? catmullRom(xy, points, segment, t, 1) : lerp(xy[2 * segment + 1], xy[2 * segment + 3], t);
+            if (k > 0) denseS[k] = denseS[k - 1] + Math.hypot(denseX[k] - denseX[k - 1], denseY[k] - denseY[k - 1]);
+        }
+        double length = denseS[dense - 1];
+
+        // Resample evenly along the length
+        int count = Math.max(2, (int) Math.ceil(length / SPACING_INCHES) + 1);
+        xs = new double[count];
+        ys = new double[count];
+        distances = new double[count];
+        int k = 0;
+        for (int i = 0; i < count; i++) {
+            double s = length * i / (count - 1);
+            while (k < dense - 2 && denseS[k + 1] < s) k++;
+            double span = denseS[k + 1] - denseS[k];
+            double t = span > 0 ? (s - denseS[k]) / span : 0;
+            xs[i] = lerp(denseX[k], denseX[k + 1], t);
+            ys[i] = lerp(denseY[k], denseY[k + 1], t);
+            distances[i] = s;
+        }
+
+        tangents = new double[count];
+        for (int i = 0; i < count; i++) {
+            int a = Math.max(0, i - 1);
+            int b = Math.min(count - 1, i + 1);
+            double direction = Math.atan2(ys[b] - ys[a], xs[b] - xs[a]);
+            tangents[i] = i == 0 ? direction : tangents[i - 1] + Pose.normalize(direction - tangents[i - 1]);
+        }
+        curvatures = new double[count];
+        for (int i = 1; i < count - 1; i++) {
+            curvatures[i] = (tangents[i + 1] - tangents[i - 1]) / (distances[i + 1] - distances[i - 1]);
+        }
+
+        // Speed limits: cruise, curvature, then a backward pass so the robot can stop at the end
+        double cruise = maxSpeed * DriveBase.MAX_INCHES_PER_SECOND;
+        speeds = new double[count];
+        for (int i = 0; i < count; i++) {
+            double curve = Math.abs(curvatures[i]);
+            speeds[i] = curve > 0 ? Math.min(cruise, Math.sqrt(MAX_CENTRIPETAL_ACCELERATION / curve)) : cruise;
+        }
+        speeds[count - 1] = 0;
+        for (int i = count - 2; i >= 0; i--) {
+            double ds = distances[i + 1] - distances[i];
+            speeds[i] = Math.min(speeds[i], Math.sqrt(speeds[i + 1] * speeds[i + 1] + 2 * DriveBase.MAX_ACCELERATION * ds));
+        }
+
+        // Nominal time, accelerating from rest
+        double seconds = 0;
+        double v = 0;
+        for (int i = 1; i < count; i++) {
+            double ds = distances[i] - distances[i - 1];
+            double next = Math.min(speeds[i], Math.sqrt(v * v + 2 * DriveBase.MAX_ACCELERATION * ds));
+            double average = (v + next) / 2;
+            seconds += average > 0 ? ds / average : 0;
+            v = next;
+        }
+        duration = seconds;
+    }
+
+    private static double lerp(double a, double b, double t) {
+        return a + (b - a) * t;
+    }
+
+    /** Uniform Catmull-Rom through the waypoints, with the end waypoints repeated. */
+    private static double catmullRom(double[] xy, int points, int segment, double t, int axis) {
+        double p0 = xy[2 * Math.max(0, segment - 1) + axis];
+        double p1 = xy[2 * segment + axis];
+        double p2 = xy[2 * (segment + 1) + axis];
+        double p3 = xy[2 * Math.min(points - 1, segment + 2) + axis];
+        double t2 = t * t;
+        double t3 = t2 * t;
+        return 0.5 * (2 * p1 + (p2 - p0) * t + (2 * p0 - 5 * p1 + 4 * p2 - p3) * t2 + (3 * p1 - p0 - 3 * p2 + p3) * t3);
+    }
+
+    /**
+     * @return number of samples
+     */
+    public int size() {
+        return xs.length;
+    }
+
+    /**
+     * @return total length in inches
+     */
+    public double getLength() {
+        return distances[distances.length - 1];
+    }
+
+    /**
+     * @return time to drive the path from rest at the planned speeds, in seconds, without settling
+     */
+    public double getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return the fraction of free speed the path was planned for
+     */
+    public double getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    /**
+     * @return heading to end at in radians, or NaN to face the direction of travel
+     */
+    public double getEndHeading() {
+        return endHeading;
+    }
+
+    /**
+     * @return true if the robot faces the direction of travel
+     */
+    public boolean followsTangent() {
+        return Double.isNaN(endHeading);
+    }
+
+    /**
+     * @param i Sample index
+     * @return field x of the sample in inches
+     */
+    public double getX(int i) {
+        return xs[i];
+    }
+
+    /**
+     * @param i Sample index
+     * @return field y of the sample in inches
+     */
+    public double getY(int i) {
+        return ys[i];
+    }
+
+    /**
+     * @param i Sample index
+     * @return direction of travel in radians, not wrapped
+     */
+    public double getTangent(int i) {
+        return tangents[i];
+    }
+
+    /**
+     * @param i Sample index
+     * @return curvature in 1/inches, positive when the path turns left
+     */
+    public double getCurvature(int i) {
+        return curvatures[i];
+    }
+
+    /**
+     * @param i Sample index
+     * @return distance from the start of the path in inches
+     */
+    public double getDistance(int i) {
+        return distances[i];
+    }
+
+    /**
+     * @param i Sample index
+     * @return fastest planned speed at the sample in inches/s
+     */
+    public double getSpeed(int i) {
+        return speeds[i];
+    }
+}
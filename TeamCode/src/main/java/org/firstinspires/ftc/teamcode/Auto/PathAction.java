@@ -0,0 +1,35 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+/**
+ * Non-blocking command that follows one Path, for the "path" script command, so a path can run
+ * in a parallel or race block alongside mechanism actions.
+ */
+public class PathAction implements Action {
+
+    private final PathFollower follower;
+    private final Path path;
+
+    /**
+     * @param follower Follower driving the drivetrain
+     * @param path Path to follow, built during init
+     */
+    public PathAction(PathFollower follower, Path path) {
+        this.follower = follower;
+        this.path = path;
+    }
+
+    @Override
+    public void start() {
+        follower.start(path);
+    }
+
+    @Override
+    public boolean update() {
+        return !follower.update();
+    }
+
+    @Override
+    public void cancel() {
+        follower.stop();
+    }
+}
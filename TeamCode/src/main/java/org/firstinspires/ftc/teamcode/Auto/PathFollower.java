@@ -0,0 +1,193 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Drives the mecanum base along a Path, using the pose from a PoseEstimator.
+ *
+ * Each cycle finds the path sample nearest the robot, searching forward from the previous one,
+ * and drives straight at the sample {@link #LOOKAHEAD_INCHES} further on (pure pursuit; a mecanum
+ * robot does not need to steer toward it, it can translate there directly). Speed is the path's
+ * planned speed at the nearest sample, ramped up at DriveBase.MAX_ACCELERATION and slowed in
+ * proportion to the remaining distance at the end. Heading is held by a proportional controller
+ * on the path's target heading, with the path's turn rate as feedforward when following the
+ * tangent.
+ *
+ * All geometry comes from the Path's arrays, so a cycle does not allocate. Build paths during
+ * init, in the PoseEstimator's field coordinates (inches, x forward from the start, y left):
+ * <pre>
+ * Path approach = Path.spline(new double[] {0, 0, 24, 12, 48, 0}, Path.TANGENT_HEADING, 0.6);
+ * PathFollower follower = new PathFollower(driveBase, poseEstimator);
+ * follower.start(approach);
+ * while (follower.update()) host.idle();
+ * </pre>
+ * Scripts follow paths with the "path" command, through a PathAction.
+ */
+public class PathFollower {
+
+    /** How far ahead of the nearest sample the robot aims. Longer is smoother, shorter cuts fewer corners. */
+    public static final double LOOKAHEAD_INCHES = 6.0;
+
+    /** Turn rate per radian of heading error, in 1/s. */
+    public static final double HEADING_GAIN = 4.0;
+
+    /** Fastest turn rate commanded for heading corrections, in radians/s. */
+    public static final double MAX_TURN_RATE = Math.PI;
+
+    /** Distance from the end of the path at which the robot counts as arrived. */
+    public static final double POSITION_TOLERANCE_INCHES = 0.5;
+
+    /** Heading error at which the robot counts as arrived. */
+    public static final double HEADING_TOLERANCE_RADIANS = Math.toRadians(1.0);
+
+    /** Samples searched past the previous nearest one; enough for a cycle of up to 10 inches of travel. */
+    private static final int SEARCH_SAMPLES = (int) (10 / Path.SPACING_INCHES);
+
+    private final DriveBase driveBase;
+    private final PoseEstimator poseEstimator;
+    private LongSupplier clock = System::nanoTime;
+
+    private Path path;
+    private int nearest;
+    private double startHeading;
+    private double speed;
+    private long lastNanos;
+    private long deadlineNanos;
+    private double crossTrackError;
+
+    /**
+     * @param driveBase Drivetrain to drive
+     * @param poseEstimator Source of the robot's pose, in the same coordinates as the paths
+     */
+    public PathFollower(DriveBase driveBase, PoseEstimator poseEstimator) {
+        this.driveBase = driveBase;
+        this.poseEstimator = poseEstimator;
+    }
+
+    /**
+     * Sets the clock the speed ramp and timeout run on. The simulator passes its simulated clock.
+     *
+     * @param clock Time in nanoseconds
+     */
+    public void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Starts following a path from wherever the robot is. Call {@link #update()} every cycle.
+     * A path that ends at a fixed heading turns to it gradually, starting from the current heading.
+     *
+     * @param path Path to follow
+     */
+    public void start(Path path) {
+        this.path = path;
+        nearest = 0;
+        speed = 0;
+        startHeading = poseEstimator.getHeading();
+        lastNanos = clock.getAsLong();
+        deadlineNanos = lastNanos + (long) ((path.getDuration() + DriveBase.SETTLE_TIMEOUT_SECONDS + 1) * 1e9);
+        driveBase.startVelocityControl();
+    }
+
+    /**
+     * Runs one control cycle. Stops the drive once the robot is at the end of the path and facing
+     * the right way, or when it has taken a second longer than planned.
+     *
+     * @return true while the path is still being followed
+     */
+    public boolean update() {
+        if (path == null) return false;
+        // Keeps the encoder snapshot current, which encoder odometry steps on at the end of the cycle
+        driveBase.readEncoders();
+        long now = clock.getAsLong();
+        double dt = (now - lastNanos) / 1e9;
+        lastNanos = now;
+        double x = poseEstimator.getX();
+        double y = poseEstimator.getY();
+        double heading = poseEstimator.getHeading();
+        int last = path.size() - 1;
+
+        // Nearest sample, never going backward along the path
+        double best = distanceSquared(x, y, nearest);
+        int searchEnd = Math.min(last, nearest + SEARCH_SAMPLES);
+        for (int i = nearest + 1; i <= searchEnd; i++) {
+            double d = distanceSquared(x, y, i);
+            if (d < best) {
+                best = d;
+                nearest = i;
+            }
+        }
+        crossTrackError = Math.sqrt(best);
+
+        double endX = path.getX(last) - x;
+        double endY = path.getY(last) - y;
+        double remaining = Math.max(path.getLength() - path.getDistance(nearest), Math.hypot(endX, endY));
+        double headingError = Pose.normalize(targetHeading(nearest) - heading);
+        if ((remaining <= POSITION_TOLERANCE_INCHES && Math.abs(headingError) <= HEADING_TOLERANCE_RADIANS)
+                || now - deadlineNanos > 0) {
+            stop();
+            return false;
+        }
+
+        // Aim at the lookahead sample, or straight at the end once it is within the lookahead
+        int ahead = Math.min(last, nearest + (int) Math.round(LOOKAHEAD_INCHES / Path.SPACING_INCHES));
+        double dx = path.getX(ahead) - x;
+        double dy = path.getY(ahead) - y;
+        double distance = Math.hypot(dx, dy);
+
+        // Past the last sample the planned speed is zero, so brake on the distance still to go instead
+        double limit = nearest == last ? Math.sqrt(2 * DriveBase.MAX_ACCELERATION * remaining) : path.getSpeed(nearest);
+        speed = Math.min(limit, speed + DriveBase.MAX_ACCELERATION * dt);
+        double target = Math.min(speed, DriveBase.POSITION_GAIN * remaining);
+        double vx = distance > 1e-6 ? target * dx / distance : 0;
+        double vy = distance > 1e-6 ? target * dy / distance : 0;
+
+        // Field velocity into the robot frame
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        double forward = vx * cos + vy * sin;
+        double left = -vx * sin + vy * cos;
+
+        double turn = HEADING_GAIN * headingError;
+        if (path.followsTangent()) turn += path.getCurvature(nearest) * target;
+        turn = Math.max(-MAX_TURN_RATE, Math.min(MAX_TURN_RATE, turn));
+        driveBase.setRobotVelocity(forward, left, turn);
+        return true;
+    }
+
+    private double distanceSquared(double x, double y, int i) {
+        double dx = path.getX(i) - x;
+        double dy = path.getY(i) - y;
+        return dx * dx + dy * dy;
+    }
+
+    /** Heading the robot should face at a sample. */
+    private double targetHeading(int i) {
+        if (path.followsTangent()) return path.getTangent(i);
+        double fraction = path.getLength() > 0 ? path.getDistance(i) / path.getLength() : 1;
+        return startHeading + Pose.normalize(path.getEndHeading() - startHeading) * fraction;
+    }
+
+    /**
+     * Stops the drive and makes the heading it ended at the one the next DriveBase moves hold.
+     */
+    public void stop() {
+        driveBase.stop();
+        driveBase.holdCurrentHeading();
+        path = null;
+    }
+
+    /**
+     * @return index of the path sample nearest the robot in the last cycle
+     */
+    public int getNearestSample() {
+        return nearest;
+    }
+
+    /**
+     * @return distance from the robot to the nearest path sample in the last cycle, in inches
+     */
+    public double getCrossTrackError() {
+        return crossTrackError;
+    }
+}
@@ -0,0 +1,63 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import com.qualcomm.hardware.gobilda.GoBildaPinpointDriver;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.Pose2D;
+
+/**
+ * Pose from a goBILDA Pinpoint odometry computer. Configure the pods as in the
+ * SensorGoBildaPinpoint sample before handing the driver over.
+ */
+public class PinpointOdometry implements PoseSource {
+
+    private final GoBildaPinpointDriver pinpoint;
+    private double x;
+    private double y;
+    private double heading;
+
+    /**
+     * @param pinpoint Configured Pinpoint driver
+     */
+    public PinpointOdometry(GoBildaPinpointDriver pinpoint) {
+        this.pinpoint = pinpoint;
+    }
+
+    @Override
+    public boolean hasOwnSensor() {
+        return true;
+    }
+
+    @Override
+    public void update() {
+        pinpoint.update();
+        Pose2D position = pinpoint.getPosition();
+        x = position.getX(DistanceUnit.INCH);
+        y = position.getY(DistanceUnit.INCH);
+        heading = position.getHeading(AngleUnit.RADIANS);
+    }
+
+    @Override
+    public double getX() {
+        return x;
+    }
+
+    @Override
+    public double getY() {
+        return y;
+    }
+
+    @Override
+    public double getHeading() {
+        return heading;
+    }
+
+    @Override
+    public void setPose(double x, double y, double heading) {
+        pinpoint.setPosition(new Pose2D(DistanceUnit.INCH, x, y, AngleUnit.RADIANS, heading));
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+    }
+}
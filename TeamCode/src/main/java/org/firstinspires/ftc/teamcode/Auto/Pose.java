@@ -0,0 +1,77 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import java.util.Locale;
+
+/**
+ * Immutable robot pose on the field, with velocity and the time it was measured.
+ *
+ * Uses the same axes as the Pinpoint and OTOS samples: x forward from the start, y to the left,
+ * heading counter-clockwise. Distances are inches and angles radians.
+ */
+public final class Pose {
+
+    public final double x;
+    public final double y;
+    public final double heading;
+
+    /** Field-frame velocity in inches/s and radians/s. */
+    public final double xVelocity;
+    public final double yVelocity;
+    public final double headingVelocity;
+
+    /** Clock reading when the pose was measured, in nanoseconds. */
+    public final long nanos;
+
+    /**
+     * @param x Field x in inches
+     * @param y Field y in inches
+     * @param heading Heading in radians, counter-clockwise
+     */
+    public Pose(double x, double y, double heading) {
+        this(x, y, heading, 0, 0, 0, 0);
+    }
+
+    /**
+     * @param x Field x in inches
+     * @param y Field y in inches
+     * @param heading Heading in radians, counter-clockwise
+     * @param xVelocity Field x velocity in inches/s
+     * @param yVelocity Field y velocity in inches/s
+     * @param headingVelocity Turn rate in radians/s
+     * @param nanos Time of the measurement
+     */
+    public Pose(double x, double y, double heading, double xVelocity, double yVelocity, double headingVelocity,
+                long nanos) {
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+        this.xVelocity = xVelocity;
+        this.yVelocity = yVelocity;
+        this.headingVelocity = headingVelocity;
+        this.nanos = nanos;
+    }
+
+    /**
+     * @return heading in degrees, counter-clockwise
+     */
+    public double getHeadingDegrees() {
+        return Math.toDegrees(heading);
+    }
+
+    /**
+     * Wraps an angle into [-pi, pi).
+     *
+     * @param radians Any angle
+     * @return the same direction within one turn of zero
+     */
+    public static double normalize(double radians) {
+        double wrapped = (radians + Math.PI) % (2 * Math.PI);
+        if (wrapped < 0) wrapped += 2 * Math.PI;
+        return wrapped - Math.PI;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "x=%.1f in y=%.1f in heading=%.1f deg", x, y, getHeadingDegrees());
+    }
+}
@@ -0,0 +1,321 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import com.qualcomm.hardware.gobilda.GoBildaPinpointDriver;
+import com.qualcomm.hardware.sparkfun.SparkFunOTOS;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks the robot's field pose, on its own thread for a source with a sensor of its own.
+ *
+ * A Pinpoint or OTOS is polled at a fixed rate, independently of the script's control loop.
+ * Drive encoder odometry only changes when the control loop reads the encoders, so it is not
+ * polled: the control loop calls {@link #update()} once per cycle instead, see
+ * {@link #isRunning()}. Either way every reading is published into fields guarded by a sequence
+ * number, so any thread can read the latest pose without waiting for the estimator, and updating
+ * allocates nothing however often it runs. {@link #getPose()} builds an immutable Pose from the
+ * latest reading when one is asked for; a control loop reads {@link #getX()}, {@link #getY()} and
+ * {@link #getHeading()} instead. Velocity is the difference between consecutive readings.
+ * Pose resets are handed to the updating thread the same way and applied on its next update,
+ * so the source is only ever touched from one thread.
+ *
+ * Vision fixes, e.g. from an AprilTagLocalizer per camera, are queued by
+ * {@link #addVisionPose(Pose, double)} from any thread and merged by a VisionFusion at the time
+ * their frame was captured. The published pose is the odometry with the fusion's correction
+ * applied, so it does not jump back by the camera's latency while the robot moves.
+ */
+public class PoseEstimator {
+
+    /** Default time between updates. Pinpoint and OTOS both refresh faster than this. */
+    public static final long DEFAULT_PERIOD_MICROS = 5000;
+
+    private final PoseSource source;
+    private final AtomicReference<Pose> reset = new AtomicReference<>();
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicReference<Throwable> lastError = new AtomicReference<>();
+    private final ConcurrentLinkedQueue<VisionFix> visionFixes = new ConcurrentLinkedQueue<>();
+    private final VisionFusion fusion = new VisionFusion();
+    private LongSupplier clock = System::nanoTime;
+    private ScheduledExecutorService executor;
+
+    // Odometry as of the previous update, for the velocity; updating thread only
+    private double lastX;
+    private double lastY;
+    private double lastHeading;
+    private long lastNanos;
+
+    // Latest reading, written by the updating thread only. The sequence is odd while the reading
+    // is being written, so a reader on another thread retries rather than mix two readings.
+    private volatile int sequence;
+    private volatile double x;
+    private volatile double y;
+    private volatile double heading;
+    private volatile double xVelocity;
+    private volatile double yVelocity;
+    private volatile double headingVelocity;
+    private volatile long nanos;
+
+    // Pose built by getPose() from the reading with that sequence number; guarded by this
+    private Pose pose = new Pose(0, 0, 0);
+    private int poseSequence;
+
+    /** A vision pose waiting for the next update. */
+    private static final class VisionFix {
+        final Pose pose;
+        final double weight;
+
+        VisionFix(Pose pose, double weight) {
+            this.pose = pose;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * @param source Sensor to read the pose from
+     */
+    public PoseEstimator(PoseSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Picks the best odometry fitted to the robot: a goBILDA Pinpoint named "pinpoint", then a
+     * SparkFun OTOS named "sensor_otos", then the drive encoders.
+     *
+     * @param hardwareMap Robot configuration
+     * @param driveBase Drivetrain whose encoders to use if neither sensor is fitted
+     * @return a source for the fitted sensor
+     */
+    public static PoseSource findSource(HardwareMap hardwareMap, DriveBase driveBase) {
+        GoBildaPinpointDriver pinpoint = hardwareMap.tryGet(GoBildaPinpointDriver.class, "pinpoint");
+        if (pinpoint != null) return new PinpointOdometry(pinpoint);
+        SparkFunOTOS otos = hardwareMap.tryGet(SparkFunOTOS.class, "sensor_otos");
+        if (otos != null) return new OtosOdometry(otos);
+        return new MecanumOdometry(driveBase);
+    }
+
+    /**
+     * Sets the clock used to timestamp poses, e.g. a ScriptHost's clock in the simulator.
+     *
+     * @param clock Time in nanoseconds
+     */
+    public void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Starts updating on a background thread. Does nothing for a source without a sensor of its
+     * own, which the control loop updates instead.
+     *
+     * @param periodMicros Time between updates in microseconds
+     */
+    public synchronized void start(long periodMicros) {
+        if (executor != null || !source.hasOwnSensor()) return;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PoseEstimator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(() -> {
+            try {
+                update();
+            } catch (RuntimeException e) {
+                // A thrown exception would cancel the schedule; keep tracking and report it instead
+                lastError.set(e);
+            }
+        }, 0, periodMicros, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * Starts updating every {@link #DEFAULT_PERIOD_MICROS}.
+     */
+    public void start() {
+        start(DEFAULT_PERIOD_MICROS);
+    }
+
+    /**
+     * Stops the background thread. The last pose stays readable.
+     */
+    public synchronized void stop() {
+        if (executor == null) return;
+        executor.shutdownNow();
+        executor = null;
+    }
+
+    /**
+     * @return true if the background thread is updating the pose; false if the caller must call
+     *         {@link #update()} once per control cycle
+     */
+    public synchronized boolean isRunning() {
+        return executor != null;
+    }
+
+    /**
+     * Reads the source once and publishes the new pose. Called by the background thread; when it
+     * is not running, call it from the control loop after the drive has read its encoders, or from
+     * a simulator or a test.
+     */
+    public void update() {
+        Pose pending = reset.getAndSet(null);
+        if (pending != null) {
+            source.setPose(pending.x, pending.y, pending.heading);
+            // Fixes measured before the reset are in the old frame
+            fusion.reset();
+            visionFixes.clear();
+        }
+        source.update();
+
+        long now = clock.getAsLong();
+        double x = source.getX();
+        double y = source.getY();
+        double heading = source.getHeading();
+        fusion.record(now, x, y, heading);
+        VisionFix fix;
+        while ((fix = visionFixes.poll()) != null) {
+            fusion.addFix(fix.pose.nanos, fix.pose.x, fix.pose.y, fix.pose.heading, fix.weight);
+        }
+
+        // Velocity from the odometry alone, so a vision correction does not show up as speed
+        double xVelocity = 0;
+        double yVelocity = 0;
+        double headingVelocity = 0;
+        double seconds = (now - lastNanos) / 1e9;
+        if (pending == null && lastNanos != 0 && seconds > 0) {
+            double cos = Math.cos(fusion.getCorrectionHeading());
+            double sin = Math.sin(fusion.getCorrectionHeading());
+            double dx = (x - lastX) / seconds;
+            double dy = (y - lastY) / seconds;
+            xVelocity = cos * dx - sin * dy;
+            yVelocity = sin * dx + cos * dy;
+            headingVelocity = Pose.normalize(heading - lastHeading) / seconds;
+        }
+        lastX = x;
+        lastY = y;
+        lastHeading = heading;
+        lastNanos = now;
+        // Only this thread writes, so the increments need no atomic read-modify-write
+        sequence++;
+        this.x = fusion.fusedX(x, y);
+        this.y = fusion.fusedY(x, y);
+        this.heading = fusion.fusedHeading(heading);
+        this.xVelocity = xVelocity;
+        this.yVelocity = yVelocity;
+        this.headingVelocity = headingVelocity;
+        this.nanos = now;
+        sequence++;
+        updates.incrementAndGet();
+    }
+
+    /**
+     * Allocates a Pose the first time it is asked for after an update, and returns the same one
+     * until the next update. Readers only wait for each other, never for the estimator.
+     *
+     * @return the latest pose
+     */
+    public synchronized Pose getPose() {
+        while (true) {
+            int before = sequence;
+            if (before == poseSequence) return pose;
+            Pose latest = new Pose(x, y, heading, xVelocity, yVelocity, headingVelocity, nanos);
+            if ((before & 1) == 0 && sequence == before) {
+                pose = latest;
+                poseSequence = before;
+                return latest;
+            }
+        }
+    }
+
+    /**
+     * Like the other two getters, reads the latest update without allocating or waiting for the
+     * estimator. Read one after the other from a background-thread estimator, x, y and heading may
+     * come from consecutive updates, one period apart.
+     *
+     * @return latest field x in inches
+     */
+    public double getX() {
+        while (true) {
+            int before = sequence;
+            double value = x;
+            if ((before & 1) == 0 && sequence == before) return value;
+        }
+    }
+
+    /**
+     * @return latest field y in inches, see {@link #getX()}
+     */
+    public double getY() {
+        while (true) {
+            int before = sequence;
+            double value = y;
+            if ((before & 1) == 0 && sequence == before) return value;
+        }
+    }
+
+    /**
+     * @return latest heading in radians, counter-clockwise, see {@link #getX()}
+     */
+    public double getHeading() {
+        while (true) {
+            int before = sequence;
+            double value = heading;
+            if ((before & 1) == 0 && sequence == before) return value;
+        }
+    }
+
+    /**
+     * Moves the tracked pose, e.g. to the start position on the field. Takes effect on the next update.
+     *
+     * @param x Field x in inches
+     * @param y Field y in inches
+     * @param heading Heading in radians, counter-clockwise
+     */
+    public void setPose(double x, double y, double heading) {
+        reset.set(new Pose(x, y, heading));
+    }
+
+    /**
+     * Queues a vision fix for the next update, which merges it at the time its frame was captured.
+     * Safe to call from any thread.
+     *
+     * @param pose Field pose measured by the camera, with nanos set to the frame's capture time
+     *             on this estimator's clock
+     * @param weight How far to move toward the fix, from 0 (ignore) to 1 (take it as is)
+     */
+    public void addVisionPose(Pose pose, double weight) {
+        visionFixes.add(new VisionFix(pose, weight));
+    }
+
+    /**
+     * @return number of vision fixes merged so far
+     */
+    public long getVisionFixCount() {
+        return fusion.getAppliedCount();
+    }
+
+    /**
+     * @return number of vision fixes dropped because their frame was older than the odometry history
+     */
+    public long getDroppedVisionFixCount() {
+        return fusion.getDroppedCount();
+    }
+
+    /**
+     * @return number of updates so far
+     */
+    public long getUpdateCount() {
+        return updates.get();
+    }
+
+    /**
+     * @return the last exception thrown while updating, or null
+     */
+    public Throwable getLastError() {
+        return lastError.get();
+    }
+}
@@ -0,0 +1,45 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+/**
+ * A sensor the PoseEstimator reads the robot's position from.
+ * Only one thread calls these methods, the estimator's own or the control loop's, so
+ * implementations need no locking.
+ */
+public interface PoseSource {
+
+    /**
+     * @return true if update() reads a sensor of its own, such as a Pinpoint or OTOS on I2C, so it
+     *         can run on the estimator's thread; false if it uses what the control loop reads, so
+     *         the control loop must call the estimator's update() itself
+     */
+    boolean hasOwnSensor();
+
+    /**
+     * Reads the sensor and updates the position returned by the getters.
+     */
+    void update();
+
+    /**
+     * @return field x in inches, as of the last update
+     */
+    double getX();
+
+    /**
+     * @return field y in inches, as of the last update
+     */
+    double getY();
+
+    /**
+     * @return heading in radians counter-clockwise, as of the last update
+     */
+    double getHeading();
+
+    /**
+     * Replaces the current position, e.g. with the start pose or a vision fix.
+     *
+     * @param x Field x in inches
+     * @param y Field y in inches
+     * @param heading Heading in radians, counter-clockwise
+     */
+    void setPose(double x, double y, double heading);
+}
@@ -0,0 +1,259 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Predicts how long a CompiledScript will take before it is run.
+ *
+ * The script is walked the same way the ScriptInterpreter runs it (calls, repeats and variables
+ * included) and every command is timed with a model of the code that executes it:
+ * drivetrain moves take as long as the MotionProfile DriveBase plans for them, with the
+ * robot geometry and limits in DriveBase, waits take their stated time, and motor moves run at
+ * {@link Commands#MOTOR_SPEED}, along their MechanismConfig profile if they have one, and paths
+ * take their Path's planned duration. A parallel block takes as long as its slowest command and a race
+ * as long as its fastest one. Consecutive drive commands that DriveBase chains overlap by the
+ * previous move's deceleration and skip its settling time.
+ */
+public class RuntimeEstimator {
+
+    /** Length of the autonomous period. */
+    public static final double AUTONOMOUS_SECONDS = 30.0;
+
+    /** Added to every move for the wheels to settle on their targets, which the profile does not include. */
+    public static final double MOVE_OVERHEAD_SECONDS = 0.15;
+
+    /** Guards against scripts that would never finish. */
+    private static final int MAX_STEPS = 100000;
+
+    private final CompiledScript script;
+    private final double[] secondsByPc;
+    private final double[] variables;
+    private final MotionProfile profile = new MotionProfile();
+    private MovePlan previousPlan = new MovePlan();
+    private MovePlan plan = new MovePlan();
+    private double totalSeconds;
+    private String warning;
+
+    /**
+     * Estimates a script. The script must have compiled without errors.
+     *
+     * @param script Compiled script
+     */
+    public RuntimeEstimator(CompiledScript script) {
+        this.script = script;
+        this.secondsByPc = new double[script.size()];
+        this.variables = new double[script.variableNames.length];
+        walk();
+    }
+
+    /**
+     * @return predicted run time of the whole script in seconds
+     */
+    public double getTotalSeconds() {
+        return totalSeconds;
+    }
+
+    /**
+     * @param pc Index of an instruction
+     * @return predicted time spent in that instruction over the whole run, in seconds
+     */
+    public double getSeconds(int pc) {
+        return secondsByPc[pc];
+    }
+
+    /**
+     * @return true if the script is predicted to finish within the autonomous period
+     */
+    public boolean fitsAutonomous() {
+        return totalSeconds <= AUTONOMOUS_SECONDS;
+    }
+
+    /**
+     * @return a note about anything the estimate could not account for, or null
+     */
+    public String getWarning() {
+        return warning;
+    }
+
+    /**
+     * Returns the instructions that take the most time, slowest first.
+     *
+     * @param count Maximum number of instructions to return
+     * @return instruction indexes
+     */
+    public List<Integer> getSlowest(int count) {
+        List<Integer> pcs = new ArrayList<>();
+        for (int pc = 0; pc < secondsByPc.length; pc++) {
+            if (secondsByPc[pc] > 0) pcs.add(pc);
+        }
+        Collections.sort(pcs, (a, b) -> Double.compare(secondsByPc[b], secondsByPc[a]));
+        return pcs.size() > count ? pcs.subList(0, count) : pcs;
+    }
+
+    /**
+     * Formats one line of the breakdown, e.g. "line 3 drive: 1.42 s".
+     *
+     * @param pc Index of an instruction
+     * @return readable breakdown entry
+     */
+    public String describe(int pc) {
+        return String.format("line %d %s: %.2f s", script.lines[pc], Opcode.name(script.ops[pc]), secondsByPc[pc]);
+    }
+
+    private void walk() {
+        int[] callStack = new int[ScriptInterpreter.MAX_CALL_DEPTH];
+        int callDepth = 0;
+        int[] loopCounters = new int[ScriptInterpreter.MAX_LOOP_DEPTH];
+        int loopDepth = 0;
+
+        int pc = 0;
+        int steps = 0;
+        int previousDrivePc = -1;
+        double previousRampSeconds = 0;
+        while (pc < script.size()) {
+            if (++steps > MAX_STEPS) {
+                warning = "stopped after " + MAX_STEPS + " steps";
+                break;
+            }
+            int op = script.ops[pc];
+            if (!Opcode.isDrive(op)) previousDrivePc = -1;
+            switch (op) {
+                case Opcode.JUMP:
+                    pc = script.targets[pc];
+                    continue;
+                case Opcode.CALL:
+                    if (callDepth == callStack.length) {
+                        warning = "line " + script.lines[pc] + ": call stack overflow";
+                        pc = script.size();
+                        continue;
+                    }
+                    callStack[callDepth++] = pc + 1;
+                    pc = script.targets[pc];
+                    continue;
+                case Opcode.RETURN:
+                    if (callDepth == 0) {
+                        pc = script.size();
+                        continue;
+                    }
+                    pc = callStack[--callDepth];
+                    continue;
+                case Opcode.REPEAT: {
+                    int count = (int) value(pc);
+                    if (count <= 0) {
+                        pc = script.targets[pc];
+                        continue;
+                    }
+                    if (loopDepth == loopCounters.length) {
+                        warning = "line " + script.lines[pc] + ": too many nested repeats";
+                        pc = script.size();
+                        continue;
+                    }
+                    loopCounters[loopDepth++] = count;
+                    break;
+                }
+                case Opcode.REPEAT_END:
+                    if (--loopCounters[loopDepth - 1] > 0) {
+                        pc = script.targets[pc];
+                        continue;
+                    }
+                    loopDepth--;
+                    break;
+                case Opcode.SET:
+                    variables[script.targets[pc]] = value(pc);
+                    break;
+                case Opcode.ADD:
+                    variables[script.targets[pc]] += value(pc);
+                    break;
+                case Opcode.STOP:
+                    pc = script.size();
+                    continue;
+                case Opcode.PARALLEL:
+                case Opcode.RACE: {
+                    int end = script.targets[pc];
+                    double block = blockSeconds(pc + 1, end, op == Opcode.RACE);
+                    secondsByPc[pc] += block;
+                    totalSeconds += block;
+                    pc = end;
+                    continue;
+                }
+                default: {
+                    double seconds = commandSeconds(pc);
+                    if (Opcode.isDrive(op)) {
+                        DriveAction.plan(plan, op, value(pc));
+                        if (previousDrivePc == pc - 1 && DriveBase.canChain(previousPlan, plan)) {
+                            // The previous move has already counted its settling; this one starts as it decelerates
+                            seconds = Math.max(0, seconds - MOVE_OVERHEAD_SECONDS - previousRampSeconds);
+                        }
+                        previousRampSeconds = profile.getDuration() - profile.getDecelerationStart();
+                        previousDrivePc = pc;
+                        MovePlan swap = previousPlan;
+                        previousPlan = plan;
+                        plan = swap;
+                    }
+                    secondsByPc[pc] += seconds;
+                    totalSeconds += seconds;
+                }
+            }
+            pc++;
+        }
+    }
+
+    private double blockSeconds(int from, int to, boolean race) {
+        double result = race ? Double.MAX_VALUE : 0;
+        boolean any = false;
+        for (int pc = from; pc < to; pc++) {
+            if (!takesTime(script.ops[pc])) continue;
+            double seconds = commandSeconds(pc);
+            result = race ? Math.min(result, seconds) : Math.max(result, seconds);
+            any = true;
+        }
+        return any ? result : 0;
+    }
+
+    private static boolean takesTime(int op) {
+        return Opcode.isDrive(op) || Opcode.isPath(op) || op == Opcode.WAIT || op == Opcode.MOTOR_MOVE;
+    }
+
+    private double commandSeconds(int pc) {
+        double value = value(pc);
+        switch (script.ops[pc]) {
+            case Opcode.DRIVE:
+            case Opcode.STRAFE:
+                return driveSeconds(value, Commands.DRIVE_SPEED);
+            case Opcode.TURN:
+                return driveSeconds(DriveBase.turnDegreesToInches(value), Commands.TURN_SPEED);
+            case Opcode.DIAGONAL_RIGHT:
+            case Opcode.DIAGONAL_LEFT:
+                return driveSeconds(value, Commands.DIAGONAL_SPEED);
+            case Opcode.WAIT:
+                return Math.max(0, value) / 1000.0;
+            case Opcode.PATH_LINE:
+            case Opcode.PATH_SPLINE:
+                return script.paths[pc].getDuration() + MOVE_OVERHEAD_SECONDS;
+            case Opcode.MOTOR_MOVE:
+                return MechanismConfig.forMotor(script.texts[pc]).moveSeconds(value, Commands.MOTOR_SPEED, profile)
+                        + MOVE_OVERHEAD_SECONDS;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Time for the wheels to travel a distance along the profile DriveBase plans.
+     *
+     * @param inches Wheel travel of the longest-travelling wheel
+     * @param maxSpeed Fraction of free speed the move is capped at
+     * @return seconds
+     */
+    private double driveSeconds(double inches, double maxSpeed) {
+        profile.set(inches, maxSpeed * DriveBase.MAX_INCHES_PER_SECOND, DriveBase.MAX_ACCELERATION, DriveBase.MAX_JERK);
+        return inches == 0 ? 0 : profile.getDuration() + MOVE_OVERHEAD_SECONDS;
+    }
+
+    private double value(int pc) {
+        int slot = script.argVars[pc];
+        return slot < 0 ? script.args[pc] : variables[slot] * script.args[pc];
+    }
+}
@@ -0,0 +1,505 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compiles AutoScript text into a CompiledScript.
+ * All splitting, keyword matching, number parsing and name resolution happens here, during init,
+ * so the run phase only walks primitive arrays.
+ */
+public class ScriptCompiler {
+
+    /** Prefix that marks a numeric operand as a variable reference, e.g. "move forward $distance". */
+    public static final String VARIABLE_PREFIX = "$";
+
+    private final String name;
+    private final List<String> errors = new ArrayList<>();
+
+    private int[] ops = new int[16];
+    private double[] args = new double[16];
+    private int[] argVars = new int[16];
+    private int[] targets = new int[16];
+    private String[] texts = new String[16];
+    private Path[] paths = new Path[16];
+    private int[] lines = new int[16];
+    private int size = 0;
+
+    private int lineNumber;
+
+    // Operand produced by the last parseOperand call
+    private double operandValue;
+    private int operandVar;
+
+    private final Map<String, Integer> variables = new HashMap<>();
+    private final List<String> variableNames = new ArrayList<>();
+    private final List<Integer> variableFirstUse = new ArrayList<>();
+    private final boolean[] assigned = new boolean[256];
+
+    private final Map<String, Integer> functions = new HashMap<>();
+    private final List<Integer> pendingCalls = new ArrayList<>();
+
+    // Open func/repeat/parallel/race blocks, innermost last. Each entry is the pc of the opening instruction,
+    // or REJECTED_BLOCK for a nested block that was reported, so that its } still closes it and not the outer one.
+    private final List<Integer> openBlocks = new ArrayList<>();
+    private static final int REJECTED_BLOCK = -2;
+    private boolean inFunction = false;
+
+    private ScriptCompiler(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Compiles a script. Errors do not stop compilation, so every bad line is reported at once.
+     *
+     * @param name Script name
+     * @param source Script text, one command per line
+     * @return the compiled script, check {@link CompiledScript#hasErrors()} before running it
+     */
+    public static CompiledScript compile(String name, String source) {
+        ScriptCompiler compiler = new ScriptCompiler(name);
+        String[] sourceLines = source.split("\n");
+        for (int i = 0; i < sourceLines.length; i++) {
+            String trimmed = sourceLines[i].trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("//")) continue;
+            compiler.lineNumber = i + 1;
+            compiler.compileLine(trimmed.split("\\s+"));
+        }
+        compiler.finish();
+        return compiler.build();
+    }
+
+    private void compileLine(String[] command) {
+        String keyword = command[0].toLowerCase(Locale.ROOT);
+        switch (keyword) {
+            case "move":
+                if (expectArgs(command, 2)) {
+                    emitSigned(Opcode.DRIVE, command[1], "forward", "backward", command[2], null);
+                }
+                break;
+            case "turn":
+                if (expectArgs(command, 2)) {
+                    emitSigned(Opcode.TURN, command[1], "right", "left", command[2], null);
+                }
+                break;
+            case "strafe":
+                if (expectArgs(command, 2)) {
+                    emitSigned(Opcode.STRAFE, command[1], "right", "left", command[2], null);
+                }
+                break;
+            case "diagonal":
+                if (expectArgs(command, 2)) compileDiagonal(command[1], command[2]);
+                break;
+            case "servo":
+                if (expectArgs(command, 2)) {
+                    parseOperand(command[2]);
+                    if (operandVar < 0 && (operandValue < 0.0 || operandValue > 1.0)) {
+                        error("servo position must be between 0.0 and 1.0: " + command[2]);
+                    }
+                    emitOperand(Opcode.SERVO, command[1]);
+                }
+                break;
+            case "wait":
+                if (expectArgs(command, 1)) {
+                    parseOperand(command[1]);
+                    if (operandVar < 0 && operandValue < 0) error("wait time cannot be negative: " + command[1]);
+                    emitOperand(Opcode.WAIT, null);
+                }
+                break;
+            case "log":
+                StringBuilder sb = new StringBuilder();
+                for (int i = 1; i < command.length; i++) sb.append(command[i]).append(" ");
+                emit(Opcode.LOG, 0, -1, -1, Commands.formatLog(sb.toString()));
+                break;
+            case "motor":
+                compileMotor(command);
+                break;
+            case "stop":
+                emit(Opcode.STOP, 0, -1, -1, null);
+                break;
+            case "set":
+            case "add":
+                if (expectArgs(command, 2)) compileAssignment(keyword, command[1], command[2]);
+                break;
+            case "func":
+                if (expectArgs(command, 1)) compileFunc(command[1]);
+                break;
+            case "call":
+                if (expectArgs(command, 1)) {
+                    pendingCalls.add(size);
+                    emit(Opcode.CALL, 0, -1, -1, command[1]);
+                }
+                break;
+            case "repeat":
+                if (expectArgs(command, 1)) compileRepeat(command[1]);
+                break;
+            case "path":
+                if (expectArgs(command, 5)) compilePath(command);
+                break;
+            case "parallel":
+            case "race":
+                compileBlockStart(keyword.equals("race") ? Opcode.RACE : Opcode.PARALLEL, command);
+                break;
+            case "}":
+                compileBlockEnd();
+                break;
+            default:
+                // "slide up 20" moves a mechanism from MechanismConfig by name
+                MechanismConfig mechanism = MechanismConfig.find(keyword);
+                if (mechanism == null) {
+                    error("unknown command: " + command[0]);
+                } else if (expectArgs(command, 2)) {
+                    emitSigned(Opcode.MOTOR_MOVE, command[1], "up", "down", command[2], mechanism.name);
+                }
+        }
+    }
+
+    private void compileDiagonal(String direction, String distance) {
+        parseOperand(distance);
+        switch (direction.toLowerCase(Locale.ROOT)) {
+            case "right_forward":
+                emitOperand(Opcode.DIAGONAL_RIGHT, null);
+                break;
+            case "left_forward":
+                emitOperand(Opcode.DIAGONAL_LEFT, null);
+                break;
+            case "right_backward":
+                operandValue = -operandValue;
+                emitOperand(Opcode.DIAGONAL_RIGHT, null);
+                break;
+            case "left_backward":
+                operandValue = -operandValue;
+                emitOperand(Opcode.DIAGONAL_LEFT, null);
+                break;
+            default:
+                error("unknown diagonal direction: " + direction);
+        }
+    }
+
+    private void compileMotor(String[] command) {
+        if (!expectArgs(command, 2)) return;
+        String action = command[2].toLowerCase(Locale.ROOT);
+        switch (action) {
+            case "move":
+                if (expectArgs(command, 3)) {
+                    parseOperand(command[3]);
+                    emitOperand(Opcode.MOTOR_MOVE, command[1]);
+                }
+                break;
+            case "power":
+                if (expectArgs(command, 3)) {
+                    parseOperand(command[3]);
+                    if (operandVar < 0 && Math.abs(operandValue) > 1.0) {
+                        error("motor power must be between -1.0 and 1.0: " + command[3]);
+                    }
+                    emitOperand(Opcode.MOTOR_POWER, command[1]);
+                }
+                break;
+            case "stop":
+                emit(Opcode.MOTOR_STOP, 0, -1, -1, command[1]);
+                break;
+            default:
+                error("unknown motor action: " + command[2]);
+        }
+    }
+
+    /**
+     * Samples "path [line | spline] x0 y0 x1 y1 ..." now, so the run only follows the arrays.
+     * Waypoints are fixed positions on the field, so they cannot be variables.
+     */
+    private void compilePath(String[] command) {
+        String shape = command[1].toLowerCase(Locale.ROOT);
+        if (!shape.equals("line") && !shape.equals("spline")) {
+            error("expected line or spline but got: " + command[1]);
+            return;
+        }
+        if (command.length % 2 != 0) {
+            error("path waypoints must be x y pairs");
+            return;
+        }
+        int errorCount = errors.size();
+        double[] xy = new double[command.length - 2];
+        for (int i = 0; i < xy.length; i++) {
+            if (command[i + 2].startsWith(VARIABLE_PREFIX)) {
+                error("path waypoints must be numbers: " + command[i + 2]);
+            } else {
+                xy[i] = parseNumber(command[i + 2]);
+            }
+        }
+        if (errors.size() > errorCount) return;
+        boolean line = shape.equals("line");
+        emit(line ? Opcode.PATH_LINE : Opcode.PATH_SPLINE, 0, -1, -1, null);
+        paths[size - 1] = line
+                ? Path.line(xy, Path.TANGENT_HEADING, Commands.DRIVE_SPEED)
+                : Path.spline(xy, Path.TANGENT_HEADING, Commands.DRIVE_SPEED);
+    }
+
+    private void compileAssignment(String keyword, String variable, String value) {
+        if (!isIdentifier(variable)) {
+            error("bad variable name: " + variable);
+            return;
+        }
+        int slot = variableSlot(variable);
+        if (keyword.equals("set") && slot < assigned.length) assigned[slot] = true;
+        parseOperand(value);
+        emit(keyword.equals("set") ? Opcode.SET : Opcode.ADD, operandValue, operandVar, slot, variable);
+    }
+
+    private void compileFunc(String functionName) {
+        if (functionName.equalsIgnoreCase("end")) {
+            int open = innermostBlock();
+            if (open < 0 || ops[open] != Opcode.JUMP) {
+                error("func end without matching func");
+                return;
+            }
+            openBlocks.remove(openBlocks.size() - 1);
+            emit(Opcode.RETURN, 0, -1, -1, null);
+            // The jump placed before the body skips it when the script runs top to bottom
+            targets[open] = size;
+            inFunction = false;
+            return;
+        }
+        if (inFunction) {
+            error("func " + functionName + " cannot be defined inside another func");
+            return;
+        }
+        if (!isIdentifier(functionName)) {
+            error("bad function name: " + functionName);
+            return;
+        }
+        if (functions.containsKey(functionName)) {
+            error("func " + functionName + " is already defined");
+            return;
+        }
+        openBlocks.add(size);
+        emit(Opcode.JUMP, 0, -1, -1, functionName);
+        functions.put(functionName, size);
+        inFunction = true;
+    }
+
+    private void compileRepeat(String count) {
+        if (count.equalsIgnoreCase("end")) {
+            int open = innermostBlock();
+            if (open < 0 || ops[open] != Opcode.REPEAT) {
+                error("repeat end without matching repeat");
+                return;
+            }
+            openBlocks.remove(openBlocks.size() - 1);
+            emit(Opcode.REPEAT_END, 0, -1, open + 1, null);
+            targets[open] = size;
+            return;
+        }
+        parseOperand(count);
+        if (operandVar < 0 && (operandValue < 0 || operandValue != Math.floor(operandValue))) {
+            error("repeat count must be a whole number: " + count);
+        }
+        openBlocks.add(size);
+        emitOperand(Opcode.REPEAT, null);
+    }
+
+    private void compileBlockStart(int opcode, String[] command) {
+        if (command.length != 2 || !command[1].equals("{")) {
+            error(command[0] + " must be followed by {");
+            return;
+        }
+        int outer = innermostBlock();
+        if (outer == REJECTED_BLOCK || outer >= 0 && isConcurrentBlock(ops[outer])) {
+            error(command[0] + " blocks cannot be nested");
+            openBlocks.add(REJECTED_BLOCK);
+            return;
+        }
+        openBlocks.add(size);
+        emit(opcode, 0, -1, -1, null);
+    }
+
+    private void compileBlockEnd() {
+        int open = innermostBlock();
+        if (open == REJECTED_BLOCK) {
+            openBlocks.remove(openBlocks.size() - 1);
+            return;
+        }
+        if (open < 0 || !isConcurrentBlock(ops[open])) {
+            error("} without matching parallel or race");
+            return;
+        }
+        openBlocks.remove(openBlocks.size() - 1);
+        targets[open] = size;
+        if (size == open + 1) {
+            error(Opcode.name(ops[open]) + " block is empty");
+            return;
+        }
+        // Every child runs at the same time, so each one needs its own hardware
+        boolean drive = false;
+        List<String> motors = new ArrayList<>();
+        for (int pc = open + 1; pc < size; pc++) {
+            int op = ops[pc];
+            if (Opcode.isDrive(op) || Opcode.isPath(op)) {
+                if (drive) error(lines[pc], "only one drivetrain command can run in a " + Opcode.name(ops[open]) + " block");
+                drive = true;
+            } else if (op == Opcode.MOTOR_MOVE || op == Opcode.MOTOR_POWER || op == Opcode.MOTOR_STOP) {
+                if (motors.contains(texts[pc])) error(lines[pc], "motor " + texts[pc] + " is used twice in one block");
+                motors.add(texts[pc]);
+            } else if (op != Opcode.SERVO && op != Opcode.WAIT && op != Opcode.LOG) {
+                error(lines[pc], Opcode.name(op) + " is not allowed in a " + Opcode.name(ops[open]) + " block");
+            }
+        }
+    }
+
+    private int innermostBlock() {
+        return openBlocks.isEmpty() ? -1 : openBlocks.get(openBlocks.size() - 1);
+    }
+
+    private static boolean isConcurrentBlock(int opcode) {
+        return opcode == Opcode.PARALLEL || opcode == Opcode.RACE;
+    }
+
+    private void emitSigned(int opcode, String direction, String positive, String negative, String value, String text) {
+        parseOperand(value);
+        if (direction.equalsIgnoreCase(positive)) {
+            emitOperand(opcode, text);
+        } else if (direction.equalsIgnoreCase(negative)) {
+            operandValue = -operandValue;
+            emitOperand(opcode, text);
+        } else {
+            error("expected " + positive + " or " + negative + " but got: " + direction);
+        }
+    }
+
+    private boolean expectArgs(String[] command, int count) {
+        if (command.length - 1 < count) {
+            error(command[0] + " needs " + count + " argument(s)");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parses a literal number or a $variable into operandValue/operandVar.
+     * For variables operandValue is the sign multiplier, initially 1.
+     */
+    private void parseOperand(String token) {
+        if (token.startsWith(VARIABLE_PREFIX)) {
+            String variable = token.substring(VARIABLE_PREFIX.length());
+            if (!isIdentifier(variable)) {
+                error("bad variable name: " + token);
+                operandVar = -1;
+                operandValue = 0;
+                return;
+            }
+            operandVar = variableSlot(variable);
+            operandValue = 1;
+            return;
+        }
+        operandVar = -1;
+        operandValue = parseNumber(token);
+    }
+
+    private double parseNumber(String token) {
+        try {
+            double value = Double.parseDouble(token);
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                error("not a finite number: " + token);
+                return 0;
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            error("not a number: " + token);
+            return 0;
+        }
+    }
+
+    private int variableSlot(String variable) {
+        Integer slot = variables.get(variable);
+        if (slot == null) {
+            slot = variableNames.size();
+            if (slot >= assigned.length) error("too many variables, the limit is " + assigned.length);
+            variables.put(variable, slot);
+            variableNames.add(variable);
+            variableFirstUse.add(lineNumber);
+        }
+        return slot;
+    }
+
+    private static boolean isIdentifier(String token) {
+        if (token.isEmpty() || !Character.isLetter(token.charAt(0))) return false;
+        for (int i = 1; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_') return false;
+        }
+        return true;
+    }
+
+    private void error(String message) {
+        errors.add("line " + lineNumber + ": " + message);
+    }
+
+    private void error(int line, String message) {
+        errors.add("line " + line + ": " + message);
+    }
+
+    private void emitOperand(int opcode, String text) {
+        emit(opcode, operandValue, operandVar, -1, text);
+    }
+
+    private void emit(int opcode, double arg, int argVar, int target, String text) {
+        if (size == ops.length) {
+            int capacity = size * 2;
+            ops = Arrays.copyOf(ops, capacity);
+            args = Arrays.copyOf(args, capacity);
+            argVars = Arrays.copyOf(argVars, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            paths = Arrays.copyOf(paths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+        ops[size] = opcode;
+        args[size] = arg;
+        argVars[size] = argVar;
+        targets[size] = target;
+        texts[size] = text;
+        lines[size] = lineNumber;
+        size++;
+    }
+
+    /**
+     * Resolves calls and checks that every block was closed and every variable is set somewhere.
+     */
+    private void finish() {
+        for (int i = openBlocks.size() - 1; i >= 0; i--) {
+            int open = openBlocks.get(i);
+            if (open == REJECTED_BLOCK) continue;
+            String block = ops[open] == Opcode.JUMP ? "func " + texts[open] : Opcode.name(ops[open]);
+            error(lines[open], block + " is never closed");
+        }
+        for (int pc : pendingCalls) {
+            Integer target = functions.get(texts[pc]);
+            if (target == null) {
+                error(lines[pc], "call to unknown func: " + texts[pc]);
+            } else {
+                targets[pc] = target;
+            }
+        }
+        for (int slot = 0; slot < variableNames.size() && slot < assigned.length; slot++) {
+            if (!assigned[slot]) {
+                error(variableFirstUse.get(slot), "variable " + variableNames.get(slot) + " is never set");
+            }
+        }
+    }
+
+    private CompiledScript build() {
+        return new CompiledScript(name,
+                Arrays.copyOf(ops, size),
+                Arrays.copyOf(args, size),
+                Arrays.copyOf(argVars, size),
+                Arrays.copyOf(targets, size),
+                Arrays.copyOf(texts, size),
+                Arrays.copyOf(paths, size),
+                Arrays.copyOf(lines, size),
+                variableNames.toArray(new String[0]),
+                errors);
+    }
+}
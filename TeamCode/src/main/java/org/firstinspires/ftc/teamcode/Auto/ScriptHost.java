@@ -0,0 +1,39 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+/**
+ * What the ScriptInterpreter needs from whatever is running it.
+ * On the robot this is the OpMode (see OpModeHost); the simulator provides its own
+ * implementation with a simulated clock, so scripts can run faster than real time.
+ */
+public interface ScriptHost {
+
+    /**
+     * @return false once the run should end, e.g. because STOP was pressed
+     */
+    boolean isActive();
+
+    /**
+     * Ends the current control cycle. On the robot this yields to the SDK;
+     * in simulation it advances simulated time by one step.
+     */
+    void idle();
+
+    /**
+     * @return current time in nanoseconds, from the host's clock
+     */
+    long nanoTime();
+
+    /**
+     * @return hardware the script commands act on
+     */
+    HardwareMap getHardwareMap();
+
+    /**
+     * Shows a line from the script's log command.
+     *
+     * @param line Formatted log line
+     */
+    void log(String line);
+}
@@ -0,0 +1,369 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import java.util.Arrays;
+
+/**
+ * Runs a CompiledScript.
+ * Instructions are dispatched through a table of CommandHandlers indexed by opcode.
+ * Commands that take time are registered as ActionHandlers instead; their Actions are created when
+ * the script is prepared and ticked once per control cycle by an ActionScheduler, which is what lets
+ * parallel and race blocks run several of them at once.
+ * Control flow (func/call, repeat, set/add, parallel/race) is built in; robot commands are registered by the OpMode.
+ * All state lives in fixed-size arrays, so running a prepared script does not allocate.
+ */
+public class ScriptInterpreter {
+
+    public static final int MAX_CALL_DEPTH = 32;
+    public static final int MAX_LOOP_DEPTH = 32;
+
+    /** Phases of a control cycle timed by the "script" LoopTimer: ticking the actions, then host.idle(). */
+    public static final int PHASE_TICK = 0;
+    public static final int PHASE_IDLE = 1;
+    private static final LoopTimer TIMER = LoopTimer.get("script", "tick", "idle");
+
+    private final CommandHandler[] handlers = new CommandHandler[Opcode.COUNT];
+    private final ActionHandler[] actionHandlers = new ActionHandler[Opcode.COUNT];
+    private final ActionScheduler scheduler = new ActionScheduler();
+
+    private final int[] callStack = new int[MAX_CALL_DEPTH];
+    private int callDepth;
+
+    private final int[] loopCounters = new int[MAX_LOOP_DEPTH];
+    private int loopDepth;
+
+    private double[] variables = new double[0];
+
+    private CompiledScript program;
+    private Action[] actions;
+    private boolean[] inBlock;
+    private ScriptHost host;
+    private int nextPc;
+    private int currentPc = -1;
+    private boolean halted;
+    private String error;
+
+    /**
+     * Creates an interpreter with the control flow handlers installed.
+     */
+    public ScriptInterpreter() {
+        register(Opcode.JUMP, (interpreter, pc) -> jump(program.targets[pc]));
+        register(Opcode.CALL, (interpreter, pc) -> {
+            if (callDepth == MAX_CALL_DEPTH) {
+                fail(pc, "call stack overflow in " + program.texts[pc]);
+                return;
+            }
+            callStack[callDepth++] = pc + 1;
+            jump(program.targets[pc]);
+        });
+        register(Opcode.RETURN, (interpreter, pc) -> {
+            if (callDepth == 0) {
+                fail(pc, "func end reached without a call");
+                return;
+            }
+            jump(callStack[--callDepth]);
+        });
+        register(Opcode.REPEAT, (interpreter, pc) -> {
+            int count = (int) value(pc);
+            if (count <= 0) {
+                jump(program.targets[pc]);
+            } else if (loopDepth == MAX_LOOP_DEPTH) {
+                fail(pc, "too many nested repeats");
+            } else {
+                loopCounters[loopDepth++] = count;
+            }
+        });
+        register(Opcode.REPEAT_END, (interpreter, pc) -> {
+            if (--loopCounters[loopDepth - 1] > 0) {
+                jump(program.targets[pc]);
+            } else {
+                loopDepth--;
+            }
+        });
+        register(Opcode.SET, (interpreter, pc) -> variables[program.targets[pc]] = value(pc));
+        register(Opcode.ADD, (interpreter, pc) -> variables[program.targets[pc]] += value(pc));
+        register(Opcode.STOP, (interpreter, pc) -> halt());
+        register(Opcode.PARALLEL, (interpreter, pc) -> {
+            runActions(pc + 1, program.targets[pc], false);
+            jump(program.targets[pc]);
+        });
+        register(Opcode.RACE, (interpreter, pc) -> {
+            runActions(pc + 1, program.targets[pc], true);
+            jump(program.targets[pc]);
+        });
+    }
+
+    /**
+     * Installs the handler for an opcode, replacing any previous one.
+     *
+     * @param opcode Opcode from {@link Opcode}
+     * @param handler Handler to run for that opcode
+     */
+    public void register(int opcode, CommandHandler handler) {
+        handlers[opcode] = handler;
+    }
+
+    /**
+     * Installs the action handler for an opcode. Instructions with an action handler run
+     * over several control cycles instead of through a CommandHandler.
+     *
+     * @param opcode Opcode from {@link Opcode}
+     * @param handler Factory for that opcode's actions
+     */
+    public void registerAction(int opcode, ActionHandler handler) {
+        actionHandlers[opcode] = handler;
+    }
+
+    /**
+     * Binds a script to this interpreter and creates the Action for every instruction that has one.
+     * Call this during init so that {@link #run} can start without allocating.
+     *
+     * @param script Compiled script without errors
+     */
+    public void prepare(CompiledScript script) {
+        program = script;
+        actions = new Action[script.size()];
+        inBlock = new boolean[script.size()];
+        for (int pc = 0; pc < script.size(); pc++) {
+            int op = script.ops[pc];
+            if (op == Opcode.PARALLEL || op == Opcode.RACE) {
+                for (int member = pc + 1; member < script.targets[pc]; member++) inBlock[member] = true;
+            }
+        }
+        if (variables.length < script.variableNames.length) {
+            variables = new double[script.variableNames.length];
+        }
+        for (int pc = 0; pc < script.size(); pc++) {
+            ActionHandler handler = actionHandlers[script.ops[pc]];
+            if (handler != null) actions[pc] = handler.create(this, pc);
+        }
+    }
+
+    /**
+     * Runs a script until it ends, executes stop, fails, or the OpMode stops.
+     * The script is prepared first if {@link #prepare} was not already called for it.
+     *
+     * @param script Compiled script without errors
+     * @param host Host whose active state ends the run and whose idle() ends each control cycle
+     */
+    public void run(CompiledScript script, ScriptHost host) throws InterruptedException {
+        if (script != program || actions == null) prepare(script);
+        this.host = host;
+        reset();
+        while (!halted && nextPc < program.size() && host.isActive()) {
+            int pc = nextPc++;
+            currentPc = pc;
+            if (actions[pc] != null) {
+                runActions(pc, pc + 1, false);
+            } else {
+                execute(pc);
+            }
+        }
+        scheduler.cancelAll();
+        currentPc = -1;
+    }
+
+    private void execute(int pc) throws InterruptedException {
+        CommandHandler handler = handlers[program.ops[pc]];
+        if (handler == null) {
+            fail(pc, "no handler for " + Opcode.name(program.ops[pc]));
+            return;
+        }
+        handler.execute(this, pc);
+    }
+
+    /**
+     * Starts every instruction in [from, to) together and ticks their actions once per cycle.
+     * Instructions without an action run immediately when the block starts.
+     *
+     * @param from First instruction
+     * @param to Index after the last instruction
+     * @param race true to finish as soon as any action finishes and cancel the rest
+     */
+    private void runActions(int from, int to, boolean race) throws InterruptedException {
+        for (int pc = from; pc < to; pc++) {
+            if (actions[pc] != null) {
+                scheduler.start(actions[pc]);
+            } else {
+                execute(pc);
+            }
+        }
+        while (!scheduler.isEmpty()) {
+            TIMER.startCycle();
+            // A failed operand ends the block as well as the script
+            if (!host.isActive() || halted) {
+                scheduler.cancelAll();
+                break;
+            }
+            int finished = scheduler.tick();
+            TIMER.lap(PHASE_TICK);
+            if (race && finished > 0) {
+                scheduler.cancelAll();
+                break;
+            }
+            if (!scheduler.isEmpty()) {
+                host.idle();
+                TIMER.lap(PHASE_IDLE);
+            }
+        }
+        TIMER.pause();
+    }
+
+    private void reset() {
+        nextPc = 0;
+        callDepth = 0;
+        loopDepth = 0;
+        halted = false;
+        error = null;
+        Arrays.fill(variables, 0);
+    }
+
+    /**
+     * Resolves the numeric operand of an instruction, reading its variable if it has one.
+     * The compiler range-checks literals; a variable is checked here, against the same limits.
+     * A value out of range fails the script at that line, and the nearest valid value is
+     * returned so the instruction does no harm while the run ends.
+     *
+     * @param pc Index of the instruction
+     * @return operand value
+     */
+    public double value(int pc) {
+        int slot = program.argVars[pc];
+        if (slot < 0) return program.args[pc];
+        double value = variables[slot] * program.args[pc];
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return outOfRange(pc, "not a finite number", value, 0);
+        }
+        switch (program.ops[pc]) {
+            case Opcode.SERVO:
+                if (value < 0 || value > 1) {
+                    return outOfRange(pc, "servo position must be between 0.0 and 1.0", value, Math.max(0, Math.min(1, value)));
+                }
+                break;
+            case Opcode.MOTOR_POWER:
+                if (Math.abs(value) > 1) {
+                    return outOfRange(pc, "motor power must be between -1.0 and 1.0", value, 0);
+                }
+                break;
+            case Opcode.WAIT:
+                if (value < 0) return outOfRange(pc, "wait time cannot be negative", value, 0);
+                break;
+            case Opcode.REPEAT:
+                if (value < 0 || value != Math.floor(value)) {
+                    return outOfRange(pc, "repeat count must be a whole number", value, 0);
+                }
+                break;
+        }
+        return value;
+    }
+
+    private double outOfRange(int pc, String message, double value, double replacement) {
+        fail(pc, message + ": " + ScriptCompiler.VARIABLE_PREFIX + program.variableNames[program.argVars[pc]] + " is " + value);
+        return replacement;
+    }
+
+    /**
+     * @return host running the current script, valid once {@link #run} has been called
+     */
+    public ScriptHost getHost() {
+        return host;
+    }
+
+    /**
+     * @param pc Index of the instruction
+     * @return true if the operand is a literal, so its value is known before the script runs
+     */
+    public boolean isLiteral(int pc) {
+        return program.argVars[pc] < 0;
+    }
+
+    /**
+     * @param pc Index of an instruction, may be past the end of the script
+     * @return the action bound to that instruction, or null if it has none
+     */
+    public Action getAction(int pc) {
+        return pc >= 0 && pc < actions.length ? actions[pc] : null;
+    }
+
+    /**
+     * @param pc Index of the instruction
+     * @return true if the instruction is a member of a parallel or race block
+     */
+    public boolean isInBlock(int pc) {
+        return inBlock[pc];
+    }
+
+    /**
+     * @param pc Index of the instruction
+     * @return opcode of the instruction
+     */
+    public int opcode(int pc) {
+        return program.ops[pc];
+    }
+
+    /**
+     * @param pc Index of the instruction
+     * @return script line the instruction was compiled from
+     */
+    public int line(int pc) {
+        return program.lines[pc];
+    }
+
+    /**
+     * @return index of the top-level instruction running now, e.g. the parallel block whose
+     *         actions are being ticked, or -1 when no script is running
+     */
+    public int getCurrentPc() {
+        return currentPc;
+    }
+
+    /**
+     * @param pc Index of the instruction
+     * @return text operand of the instruction
+     */
+    public String text(int pc) {
+        return program.texts[pc];
+    }
+
+    /**
+     * @param pc Index of the instruction
+     * @return path of a path instruction, sampled when the script was compiled
+     */
+    public Path path(int pc) {
+        return program.paths[pc];
+    }
+
+    /**
+     * Continues execution at another instruction.
+     *
+     * @param target Index of the next instruction to run
+     */
+    public void jump(int target) {
+        nextPc = target;
+    }
+
+    /**
+     * Ends the run after the current instruction.
+     */
+    public void halt() {
+        halted = true;
+    }
+
+    /**
+     * @return true if the last run ended because of the stop command or an error
+     */
+    public boolean isHalted() {
+        return halted;
+    }
+
+    /**
+     * @return runtime error message from the last run, or null if there was none
+     */
+    public String getError() {
+        return error;
+    }
+
+    private void fail(int pc, String message) {
+        error = "line " + program.lines[pc] + ": " + message;
+        halted = true;
+    }
+}
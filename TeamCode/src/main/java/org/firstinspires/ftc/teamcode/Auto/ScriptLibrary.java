@@ -0,0 +1,302 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Loads AutoScripts from the controller's storage and keeps their compiled forms.
+ *
+ * Every ".txt" file in {@link #SCRIPT_DIR} is read. A file holds one script named after the file,
+ * or several scripts each starting with a "#Name" line, the same layout as scripts.txt.
+ * A name defined more than once, in one file or several, is listed with an error instead of
+ * letting one of the definitions win.
+ * Compiled scripts are cached by content hash, so a refresh only re-reads files whose timestamp
+ * or size changed and only re-compiles scripts whose text changed. A file that changed but cannot
+ * be read keeps its last good scripts and is listed in the load errors.
+ */
+public class ScriptLibrary {
+
+    public static final File SCRIPT_DIR = new File(AppUtil.FIRST_FOLDER, "autoscripts");
+    public static final String SCRIPT_EXTENSION = ".txt";
+
+    /** Guards the caches and this library's state; refresh may run on a background thread. */
+    private final Object lock = new Object();
+
+    /** Compiled scripts keyed by "name:sha1". */
+    private final Map<String, CompiledScript> compiled = new HashMap<>();
+
+    /** Last good state of each script file, so unchanged files are not read again. */
+    private final Map<String, FileEntry> files = new HashMap<>();
+
+    private final File directory;
+    private final Map<String, CompiledScript> builtIn = new TreeMap<>();
+    private final Set<String> builtInKeys = new HashSet<>();
+    private Map<String, CompiledScript> scripts = new TreeMap<>();
+    private final List<String> loadErrors = new ArrayList<>();
+    /** Error scripts for names defined more than once, by message, kept so rescans return the same instances. */
+    private Map<String, CompiledScript> duplicates = new HashMap<>();
+
+    private static class FileEntry {
+        final long lastModified;
+        final long length;
+        final Map<String, String> keys; // script name -> cache key
+        final List<String> duplicates;  // names with more than one header in the file
+
+        FileEntry(long lastModified, long length, Map<String, String> keys, List<String> duplicates) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.keys = keys;
+            this.duplicates = duplicates;
+        }
+    }
+
+    /**
+     * Creates a library reading from {@link #SCRIPT_DIR}.
+     */
+    public ScriptLibrary() {
+        this(SCRIPT_DIR);
+    }
+
+    /**
+     * Creates a library reading from a specific directory.
+     *
+     * @param directory Directory holding script files
+     */
+    public ScriptLibrary(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Adds a script compiled into the app, such as the constants in AutoScript.
+     * A file with the same script name replaces it.
+     *
+     * @param name Script name
+     * @param source Script text
+     */
+    public void addBuiltIn(String name, String source) {
+        String key = cacheKey(name, source);
+        synchronized (lock) {
+            CompiledScript script = compiled.get(key);
+            if (script == null) {
+                script = ScriptCompiler.compile(name, source);
+                compiled.put(key, script);
+            }
+            builtIn.put(name, script);
+            builtInKeys.add(key);
+        }
+    }
+
+    /**
+     * Scans the script directory and recompiles whatever changed.
+     *
+     * @return true if the set of scripts or any script changed since the last call
+     */
+    public boolean refresh() {
+        synchronized (lock) {
+            return scan();
+        }
+    }
+
+    private boolean scan() {
+        loadErrors.clear();
+        Map<String, CompiledScript> updated = new TreeMap<>(builtIn);
+        Map<String, List<String>> definedIn = new TreeMap<>(); // script name -> files defining it
+
+        File[] listed = directory.listFiles();
+        Set<String> seen = new HashSet<>();
+        if (listed != null) {
+            for (File file : listed) {
+                if (!file.isFile() || !file.getName().endsWith(SCRIPT_EXTENSION)) continue;
+                String path = file.getAbsolutePath();
+                seen.add(path);
+                FileEntry entry = files.get(path);
+                if (entry == null || entry.lastModified != file.lastModified() || entry.length != file.length()) {
+                    FileEntry loaded = load(file, entry != null);
+                    if (loaded != null) {
+                        entry = loaded;
+                        files.put(path, entry);
+                    } else if (entry == null) {
+                        continue;
+                    }
+                    // A failed re-read keeps the old entry, and its old timestamp makes the next refresh retry
+                }
+                for (Map.Entry<String, String> script : entry.keys.entrySet()) {
+                    CompiledScript found = compiled.get(script.getValue());
+                    if (found != null) updated.put(script.getKey(), found);
+                    addDefinition(definedIn, script.getKey(), file.getName());
+                }
+                for (String name : entry.duplicates) addDefinition(definedIn, name, file.getName());
+            }
+        }
+        files.keySet().retainAll(seen);
+        pruneCache();
+
+        Map<String, CompiledScript> errors = new HashMap<>();
+        for (Map.Entry<String, List<String>> name : definedIn.entrySet()) {
+            if (name.getValue().size() < 2) continue;
+            Collections.sort(name.getValue());
+            String message = "#" + name.getKey() + " is defined more than once, in " + name.getValue();
+            CompiledScript error = duplicates.get(message);
+            if (error == null) error = CompiledScript.failed(name.getKey(), message);
+            errors.put(message, error);
+            updated.put(name.getKey(), error);
+        }
+        duplicates = errors;
+
+        // Only replace the map when something changed, so callers can detect changes by identity
+        if (updated.equals(scripts)) return false;
+        scripts = updated;
+        return true;
+    }
+
+    private static void addDefinition(Map<String, List<String>> definedIn, String name, String file) {
+        List<String> files = definedIn.get(name);
+        if (files == null) {
+            files = new ArrayList<>();
+            definedIn.put(name, files);
+        }
+        files.add(file);
+    }
+
+    /**
+     * @return compiled scripts by name, sorted by name. The same map instance is returned until the scripts change.
+     */
+    public Map<String, CompiledScript> getScripts() {
+        synchronized (lock) {
+            return scripts;
+        }
+    }
+
+    /**
+     * @return problems reading script files during the last refresh
+     */
+    public List<String> getLoadErrors() {
+        synchronized (lock) {
+            return new ArrayList<>(loadErrors);
+        }
+    }
+
+    private FileEntry load(File file, boolean loadedBefore) {
+        String text;
+        try {
+            text = readFile(file);
+        } catch (IOException e) {
+            loadErrors.add(file.getName() + ": " + e.getMessage()
+                    + (loadedBefore ? ", using the last version read" : ""));
+            return null;
+        }
+        String fileName = file.getName();
+        String defaultName = fileName.substring(0, fileName.length() - SCRIPT_EXTENSION.length());
+
+        Map<String, String> keys = new TreeMap<>();
+        List<String> duplicates = new ArrayList<>();
+        for (Map.Entry<String, String> script : split(defaultName, text, duplicates).entrySet()) {
+            String key = cacheKey(script.getKey(), script.getValue());
+            if (!compiled.containsKey(key)) {
+                compiled.put(key, ScriptCompiler.compile(script.getKey(), script.getValue()));
+            }
+            keys.put(script.getKey(), key);
+        }
+        return new FileEntry(file.lastModified(), file.length(), keys, duplicates);
+    }
+
+    /**
+     * Splits a file into scripts on "#Name" header lines. Lines before the first header belong to
+     * a script named after the file. Compile error line numbers count from the script's header.
+     *
+     * @param defaultName Name for lines before the first header
+     * @param text File contents
+     * @return script text by name
+     */
+    public static Map<String, String> split(String defaultName, String text) {
+        return split(defaultName, text, null);
+    }
+
+    /**
+     * Splits a file into scripts, noting names that have more than one header.
+     *
+     * @param defaultName Name for lines before the first header
+     * @param text File contents
+     * @param duplicates Receives each name defined again, once per extra definition; may be null
+     * @return script text by name, the last definition of a repeated name
+     */
+    public static Map<String, String> split(String defaultName, String text, List<String> duplicates) {
+        Map<String, String> result = new TreeMap<>();
+        String currentName = defaultName;
+        StringBuilder current = new StringBuilder();
+        for (String line : text.split("\n", -1)) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("#") && trimmed.length() > 1) {
+                if (current.toString().trim().length() > 0) put(result, currentName, current.toString(), duplicates);
+                currentName = trimmed.substring(1).trim();
+                current.setLength(0);
+            } else {
+                current.append(line).append('\n');
+            }
+        }
+        if (current.toString().trim().length() > 0) put(result, currentName, current.toString(), duplicates);
+        return result;
+    }
+
+    private static void put(Map<String, String> scripts, String name, String text, List<String> duplicates) {
+        if (scripts.put(name, text) != null && duplicates != null) duplicates.add(name);
+    }
+
+    /** Drops cached compilations that no current script uses. */
+    private void pruneCache() {
+        Set<String> live = new HashSet<>(builtInKeys);
+        for (FileEntry entry : files.values()) live.addAll(entry.keys.values());
+        compiled.keySet().retainAll(live);
+    }
+
+    private static String cacheKey(String name, String source) {
+        return name + ":" + sha1(source);
+    }
+
+    private static String sha1(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java runtime ships SHA-1; fall back to a weaker hash just in case
+            return Integer.toHexString(text.hashCode()) + "-" + text.length();
+        }
+    }
+
+    /**
+     * Reads a script file as UTF-8 with Windows line endings removed.
+     *
+     * @param file Script file
+     * @return file contents
+     * @throws IOException if the file cannot be read
+     */
+    public static String readFile(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.max(file.length(), 16));
+        byte[] buffer = new byte[4096];
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8).replace("\r", "");
+    }
+}
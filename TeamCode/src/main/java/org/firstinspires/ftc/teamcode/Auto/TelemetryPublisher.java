@@ -0,0 +1,183 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Sends telemetry to the Driver Station at a limited rate, and only when something changed.
+ *
+ * Callers never talk to Telemetry directly while the control loop runs. {@link #log(String)} and
+ * {@link #set(int, double)} only store a reference or a number in a preallocated buffer, so they
+ * cost nanoseconds and never allocate. The loop calls {@link #publish()} once per cycle; at most
+ * every {@link #getIntervalMillis()} it formats the data items whose values changed, adds the
+ * buffered log lines to the telemetry log, and calls telemetry.update(). If nothing changed
+ * nothing is sent.
+ *
+ * Data items keep their place on the screen between updates, so the publisher turns off the
+ * telemetry's auto-clear. Not thread-safe: call it from the OpMode thread only.
+ */
+public class TelemetryPublisher {
+
+    /** Default time between transmissions, the same as the SDK's default. */
+    public static final int DEFAULT_INTERVAL_MS = 250;
+
+    /** Log lines buffered between transmissions; older ones are dropped if more arrive. */
+    public static final int LOG_CAPACITY = 32;
+
+    private final Telemetry telemetry;
+    private long intervalNanos;
+    private long lastPublishNanos;
+
+    // Numeric items, set from the loop
+    private final List<Telemetry.Item> numberItems = new ArrayList<>();
+    private final List<String> numberFormats = new ArrayList<>();
+    private double[] numbers = new double[0];
+    private double[] sentNumbers = new double[0];
+
+    // Items read when publishing
+    private final List<Telemetry.Item> polledItems = new ArrayList<>();
+    private final List<Supplier<?>> polledValues = new ArrayList<>();
+    private final List<String> sentPolled = new ArrayList<>();
+
+    private final String[] logLines = new String[LOG_CAPACITY];
+    private int logStart;
+    private int logCount;
+    private int droppedLines;
+
+    /**
+     * @param telemetry OpMode telemetry
+     */
+    public TelemetryPublisher(Telemetry telemetry) {
+        this.telemetry = telemetry;
+        telemetry.setAutoClear(false);
+        setIntervalMillis(DEFAULT_INTERVAL_MS);
+    }
+
+    /**
+     * @param intervalMillis Minimum time between transmissions
+     */
+    public void setIntervalMillis(int intervalMillis) {
+        intervalNanos = intervalMillis * 1000000L;
+    }
+
+    /**
+     * @return minimum time between transmissions in milliseconds
+     */
+    public int getIntervalMillis() {
+        return (int) (intervalNanos / 1000000L);
+    }
+
+    /**
+     * Adds a numeric line, e.g. addNumber("Heading", "%.1f deg"). Call during init.
+     *
+     * @param caption Caption shown before the value
+     * @param format Format for the value
+     * @return slot to pass to {@link #set(int, double)}
+     */
+    public int addNumber(String caption, String format) {
+        numberItems.add(telemetry.addData(caption, ""));
+        numberFormats.add(format);
+        int slot = numbers.length;
+        numbers = Arrays.copyOf(numbers, slot + 1);
+        sentNumbers = Arrays.copyOf(sentNumbers, slot + 1);
+        numbers[slot] = Double.NaN;
+        sentNumbers[slot] = Double.NaN;
+        return slot;
+    }
+
+    /**
+     * Sets a numeric line's value. Stores the number only; it is formatted when next sent.
+     *
+     * @param slot Slot from {@link #addNumber(String, String)}
+     * @param value New value
+     */
+    public void set(int slot, double value) {
+        numbers[slot] = value;
+    }
+
+    /**
+     * Adds a line whose value is read from the supplier when telemetry is sent, e.g. the pose
+     * from the PoseEstimator. The line is only re-sent when its text changes. Call during init.
+     *
+     * @param caption Caption shown before the value
+     * @param value Read on the OpMode thread at the transmission rate
+     */
+    public void addData(String caption, Supplier<?> value) {
+        polledItems.add(telemetry.addData(caption, ""));
+        polledValues.add(value);
+        sentPolled.add(null);
+    }
+
+    /**
+     * Queues a line for the telemetry log. Only the reference is stored, so pass a string that
+     * already exists (e.g. formatted during init) to keep the call allocation-free.
+     *
+     * @param line Text to log
+     */
+    public void log(String line) {
+        if (logCount == LOG_CAPACITY) {
+            logStart = (logStart + 1) % LOG_CAPACITY;
+            logCount--;
+            droppedLines++;
+        }
+        logLines[(logStart + logCount) % LOG_CAPACITY] = line;
+        logCount++;
+    }
+
+    /**
+     * Sends telemetry if the interval has passed and something changed. Call once per cycle.
+     *
+     * @return true if telemetry was sent
+     */
+    public boolean publish() {
+        long now = System.nanoTime();
+        if (now - lastPublishNanos < intervalNanos) return false;
+        return send(now);
+    }
+
+    /**
+     * Sends anything that changed now, regardless of the interval, e.g. when the script ends.
+     *
+     * @return true if telemetry was sent
+     */
+    public boolean flush() {
+        return send(System.nanoTime());
+    }
+
+    private boolean send(long now) {
+        boolean changed = logCount > 0;
+        for (int i = 0; i < numbers.length; i++) {
+            double value = numbers[i];
+            if (Double.compare(value, sentNumbers[i]) == 0) continue;
+            numberItems.get(i).setValue(numberFormats.get(i), value);
+            sentNumbers[i] = value;
+            changed = true;
+        }
+        for (int i = 0; i < polledItems.size(); i++) {
+            String text = String.valueOf(polledValues.get(i).get());
+            if (text.equals(sentPolled.get(i))) continue;
+            polledItems.get(i).setValue(text);
+            sentPolled.set(i, text);
+            changed = true;
+        }
+        if (!changed) return false;
+
+        if (droppedLines > 0) {
+            telemetry.log().add("(" + droppedLines + " log lines dropped)");
+            droppedLines = 0;
+        }
+        while (logCount > 0) {
+            telemetry.log().add(logLines[logStart]);
+            logLines[logStart] = null;
+            logStart = (logStart + 1) % LOG_CAPACITY;
+            logCount--;
+        }
+        telemetry.update();
+        lastPublishNanos = now;
+        return true;
+    }
+}
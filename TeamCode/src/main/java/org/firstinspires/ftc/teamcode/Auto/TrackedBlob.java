@@ -0,0 +1,82 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import java.util.Locale;
+
+/**
+ * Immutable state of one color blob followed by a {@link BlobTracker}.
+ *
+ * Positions are in camera image pixels, x to the right and y down, like the SDK's blob boxes.
+ */
+public final class TrackedBlob {
+
+    /** Number of the track, kept while the same blob is followed. */
+    public final int id;
+
+    /** Filtered center of the blob's box, in pixels. */
+    public final double x;
+    public final double y;
+
+    /** Filtered size of the blob's upright bounding box, in pixels. */
+    public final double width;
+    public final double height;
+
+    /** Image velocity in pixels/s. */
+    public final double xVelocity;
+    public final double yVelocity;
+
+    /** Contour area of the last detection, in pixels. */
+    public final int area;
+
+    /** Frames in a row the blob was not found; 0 if it was found in the latest frame. */
+    public final int misses;
+
+    /** Capture time of the latest frame, in nanoseconds. */
+    public final long nanos;
+
+    /**
+     * @param id Track number
+     * @param x Center x in pixels
+     * @param y Center y in pixels
+     * @param width Box width in pixels
+     * @param height Box height in pixels
+     * @param xVelocity Velocity to the right in pixels/s
+     * @param yVelocity Velocity down in pixels/s
+     * @param area Contour area of the last detection
+     * @param misses Frames in a row without a detection
+     * @param nanos Capture time of the frame
+     */
+    public TrackedBlob(int id, double x, double y, double width, double height, double xVelocity, double yVelocity,
+                       int area, int misses, long nanos) {
+        this.id = id;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.xVelocity = xVelocity;
+        this.yVelocity = yVelocity;
+        this.area = area;
+        this.misses = misses;
+        this.nanos = nanos;
+    }
+
+    /**
+     * @param nanos A time on the camera's clock, e.g. System.nanoTime() now
+     * @return center x extrapolated to that time
+     */
+    public double predictX(long nanos) {
+        return x + xVelocity * (nanos - this.nanos) / 1e9;
+    }
+
+    /**
+     * @param nanos A time on the camera's clock
+     * @return center y extrapolated to that time
+     */
+    public double predictY(long nanos) {
+        return y + yVelocity * (nanos - this.nanos) / 1e9;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "#%d (%.0f, %.0f) %.0fx%.0f px", id, x, y, width, height);
+    }
+}
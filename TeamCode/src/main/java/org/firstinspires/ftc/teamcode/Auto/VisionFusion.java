@@ -0,0 +1,257 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+/**
+ * Merges vision pose fixes into odometry, each at the moment its camera frame was captured.
+ *
+ * A camera frame is processed tens of milliseconds after it is captured, and the robot keeps
+ * moving meanwhile. Applying the fix when it arrives would pull the pose back to where the robot
+ * was. Instead every odometry reading is kept in a ring buffer with its time, and a fix is
+ * applied in the past:
+ * <ol>
+ * <li>the odometry pose at the capture time is interpolated from the buffer, and the fused pose
+ *     there is the correction that was in force times that odometry pose;</li>
+ * <li>that fused pose is moved toward the vision pose by the fix's weight;</li>
+ * <li>the odometry motion since the capture is replayed on top of the corrected pose.</li>
+ * </ol>
+ * The fused pose is kept as a rigid correction (rotation and offset) applied to the odometry, so
+ * replaying the motion since the capture comes down to recomputing the correction, and costs the
+ * same however old the fix is.
+ *
+ * Fixes from several cameras arrive with different delays, so one may be older than a fix that
+ * was already applied. The last {@link #FIX_CAPACITY} fixes are kept in capture order with the
+ * correction in force before each; a late fix is slotted in at its capture time and the newer
+ * ones are applied again on top of it, so the result does not depend on arrival order.
+ *
+ * Not thread-safe: only the thread updating the PoseEstimator calls it, apart from the counters.
+ * Nothing allocates.
+ */
+public class VisionFusion {
+
+    /**
+     * Odometry readings kept; 1 s at the PoseEstimator's default 5 ms period, and more at the
+     * control loop's period when it steps encoder odometry.
+     */
+    public static final int HISTORY_CAPACITY = 200;
+
+    /** Fixes kept for reordering late arrivals. */
+    public static final int FIX_CAPACITY = 16;
+
+    // Odometry ring buffer
+    private final long[] historyNanos = new long[HISTORY_CAPACITY];
+    private final double[] historyX = new double[HISTORY_CAPACITY];
+    private final double[] historyY = new double[HISTORY_CAPACITY];
+    private final double[] historyHeading = new double[HISTORY_CAPACITY];
+    private int historyStart;
+    private int historyCount;
+
+    // Recent fixes in capture order, with the correction in force before each was applied
+    private final long[] fixNanos = new long[FIX_CAPACITY];
+    private final double[] fixX = new double[FIX_CAPACITY];
+    private final double[] fixY = new double[FIX_CAPACITY];
+    private final double[] fixHeading = new double[FIX_CAPACITY];
+    private final double[] fixWeight = new double[FIX_CAPACITY];
+    private final double[] beforeX = new double[FIX_CAPACITY];
+    private final double[] beforeY = new double[FIX_CAPACITY];
+    private final double[] beforeHeading = new double[FIX_CAPACITY];
+    private int fixCount;
+
+    // Correction: fused = rotate(odometry, correctionHeading) + (correctionX, correctionY)
+    private double correctionX;
+    private double correctionY;
+    private double correctionHeading;
+
+    // Scratch results of interpolate()
+    private double odometryX;
+    private double odometryY;
+    private double odometryHeading;
+
+    // Written by the updating thread only, read from anywhere
+    private volatile long applied;
+    private volatile long dropped;
+
+    /**
+     * Adds the newest odometry reading. Readings must come in time order.
+     *
+     * @param nanos Time of the reading
+     * @param x Odometry x in inches
+     * @param y Odometry y in inches
+     * @param heading Odometry heading in radians, counter-clockwise
+     */
+    public void record(long nanos, double x, double y, double heading) {
+        int index;
+        if (historyCount < HISTORY_CAPACITY) {
+            index = (historyStart + historyCount++) % HISTORY_CAPACITY;
+        } else {
+            index = historyStart;
+            historyStart = (historyStart + 1) % HISTORY_CAPACITY;
+        }
+        historyNanos[index] = nanos;
+        historyX[index] = x;
+        historyY[index] = y;
+        historyHeading[index] = heading;
+    }
+
+    /**
+     * Applies a vision fix at the time its frame was captured.
+     *
+     * @param captureNanos Time the camera frame was captured, on the odometry's clock
+     * @param x Field x the camera measured, in inches
+     * @param y Field y in inches
+     * @param heading Heading in radians, counter-clockwise
+     * @param weight How far to move toward the fix, from 0 (ignore) to 1 (take it as is)
+     * @return false if the frame is older than the odometry history, so the fix was dropped
+     */
+    public boolean addFix(long captureNanos, double x, double y, double heading, double weight) {
+        if (historyCount == 0 || captureNanos < historyNanos[historyStart]) {
+            dropped++;
+            return false;
+        }
+        // Forget fixes whose odometry has left the buffer; their effect stays in the newer ones
+        while (fixCount > 0 && fixNanos[0] < historyNanos[historyStart]) removeFix(0);
+        if (fixCount == FIX_CAPACITY) removeFix(0);
+
+        int slot = fixCount;
+        while (slot > 0 && fixNanos[slot - 1] > captureNanos) slot--;
+        for (int i = fixCount; i > slot; i--) copyFix(i - 1, i);
+        fixCount++;
+        fixNanos[slot] = captureNanos;
+        fixX[slot] = x;
+        fixY[slot] = y;
+        fixHeading[slot] = heading;
+        fixWeight[slot] = Math.max(0, Math.min(1, weight));
+
+        // Rewind to the correction before this fix, then apply it and every newer fix again
+        if (slot < fixCount - 1) {
+            correctionX = beforeX[slot + 1];
+            correctionY = beforeY[slot + 1];
+            correctionHeading = beforeHeading[slot + 1];
+        }
+        for (int i = slot; i < fixCount; i++) apply(i);
+        applied++;
+        return true;
+    }
+
+    private void apply(int fix) {
+        beforeX[fix] = correctionX;
+        beforeY[fix] = correctionY;
+        beforeHeading[fix] = correctionHeading;
+        interpolate(fixNanos[fix]);
+
+        // Fused pose at the capture time, moved toward the fix
+        double cos = Math.cos(correctionHeading);
+        double sin = Math.sin(correctionHeading);
+        double fusedX = correctionX + cos * odometryX - sin * odometryY;
+        double fusedY = correctionY + sin * odometryX + cos * odometryY;
+        double fusedHeading = correctionHeading + odometryHeading;
+        double w = fixWeight[fix];
+        fusedX += w * (fixX[fix] - fusedX);
+        fusedY += w * (fixY[fix] - fusedY);
+        fusedHeading += w * Pose.normalize(fixHeading[fix] - fusedHeading);
+
+        // The correction that maps the odometry pose at the capture onto the corrected pose,
+        // which carries the odometry motion since then along with it
+        correctionHeading = Pose.normalize(fusedHeading - odometryHeading);
+        cos = Math.cos(correctionHeading);
+        sin = Math.sin(correctionHeading);
+        correctionX = fusedX - (cos * odometryX - sin * odometryY);
+        correctionY = fusedY - (sin * odometryX + cos * odometryY);
+    }
+
+    /** Sets odometryX/Y/Heading to the odometry pose at a time within the history. */
+    private void interpolate(long nanos) {
+        // Binary search for the last reading at or before the time
+        int low = 0;
+        int high = historyCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (historyNanos[(historyStart + mid) % HISTORY_CAPACITY] <= nanos) low = mid;
+            else high = mid - 1;
+        }
+        int a = (historyStart + low) % HISTORY_CAPACITY;
+        if (low == historyCount - 1 || historyNanos[a] == nanos) {
+            odometryX = historyX[a];
+            odometryY = historyY[a];
+            odometryHeading = historyHeading[a];
+            return;
+        }
+        int b = (a + 1) % HISTORY_CAPACITY;
+        double t = (double) (nanos - historyNanos[a]) / (historyNanos[b] - historyNanos[a]);
+        odometryX = historyX[a] + t * (historyX[b] - historyX[a]);
+        odometryY = historyY[a] + t * (historyY[b] - historyY[a]);
+        odometryHeading = historyHeading[a] + t * Pose.normalize(historyHeading[b] - historyHeading[a]);
+    }
+
+    private void removeFix(int index) {
+        for (int i = index; i < fixCount - 1; i++) copyFix(i + 1, i);
+        fixCount--;
+    }
+
+    private void copyFix(int from, int to) {
+        fixNanos[to] = fixNanos[from];
+        fixX[to] = fixX[from];
+        fixY[to] = fixY[from];
+        fixHeading[to] = fixHeading[from];
+        fixWeight[to] = fixWeight[from];
+        beforeX[to] = beforeX[from];
+        beforeY[to] = beforeY[from];
+        beforeHeading[to] = beforeHeading[from];
+    }
+
+    /**
+     * Forgets the history, the fixes and the correction, e.g. after the odometry was moved.
+     */
+    public void reset() {
+        historyCount = 0;
+        fixCount = 0;
+        correctionX = 0;
+        correctionY = 0;
+        correctionHeading = 0;
+    }
+
+    /**
+     * @param x Odometry x
+     * @param y Odometry y
+     * @return fused field x of that odometry position
+     */
+    public double fusedX(double x, double y) {
+        return correctionX + Math.cos(correctionHeading) * x - Math.sin(correctionHeading) * y;
+    }
+
+    /**
+     * @param x Odometry x
+     * @param y Odometry y
+     * @return fused field y of that odometry position
+     */
+    public double fusedY(double x, double y) {
+        return correctionY + Math.sin(correctionHeading) * x + Math.cos(correctionHeading) * y;
+    }
+
+    /**
+     * @param heading Odometry heading
+     * @return fused field heading
+     */
+    public double fusedHeading(double heading) {
+        return Pose.normalize(correctionHeading + heading);
+    }
+
+    /**
+     * @return rotation from the odometry frame to the field frame, in radians
+     */
+    public double getCorrectionHeading() {
+        return correctionHeading;
+    }
+
+    /**
+     * @return number of fixes applied
+     */
+    public long getAppliedCount() {
+        return applied;
+    }
+
+    /**
+     * @return number of fixes dropped for being older than the history
+     */
+    public long getDroppedCount() {
+        return dropped;
+    }
+}
@@ -0,0 +1,35 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+/**
+ * Non-blocking "wait [ms]" command. Finishes once the time has passed on the host's clock.
+ */
+public class WaitAction implements Action {
+
+    private final ScriptInterpreter interpreter;
+    private final int pc;
+    private long endNanos;
+
+    /**
+     * @param interpreter Interpreter that resolves the instruction operand
+     * @param pc Index of the instruction
+     */
+    public WaitAction(ScriptInterpreter interpreter, int pc) {
+        this.interpreter = interpreter;
+        this.pc = pc;
+    }
+
+    @Override
+    public void start() {
+        endNanos = interpreter.getHost().nanoTime() + (long) (interpreter.value(pc) * 1_000_000L);
+    }
+
+    @Override
+    public boolean update() {
+        return interpreter.getHost().nanoTime() - endNanos >= 0;
+    }
+
+    @Override
+    public void cancel() {
+        // Nothing to release
+    }
+}
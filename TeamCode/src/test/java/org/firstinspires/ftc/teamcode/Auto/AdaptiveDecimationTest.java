@@ -0,0 +1,115 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveDecimationTest {
+
+    private static final double TAG = 4;
+    private static final double FPS = 20;
+    private static final int FINE = 0;
+    private static final int MIDDLE = 1;
+    private static final int COARSE = 2;
+
+    /** A decision-only instance; the processor and portal are only used by update(). */
+    private static AdaptiveDecimation decimation() {
+        return new AdaptiveDecimation(null, null);
+    }
+
+    /** Range in inches at which a 4 in tag is the given fraction of a level's range. */
+    private static double range(int level, double fraction) {
+        return fraction * AdaptiveDecimation.RANGE_PER_TAG_INCH[level] * TAG;
+    }
+
+    private static void frames(AdaptiveDecimation decimation, int count, double range, double fps) {
+        for (int i = 0; i < count; i++) decimation.update(range, TAG, fps);
+    }
+
+    @Test
+    public void startsAtTheCoarsestLevel() {
+        AdaptiveDecimation decimation = decimation();
+        assertEquals(COARSE, decimation.getLevel());
+        assertEquals(3, decimation.getDecimation(), 0);
+        assertEquals(AdaptiveDecimation.REASON_START, decimation.getReason());
+    }
+
+    @Test
+    public void farTagMovesStraightToTheLevelThatReachesIt() {
+        AdaptiveDecimation decimation = decimation();
+        assertTrue(decimation.update(range(COARSE, 0.9), TAG, FPS));
+        assertEquals(MIDDLE, decimation.getLevel());
+        assertEquals(AdaptiveDecimation.REASON_FAR, decimation.getReason());
+
+        decimation = decimation();
+        assertTrue(decimation.update(range(MIDDLE, 0.9), TAG, FPS));
+        assertEquals(FINE, decimation.getLevel());
+        assertEquals(1, decimation.getSwitchCount());
+    }
+
+    @Test
+    public void closeTagsMoveCoarserAfterSeveralFrames() {
+        AdaptiveDecimation decimation = decimation();
+        decimation.update(range(MIDDLE, 0.9), TAG, FPS);
+        frames(decimation, AdaptiveDecimation.CLOSE_FRAMES - 1, range(MIDDLE, 0.5), FPS);
+        assertEquals(FINE, decimation.getLevel());
+        assertTrue(decimation.update(range(MIDDLE, 0.5), TAG, FPS));
+        assertEquals(MIDDLE, decimation.getLevel());
+        assertEquals(AdaptiveDecimation.REASON_CLOSE, decimation.getReason());
+    }
+
+    @Test
+    public void holdsBetweenTheThresholds() {
+        AdaptiveDecimation decimation = decimation();
+        decimation.update(range(COARSE, 0.9), TAG, FPS);
+        // Too far for the coarse level to take back, too close to need the fine one
+        frames(decimation, 50, range(COARSE, 0.8), FPS);
+        assertEquals(MIDDLE, decimation.getLevel());
+        assertEquals(1, decimation.getSwitchCount());
+    }
+
+    @Test
+    public void missesLookFurther() {
+        AdaptiveDecimation decimation = decimation();
+        frames(decimation, AdaptiveDecimation.MISS_FRAMES - 1, Double.NaN, FPS);
+        assertEquals(COARSE, decimation.getLevel());
+        assertTrue(decimation.update(Double.NaN, TAG, FPS));
+        assertEquals(MIDDLE, decimation.getLevel());
+        assertEquals(AdaptiveDecimation.REASON_MISSES, decimation.getReason());
+    }
+
+    @Test
+    public void leavesASlowLevelAndDoesNotGoBackOnMisses() {
+        AdaptiveDecimation decimation = decimation();
+        decimation.update(range(MIDDLE, 0.9), TAG, FPS);
+        // Tags the middle level still reaches, but not close enough to move there on their own
+        frames(decimation, AdaptiveDecimation.FPS_SETTLE_FRAMES, range(MIDDLE, 0.78), 5);
+        assertEquals(MIDDLE, decimation.getLevel());
+        assertEquals(AdaptiveDecimation.REASON_SLOW, decimation.getReason());
+        assertEquals(5, decimation.getLevelFps(FINE), 0);
+
+        frames(decimation, 3 * AdaptiveDecimation.MISS_FRAMES, Double.NaN, FPS);
+        assertEquals(MIDDLE, decimation.getLevel());
+    }
+
+    @Test
+    public void staysOnASlowLevelTheTagsNeed() {
+        AdaptiveDecimation decimation = decimation();
+        decimation.update(range(MIDDLE, 0.9), TAG, FPS);
+        frames(decimation, 3 * AdaptiveDecimation.FPS_SETTLE_FRAMES, range(MIDDLE, 0.9), 5);
+        assertEquals(FINE, decimation.getLevel());
+        assertFalse(decimation.update(range(MIDDLE, 0.9), TAG, 5));
+    }
+
+    @Test
+    public void furthestTagRatioUsesTheTagSize() {
+        AdaptiveDecimation decimation = decimation();
+        // 90 in is far for a 4 in tag at the coarse level, but close enough for an 8 in tag
+        assertFalse(decimation.update(90, 8, FPS));
+        assertEquals(COARSE, decimation.getLevel());
+        assertTrue(decimation.update(90, 4, FPS));
+        assertEquals(90, decimation.getLastRange(), 0);
+    }
+}
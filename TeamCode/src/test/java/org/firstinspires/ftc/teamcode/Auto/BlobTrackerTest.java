@@ -0,0 +1,187 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import org.firstinspires.ftc.vision.opencv.ColorBlobLocatorProcessor;
+import org.junit.Test;
+import org.opencv.core.Point;
+import org.opencv.core.RotatedRect;
+import org.opencv.core.Size;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BlobTrackerTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final long FRAME_NANOS = 100000000L;
+    private static final double EPSILON = 1e-9;
+
+    /** Window indices: 1 to 9 are the half-size windows row by row, 0 is the whole frame. */
+    private static final int FULL_FRAME = 0;
+    private static final int TOP_LEFT = 1;
+    private static final int MIDDLE_LEFT = 4;
+    private static final int CENTER = 5;
+
+    /** Blobs every window's processor reports for the next frame. */
+    private List<ColorBlobLocatorProcessor.Blob> blobs = Collections.emptyList();
+    private long nanos;
+
+    private BlobTracker tracker(int maxTargets) {
+        BlobTracker tracker = new BlobTracker(roi -> {
+            ColorBlobLocatorProcessor processor = mock(ColorBlobLocatorProcessor.class);
+            when(processor.getBlobs()).thenAnswer(invocation -> blobs);
+            return processor;
+        }, maxTargets);
+        tracker.init(WIDTH, HEIGHT, null);
+        return tracker;
+    }
+
+    private static ColorBlobLocatorProcessor.Blob blob(double x, double y, double size, int area) {
+        ColorBlobLocatorProcessor.Blob blob = mock(ColorBlobLocatorProcessor.Blob.class);
+        when(blob.getBoxFit()).thenReturn(new RotatedRect(new Point(x, y), new Size(size, size), 0));
+        when(blob.getContourArea()).thenReturn(area);
+        return blob;
+    }
+
+    private void see(ColorBlobLocatorProcessor.Blob... seen) {
+        List<ColorBlobLocatorProcessor.Blob> list = new ArrayList<>();
+        Collections.addAll(list, seen);
+        blobs = list;
+    }
+
+    /** Processes one frame, 100 ms after the last one, and returns the window searched. */
+    private int frame(BlobTracker tracker) {
+        nanos += FRAME_NANOS;
+        return (Integer) tracker.processFrame(null, nanos);
+    }
+
+    @Test
+    public void searchesTheWholeFrameWithNothingFollowed() {
+        BlobTracker tracker = tracker(1);
+        assertEquals(14, tracker.getWindowCount());
+        assertEquals(FULL_FRAME, frame(tracker));
+        assertNull(tracker.getTarget());
+        assertEquals(1, tracker.getFullFrameCount());
+    }
+
+    @Test
+    public void searchesTheSmallestWindowAroundThePrediction() {
+        BlobTracker tracker = tracker(1);
+        see(blob(320, 240, 40, 1000));
+        assertEquals(FULL_FRAME, frame(tracker));
+        assertEquals(CENTER, frame(tracker));
+
+        tracker = tracker(1);
+        see(blob(120, 90, 40, 1000));
+        frame(tracker);
+        assertEquals(TOP_LEFT, frame(tracker));
+        assertEquals((1 + 0.25) / 2, tracker.getAverageSearchedArea(), EPSILON);
+    }
+
+    @Test
+    public void filtersPositionAndVelocityWithAlphaBeta() {
+        BlobTracker tracker = tracker(1);
+        see(blob(200, 240, 40, 1000));
+        frame(tracker);
+        see(blob(210, 240, 40, 1000));
+        frame(tracker);
+        // Predicted at 200 with no velocity yet
+        TrackedBlob target = tracker.getTarget();
+        double x = 200 + BlobTracker.ALPHA * 10;
+        double velocity = BlobTracker.BETA * 10 / 0.1;
+        assertEquals(x, target.x, EPSILON);
+        assertEquals(velocity, target.xVelocity, EPSILON);
+
+        see(blob(220, 240, 40, 1000));
+        frame(tracker);
+        double predicted = x + velocity * 0.1;
+        target = tracker.getTarget();
+        assertEquals(predicted + BlobTracker.ALPHA * (220 - predicted), target.x, EPSILON);
+        assertEquals(velocity + BlobTracker.BETA * (220 - predicted) / 0.1, target.xVelocity, EPSILON);
+        assertEquals(0, target.misses);
+    }
+
+    @Test
+    public void ignoresBlobsOutsideTheGate() {
+        BlobTracker tracker = tracker(1);
+        see(blob(200, 240, 40, 1000));
+        frame(tracker);
+        int id = tracker.getTarget().id;
+        // The gate is the box size plus GATE_PIXELS, 60 px here
+        see(blob(200 + 40 + BlobTracker.GATE_PIXELS + 1, 240, 40, 5000));
+        frame(tracker);
+        TrackedBlob target = tracker.getTarget();
+        assertEquals(id, target.id);
+        assertEquals(200, target.x, EPSILON);
+        assertEquals(1, target.misses);
+
+        see(blob(200 + 40 + BlobTracker.GATE_PIXELS - 1, 240, 40, 5000));
+        frame(tracker);
+        assertEquals(id, tracker.getTarget().id);
+        assertEquals(0, tracker.getTarget().misses);
+    }
+
+    @Test
+    public void ignoresBlobsOutsideTheAreaRange() {
+        BlobTracker tracker = tracker(1).setAreaRange(100, 2000);
+        see(blob(200, 240, 40, 50), blob(400, 240, 40, 3000));
+        frame(tracker);
+        assertNull(tracker.getTarget());
+        see(blob(200, 240, 40, 50), blob(400, 240, 40, 1500));
+        frame(tracker);
+        assertEquals(400, tracker.getTarget().x, EPSILON);
+    }
+
+    @Test
+    public void dropsATrackAfterMaxMisses() {
+        BlobTracker tracker = tracker(1);
+        see(blob(320, 240, 40, 1000));
+        frame(tracker);
+        see();
+        for (int i = 1; i <= BlobTracker.MAX_MISSES; i++) {
+            frame(tracker);
+            assertEquals(i, tracker.getTarget().misses);
+        }
+        frame(tracker);
+        assertNull(tracker.getTarget());
+        assertEquals(FULL_FRAME, frame(tracker));
+    }
+
+    @Test
+    public void searchesTheWholeFrameToReacquireADroppedTrack() {
+        BlobTracker tracker = tracker(2);
+        ColorBlobLocatorProcessor.Blob kept = blob(200, 200, 40, 2000);
+        see(kept, blob(260, 200, 40, 1000));
+        frame(tracker);
+        see(kept);
+        for (int i = 0; i <= BlobTracker.MAX_MISSES; i++) frame(tracker);
+        assertEquals(1, tracker.getTargets().size());
+
+        // The other track alone would be searched for in a half-size window
+        for (int i = 0; i < BlobTracker.REACQUIRE_FRAMES; i++) assertEquals(FULL_FRAME, frame(tracker));
+        assertEquals(MIDDLE_LEFT, frame(tracker));
+    }
+
+    @Test
+    public void stopsSearchingTheWholeFrameOnceATrackIsTaken() {
+        BlobTracker tracker = tracker(2);
+        ColorBlobLocatorProcessor.Blob kept = blob(200, 200, 40, 2000);
+        see(kept, blob(260, 200, 40, 1000));
+        frame(tracker);
+        see(kept);
+        for (int i = 0; i <= BlobTracker.MAX_MISSES; i++) frame(tracker);
+
+        assertEquals(FULL_FRAME, frame(tracker));
+        see(kept, blob(240, 200, 40, 1000));
+        assertEquals(FULL_FRAME, frame(tracker));
+        // A new track, not the dropped one
+        assertEquals(2, tracker.getTargets().get(1).id);
+        assertEquals(MIDDLE_LEFT, frame(tracker));
+    }
+}
@@ -0,0 +1,118 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+import org.firstinspires.ftc.teamcode.Sim.SimMotor;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class CachingMotorTest {
+
+    private SimMotor hub;
+    private CachingMotor motor;
+
+    @Before
+    public void setUp() {
+        hub = new SimMotor("test", 537.7, 2800);
+        motor = new CachingMotor(hub);
+    }
+
+    /** Checks the writes that reached the hub and those the proxy dropped since the test started. */
+    private void assertWrites(int sent, int saved) {
+        assertEquals("sent", sent, motor.getSentWrites());
+        assertEquals("reached the hub", sent, hub.getWriteCount());
+        assertEquals("saved", saved, motor.getSavedWrites());
+    }
+
+    @Test
+    public void dropsPowerChangesInsideTheTolerance() {
+        motor.setPower(0.5);
+        motor.setPower(0.5);
+        motor.setPower(0.5 + HardwareCache.POWER_TOLERANCE / 2);
+        assertWrites(1, 2);
+        assertEquals(0.5, hub.getPower(), 0);
+        motor.setPower(0.5 + HardwareCache.POWER_TOLERANCE * 2);
+        assertWrites(2, 2);
+    }
+
+    @Test
+    public void alwaysSendsAChangeToZero() {
+        motor.setPower(HardwareCache.POWER_TOLERANCE / 2);
+        motor.setPower(0);
+        assertWrites(2, 0);
+        assertEquals(0, hub.getPower(), 0);
+        motor.setPower(0);
+        assertWrites(2, 1);
+    }
+
+    @Test
+    public void dropsVelocityChangesInsideTheTolerance() {
+        motor.setVelocity(1000);
+        motor.setVelocity(1000 + HardwareCache.VELOCITY_TOLERANCE / 2);
+        assertWrites(1, 1);
+        motor.setVelocity(1000 + HardwareCache.VELOCITY_TOLERANCE * 2);
+        assertWrites(2, 1);
+    }
+
+    @Test
+    public void usesTheToleranceItIsGiven() {
+        motor.setPowerTolerance(0.05);
+        motor.setPower(0.5);
+        motor.setPower(0.54);
+        assertWrites(1, 1);
+        motor.setPower(0.56);
+        assertWrites(2, 1);
+    }
+
+    @Test
+    public void powerAndVelocityReplaceEachOther() {
+        motor.setPower(0.5);
+        motor.setVelocity(1000);
+        motor.setPower(0.5);
+        motor.setVelocity(1000);
+        assertWrites(4, 0);
+    }
+
+    @Test
+    public void alwaysSendsAnEncoderReset() {
+        motor.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+        motor.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+        assertWrites(1, 1);
+        motor.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+        motor.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+        assertWrites(3, 1);
+    }
+
+    @Test
+    public void resendsPowerAfterAModeChange() {
+        motor.setPower(0.5);
+        motor.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+        motor.setPower(0.5);
+        assertWrites(3, 0);
+    }
+
+    @Test
+    public void resendsTheTargetAfterAnEncoderReset() {
+        motor.setTargetPosition(100);
+        motor.setTargetPosition(100);
+        assertWrites(1, 1);
+        motor.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+        motor.setTargetPosition(100);
+        assertWrites(3, 1);
+        assertEquals(100, hub.getTargetPosition());
+    }
+
+    @Test
+    public void resendsEverythingAfterInvalidate() {
+        motor.setPower(0.5);
+        motor.setMode(DcMotor.RunMode.RUN_TO_POSITION);
+        motor.setTargetPosition(100);
+        motor.invalidate();
+        motor.setPower(0.5);
+        motor.setMode(DcMotor.RunMode.RUN_TO_POSITION);
+        motor.setTargetPosition(100);
+        assertWrites(6, 0);
+    }
+}
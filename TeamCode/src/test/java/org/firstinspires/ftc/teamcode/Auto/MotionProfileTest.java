@@ -0,0 +1,109 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MotionProfileTest {
+
+    private static final double EPSILON = 1e-6;
+    private static final double STEP = 1e-4;
+
+    /**
+     * Samples the whole profile and checks that it stays inside its limits, moves one way only and
+     * ends at rest on the target.
+     */
+    private static void assertFollowsLimits(MotionProfile profile, double distance, double maxVelocity,
+                                            double maxAcceleration, double maxJerk) {
+        double sign = Math.signum(distance);
+        double lastPosition = 0;
+        double lastAcceleration = 0;
+        for (double t = 0; t <= profile.getDuration() + STEP; t += STEP) {
+            double position = profile.getPosition(t);
+            double velocity = profile.getVelocity(t);
+            double acceleration = profile.getAcceleration(t);
+            assertTrue("moves backward at " + t, sign * (position - lastPosition) >= -EPSILON);
+            assertTrue("too fast at " + t + ": " + velocity, Math.abs(velocity) <= maxVelocity + EPSILON);
+            assertTrue("accelerates too hard at " + t, Math.abs(acceleration) <= maxAcceleration + EPSILON);
+            if (maxJerk > 0 && t > 0) {
+                double jerk = (acceleration - lastAcceleration) / STEP;
+                assertTrue("jerk " + jerk + " at " + t, Math.abs(jerk) <= maxJerk * 1.01);
+            }
+            lastPosition = position;
+            lastAcceleration = acceleration;
+        }
+        assertEquals(distance, profile.getPosition(profile.getDuration()), EPSILON);
+        assertEquals(0, profile.getVelocity(profile.getDuration()), 0);
+        assertEquals(0, profile.getVelocity(0), 0);
+    }
+
+    @Test
+    public void trapezoidCruisesAtTheVelocityLimit() {
+        MotionProfile profile = new MotionProfile().set(100, 10, 20, 0);
+        assertEquals(10.5, profile.getDuration(), EPSILON);
+        assertEquals(10, profile.getCruiseVelocity(), EPSILON);
+        assertEquals(10, profile.getDecelerationStart(), EPSILON);
+        assertEquals(2.5, profile.getPosition(0.5), EPSILON);
+        assertEquals(50, profile.getPosition(5.25), EPSILON);
+        assertEquals(20, profile.getAcceleration(0.25), EPSILON);
+        assertEquals(-20, profile.getAcceleration(10.25), EPSILON);
+        assertFollowsLimits(profile, 100, 10, 20, 0);
+    }
+
+    @Test
+    public void shortTrapezoidPeaksBelowTheVelocityLimit() {
+        MotionProfile profile = new MotionProfile().set(1, 10, 4, 0);
+        assertEquals(2, profile.getCruiseVelocity(), EPSILON);
+        assertEquals(1, profile.getDuration(), EPSILON);
+        assertFollowsLimits(profile, 1, 10, 4, 0);
+    }
+
+    @Test
+    public void sCurveLimitsJerk() {
+        MotionProfile profile = new MotionProfile().set(48, 30, 60, 400);
+        assertEquals(30, profile.getCruiseVelocity(), EPSILON);
+        assertEquals(0, profile.getAcceleration(STEP / 2), 400 * STEP);
+        assertFollowsLimits(profile, 48, 30, 60, 400);
+        // Slower to start than the trapezoid with the same limits
+        assertTrue(profile.getDuration() > new MotionProfile().set(48, 30, 60, 0).getDuration());
+    }
+
+    @Test
+    public void shortSCurveUsesTheWholeDistance() {
+        MotionProfile profile = new MotionProfile().set(2, 30, 60, 400);
+        assertTrue(profile.getCruiseVelocity() < 30);
+        assertFollowsLimits(profile, 2, 30, 60, 400);
+    }
+
+    @Test
+    public void negativeDistanceMirrorsThePositiveProfile() {
+        MotionProfile forward = new MotionProfile().set(24, 30, 60, 400);
+        MotionProfile backward = new MotionProfile().set(-24, 30, 60, 400);
+        assertEquals(forward.getDuration(), backward.getDuration(), 0);
+        for (double t = 0; t <= forward.getDuration(); t += 0.01) {
+            assertEquals(-forward.getPosition(t), backward.getPosition(t), EPSILON);
+            assertEquals(-forward.getVelocity(t), backward.getVelocity(t), EPSILON);
+        }
+        assertFollowsLimits(backward, -24, 30, 60, 400);
+    }
+
+    @Test
+    public void zeroDistanceTakesNoTime() {
+        MotionProfile profile = new MotionProfile().set(0, 30, 60, 400);
+        assertEquals(0, profile.getDuration(), 0);
+        assertEquals(0, profile.getPosition(1), 0);
+        assertEquals(0, profile.getVelocity(0.5), 0);
+    }
+
+    @Test
+    public void replanningMatchesAFreshProfile() {
+        MotionProfile reused = new MotionProfile().set(100, 10, 20, 0);
+        reused.set(12, 30, 60, 400);
+        MotionProfile fresh = new MotionProfile().set(12, 30, 60, 400);
+        assertEquals(fresh.getDuration(), reused.getDuration(), 0);
+        for (double t = 0; t <= fresh.getDuration(); t += 0.01) {
+            assertEquals(fresh.getPosition(t), reused.getPosition(t), 0);
+        }
+    }
+}
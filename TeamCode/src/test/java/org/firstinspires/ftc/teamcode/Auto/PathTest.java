@@ -0,0 +1,73 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PathTest {
+
+    private static final double EPSILON = 1e-6;
+
+    /** Waypoints of a smooth S-bend used by the follower benchmark. */
+    private static final double[] BEND = {0, 0, 24, 12, 48, 0};
+
+    @Test
+    public void resamplesEvenlyBetweenTheEndWaypoints() {
+        Path path = Path.line(new double[] {0, 0, 10, 0, 10, 10}, Path.TANGENT_HEADING, 0.5);
+        int last = path.size() - 1;
+        assertEquals(20, path.getLength(), 1e-3);
+        assertEquals((int) Math.ceil(path.getLength() / Path.SPACING_INCHES) + 1, path.size());
+        assertEquals(0, path.getX(0), EPSILON);
+        assertEquals(0, path.getY(0), EPSILON);
+        assertEquals(10, path.getX(last), EPSILON);
+        assertEquals(10, path.getY(last), EPSILON);
+        double spacing = path.getLength() / last;
+        assertTrue(spacing <= Path.SPACING_INCHES);
+        for (int i = 1; i <= last; i++) {
+            assertEquals(spacing, path.getDistance(i) - path.getDistance(i - 1), EPSILON);
+            // Every sample lies on one of the two lines
+            assertTrue("sample " + i + " is off the path",
+                    Math.abs(path.getY(i)) < 1e-3 || Math.abs(path.getX(i) - 10) < 1e-3);
+        }
+        assertEquals(0, path.getTangent(0), EPSILON);
+        assertEquals(Math.PI / 2, path.getTangent(last), EPSILON);
+    }
+
+    @Test
+    public void slowsDownWhereThePathCurves() {
+        Path path = Path.spline(BEND, Path.TANGENT_HEADING, 1.0);
+        double cruise = DriveBase.MAX_INCHES_PER_SECOND;
+        boolean limitedByCurve = false;
+        for (int i = 0; i < path.size(); i++) {
+            double speed = path.getSpeed(i);
+            assertTrue("faster than cruise at " + i, speed <= cruise + EPSILON);
+            double curvature = Math.abs(path.getCurvature(i));
+            if (curvature > 0) {
+                double limit = Math.sqrt(Path.MAX_CENTRIPETAL_ACCELERATION / curvature);
+                assertTrue("too fast for the curve at " + i + ": " + speed, speed <= limit + EPSILON);
+                if (limit < cruise) limitedByCurve = true;
+            }
+        }
+        assertTrue("the bend never limits the speed", limitedByCurve);
+
+        // A sharp corner slows the robot far below cruise
+        Path corner = Path.line(new double[] {0, 0, 24, 0, 24, 24}, Path.TANGENT_HEADING, 1.0);
+        int middle = (corner.size() - 1) / 2;
+        assertTrue(corner.getSpeed(middle) < 0.5 * cruise);
+    }
+
+    @Test
+    public void canStopAtTheEnd() {
+        Path path = Path.spline(BEND, Path.TANGENT_HEADING, 1.0);
+        int last = path.size() - 1;
+        assertEquals(0, path.getSpeed(last), 0);
+        for (int i = 0; i < last; i++) {
+            double ds = path.getDistance(i + 1) - path.getDistance(i);
+            double next = path.getSpeed(i + 1);
+            assertTrue("cannot slow down in time at " + i,
+                    path.getSpeed(i) * path.getSpeed(i) <= next * next + 2 * DriveBase.MAX_ACCELERATION * ds + EPSILON);
+        }
+        assertTrue(path.getDuration() > path.getLength() / DriveBase.MAX_INCHES_PER_SECOND);
+    }
+}
@@ -0,0 +1,139 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScriptCompilerTest {
+
+    private static CompiledScript compile(String source) {
+        CompiledScript script = ScriptCompiler.compile("Test", source);
+        assertFalse("unexpected errors: " + script.getErrors(), script.hasErrors());
+        return script;
+    }
+
+    private static void assertError(String source, String error) {
+        CompiledScript script = ScriptCompiler.compile("Test", source);
+        assertTrue("expected \"" + error + "\" in " + script.getErrors(), script.getErrors().contains(error));
+    }
+
+    @Test
+    public void foldsDirectionsIntoTheOperandSign() {
+        CompiledScript script = compile("move forward 10\nmove backward 5\nturn left 90\nstrafe right 2.5\n"
+                + "diagonal left_backward 4\n");
+        assertArrayEquals(new int[] {Opcode.DRIVE, Opcode.DRIVE, Opcode.TURN, Opcode.STRAFE, Opcode.DIAGONAL_LEFT},
+                script.ops);
+        assertEquals(10, script.args[0], 0);
+        assertEquals(-5, script.args[1], 0);
+        assertEquals(-90, script.args[2], 0);
+        assertEquals(2.5, script.args[3], 0);
+        assertEquals(-4, script.args[4], 0);
+    }
+
+    @Test
+    public void keepsSourceLinesAndSkipsCommentsAndBlankLines() {
+        CompiledScript script = compile("// start\n\nservo claw 0.8\n  wait 250  \nmotor arm power -0.5\n");
+        assertArrayEquals(new int[] {3, 4, 5}, script.lines);
+        assertEquals("claw", script.texts[0]);
+        assertEquals(250, script.args[1], 0);
+        assertEquals(Opcode.MOTOR_POWER, script.ops[2]);
+        assertEquals("arm", script.texts[2]);
+    }
+
+    @Test
+    public void reportsEveryBadLineWithItsNumber() {
+        CompiledScript script = ScriptCompiler.compile("Test",
+                "move sideways 10\nwait -1\nservo claw 1.5\njump 3\nmove forward ten\n");
+        assertEquals(Arrays.asList(
+                "line 1: expected forward or backward but got: sideways",
+                "line 2: wait time cannot be negative: -1",
+                "line 3: servo position must be between 0.0 and 1.0: 1.5",
+                "line 4: unknown command: jump",
+                "line 5: not a number: ten"), script.getErrors());
+    }
+
+    @Test
+    public void movesAMechanismByName() {
+        CompiledScript script = compile("slide up 20\nslide down 20\n");
+        assertArrayEquals(new int[] {Opcode.MOTOR_MOVE, Opcode.MOTOR_MOVE}, script.ops);
+        assertEquals("slide", script.texts[0]);
+        assertEquals(20, script.args[0], 0);
+        assertEquals(-20, script.args[1], 0);
+        assertError("elevator up 20\n", "line 1: unknown command: elevator");
+    }
+
+    @Test
+    public void samplesPathsWhenCompiling() {
+        CompiledScript script = compile("path spline 0 0 24 12 48 0\npath line 0 0 10 0\nmove forward 5\n");
+        assertArrayEquals(new int[] {Opcode.PATH_SPLINE, Opcode.PATH_LINE, Opcode.DRIVE}, script.ops);
+        assertEquals(48, script.paths[0].getX(script.paths[0].size() - 1), 1e-6);
+        assertEquals(10, script.paths[1].getLength(), 1e-6);
+        assertEquals(null, script.paths[2]);
+        assertError("path curve 0 0 1 1\n", "line 1: expected line or spline but got: curve");
+        assertError("path line 0 0 1 1 2\n", "line 1: path waypoints must be x y pairs");
+        assertError("path line 0 0 $x 1\n", "line 1: path waypoints must be numbers: $x");
+        assertError("path line 0 0\n", "line 1: path needs 5 argument(s)");
+        assertError("parallel {\npath line 0 0 10 0\nmove forward 5\n}\n",
+                "line 3: only one drivetrain command can run in a parallel block");
+    }
+
+    @Test
+    public void compilesTheBuiltInScripts() {
+        compile(AutoScript.SQUARE);
+        compile(AutoScript.SLIDE_UP);
+    }
+
+    @Test
+    public void jumpsOverFunctionBodiesAndResolvesCalls() {
+        CompiledScript script = compile("func side\nmove forward 10\nfunc end\ncall side\nstop\n");
+        assertArrayEquals(new int[] {Opcode.JUMP, Opcode.DRIVE, Opcode.RETURN, Opcode.CALL, Opcode.STOP}, script.ops);
+        assertEquals(3, script.targets[0]);
+        assertEquals(1, script.targets[3]);
+        assertError("call missing\n", "line 1: call to unknown func: missing");
+        assertError("func a\nfunc b\n", "line 2: func b cannot be defined inside another func");
+        assertError("func a\nstop\n", "line 1: func a is never closed");
+    }
+
+    @Test
+    public void linksRepeatBlocks() {
+        CompiledScript script = compile("repeat 3\nturn right 90\nrepeat end\n");
+        assertArrayEquals(new int[] {Opcode.REPEAT, Opcode.TURN, Opcode.REPEAT_END}, script.ops);
+        assertEquals(3, script.args[0], 0);
+        assertEquals(3, script.targets[0]);
+        assertEquals(1, script.targets[2]);
+        assertError("repeat 1.5\nrepeat end\n", "line 1: repeat count must be a whole number: 1.5");
+        assertError("repeat end\n", "line 1: repeat end without matching repeat");
+    }
+
+    @Test
+    public void readsVariablesWithTheirSign() {
+        CompiledScript script = compile("set d 24\nmove backward $d\nadd d -6\n");
+        assertEquals(1, script.variableNames.length);
+        assertEquals(Opcode.SET, script.ops[0]);
+        assertEquals(0, script.targets[0]);
+        assertEquals(0, script.argVars[1]);
+        assertEquals(-1, script.args[1], 0);
+        assertEquals(-1, script.argVars[2]);
+        assertError("move forward $d\n", "line 1: variable d is never set");
+        assertError("move forward $1d\n", "line 1: bad variable name: $1d");
+    }
+
+    @Test
+    public void checksConcurrentBlocks() {
+        compile("parallel {\nmove forward 10\nmotor arm move 6\nservo claw 0.8\n}\n");
+        assertError("race {\nmove forward 10\nturn left 90\n}\n",
+                "line 3: only one drivetrain command can run in a race block");
+        assertError("parallel {\nmotor arm move 6\nmotor arm stop\n}\n", "line 3: motor arm is used twice in one block");
+        assertError("parallel {\n}\n", "line 2: parallel block is empty");
+        assertError("parallel {\nrace {\n", "line 2: race blocks cannot be nested");
+        // The rejected block's } closes it, so the outer block still ends at its own }
+        CompiledScript script = ScriptCompiler.compile("Test",
+                "parallel {\nrace {\nwait 10\n}\nwait 20\n}\nmove forward 10\n");
+        assertEquals(Arrays.asList("line 2: race blocks cannot be nested"), script.getErrors());
+    }
+}
@@ -0,0 +1,102 @@
+package org.firstinspires.ftc.teamcode.Auto;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VisionFusionTest {
+
+    private static final double EPSILON = 1e-9;
+    private static final long MS = 1000000L;
+
+    /** Records odometry driving along x at 10 in/s, one reading every 10 ms from 0 to 1 s. */
+    private static VisionFusion drivingForward() {
+        VisionFusion fusion = new VisionFusion();
+        for (int i = 0; i <= 100; i++) fusion.record(i * 10 * MS, i * 0.1, 0, 0);
+        return fusion;
+    }
+
+    @Test
+    public void appliesAFixAtItsCaptureTimeNotOnArrival() {
+        VisionFusion fusion = drivingForward();
+        // The camera saw the robot 2 in further along than odometry, 300 ms ago, at odometry x = 7
+        assertTrue(fusion.addFix(700 * MS, 9, 0, 0, 1));
+        // The 3 in driven since the capture are kept
+        assertEquals(12, fusion.fusedX(10, 0), EPSILON);
+        assertEquals(0, fusion.fusedY(10, 0), EPSILON);
+        assertEquals(0, fusion.fusedHeading(0), EPSILON);
+    }
+
+    @Test
+    public void interpolatesOdometryBetweenReadings() {
+        VisionFusion fusion = drivingForward();
+        // Halfway between the readings at 700 ms and 710 ms, odometry was at x = 7.05
+        fusion.addFix(705 * MS, 7.05, 1, 0, 1);
+        assertEquals(10, fusion.fusedX(10, 0), EPSILON);
+        assertEquals(1, fusion.fusedY(10, 0), EPSILON);
+    }
+
+    @Test
+    public void replaysTheMotionSinceTheCaptureInTheCorrectedHeading() {
+        VisionFusion fusion = drivingForward();
+        // The robot was really facing +y at odometry x = 5, so it has since driven 5 in along +y
+        fusion.addFix(500 * MS, 5, 0, Math.PI / 2, 1);
+        assertEquals(5, fusion.fusedX(10, 0), EPSILON);
+        assertEquals(5, fusion.fusedY(10, 0), EPSILON);
+        assertEquals(Math.PI / 2, fusion.fusedHeading(0), EPSILON);
+        assertEquals(Math.PI / 2, fusion.getCorrectionHeading(), EPSILON);
+    }
+
+    @Test
+    public void movesPartWayByTheWeight() {
+        VisionFusion fusion = drivingForward();
+        fusion.addFix(700 * MS, 9, 0, 0, 0.25);
+        assertEquals(10.5, fusion.fusedX(10, 0), EPSILON);
+        fusion.addFix(800 * MS, 0, 0, 0, 0);
+        assertEquals(10.5, fusion.fusedX(10, 0), EPSILON);
+    }
+
+    @Test
+    public void resultDoesNotDependOnArrivalOrder() {
+        VisionFusion inOrder = drivingForward();
+        inOrder.addFix(400 * MS, 4.5, 0.2, 0.05, 0.5);
+        inOrder.addFix(600 * MS, 6.3, -0.4, -0.02, 0.5);
+        inOrder.addFix(800 * MS, 8.1, 0.1, 0.03, 0.5);
+
+        VisionFusion late = drivingForward();
+        late.addFix(800 * MS, 8.1, 0.1, 0.03, 0.5);
+        late.addFix(400 * MS, 4.5, 0.2, 0.05, 0.5);
+        late.addFix(600 * MS, 6.3, -0.4, -0.02, 0.5);
+
+        assertEquals(inOrder.fusedX(10, 0), late.fusedX(10, 0), EPSILON);
+        assertEquals(inOrder.fusedY(10, 0), late.fusedY(10, 0), EPSILON);
+        assertEquals(inOrder.fusedHeading(0), late.fusedHeading(0), EPSILON);
+        assertEquals(3, late.getAppliedCount());
+    }
+
+    @Test
+    public void dropsFixesOlderThanTheHistory() {
+        VisionFusion fusion = new VisionFusion();
+        assertFalse(fusion.addFix(0, 1, 1, 0, 1));
+        // Only the last HISTORY_CAPACITY readings are kept
+        for (int i = 0; i < VisionFusion.HISTORY_CAPACITY + 10; i++) fusion.record(i * 10 * MS, i * 0.1, 0, 0);
+        assertFalse(fusion.addFix(50 * MS, 1, 1, 0, 1));
+        assertEquals(2, fusion.getDroppedCount());
+        assertEquals(0, fusion.getAppliedCount());
+        assertEquals(10, fusion.fusedX(10, 0), EPSILON);
+        assertTrue(fusion.addFix(100 * MS, 2, 0, 0, 1));
+    }
+
+    @Test
+    public void resetForgetsTheCorrection() {
+        VisionFusion fusion = drivingForward();
+        fusion.addFix(700 * MS, 9, 3, 0.5, 1);
+        fusion.reset();
+        assertEquals(10, fusion.fusedX(10, 0), EPSILON);
+        assertEquals(0, fusion.fusedY(10, 0), EPSILON);
+        assertEquals(0, fusion.fusedHeading(0), EPSILON);
+        assertFalse(fusion.addFix(700 * MS, 9, 3, 0.5, 1));
+    }
+}
@@ -0,0 +1,173 @@
+package org.firstinspires.ftc.teamcode.Sim;
+
+import org.firstinspires.ftc.teamcode.Auto.AutoScript;
+import org.firstinspires.ftc.teamcode.Auto.Commands;
+import org.firstinspires.ftc.teamcode.Auto.CompiledScript;
+import org.firstinspires.ftc.teamcode.Auto.DriveBase;
+import org.firstinspires.ftc.teamcode.Auto.HardwareCache;
+import org.firstinspires.ftc.teamcode.Auto.HardwareRegistry;
+import org.firstinspires.ftc.teamcode.Auto.LoopTimer;
+import org.firstinspires.ftc.teamcode.Auto.MecanumOdometry;
+import org.firstinspires.ftc.teamcode.Auto.Pose;
+import org.firstinspires.ftc.teamcode.Auto.PoseEstimator;
+import org.firstinspires.ftc.teamcode.Auto.RuntimeEstimator;
+import org.firstinspires.ftc.teamcode.Auto.ScriptCompiler;
+import org.firstinspires.ftc.teamcode.Auto.ScriptInterpreter;
+import org.firstinspires.ftc.teamcode.Auto.ScriptLibrary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runs AutoScripts on a SimRobot from the desktop, without a robot or the Robot Controller app.
+ *
+ * The real DriveBase, ScriptInterpreter and script commands run against simulated motors on a
+ * simulated clock, so a whole autonomous takes milliseconds. For each script it prints the
+ * simulated run time, the RuntimeEstimator prediction and the end pose, and the process exits
+ * with status 1 if any script fails to compile, fails at run time or does not finish within
+ * {@link RuntimeEstimator#AUTONOMOUS_SECONDS}.
+ *
+ * Usage: AutoSimulator [script file [script name ...]]
+ * With no arguments the built-in scripts in AutoScript are run. A file is split on "#Name"
+ * headers like the files in ScriptLibrary.SCRIPT_DIR.
+ */
+public class AutoSimulator {
+
+    /** Runs that have not finished after this much simulated time are stopped. */
+    public static final double TIME_LIMIT_SECONDS = 60.0;
+
+    /**
+     * Result of simulating one script.
+     */
+    public static class Result {
+        public final String name;
+        public final double seconds;
+        public final double estimatedSeconds;
+        public final double x;
+        public final double y;
+        public final double heading;
+        /** Pose tracked by the drive encoder odometry, in its own axes (y left, heading counter-clockwise). */
+        public final Pose odometry;
+        /** Motor and servo writes that reached the simulated hub, and those the caching proxies dropped. */
+        public final long sentWrites;
+        public final long savedWrites;
+        public final String error;
+
+        Result(String name, double seconds, double estimatedSeconds, SimRobot robot, Pose odometry, String error) {
+            this.name = name;
+            this.seconds = seconds;
+            this.estimatedSeconds = estimatedSeconds;
+            this.x = robot.getX();
+            this.y = robot.getY();
+            this.heading = robot.getHeading();
+            this.odometry = odometry;
+            this.sentWrites = HardwareCache.getSentWrites(robot.getHardwareMap());
+            this.savedWrites = HardwareCache.getSavedWrites(robot.getHardwareMap());
+            this.error = error;
+        }
+
+        /**
+         * @return true if the script ran without errors inside the autonomous period
+         */
+        public boolean passed() {
+            return error == null && seconds <= RuntimeEstimator.AUTONOMOUS_SECONDS;
+        }
+
+        @Override
+        public String toString() {
+            // Odometry is shown in the simulator's axes so the two poses can be compared
+            return String.format("%s: %.2f s (estimated %.2f s), end pose x=%.1f in y=%.1f in heading=%.1f deg"
+                            + ", odometry x=%.1f in y=%.1f in heading=%.1f deg, %d writes (%d saved)%s",
+                    name, seconds, estimatedSeconds, x, y, heading,
+                    odometry.x, -odometry.y, -odometry.getHeadingDegrees(), sentWrites, savedWrites,
+                    error == null ? "" : ", " + error);
+        }
+    }
+
+    /**
+     * Simulates one script on a fresh robot.
+     *
+     * @param script Compiled script without errors
+     * @param stepSeconds Simulated control cycle
+     * @return timing and end pose
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public static Result simulate(CompiledScript script, double stepSeconds) throws InterruptedException {
+        LoopTimer.resetAll();
+        SimRobot robot = new SimRobot();
+        robot.addDevicesFor(script);
+        SimHost host = new SimHost(robot, stepSeconds, TIME_LIMIT_SECONDS, System.out);
+
+        ScriptInterpreter interpreter = new ScriptInterpreter();
+        DriveBase driveBase = new DriveBase(robot.getHardwareMap());
+        PoseEstimator poseEstimator = new PoseEstimator(new MecanumOdometry(driveBase));
+        poseEstimator.setClock(host::nanoTime);
+        HardwareRegistry registry = new HardwareRegistry(robot.getHardwareMap());
+        host.setOnCycle(() -> {
+            poseEstimator.update();
+            registry.updateHolds();
+        });
+        Commands.register(interpreter, driveBase, host, registry, poseEstimator);
+        registry.resolve(script);
+        interpreter.run(script, host);
+        driveBase.stop();
+        registry.stopAll();
+
+        String error = interpreter.getError();
+        if (error == null && host.isTimedOut()) error = "stopped after " + TIME_LIMIT_SECONDS + " s";
+        return new Result(script.name, host.getSeconds(), new RuntimeEstimator(script).getTotalSeconds(), robot,
+                poseEstimator.getPose(), error);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> sources = new LinkedHashMap<>();
+        if (args.length == 0) {
+            sources.put("Square", AutoScript.SQUARE);
+            sources.put("SlideUp", AutoScript.SLIDE_UP);
+        } else {
+            File file = new File(args[0]);
+            String fileName = file.getName();
+            String defaultName = fileName.endsWith(ScriptLibrary.SCRIPT_EXTENSION)
+                    ? fileName.substring(0, fileName.length() - ScriptLibrary.SCRIPT_EXTENSION.length())
+                    : fileName;
+            Map<String, String> all = ScriptLibrary.split(defaultName, ScriptLibrary.readFile(file));
+            if (args.length == 1) {
+                sources.putAll(all);
+            } else {
+                for (int i = 1; i < args.length; i++) {
+                    if (!all.containsKey(args[i])) {
+                        System.out.println(args[i] + ": no such script in " + fileName);
+                        System.exit(1);
+                    }
+                    sources.put(args[i], all.get(args[i]));
+                }
+            }
+        }
+
+        boolean passed = true;
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            CompiledScript script = ScriptCompiler.compile(source.getKey(), source.getValue());
+            if (script.hasErrors()) {
+                System.out.println(script.name + ": " + script.getErrors().size() + " compile error(s)");
+                for (String error : script.getErrors()) System.out.println("  " + error);
+                passed = false;
+                continue;
+            }
+            long start = System.nanoTime();
+            Result result = simulate(script, SimHost.DEFAULT_STEP_SECONDS);
+            double wallMillis = (System.nanoTime() - start) / 1e6;
+            System.out.println(result + String.format(" [%.0f ms wall]", wallMillis));
+            // Desktop compute time per simulated cycle; periods include stepping the simulation
+            for (LoopTimer timer : LoopTimer.getAll()) {
+                for (String line : timer.report()) System.out.println("  " + line);
+            }
+            if (!result.passed()) {
+                if (result.error == null) System.out.println("  !! does not fit in autonomous");
+                passed = false;
+            }
+        }
+        System.exit(passed ? 0 : 1);
+    }
+}
@@ -0,0 +1,143 @@
+package org.firstinspires.ftc.teamcode.Sim;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Small JMH-style micro-benchmark harness that runs on a desktop JVM.
+ *
+ * Each benchmark is warmed up, then timed over several measurement rounds; the median round
+ * gives ns/op. Allocated bytes per op come from the HotSpot per-thread allocation counter,
+ * which is looked up reflectively because java.lang.management does not exist on Android.
+ * Results of the benchmarked code are fed into {@link #consume(long)} so the JIT cannot drop it.
+ */
+public class Benchmark {
+
+    /** Code under test. One call runs {@code opsPerCall} operations. */
+    public interface Body {
+        /**
+         * @return any value derived from the work done, passed to {@link #consume(long)}
+         */
+        long run() throws Exception;
+    }
+
+    /** Measured cost of one benchmark. */
+    public static class Result {
+        public final String name;
+        public final double nanosPerOp;
+        /** Allocated bytes per op, or NaN if the JVM cannot count allocations. */
+        public final double bytesPerOp;
+
+        Result(String name, double nanosPerOp, double bytesPerOp) {
+            this.name = name;
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            String bytes = Double.isNaN(bytesPerOp) ? "n/a" : String.format("%.1f", bytesPerOp);
+            return String.format("%-34s %12.1f ns/op %10s B/op", name, nanosPerOp, bytes);
+        }
+    }
+
+    private static volatile long sink;
+
+    private final long warmupNanos;
+    private final long roundNanos;
+    private final int rounds;
+
+    private final Object threadBean;
+    private final Method allocatedBytes;
+    private final long allocationOverhead;
+
+    /**
+     * @param warmupMillis Time spent running each benchmark before measuring
+     * @param roundMillis Approximate length of each measurement round
+     * @param rounds Number of measurement rounds
+     */
+    public Benchmark(long warmupMillis, long roundMillis, int rounds) {
+        this.warmupNanos = warmupMillis * 1000000L;
+        this.roundNanos = roundMillis * 1000000L;
+        this.rounds = rounds;
+
+        Object bean = null;
+        Method method = null;
+        try {
+            bean = Class.forName("java.lang.management.ManagementFactory")
+                    .getMethod("getThreadMXBean").invoke(null);
+            method = Class.forName("com.sun.management.ThreadMXBean").getMethod("getThreadAllocatedBytes", long.class);
+        } catch (Exception e) {
+            // Not HotSpot or not a desktop JVM: only time is reported
+            bean = null;
+            method = null;
+        }
+        this.threadBean = bean;
+        this.allocatedBytes = method;
+
+        // Reading the counter reflectively allocates a little by itself; measure that once
+        long overhead = 0;
+        if (method != null) {
+            long before = allocatedBytes();
+            for (int i = 0; i < 1000; i++) allocatedBytes();
+            overhead = (allocatedBytes() - before) / 1001;
+        }
+        this.allocationOverhead = overhead;
+    }
+
+    /**
+     * Keeps a value alive so the computation producing it is not optimized away.
+     *
+     * @param value Result of benchmarked work
+     */
+    public static void consume(long value) {
+        sink += value;
+    }
+
+    /**
+     * Warms up and measures one benchmark.
+     *
+     * @param name Label for the report
+     * @param opsPerCall Number of operations one call to the body performs
+     * @param body Code under test
+     * @return timing and allocation per operation
+     * @throws Exception if the body throws
+     */
+    public Result measure(String name, int opsPerCall, Body body) throws Exception {
+        // Warm up and find how many calls fill one round
+        long calls = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            consume(body.run());
+            calls++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < warmupNanos);
+        long callsPerRound = Math.max(1, calls * roundNanos / Math.max(1, elapsed));
+
+        double[] nanos = new double[rounds];
+        long bytes = 0;
+        long totalCalls = 0;
+        for (int round = 0; round < rounds; round++) {
+            long allocatedBefore = allocatedBytes();
+            long roundStart = System.nanoTime();
+            for (long i = 0; i < callsPerRound; i++) consume(body.run());
+            long roundNanos = System.nanoTime() - roundStart;
+            bytes += allocatedBytes() - allocatedBefore - allocationOverhead;
+            totalCalls += callsPerRound;
+            nanos[round] = (double) roundNanos / (callsPerRound * opsPerCall);
+        }
+        Arrays.sort(nanos);
+        double bytesPerOp = allocatedBytes == null ? Double.NaN : Math.max(0, (double) bytes / (totalCalls * opsPerCall));
+        return new Result(name, nanos[rounds / 2], bytesPerOp);
+    }
+
+    private long allocatedBytes() {
+        if (allocatedBytes == null) return 0;
+        try {
+            return (Long) allocatedBytes.invoke(threadBean, Thread.currentThread().getId());
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package org.firstinspires.ftc.teamcode.Sim;
+
+import org.firstinspires.ftc.teamcode.Auto.DriveBase;
+import org.firstinspires.ftc.teamcode.Auto.DriveCharacterization;
+import org.firstinspires.ftc.teamcode.Auto.Feedforward;
+import org.firstinspires.ftc.teamcode.Auto.MovePlan;
+import org.firstinspires.ftc.teamcode.Auto.ScriptLibrary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Fits kS, kV and kA for each drive axis from the CSV logged by the CharacterizeDrive OpMode.
+ *
+ * Every sample moving faster than {@link #MIN_VELOCITY} is used in one least-squares fit of
+ * volts = kS * sign(v) + kV * v + kA * a. The quasistatic samples pin down kS and kV, and the
+ * step samples, where acceleration is large, pin down kA. The result is printed ready to paste
+ * over the Feedforward constants in DriveBase.
+ *
+ * Usage: FeedforwardFitter drive-log.csv [more logs ...]
+ *        FeedforwardFitter --sim
+ * With --sim the tests are run on a SimRobot first, which checks the fitter against the gains
+ * the simulated motors actually have.
+ */
+public class FeedforwardFitter {
+
+    /** Slower samples are left out; static friction makes them unreliable. */
+    public static final double MIN_VELOCITY = 1.0;
+
+    /** DriveBase constant each axis's gains belong in, by MovePlan axis. */
+    private static final String[] CONSTANT_NAMES = {"DRIVE_FEEDFORWARD", "STRAFE_FEEDFORWARD", "TURN_FEEDFORWARD"};
+
+    /**
+     * Gains fitted for one axis.
+     */
+    public static class Fit {
+        public final Feedforward feedforward;
+        /** Fraction of the voltage variation the model explains, 1 for a perfect fit. */
+        public final double rSquared;
+        public final int samples;
+
+        Fit(Feedforward feedforward, double rSquared, int samples) {
+            this.feedforward = feedforward;
+            this.rSquared = rSquared;
+            this.samples = samples;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("kS=%.4f V  kV=%.5f V/(in/s)  kA=%.5f V/(in/s^2)  R^2=%.4f  (%d samples)",
+                    feedforward.kS, feedforward.kV, feedforward.kA, rSquared, samples);
+        }
+    }
+
+    /**
+     * Fits volts = kS * sign(v) + kV * v + kA * a by least squares.
+     *
+     * @param volts Applied voltage per sample
+     * @param velocities Measured velocity per sample
+     * @param accelerations Measured acceleration per sample
+     * @param count Number of samples to use from the start of the arrays
+     * @return the fit, or null if there are too few moving samples
+     */
+    public static Fit fit(double[] volts, double[] velocities, double[] accelerations, int count) {
+        // Normal equations of the three-column regression
+        double[][] normal = new double[3][4];
+        int used = 0;
+        double sum = 0;
+        double sumSquares = 0;
+        for (int i = 0; i < count; i++) {
+            if (Math.abs(velocities[i]) < MIN_VELOCITY) continue;
+            double[] row = {Math.signum(velocities[i]), velocities[i], accelerations[i]};
+            for (int r = 0; r < 3; r++) {
+                for (int c = 0; c < 3; c++) normal[r][c] += row[r] * row[c];
+                normal[r][3] += row[r] * volts[i];
+            }
+            sum += volts[i];
+            sumSquares += volts[i] * volts[i];
+            used++;
+        }
+        if (used < 3) return null;
+        double[] gains = solve(normal);
+        if (gains == null) return null;
+        Feedforward feedforward = new Feedforward(gains[0], gains[1], gains[2]);
+
+        double residualSquares = 0;
+        for (int i = 0; i < count; i++) {
+            if (Math.abs(velocities[i]) < MIN_VELOCITY) continue;
+            double residual = volts[i] - feedforward.volts(velocities[i], accelerations[i]);
+            residualSquares += residual * residual;
+        }
+        double totalSquares = sumSquares - sum * sum / used;
+        return new Fit(feedforward, totalSquares > 0 ? 1 - residualSquares / totalSquares : 1, used);
+    }
+
+    /** Solves a 3x3 system given as an augmented matrix, by Gaussian elimination with pivoting. */
+    private static double[] solve(double[][] m) {
+        int n = 3;
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            for (int r = col + 1; r < n; r++) {
+                if (Math.abs(m[r][col]) > Math.abs(m[pivot][col])) pivot = r;
+            }
+            if (Math.abs(m[pivot][col]) < 1e-12) return null;
+            double[] swap = m[col];
+            m[col] = m[pivot];
+            m[pivot] = swap;
+            for (int r = 0; r < n; r++) {
+                if (r == col) continue;
+                double factor = m[r][col] / m[col][col];
+                for (int c = col; c <= n; c++) m[r][c] -= factor * m[col][c];
+            }
+        }
+        double[] x = new double[n];
+        for (int r = 0; r < n; r++) x[r] = m[r][n] / m[r][r];
+        return x;
+    }
+
+    /**
+     * Fits every axis found in a log.
+     *
+     * @param csv Log text, with the header from DriveCharacterization.CSV_HEADER
+     * @return fit per axis name, in MovePlan axis order, leaving out axes that could not be fitted
+     * @throws IOException if the log is not in the expected format
+     */
+    public static Map<String, Fit> fitAll(String csv) throws IOException {
+        Map<String, List<double[]>> byAxis = new LinkedHashMap<>();
+        for (String axis : DriveCharacterization.AXIS_NAMES) byAxis.put(axis, new ArrayList<>());
+        String[] lines = csv.split("\r?\n");
+        for (int n = 0; n < lines.length; n++) {
+            String line = lines[n].trim();
+            if (line.isEmpty() || line.equals(DriveCharacterization.CSV_HEADER)) continue;
+            String[] fields = line.split(",");
+            List<double[]> rows = byAxis.get(fields[0]);
+            if (fields.length != 7 || rows == null) {
+                throw new IOException("line " + (n + 1) + ": not a characterization sample: " + line);
+            }
+            try {
+                // volts, velocity, acceleration
+                rows.add(new double[] {Double.parseDouble(fields[3]), Double.parseDouble(fields[5]),
+                        Double.parseDouble(fields[6])});
+            } catch (NumberFormatException e) {
+                throw new IOException("line " + (n + 1) + ": " + e.getMessage());
+            }
+        }
+
+        Map<String, Fit> fits = new LinkedHashMap<>();
+        for (Map.Entry<String, List<double[]>> axis : byAxis.entrySet()) {
+            List<double[]> rows = axis.getValue();
+            double[] volts = new double[rows.size()];
+            double[] velocities = new double[rows.size()];
+            double[] accelerations = new double[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                volts[i] = rows.get(i)[0];
+                velocities[i] = rows.get(i)[1];
+                accelerations[i] = rows.get(i)[2];
+            }
+            Fit fit = fit(volts, velocities, accelerations, rows.size());
+            if (fit != null) fits.put(axis.getKey(), fit);
+        }
+        return fits;
+    }
+
+    /**
+     * Runs every characterization test on a fresh SimRobot.
+     *
+     * @return the log, as CharacterizeDrive would have written it
+     */
+    public static String simulate() {
+        SimRobot robot = new SimRobot();
+        SimHost host = new SimHost(robot, SimHost.DEFAULT_STEP_SECONDS, Double.MAX_VALUE, System.out);
+        DriveBase driveBase = new DriveBase(robot.getHardwareMap());
+        DriveCharacterization characterization = new DriveCharacterization(driveBase, host);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes);
+        out.println(DriveCharacterization.CSV_HEADER);
+        for (int axis : new int[] {MovePlan.AXIS_DRIVE, MovePlan.AXIS_STRAFE, MovePlan.AXIS_TURN}) {
+            for (int test : new int[] {DriveCharacterization.TEST_QUASISTATIC, DriveCharacterization.TEST_STEP}) {
+                for (int direction : new int[] {1, -1}) {
+                    characterization.run(axis, test, direction);
+                    characterization.writeCsv(out);
+                    // Let the robot stop between tests, as the driver would
+                    for (int i = 0; i < 100; i++) host.idle();
+                }
+            }
+        }
+        out.flush();
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: FeedforwardFitter drive-log.csv [more logs ...]");
+            System.out.println("       FeedforwardFitter --sim");
+            System.exit(2);
+        }
+        StringBuilder csv = new StringBuilder();
+        if (args[0].equals("--sim")) {
+            csv.append(simulate());
+            // The simulated motors reach free speed at full power with a first-order lag
+            double kV = DriveBase.NOMINAL_VOLTAGE / DriveBase.MAX_INCHES_PER_SECOND;
+            System.out.printf("simulated motors: kS=0 kV=%.5f kA=%.5f%n", kV, kV * new SimMotor("", 1, 1).timeConstant);
+        } else {
+            for (String arg : args) csv.append(ScriptLibrary.readFile(new File(arg))).append('\n');
+        }
+
+        Map<String, Fit> fits = fitAll(csv.toString());
+        if (fits.isEmpty()) {
+            System.out.println("No axis had enough moving samples to fit");
+            System.exit(1);
+        }
+        for (Map.Entry<String, Fit> fit : fits.entrySet()) {
+            System.out.println(fit.getKey() + ": " + fit.getValue());
+        }
+        System.out.println();
+        System.out.println("In DriveBase:");
+        for (int axis = 0; axis < DriveCharacterization.AXIS_NAMES.length; axis++) {
+            Fit fit = fits.get(DriveCharacterization.AXIS_NAMES[axis]);
+            if (fit == null) continue;
+            System.out.printf(Locale.US, "    public static final Feedforward %s = new Feedforward(%.4f, %.5f, %.5f);%n",
+                    CONSTANT_NAMES[axis], fit.feedforward.kS, fit.feedforward.kV, fit.feedforward.kA);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package org.firstinspires.ftc.teamcode.Sim;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+import org.firstinspires.ftc.teamcode.Auto.DriveBase;
+import org.firstinspires.ftc.teamcode.Auto.FlightRecorder;
+import org.firstinspires.ftc.teamcode.Auto.Opcode;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Reads a FlightRecorder file on the desktop, converts it to CSV, and replays it.
+ *
+ * Replaying feeds the recorded wheel powers to a SimRobot cycle by cycle and compares where the
+ * simulated wheels went with where the recorded ones did, per script instruction. A large
+ * difference points at what the model leaves out: wheel slip, a low battery, a collision or a
+ * mechanical problem with one wheel.
+ *
+ * Usage: FlightLog csv recording.bin [out.csv]
+ *        FlightLog replay recording.bin
+ * Copy recordings off the robot from FlightRecorder.RECORDING_DIR, e.g. with adb pull.
+ */
+public class FlightLog {
+
+    private static final String[] WHEELS = {"fl", "fr", "bl", "br"};
+
+    public final String name;
+    public final long createdMillis;
+    /** Samples lost on the robot because the recorder's ring or file was full. */
+    public final int dropped;
+
+    // One entry per sample, in recording order
+    public final long[] nanos;
+    public final int[] pcs;
+    public final int[] lines;
+    public final int[] opcodes;
+    public final float[] headings;
+    /** Per wheel, in DriveBase order, then per sample. */
+    public final int[][] positions;
+    public final float[][] velocities;
+    public final float[][] powers;
+
+    private FlightLog(ByteBuffer buffer) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < FlightRecorder.HEADER_BYTES || buffer.getInt() != FlightRecorder.MAGIC) {
+            throw new IOException("not a flight recording");
+        }
+        short version = buffer.getShort();
+        short sampleBytes = buffer.getShort();
+        if (version != FlightRecorder.VERSION || sampleBytes != FlightRecorder.SAMPLE_BYTES) {
+            throw new IOException("unsupported recording version " + version);
+        }
+        int count = buffer.getInt();
+        dropped = buffer.getInt();
+        createdMillis = buffer.getLong();
+        byte[] nameBytes = new byte[Math.min(buffer.getShort(), FlightRecorder.MAX_NAME_BYTES)];
+        buffer.get(nameBytes);
+        name = new String(nameBytes, StandardCharsets.UTF_8);
+
+        // A recording cut short by a crash can hold fewer samples than the header says, never more
+        count = Math.min(count, (buffer.limit() - FlightRecorder.HEADER_BYTES) / FlightRecorder.SAMPLE_BYTES);
+        nanos = new long[count];
+        pcs = new int[count];
+        lines = new int[count];
+        opcodes = new int[count];
+        headings = new float[count];
+        positions = new int[4][count];
+        velocities = new float[4][count];
+        powers = new float[4][count];
+        buffer.position(FlightRecorder.HEADER_BYTES);
+        for (int s = 0; s < count; s++) {
+            nanos[s] = buffer.getLong();
+            pcs[s] = buffer.getInt();
+            lines[s] = buffer.getShort();
+            opcodes[s] = buffer.getShort();
+            headings[s] = buffer.getFloat();
+            for (int i = 0; i < 4; i++) positions[i][s] = buffer.getInt();
+            for (int i = 0; i < 4; i++) velocities[i][s] = buffer.getFloat();
+            for (int i = 0; i < 4; i++) powers[i][s] = buffer.getFloat();
+        }
+    }
+
+    /**
+     * Reads a recording.
+     *
+     * @param file File written by FlightRecorder
+     * @return the decoded samples
+     * @throws IOException if the file cannot be read or is not a recording
+     */
+    public static FlightLog read(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            byte[] bytes = new byte[(int) raf.length()];
+            raf.readFully(bytes);
+            return new FlightLog(ByteBuffer.wrap(bytes));
+        }
+    }
+
+    /**
+     * @return number of samples
+     */
+    public int size() {
+        return nanos.length;
+    }
+
+    /**
+     * @param sample Sample index
+     * @return time of the sample in seconds since the first one
+     */
+    public double seconds(int sample) {
+        return (nanos[sample] - nanos[0]) / 1e9;
+    }
+
+    /**
+     * Writes one row per sample, with a header row.
+     *
+     * @param out Where the CSV goes
+     */
+    public void writeCsv(PrintStream out) {
+        StringBuilder header = new StringBuilder("seconds,pc,line,command,heading");
+        for (String kind : new String[] {"position", "velocity", "power"}) {
+            for (String wheel : WHEELS) header.append(',').append(wheel).append('_').append(kind);
+        }
+        out.println(header);
+        for (int s = 0; s < size(); s++) {
+            StringBuilder row = new StringBuilder();
+            row.append(String.format(Locale.US, "%.4f,%d,%d,%s,%.2f", seconds(s), pcs[s], lines[s],
+                    opcodes[s] < 0 ? "" : Opcode.name(opcodes[s]), headings[s]));
+            for (int i = 0; i < 4; i++) row.append(',').append(positions[i][s]);
+            for (int i = 0; i < 4; i++) row.append(',').append(String.format(Locale.US, "%.1f", velocities[i][s]));
+            for (int i = 0; i < 4; i++) row.append(',').append(String.format(Locale.US, "%.3f", powers[i][s]));
+            out.println(row);
+        }
+    }
+
+    /**
+     * Drives a SimRobot with the recorded powers and prints, for each instruction the script
+     * ran, its duration, the average wheel travel recorded and simulated, and the heading change.
+     *
+     * @param out Where the report goes
+     */
+    public void replay(PrintStream out) {
+        SimRobot robot = new SimRobot();
+        SimMotor[] wheels = {robot.frontLeft, robot.frontRight, robot.backLeft, robot.backRight};
+        // Same directions as DriveBase; the simulated motors default to RUN_WITHOUT_ENCODER
+        robot.frontLeft.setDirection(DcMotor.Direction.REVERSE);
+        robot.backLeft.setDirection(DcMotor.Direction.REVERSE);
+
+        out.printf("%s: %d cycles over %.2f s, %d dropped on the robot%n",
+                name, size(), size() == 0 ? 0 : seconds(size() - 1), dropped);
+        out.println("    time  instruction          seconds  recorded in  replayed in  heading deg");
+        int start = 0;
+        double[] simStart = new double[4];
+        for (int s = 0; s < size(); s++) {
+            boolean last = s == size() - 1;
+            if (s > 0) {
+                robot.step((nanos[s] - nanos[s - 1]) / 1e9);
+            }
+            for (int i = 0; i < 4; i++) wheels[i].setPower(powers[i][s]);
+            if (s == start) {
+                for (int i = 0; i < 4; i++) simStart[i] = wheels[i].getCurrentPosition();
+            }
+            if (last || pcs[s + 1] != pcs[start]) {
+                out.printf("%8.3f  %-20s %7.2f  %11.1f  %11.1f  %+11.1f%n", seconds(start), describe(start),
+                        seconds(s) - seconds(start), travel(start, s), simTravel(wheels, simStart),
+                        headings[s] - headings[start]);
+                start = s + 1;
+            }
+        }
+        out.printf("end pose of the replay: x=%.1f in y=%.1f in heading=%.1f deg%n",
+                robot.getX(), robot.getY(), robot.getHeading());
+    }
+
+    private String describe(int sample) {
+        if (pcs[sample] < 0) return "(no script)";
+        return "line " + lines[sample] + " " + Opcode.name(opcodes[sample]);
+    }
+
+    /** Average absolute wheel travel between two samples, in inches. */
+    private double travel(int from, int to) {
+        double total = 0;
+        for (int i = 0; i < 4; i++) total += Math.abs(positions[i][to] - positions[i][from]);
+        return total / 4 / DriveBase.TICKS_PER_INCH;
+    }
+
+    private static double simTravel(SimMotor[] wheels, double[] start) {
+        double total = 0;
+        for (int i = 0; i < 4; i++) total += Math.abs(wheels[i].getCurrentPosition() - start[i]);
+        return total / 4 / DriveBase.TICKS_PER_INCH;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || !(args[0].equals("csv") || args[0].equals("replay"))) {
+            System.out.println("Usage: FlightLog csv recording.bin [out.csv]");
+            System.out.println("       FlightLog replay recording.bin");
+            System.exit(2);
+        }
+        FlightLog log = read(new File(args[1]));
+        if (args[0].equals("replay")) {
+            log.replay(System.out);
+        } else if (args.length > 2) {
+            try (PrintStream out = new PrintStream(new FileOutputStream(args[2]), false, "UTF-8")) {
+                log.writeCsv(out);
+            }
+        } else {
+            log.writeCsv(System.out);
+        }
+    }
+}
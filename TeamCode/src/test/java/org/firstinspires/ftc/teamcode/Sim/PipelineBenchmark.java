@@ -0,0 +1,209 @@
+package org.firstinspires.ftc.teamcode.Sim;
+
+import org.firstinspires.ftc.teamcode.Auto.AutoScript;
+import org.firstinspires.ftc.teamcode.Auto.Commands;
+import org.firstinspires.ftc.teamcode.Auto.CompiledScript;
+import org.firstinspires.ftc.teamcode.Auto.DriveBase;
+import org.firstinspires.ftc.teamcode.Auto.Feedforward;
+import org.firstinspires.ftc.teamcode.Auto.FlightRecorder;
+import org.firstinspires.ftc.teamcode.Auto.HardwareRegistry;
+import org.firstinspires.ftc.teamcode.Auto.MechanismConfig;
+import org.firstinspires.ftc.teamcode.Auto.MechanismMove;
+import org.firstinspires.ftc.teamcode.Auto.MechanismScheduler;
+import org.firstinspires.ftc.teamcode.Auto.MecanumOdometry;
+import org.firstinspires.ftc.teamcode.Auto.MotionProfile;
+import org.firstinspires.ftc.teamcode.Auto.MotorController;
+import org.firstinspires.ftc.teamcode.Auto.MovePlan;
+import org.firstinspires.ftc.teamcode.Auto.Path;
+import org.firstinspires.ftc.teamcode.Auto.PathFollower;
+import org.firstinspires.ftc.teamcode.Auto.PoseEstimator;
+import org.firstinspires.ftc.teamcode.Auto.ScriptCompiler;
+import org.firstinspires.ftc.teamcode.Auto.ScriptInterpreter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks the AutoScript path from script text to motor output on simulated hardware.
+ *
+ * Covers compiling, instruction dispatch in the ScriptInterpreter, move planning, profile
+ * sampling, and the per-cycle DriveBase math that runs every control loop. Benchmarks that run
+ * inside the control loop must not allocate; the process exits with status 1 if one does, so a
+ * change that adds garbage to the loop is caught on a desktop before it causes GC pauses on the
+ * robot.
+ *
+ * Usage: PipelineBenchmark [warmup ms] [round ms] [rounds]
+ */
+public class PipelineBenchmark {
+
+    /**
+     * Gains of a simulated slide on a MECHANISM_TICKS_PER_REV motor, for the MechanismController
+     * loop; the robot's slide ships without them. kV is 12 V over the 28 in/s free speed, kA the
+     * SimMotor time constant times kV, and kG holds a loadPower of 0.05.
+     */
+    static final MechanismConfig CONTROLLED_SLIDE = new MechanismConfig("slide", MechanismConfig.DEFAULT_TICKS_PER_INCH)
+            .setProfile(18, 100, 0)
+            .setFeedforward(new Feedforward(0, 12 / 28.0, 0.05 * 12 / 28.0))
+            .setGravity(MechanismConfig.GRAVITY_ELEVATOR, 0.05 * 12, 0)
+            .setPid(1.5, 4.0, 0.05);
+
+    /** Script with a mix of every kind of line, used for the compile benchmark. */
+    static final String MIXED_SCRIPT =
+            "set distance 24\n" +
+            "func side\n" +
+            "move forward $distance\n" +
+            "turn right 90\n" +
+            "func end\n" +
+            "repeat 4\n" +
+            "call side\n" +
+            "repeat end\n" +
+            "parallel {\n" +
+            "strafe left 12\n" +
+            "motor arm move 6\n" +
+            "servo claw 0.8\n" +
+            "}\n" +
+            "race {\n" +
+            "diagonal right_forward 10\n" +
+            "wait 1500\n" +
+            "}\n" +
+            "add distance -6\n" +
+            "move backward $distance\n" +
+            "log done\n" +
+            "stop\n";
+
+    /** Loop of instant commands: one repeat, then LOOP_COUNT adds and LOOP_COUNT repeat ends. */
+    static final int LOOP_COUNT = 1000;
+    static final String DISPATCH_SCRIPT = "repeat " + LOOP_COUNT + "\nadd i 1\nrepeat end\n";
+
+    /** Bytes per op above which a control-loop benchmark counts as allocating. */
+    static final double ALLOCATION_TOLERANCE = 0.5;
+
+    public static void main(String[] args) throws Exception {
+        long warmupMillis = args.length > 0 ? Long.parseLong(args[0]) : 500;
+        long roundMillis = args.length > 1 ? Long.parseLong(args[1]) : 200;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        Benchmark benchmark = new Benchmark(warmupMillis, roundMillis, rounds);
+
+        List<Benchmark.Result> results = new ArrayList<>();
+
+        // Script text to instructions
+        int lines = MIXED_SCRIPT.split("\n").length;
+        results.add(benchmark.measure("compile (per line)", lines,
+                () -> ScriptCompiler.compile("Mixed", MIXED_SCRIPT).size()));
+
+        List<Benchmark.Result> loopResults = measureControlLoop(benchmark);
+
+        // Everything together on a fresh simulated robot, including setup
+        CompiledScript square = ScriptCompiler.compile("Square", AutoScript.SQUARE);
+        results.add(benchmark.measure("simulate Square (whole run)", 1,
+                () -> (long) AutoSimulator.simulate(square, SimHost.DEFAULT_STEP_SECONDS).seconds));
+
+        boolean allocationFree = true;
+        System.out.println("Control loop (must not allocate):");
+        for (Benchmark.Result result : loopResults) {
+            System.out.println("  " + result);
+            if (allocates(result)) {
+                System.out.println("  !! " + result.name + " allocates");
+                allocationFree = false;
+            }
+        }
+        System.out.println("Setup:");
+        for (Benchmark.Result result : results) System.out.println("  " + result);
+
+        System.exit(allocationFree ? 0 : 1);
+    }
+
+    /**
+     * @param result A control-loop benchmark
+     * @return true if it allocates more than {@link #ALLOCATION_TOLERANCE} per op
+     */
+    static boolean allocates(Benchmark.Result result) {
+        return result.bytesPerOp > ALLOCATION_TOLERANCE;
+    }
+
+    /**
+     * Measures everything that runs inside the control loop, on a fresh simulated robot.
+     *
+     * @param benchmark Timing settings
+     * @return one result per benchmark
+     * @throws Exception if a benchmark body throws
+     */
+    static List<Benchmark.Result> measureControlLoop(Benchmark benchmark) throws Exception {
+        List<Benchmark.Result> loopResults = new ArrayList<>();
+
+        // Instruction dispatch through the handler table
+        SimRobot robot = new SimRobot();
+        SimHost host = new SimHost(robot, SimHost.DEFAULT_STEP_SECONDS, Double.MAX_VALUE, System.out);
+        DriveBase driveBase = new DriveBase(robot.getHardwareMap());
+        ScriptInterpreter interpreter = new ScriptInterpreter();
+        Commands.register(interpreter, driveBase, host);
+        CompiledScript dispatch = ScriptCompiler.compile("Dispatch", DISPATCH_SCRIPT);
+        interpreter.prepare(dispatch);
+        loopResults.add(benchmark.measure("interpreter dispatch (per instr)", 2 * LOOP_COUNT + 1, () -> {
+            interpreter.run(dispatch, host);
+            return interpreter.isHalted() ? 1 : 0;
+        }));
+
+        // Move planning, as DriveAction does for variable operands
+        MovePlan plan = new MovePlan();
+        loopResults.add(benchmark.measure("MovePlan.setTurn", 1,
+                () -> plan.setTurn(90, Commands.TURN_SPEED).frontLeft));
+
+        // Per-cycle drivetrain math. The motors are not stepped, so the move never ends.
+        driveBase.startDrive(1000, Commands.DRIVE_SPEED);
+        loopResults.add(benchmark.measure("DriveBase.getAverageErrorTicks", 1,
+                () -> (long) driveBase.getAverageErrorTicks()));
+        MotionProfile profile = driveBase.getProfile();
+        double[] time = {0};
+        loopResults.add(benchmark.measure("MotionProfile sample", 1, () -> {
+            time[0] = time[0] > profile.getDuration() ? 0 : time[0] + 0.001;
+            return (long) (profile.getPosition(time[0]) + profile.getVelocity(time[0]) + profile.getAcceleration(time[0]));
+        }));
+        loopResults.add(benchmark.measure("DriveBase.setMotorPowers", 1, () -> {
+            driveBase.setMotorPowers(Commands.DRIVE_SPEED);
+            return 0;
+        }));
+        loopResults.add(benchmark.measure("DriveBase.updateMove", 1, () -> driveBase.updateMove() ? 1 : 0));
+
+        // Encoder odometry stepped from the control loop, as AutoScriptor does
+        PoseEstimator poseEstimator = new PoseEstimator(new MecanumOdometry(driveBase));
+        poseEstimator.setClock(host::nanoTime);
+        loopResults.add(benchmark.measure("PoseEstimator.update", 1, () -> {
+            poseEstimator.update();
+            return poseEstimator.getUpdateCount();
+        }));
+
+        // Path following from a pose that does not change, so the path never ends
+        PathFollower follower = new PathFollower(driveBase, poseEstimator);
+        follower.setClock(host::nanoTime);
+        follower.start(Path.spline(new double[] {0, 0, 24, 12, 48, 0}, Path.TANGENT_HEADING, Commands.DRIVE_SPEED));
+        loopResults.add(benchmark.measure("PathFollower.update", 1, () -> follower.update() ? 1 : 0));
+
+        // Two mechanism moves ticked together, one closed-loop and one on RUN_TO_POSITION. The motors
+        // are not stepped and the timeout is out of reach, so the moves never end.
+        robot.addMotor("slide", SimRobot.MECHANISM_TICKS_PER_REV, MotorController.MAX_TICKS_PER_SECOND);
+        robot.addMotor("arm", SimRobot.MECHANISM_TICKS_PER_REV, MotorController.MAX_TICKS_PER_SECOND);
+        HardwareRegistry registry = new HardwareRegistry(robot.getHardwareMap());
+        MotorController slide = new MotorController(robot.getHardwareMap(), "slide", CONTROLLED_SLIDE);
+        slide.setClock(host::nanoTime);
+        MechanismScheduler mechanisms = new MechanismScheduler(host);
+        mechanisms.start(new MechanismMove(slide, host::nanoTime).set(20, 1.0, 1e6));
+        mechanisms.start(new MechanismMove(registry.motor("arm"), host::nanoTime).set(-4, 0.5, 1e6));
+        loopResults.add(benchmark.measure("MechanismScheduler.tick (2 moves)", 1, mechanisms::tick));
+
+        // Recording a cycle. The ring is emptied every 256 cycles, as the writer thread would;
+        // once the file is full the samples are dropped, which costs the same.
+        File recording = File.createTempFile("benchmark", ".bin");
+        recording.deleteOnExit();
+        FlightRecorder recorder = new FlightRecorder(recording, "benchmark", FlightRecorder.DEFAULT_MAX_SAMPLES);
+        long[] cycles = {0};
+        loopResults.add(benchmark.measure("FlightRecorder.record", 1, () -> {
+            recorder.record(host.nanoTime(), driveBase, interpreter);
+            if ((++cycles[0] & 255) == 0) recorder.flush();
+            return cycles[0];
+        }));
+        recorder.close();
+        return loopResults;
+    }
+}
@@ -0,0 +1,87 @@
+package org.firstinspires.ftc.teamcode.Sim;
+
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import org.firstinspires.ftc.teamcode.Auto.ScriptHost;
+
+import java.io.PrintStream;
+
+/**
+ * ScriptHost with a simulated clock. Every idle() advances the clock and the SimRobot by one
+ * control cycle, so a script runs as fast as the computer can step it.
+ */
+public class SimHost implements ScriptHost {
+
+    /** Simulated control cycle, roughly one hub round trip. */
+    public static final double DEFAULT_STEP_SECONDS = 0.005;
+
+    private final SimRobot robot;
+    private final double stepSeconds;
+    private final long limitNanos;
+    private final PrintStream out;
+    private Runnable onCycle;
+    private long nanos;
+
+    /**
+     * @param robot Robot to step
+     * @param stepSeconds Simulated time per control cycle
+     * @param limitSeconds Simulated time after which the run is stopped, like the end of the period
+     * @param out Where log lines go
+     */
+    public SimHost(SimRobot robot, double stepSeconds, double limitSeconds, PrintStream out) {
+        this.robot = robot;
+        this.stepSeconds = stepSeconds;
+        this.limitNanos = (long) (limitSeconds * 1e9);
+        this.out = out;
+    }
+
+    @Override
+    public boolean isActive() {
+        return nanos < limitNanos;
+    }
+
+    @Override
+    public void idle() {
+        robot.step(stepSeconds);
+        nanos += (long) (stepSeconds * 1e9);
+        if (onCycle != null) onCycle.run();
+    }
+
+    /**
+     * Sets work to run after every simulated cycle, in place of the robot's background threads.
+     *
+     * @param onCycle Called from idle(), or null for none
+     */
+    public void setOnCycle(Runnable onCycle) {
+        this.onCycle = onCycle;
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanos;
+    }
+
+    @Override
+    public HardwareMap getHardwareMap() {
+        return robot.getHardwareMap();
+    }
+
+    @Override
+    public void log(String line) {
+        out.printf("%7.3f s  %s%n", getSeconds(), line);
+    }
+
+    /**
+     * @return simulated time since the start, in seconds
+     */
+    public double getSeconds() {
+        return nanos / 1e9;
+    }
+
+    /**
+     * @return true if the run was stopped by the time limit
+     */
+    public boolean isTimedOut() {
+        return nanos >= limitNanos;
+    }
+}
@@ -0,0 +1,103 @@
+package org.firstinspires.ftc.teamcode.Sim;
+
+import com.qualcomm.robotcore.hardware.IMU;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.AngularVelocity;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesOrder;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesReference;
+import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
+import org.firstinspires.ftc.robotcore.external.navigation.Quaternion;
+import org.firstinspires.ftc.robotcore.external.navigation.YawPitchRollAngles;
+
+/**
+ * Simulated hub IMU. Reports the SimRobot's true heading as yaw, counter-clockwise and wrapped to
+ * +/-180 degrees like the real one, with pitch and roll always zero.
+ */
+public class SimImu implements IMU {
+
+    private final SimRobot robot;
+    private double yawOffset;
+    private int reads;
+
+    /**
+     * @param robot Robot whose heading is reported
+     */
+    public SimImu(SimRobot robot) {
+        this.robot = robot;
+    }
+
+    /**
+     * @return number of orientation reads, to check how often the code under test reads the IMU
+     */
+    public int getReadCount() {
+        return reads;
+    }
+
+    private double yawDegrees() {
+        reads++;
+        return AngleUnit.normalizeDegrees(-robot.getHeading() - yawOffset);
+    }
+
+    @Override
+    public boolean initialize(Parameters parameters) {
+        return true;
+    }
+
+    @Override
+    public void resetYaw() {
+        yawOffset = -robot.getHeading();
+    }
+
+    @Override
+    public YawPitchRollAngles getRobotYawPitchRollAngles() {
+        return new YawPitchRollAngles(AngleUnit.DEGREES, yawDegrees(), 0, 0, System.nanoTime());
+    }
+
+    @Override
+    public Orientation getRobotOrientation(AxesReference reference, AxesOrder order, AngleUnit angleUnit) {
+        // Only the heading axis is simulated, so the order only matters for where the yaw goes
+        float yaw = (float) angleUnit.fromDegrees(yawDegrees());
+        return new Orientation(reference, order, angleUnit, yaw, 0, 0, System.nanoTime());
+    }
+
+    @Override
+    public Quaternion getRobotOrientationAsQuaternion() {
+        double half = Math.toRadians(yawDegrees()) / 2;
+        return new Quaternion((float) Math.cos(half), 0, 0, (float) Math.sin(half), System.nanoTime());
+    }
+
+    @Override
+    public AngularVelocity getRobotAngularVelocity(AngleUnit angleUnit) {
+        float rate = (float) angleUnit.fromDegrees(-robot.getHeadingVelocity());
+        return new AngularVelocity(angleUnit, 0, 0, rate, System.nanoTime());
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return Manufacturer.Lynx;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return "Simulated IMU";
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return "simulated";
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,341 @@
+package org.firstinspires.ftc.teamcode.Sim;
+
+import com.qualcomm.robotcore.hardware.DcMotorController;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.PIDCoefficients;
+import com.qualcomm.robotcore.hardware.PIDFCoefficients;
+import com.qualcomm.robotcore.hardware.configuration.typecontainers.MotorConfigurationType;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.CurrentUnit;
+
+/**
+ * Simulated DC motor with an encoder, modelled on how a REV hub drives a motor.
+ *
+ * The motor tracks a commanded shaft velocity through a first-order lag. In RUN_WITHOUT_ENCODER
+ * and RUN_USING_ENCODER the command is power times free speed (or the setVelocity value);
+ * in RUN_TO_POSITION it is a proportional position loop capped at |power| times free speed,
+ * and isBusy() stays true until the encoder is within the target tolerance. A {@link #loadPower}
+ * models a mechanism that gravity pulls on.
+ * Direction REVERSE inverts both power and encoder, as on the real hub.
+ * Time only moves when {@link #step(double)} is called.
+ */
+public class SimMotor implements DcMotorEx {
+
+    /** Encoder ticks per second at full power. */
+    public double maxTicksPerSecond;
+
+    /** Time constant of the velocity response in seconds. */
+    public double timeConstant = 0.05;
+
+    /** RUN_TO_POSITION proportional gain, in ticks/s of command per tick of error. */
+    public double positionGain = 10.0;
+
+    /**
+     * Constant load against the forward physical direction, e.g. gravity on a vertical slide, as
+     * the power it takes to hold the motor still. It slows the motor by that fraction of free
+     * speed whatever the mode.
+     */
+    public double loadPower = 0;
+
+    private final String name;
+    private final double ticksPerRev;
+
+    private Direction direction = Direction.FORWARD;
+    private RunMode mode = RunMode.RUN_WITHOUT_ENCODER;
+    private ZeroPowerBehavior zeroPowerBehavior = ZeroPowerBehavior.BRAKE;
+    private boolean enabled = true;
+
+    private double power;
+    private double commandedVelocity; // ticks/s from setVelocity, logical direction
+    private boolean velocityCommanded;
+    private int targetPosition;
+    private int tolerance = 5;
+
+    // Physical shaft state, before the direction is applied
+    private double position;
+    private double velocity;
+
+    private int writes;
+
+    /**
+     * @param name Hardware name
+     * @param ticksPerRev Encoder ticks per output shaft revolution
+     * @param maxTicksPerSecond Encoder ticks per second at full power
+     */
+    public SimMotor(String name, double ticksPerRev, double maxTicksPerSecond) {
+        this.name = name;
+        this.ticksPerRev = ticksPerRev;
+        this.maxTicksPerSecond = maxTicksPerSecond;
+    }
+
+    /**
+     * Advances the motor by one time step.
+     *
+     * @param dt Step length in seconds
+     */
+    public void step(double dt) {
+        double sign = direction == Direction.REVERSE ? -1 : 1;
+        double target = 0;
+        if (enabled) {
+            switch (mode) {
+                case RUN_WITHOUT_ENCODER:
+                    target = sign * power * maxTicksPerSecond;
+                    break;
+                case RUN_USING_ENCODER:
+                    target = sign * (velocityCommanded ? commandedVelocity : power * maxTicksPerSecond);
+                    break;
+                case RUN_TO_POSITION: {
+                    double error = targetPosition - getCurrentPosition();
+                    double cap = Math.abs(power) * maxTicksPerSecond;
+                    target = sign * Math.max(-cap, Math.min(cap, error * positionGain));
+                    break;
+                }
+                case STOP_AND_RESET_ENCODER:
+                    target = 0;
+                    break;
+            }
+        }
+        target = Math.max(-maxTicksPerSecond, Math.min(maxTicksPerSecond, target)) - loadPower * maxTicksPerSecond;
+        velocity += (target - velocity) * (1 - Math.exp(-dt / timeConstant));
+        position += velocity * dt;
+    }
+
+    /**
+     * @return shaft velocity in ticks/s in the motor's physical direction, ignoring the Direction setting
+     */
+    public double getPhysicalVelocity() {
+        return velocity;
+    }
+
+    /**
+     * @return number of writes received (power, mode, target, velocity), for counting hub transactions
+     */
+    public int getWriteCount() {
+        return writes;
+    }
+
+    @Override
+    public void setPower(double power) {
+        writes++;
+        this.power = Math.max(-1, Math.min(1, power));
+        velocityCommanded = false;
+    }
+
+    @Override
+    public double getPower() {
+        return power;
+    }
+
+    @Override
+    public void setVelocity(double angularRate) {
+        writes++;
+        commandedVelocity = angularRate;
+        velocityCommanded = true;
+        power = angularRate / maxTicksPerSecond;
+    }
+
+    @Override
+    public void setVelocity(double angularRate, AngleUnit unit) {
+        setVelocity(unit.toRadians(angularRate) / (2 * Math.PI) * ticksPerRev);
+    }
+
+    @Override
+    public double getVelocity() {
+        return direction == Direction.REVERSE ? -velocity : velocity;
+    }
+
+    @Override
+    public double getVelocity(AngleUnit unit) {
+        return unit.fromRadians(getVelocity() / ticksPerRev * 2 * Math.PI);
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        int ticks = (int) Math.round(position);
+        return direction == Direction.REVERSE ? -ticks : ticks;
+    }
+
+    @Override
+    public void setTargetPosition(int position) {
+        writes++;
+        targetPosition = position;
+    }
+
+    @Override
+    public int getTargetPosition() {
+        return targetPosition;
+    }
+
+    @Override
+    public boolean isBusy() {
+        return mode == RunMode.RUN_TO_POSITION && Math.abs(targetPosition - getCurrentPosition()) > tolerance;
+    }
+
+    @Override
+    public void setMode(RunMode mode) {
+        writes++;
+        if (mode == RunMode.STOP_AND_RESET_ENCODER) {
+            position = 0;
+            velocity = 0;
+            power = 0;
+        }
+        this.mode = mode;
+    }
+
+    @Override
+    public RunMode getMode() {
+        return mode;
+    }
+
+    @Override
+    public void setDirection(Direction direction) {
+        this.direction = direction;
+    }
+
+    @Override
+    public Direction getDirection() {
+        return direction;
+    }
+
+    @Override
+    public void setZeroPowerBehavior(ZeroPowerBehavior zeroPowerBehavior) {
+        this.zeroPowerBehavior = zeroPowerBehavior;
+    }
+
+    @Override
+    public ZeroPowerBehavior getZeroPowerBehavior() {
+        return zeroPowerBehavior;
+    }
+
+    @Override
+    @Deprecated
+    public void setPowerFloat() {
+        zeroPowerBehavior = ZeroPowerBehavior.FLOAT;
+        setPower(0);
+    }
+
+    @Override
+    public boolean getPowerFloat() {
+        return zeroPowerBehavior == ZeroPowerBehavior.FLOAT && power == 0;
+    }
+
+    @Override
+    public void setTargetPositionTolerance(int tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    @Override
+    public int getTargetPositionTolerance() {
+        return tolerance;
+    }
+
+    @Override
+    public void setMotorEnable() {
+        enabled = true;
+    }
+
+    @Override
+    public void setMotorDisable() {
+        enabled = false;
+    }
+
+    @Override
+    public boolean isMotorEnabled() {
+        return enabled;
+    }
+
+    @Override
+    @Deprecated
+    public void setPIDCoefficients(RunMode mode, PIDCoefficients pidCoefficients) {
+    }
+
+    @Override
+    public void setPIDFCoefficients(RunMode mode, PIDFCoefficients pidfCoefficients) {
+    }
+
+    @Override
+    public void setVelocityPIDFCoefficients(double p, double i, double d, double f) {
+    }
+
+    @Override
+    public void setPositionPIDFCoefficients(double p) {
+    }
+
+    @Override
+    @Deprecated
+    public PIDCoefficients getPIDCoefficients(RunMode mode) {
+        return new PIDCoefficients();
+    }
+
+    @Override
+    public PIDFCoefficients getPIDFCoefficients(RunMode mode) {
+        return new PIDFCoefficients();
+    }
+
+    @Override
+    public double getCurrent(CurrentUnit unit) {
+        return 0;
+    }
+
+    @Override
+    public double getCurrentAlert(CurrentUnit unit) {
+        return 0;
+    }
+
+    @Override
+    public void setCurrentAlert(double current, CurrentUnit unit) {
+    }
+
+    @Override
+    public boolean isOverCurrent() {
+        return false;
+    }
+
+    @Override
+    public MotorConfigurationType getMotorType() {
+        return MotorConfigurationType.getUnspecifiedMotorType();
+    }
+
+    @Override
+    public void setMotorType(MotorConfigurationType motorType) {
+    }
+
+    @Override
+    public DcMotorController getController() {
+        return null;
+    }
+
+    @Override
+    public int getPortNumber() {
+        return 0;
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return Manufacturer.Other;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return "Simulated motor " + name;
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return "simulation";
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
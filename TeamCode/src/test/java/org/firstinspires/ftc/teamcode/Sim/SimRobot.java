@@ -0,0 +1,172 @@
+package org.firstinspires.ftc.teamcode.Sim;
+
+import com.qualcomm.robotcore.hardware.HardwareDevice;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import org.firstinspires.ftc.teamcode.Auto.CompiledScript;
+import org.firstinspires.ftc.teamcode.Auto.DriveBase;
+import org.firstinspires.ftc.teamcode.Auto.MotorController;
+import org.firstinspires.ftc.teamcode.Auto.Opcode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Simulated mecanum robot with the geometry in DriveBase.
+ *
+ * Holds a HardwareMap of simulated devices that DriveBase and the script commands use unchanged,
+ * steps the motors and integrates the robot's field pose from the wheel speeds.
+ * The pose starts at the origin facing +x; y is to the robot's right and heading is in degrees,
+ * positive clockwise, matching "turn right".
+ *
+ * Mecanum rollers scrub when the robot turns, so it rotates less than the wheel travel suggests.
+ * {@link #setTurnScrub(double)} models this; the hub IMU ("imu") reports the true heading.
+ */
+public class SimRobot {
+
+    /** Encoder ticks per revolution of the mechanism motors, a bare motor as assumed by MotorController. */
+    public static final double MECHANISM_TICKS_PER_REV = 28;
+
+    private final HardwareMap hardwareMap = new HardwareMap(null, null);
+    private final List<SimMotor> motors = new ArrayList<>();
+
+    public final SimMotor frontLeft;
+    public final SimMotor frontRight;
+    public final SimMotor backLeft;
+    public final SimMotor backRight;
+    public final SimImu imu;
+
+    private double x;
+    private double y;
+    private double heading;
+    private double headingVelocity;
+    private double turnScrub;
+
+    /**
+     * Creates the drivetrain motors.
+     */
+    public SimRobot() {
+        double driveTicksPerSecond = DriveBase.MAX_MOTOR_RPM / 60.0 * DriveBase.TICKS_PER_REV;
+        frontLeft = addMotor("frontLeft", DriveBase.TICKS_PER_REV, driveTicksPerSecond);
+        frontRight = addMotor("frontRight", DriveBase.TICKS_PER_REV, driveTicksPerSecond);
+        backLeft = addMotor("backLeft", DriveBase.TICKS_PER_REV, driveTicksPerSecond);
+        backRight = addMotor("backRight", DriveBase.TICKS_PER_REV, driveTicksPerSecond);
+        imu = new SimImu(this);
+        hardwareMap.put("imu", imu);
+    }
+
+    /**
+     * Sets how much of a turn is lost to roller scrub.
+     *
+     * @param fraction 0 for none (the default), 0.1 to turn 10% less than the wheels say
+     */
+    public void setTurnScrub(double fraction) {
+        turnScrub = fraction;
+    }
+
+    /**
+     * Adds a motor to the hardware map.
+     *
+     * @param name Hardware name
+     * @param ticksPerRev Encoder ticks per output shaft revolution
+     * @param maxTicksPerSecond Encoder ticks per second at full power
+     * @return the new motor
+     */
+    public SimMotor addMotor(String name, double ticksPerRev, double maxTicksPerSecond) {
+        SimMotor motor = new SimMotor(name, ticksPerRev, maxTicksPerSecond);
+        hardwareMap.put(name, motor);
+        motors.add(motor);
+        return motor;
+    }
+
+    /**
+     * Adds a servo to the hardware map.
+     *
+     * @param name Hardware name
+     * @return the new servo
+     */
+    public SimServo addServo(String name) {
+        SimServo servo = new SimServo(name);
+        hardwareMap.put(name, servo);
+        return servo;
+    }
+
+    /**
+     * Adds every motor and servo a script refers to that is not in the hardware map yet.
+     *
+     * @param script Compiled script
+     */
+    public void addDevicesFor(CompiledScript script) {
+        for (int pc = 0; pc < script.size(); pc++) {
+            String name = script.texts[pc];
+            if (name == null || hardwareMap.tryGet(HardwareDevice.class, name) != null) continue;
+            int op = script.ops[pc];
+            if (op == Opcode.SERVO) {
+                addServo(name);
+            } else if (op == Opcode.MOTOR_MOVE || op == Opcode.MOTOR_POWER || op == Opcode.MOTOR_STOP) {
+                addMotor(name, MECHANISM_TICKS_PER_REV, MotorController.MAX_TICKS_PER_SECOND);
+            }
+        }
+    }
+
+    /**
+     * Advances every motor and the robot pose by one time step.
+     *
+     * @param dt Step length in seconds
+     */
+    public void step(double dt) {
+        for (int i = 0; i < motors.size(); i++) motors.get(i).step(dt);
+
+        // Left motors are mounted mirrored, so forward wheel travel is negative shaft rotation
+        double fl = -frontLeft.getPhysicalVelocity() / DriveBase.TICKS_PER_INCH;
+        double fr = frontRight.getPhysicalVelocity() / DriveBase.TICKS_PER_INCH;
+        double bl = -backLeft.getPhysicalVelocity() / DriveBase.TICKS_PER_INCH;
+        double br = backRight.getPhysicalVelocity() / DriveBase.TICKS_PER_INCH;
+
+        double forward = (fl + fr + bl + br) / 4;
+        double right = (fl - fr - bl + br) / 4;
+        // Same turning circle as DriveBase.turnDegreesToInches
+        double turnRate = Math.toDegrees((fl - fr + bl - br) / 4 / (DriveBase.ROBOT_TRACK_WIDTH / 2)) * (1 - turnScrub);
+        headingVelocity = turnRate;
+
+        double mid = Math.toRadians(heading + turnRate * dt / 2);
+        x += (forward * Math.cos(mid) - right * Math.sin(mid)) * dt;
+        y += (forward * Math.sin(mid) + right * Math.cos(mid)) * dt;
+        heading += turnRate * dt;
+    }
+
+    /**
+     * @return simulated hardware for DriveBase and the script commands
+     */
+    public HardwareMap getHardwareMap() {
+        return hardwareMap;
+    }
+
+    /**
+     * @return field x in inches, forward from the start pose
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * @return field y in inches, right of the start pose
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * @return heading in degrees, positive clockwise from the start pose
+     */
+    public double getHeading() {
+        return heading;
+    }
+
+    /**
+     * @return turn rate in degrees per second, positive clockwise
+     */
+    public double getHeadingVelocity() {
+        return headingVelocity;
+    }
+}
@@ -0,0 +1,96 @@
+package org.firstinspires.ftc.teamcode.Sim;
+
+import com.qualcomm.robotcore.hardware.Servo;
+import com.qualcomm.robotcore.hardware.ServoController;
+
+/**
+ * Simulated servo. It reaches its commanded position immediately.
+ */
+public class SimServo implements Servo {
+
+    private final String name;
+    private Direction direction = Direction.FORWARD;
+    private double position;
+    private double min = MIN_POSITION;
+    private double max = MAX_POSITION;
+    private int writes;
+
+    /**
+     * @param name Hardware name
+     */
+    public SimServo(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return number of setPosition calls received
+     */
+    public int getWriteCount() {
+        return writes;
+    }
+
+    @Override
+    public void setPosition(double position) {
+        writes++;
+        this.position = Math.max(MIN_POSITION, Math.min(MAX_POSITION, position));
+    }
+
+    @Override
+    public double getPosition() {
+        return position;
+    }
+
+    @Override
+    public void scaleRange(double min, double max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    @Override
+    public void setDirection(Direction direction) {
+        this.direction = direction;
+    }
+
+    @Override
+    public Direction getDirection() {
+        return direction;
+    }
+
+    @Override
+    public ServoController getController() {
+        return null;
+    }
+
+    @Override
+    public int getPortNumber() {
+        return 0;
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return Manufacturer.Other;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return "Simulated servo " + name;
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return "simulation";
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
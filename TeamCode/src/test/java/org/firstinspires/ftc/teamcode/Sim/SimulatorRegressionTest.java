@@ -0,0 +1,113 @@
+package org.firstinspires.ftc.teamcode.Sim;
+
+import org.firstinspires.ftc.teamcode.Auto.AutoScript;
+import org.firstinspires.ftc.teamcode.Auto.CompiledScript;
+import org.firstinspires.ftc.teamcode.Auto.DriveBase;
+import org.firstinspires.ftc.teamcode.Auto.MechanismConfig;
+import org.firstinspires.ftc.teamcode.Auto.MechanismMove;
+import org.firstinspires.ftc.teamcode.Auto.MotorController;
+import org.firstinspires.ftc.teamcode.Auto.PathFollower;
+import org.firstinspires.ftc.teamcode.Auto.ScriptCompiler;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the built-in scripts and the control-loop benchmarks on the simulated robot, so a change
+ * that breaks a script, the run time estimate, the odometry or the allocation-free loop fails
+ * the unit tests instead of showing up on the field.
+ */
+public class SimulatorRegressionTest {
+
+    /** How far the selector's run time estimate may be from the simulated run. */
+    private static final double ESTIMATE_TOLERANCE = 0.2;
+
+    private static AutoSimulator.Result simulate(String name, String source) throws InterruptedException {
+        CompiledScript script = ScriptCompiler.compile(name, source);
+        assertFalse(name + " has errors: " + script.getErrors(), script.hasErrors());
+        return AutoSimulator.simulate(script, SimHost.DEFAULT_STEP_SECONDS);
+    }
+
+    private static void assertPassed(AutoSimulator.Result result) {
+        assertNull(result.name + " failed", result.error);
+        assertTrue(result.name + " took " + result.seconds + " s", result.passed());
+        assertEquals(result.name + " estimate", result.seconds, result.estimatedSeconds,
+                ESTIMATE_TOLERANCE * result.seconds);
+    }
+
+    @Test
+    public void squareEndsWhereItsMovesLead() throws InterruptedException {
+        AutoSimulator.Result result = simulate("Square", AutoScript.SQUARE);
+        assertPassed(result);
+        assertEquals(10, result.x, 1);
+        assertEquals(0, result.y, 1);
+        assertEquals(90, result.heading, 3);
+        // Odometry is in its own axes: y left and heading counter-clockwise
+        assertEquals(result.x, result.odometry.x, 0.5);
+        assertEquals(result.y, -result.odometry.y, 0.5);
+        assertEquals(result.heading, -result.odometry.getHeadingDegrees(), 2);
+    }
+
+    @Test
+    public void slideUpReturnsTheSlide() throws InterruptedException {
+        AutoSimulator.Result result = simulate("SlideUp", AutoScript.SLIDE_UP);
+        assertPassed(result);
+        assertEquals(0, result.x, 0.1);
+        assertEquals(0, result.y, 0.1);
+    }
+
+    @Test
+    public void pathEndsAtItsLastWaypoint() throws InterruptedException {
+        AutoSimulator.Result result = simulate("Path", "path spline 0 0 24 12 48 0\npath line 48 0 48 -24\n");
+        assertPassed(result);
+        // Odometry y is to the left, the simulator's to the right
+        assertEquals(48, result.x, PathFollower.POSITION_TOLERANCE_INCHES + 0.5);
+        assertEquals(24, result.y, PathFollower.POSITION_TOLERANCE_INCHES + 0.5);
+    }
+
+    @Test
+    public void rangeChecksVariablesWhenTheyAreUsed() throws InterruptedException {
+        // The compiler can only check literals; 0.75 + 0.5 is out of range by the third line
+        AutoSimulator.Result result = simulate("Servo", "set p 0.75\nadd p 0.5\nservo claw $p\nmove forward 10\n");
+        assertEquals("line 3: servo position must be between 0.0 and 1.0: $p is 1.25", result.error);
+        assertEquals(0, result.x, 0.1);
+
+        result = simulate("Wait", "set t 100\nparallel {\nwait $t\nmove forward 10\n}\nadd t -200\nwait $t\n");
+        assertEquals("line 7: wait time cannot be negative: $t is -100.0", result.error);
+        assertEquals(10, result.x, 1);
+    }
+
+    @Test
+    public void closedLoopSlideHoldsItsTarget() throws InterruptedException {
+        SimRobot robot = new SimRobot();
+        SimMotor motor = robot.addMotor("slide", SimRobot.MECHANISM_TICKS_PER_REV, MotorController.MAX_TICKS_PER_SECOND);
+        MechanismConfig config = PipelineBenchmark.CONTROLLED_SLIDE;
+        motor.loadPower = config.kG / DriveBase.NOMINAL_VOLTAGE;
+        SimHost host = new SimHost(robot, SimHost.DEFAULT_STEP_SECONDS, AutoSimulator.TIME_LIMIT_SECONDS, System.out);
+        MotorController slide = new MotorController(robot.getHardwareMap(), "slide", config);
+        slide.setClock(host::nanoTime);
+        host.setOnCycle(slide::updateHold);
+        assertEquals(MechanismMove.ARRIVED, slide.moveInches(20, 1.0, host));
+
+        // A game element picked up at the top doubles the load; the PID has to make up for it
+        motor.loadPower *= 2;
+        for (int i = 0; i < 400; i++) host.idle();
+        assertEquals(20, motor.getCurrentPosition() / config.ticksPerInch, config.positionTolerance);
+
+        // Power given directly takes the motor back from the hold
+        slide.setPower(0);
+        host.idle();
+        host.idle();
+        assertEquals(0, motor.getPower(), 0);
+    }
+
+    @Test
+    public void controlLoopDoesNotAllocate() throws Exception {
+        for (Benchmark.Result result : PipelineBenchmark.measureControlLoop(new Benchmark(200, 50, 3))) {
+            assertFalse(result.name + " allocates " + result.bytesPerOp + " B/op", PipelineBenchmark.allocates(result));
+        }
+    }
+}